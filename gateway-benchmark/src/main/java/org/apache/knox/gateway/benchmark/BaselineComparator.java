@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the JSON results of a JMH run with the baseline checked into this
+ * module, and fails when the score or the allocation rate per operation of a
+ * benchmark regressed by more than a tolerance.
+ * <p>
+ * The benchmarks of this module report the average time per operation, so a
+ * lower score is better for both metrics. Benchmarks missing from the
+ * baseline are reported but never fail the comparison, a missing or empty
+ * baseline does. The baseline is recorded by copying the results of a run on
+ * the reference hardware to {@code src/main/baseline/jmh-baseline.json}; until
+ * then, the {@code gateway-benchmark} profile only records the results.
+ */
+public class BaselineComparator {
+  static final String ALLOCATION_METRIC = "\u00b7gc.alloc.rate.norm";
+
+  private final double tolerance;
+  private final List<String> regressions = new ArrayList<>();
+  private final List<String> report = new ArrayList<>();
+
+  /**
+   * @param tolerance relative increase tolerated before a benchmark is
+   *                  reported as a regression, e.g. 0.10 for 10%
+   */
+  public BaselineComparator(final double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Usage: {@code BaselineComparator <baseline.json> <result.json> [tolerance]}
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      throw new IllegalArgumentException("Usage: BaselineComparator <baseline.json> <result.json> [tolerance]");
+    }
+    final double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+    final ObjectMapper mapper = new ObjectMapper();
+    final File baselineFile = new File(args[0]);
+    if (!baselineFile.exists()) {
+      throw new IllegalStateException("No baseline at " + baselineFile
+          + ", record it by copying the results of a run on the reference hardware");
+    }
+    final JsonNode baseline = mapper.readTree(baselineFile);
+    final JsonNode result = mapper.readTree(new File(args[1]));
+
+    final BaselineComparator comparator = new BaselineComparator(tolerance);
+    comparator.compare(baseline, result);
+    comparator.getReport().forEach(System.out::println);
+    if (!comparator.getRegressions().isEmpty()) {
+      throw new IllegalStateException("Benchmarks regressed against the baseline: " + comparator.getRegressions());
+    }
+  }
+
+  /**
+   * @param baseline JMH results of the baseline
+   * @param result JMH results of the run to compare
+   * @throws IllegalArgumentException if the baseline has no benchmark
+   */
+  public void compare(final JsonNode baseline, final JsonNode result) {
+    final Map<String, JsonNode> baselines = new HashMap<>();
+    for (JsonNode benchmark : baseline) {
+      baselines.put(key(benchmark), benchmark);
+    }
+    if (baselines.isEmpty()) {
+      throw new IllegalArgumentException("The baseline has no benchmark, record it by copying the results"
+          + " of a run on the reference hardware");
+    }
+    for (JsonNode benchmark : result) {
+      final String key = key(benchmark);
+      final JsonNode reference = baselines.get(key);
+      if (reference == null) {
+        report.add(String.format(Locale.ROOT, "%s: no baseline, score %.3f %s", key,
+            benchmark.path("primaryMetric").path("score").asDouble(),
+            benchmark.path("primaryMetric").path("scoreUnit").asText()));
+        continue;
+      }
+      compareMetric(key, "score", reference.path("primaryMetric"), benchmark.path("primaryMetric"));
+      compareMetric(key, "allocation", reference.path("secondaryMetrics").path(ALLOCATION_METRIC),
+          benchmark.path("secondaryMetrics").path(ALLOCATION_METRIC));
+    }
+  }
+
+  public List<String> getRegressions() {
+    return regressions;
+  }
+
+  public List<String> getReport() {
+    return report;
+  }
+
+  private void compareMetric(final String key, final String name, final JsonNode reference, final JsonNode metric) {
+    if (reference.isMissingNode() || metric.isMissingNode()) {
+      return;
+    }
+    final double expected = reference.path("score").asDouble();
+    final double actual = metric.path("score").asDouble();
+    final String line = String.format(Locale.ROOT, "%s %s: %.3f %s, baseline %.3f", key, name, actual,
+        metric.path("scoreUnit").asText(), expected);
+    report.add(line);
+    if (actual > expected * (1 + tolerance)) {
+      regressions.add(line);
+    }
+  }
+
+  /*
+   * Benchmark name with its parameters, e.g. FilterReaderBenchmark.filterJson:entries=10
+   */
+  private static String key(final JsonNode benchmark) {
+    final StringBuilder key = new StringBuilder(benchmark.path("benchmark").asText());
+    final Iterator<Map.Entry<String, JsonNode>> params = benchmark.path("params").fields();
+    while (params.hasNext()) {
+      final Map.Entry<String, JsonNode> param = params.next();
+      key.append(':').append(param.getKey()).append('=').append(param.getValue().asText());
+    }
+    return key.toString();
+  }
+}
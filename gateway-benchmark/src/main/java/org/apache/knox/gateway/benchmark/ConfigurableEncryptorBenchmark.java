@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.knox.gateway.services.security.EncryptionResult;
+import org.apache.knox.gateway.services.security.impl.ConfigurableEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encryption and decryption of the values, such as query strings and
+ * cookies, encrypted by the gateway with the default algorithms. Both derive
+ * the key from the passphrase, which dominates their cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConfigurableEncryptorBenchmark {
+  private static final String VALUE = "user.name=guest&op=OPEN&offset=0&length=1048576";
+
+  private ConfigurableEncryptor encryptor;
+  private EncryptionResult encrypted;
+
+  @Setup
+  public void setup() throws Exception {
+    encryptor = new ConfigurableEncryptor("benchmark-passphrase");
+    encryptor.init(null);
+    encrypted = encryptor.encrypt(VALUE.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public EncryptionResult encrypt() throws Exception {
+    return encryptor.encrypt(VALUE);
+  }
+
+  @Benchmark
+  public byte[] decrypt() throws Exception {
+    return encryptor.decrypt(encrypted.salt, encrypted.iv, encrypted.cipher);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.knox.gateway.dispatch.ConfigurableDispatch;
+import org.apache.knox.gateway.dispatch.DefaultDispatch;
+import org.apache.knox.test.mock.MockHttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copy of the backend response headers to the gateway response, with the
+ * default exclusions and with the Set-Cookie directive exclusions of the
+ * configurable dispatch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DispatchBenchmark {
+  private DefaultDispatch defaultDispatch;
+  private BenchmarkDispatch configurableDispatch;
+  private HttpResponse inboundResponse;
+  private MockHttpServletResponse outboundResponse;
+
+  @Setup
+  public void setup() {
+    defaultDispatch = new DefaultDispatch();
+    configurableDispatch = new BenchmarkDispatch("WWW-AUTHENTICATE,SET-COOKIE:hadoop.auth;HttpOnly");
+
+    inboundResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+    inboundResponse.addHeader("Content-Type", "application/json;charset=utf-8");
+    inboundResponse.addHeader("Content-Length", "1024");
+    inboundResponse.addHeader("Date", "Thu, 01 Jan 2026 00:00:00 GMT");
+    inboundResponse.addHeader("Server", "Jetty(9.4.52.v20230823)");
+    inboundResponse.addHeader("Cache-Control", "no-cache");
+    inboundResponse.addHeader("Expires", "Thu, 01 Jan 2026 00:00:00 GMT");
+    inboundResponse.addHeader("Pragma", "no-cache");
+    inboundResponse.addHeader("X-Frame-Options", "SAMEORIGIN");
+    inboundResponse.addHeader("WWW-Authenticate", "Negotiate");
+    inboundResponse.addHeader("Set-Cookie", "hadoop.auth=\"u=guest&p=guest&t=kerberos\"; Path=/; HttpOnly");
+    inboundResponse.addHeader("Set-Cookie", "JSESSIONID=node01abcdef; Path=/; Secure; HttpOnly");
+    outboundResponse = new MockHttpServletResponse();
+  }
+
+  @Benchmark
+  public MockHttpServletResponse copyResponseHeaderFieldsDefault() {
+    defaultDispatch.copyResponseHeaderFields(outboundResponse, inboundResponse);
+    return outboundResponse;
+  }
+
+  @Benchmark
+  public MockHttpServletResponse copyResponseHeaderFieldsConfigured() {
+    configurableDispatch.copyResponseHeaderFields(outboundResponse, inboundResponse);
+    return outboundResponse;
+  }
+
+  private static class BenchmarkDispatch extends ConfigurableDispatch {
+    BenchmarkDispatch(final String responseExcludeHeaders) {
+      setResponseExcludeHeaders(responseExcludeHeaders);
+    }
+  }
+}
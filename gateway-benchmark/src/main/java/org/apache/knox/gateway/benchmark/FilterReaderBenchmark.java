@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
+import org.apache.knox.gateway.filter.rewrite.impl.html.HtmlUrlRewriteFilterReader;
+import org.apache.knox.gateway.filter.rewrite.impl.json.JsonUrlRewriteFilterReader;
+import org.apache.knox.gateway.filter.rewrite.impl.xml.XmlUrlRewriteFilterReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rewriting of the URLs in JSON, XML and HTML response bodies by the
+ * streaming filter readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilterReaderBenchmark {
+  private static final String BACKEND_URL = "http://backend-host:8080/api/v1/items/";
+
+  /* Number of URLs in the body */
+  @Param({"10", "1000"})
+  public int entries;
+
+  private RewriteEnvironment environment;
+  private UrlRewriteFilterContentDescriptor jsonConfig;
+  private UrlRewriteFilterContentDescriptor xmlConfig;
+  private UrlRewriteFilterContentDescriptor htmlConfig;
+  private String json;
+  private String xml;
+  private String html;
+  private final char[] buffer = new char[8192];
+
+  @Setup
+  public void setup() throws IOException {
+    environment = new RewriteEnvironment();
+    jsonConfig = environment.getRules().getFilter(RewriteEnvironment.FILTER).getContent("application/json");
+    xmlConfig = environment.getRules().getFilter(RewriteEnvironment.FILTER).getContent("application/xml");
+    htmlConfig = environment.getRules().getFilter(RewriteEnvironment.FILTER).getContent("text/html");
+
+    json = IntStream.range(0, entries)
+        .mapToObj(i -> "{\"name\":\"item-" + i + "\",\"url\":\"" + BACKEND_URL + i + "?op=GET\"}")
+        .collect(Collectors.joining(",", "{\"beans\":[", "]}"));
+    xml = IntStream.range(0, entries)
+        .mapToObj(i -> "<bean><name>item-" + i + "</name><url>" + BACKEND_URL + i + "?op=GET</url></bean>")
+        .collect(Collectors.joining("", "<?xml version=\"1.0\" encoding=\"UTF-8\"?><beans>", "</beans>"));
+    html = IntStream.range(0, entries)
+        .mapToObj(i -> "<li><a href=\"" + BACKEND_URL + i + "?op=GET\">item-" + i + "</a></li>")
+        .collect(Collectors.joining("", "<html><head><title>Items</title></head><body><ul>", "</ul></body></html>"));
+  }
+
+  @TearDown
+  public void destroy() {
+    environment.destroy();
+  }
+
+  @Benchmark
+  public long filterJson() throws Exception {
+    return drain(new JsonUrlRewriteFilterReader(new StringReader(json), environment.getProcessor(), environment,
+        UrlRewriter.Direction.OUT, jsonConfig));
+  }
+
+  @Benchmark
+  public long filterXml() throws Exception {
+    return drain(new XmlUrlRewriteFilterReader(new StringReader(xml), environment.getProcessor(), environment,
+        UrlRewriter.Direction.OUT, xmlConfig));
+  }
+
+  @Benchmark
+  public long filterHtml() throws Exception {
+    return drain(new HtmlUrlRewriteFilterReader(new StringReader(html), environment.getProcessor(), environment,
+        UrlRewriter.Direction.OUT, htmlConfig));
+  }
+
+  private long drain(final Reader reader) throws IOException {
+    long length = 0;
+    try (Reader filter = reader) {
+      int read;
+      while ((read = filter.read(buffer)) != -1) {
+        length += read;
+      }
+    }
+    return length;
+  }
+}
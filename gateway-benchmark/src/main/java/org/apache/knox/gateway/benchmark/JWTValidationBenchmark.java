@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.apache.knox.gateway.provider.federation.jwt.filter.AbstractJWTFilter;
+import org.apache.knox.gateway.services.security.token.TokenServiceException;
+import org.apache.knox.gateway.services.security.token.impl.JWT;
+import org.apache.knox.gateway.services.security.token.impl.JWTToken;
+import org.apache.knox.gateway.services.token.impl.DefaultTokenAuthorityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation of the JWT bearer tokens by the federation filters: parsing,
+ * the claim checks with a cached signature verification, and the signature
+ * verification itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JWTValidationBenchmark {
+  private BenchmarkJWTFilter filter;
+  private DefaultTokenAuthorityService authority;
+  private RSAPublicKey publicKey;
+  private String serializedToken;
+  private JWT token;
+
+  @Setup
+  public void setup() throws Exception {
+    final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+    keyPairGenerator.initialize(2048);
+    final KeyPair keyPair = keyPairGenerator.generateKeyPair();
+    publicKey = (RSAPublicKey) keyPair.getPublic();
+
+    final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+        .issuer(AbstractJWTFilter.JWT_DEFAULT_ISSUER)
+        .subject("guest")
+        .audience("benchmark")
+        .expirationTime(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+        .notBeforeTime(new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1)))
+        .claim(JWTToken.KNOX_ID_CLAIM, UUID.randomUUID().toString())
+        .build();
+    final SignedJWT signedJWT = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).build(), claims);
+    signedJWT.sign(new RSASSASigner((RSAPrivateKey) keyPair.getPrivate()));
+    serializedToken = signedJWT.serialize();
+    token = new JWTToken(serializedToken);
+
+    authority = new DefaultTokenAuthorityService();
+    filter = new BenchmarkJWTFilter(authority, publicKey);
+  }
+
+  @Benchmark
+  public JWT parseToken() throws ParseException {
+    return new JWTToken(serializedToken);
+  }
+
+  @Benchmark
+  public boolean validateToken() throws IOException, ServletException {
+    return filter.validate(token);
+  }
+
+  @Benchmark
+  public boolean verifySignature() throws TokenServiceException {
+    return authority.verifyToken(token, publicKey);
+  }
+
+  private static class BenchmarkJWTFilter extends AbstractJWTFilter {
+    BenchmarkJWTFilter(final DefaultTokenAuthorityService authority, final RSAPublicKey publicKey)
+        throws ServletException {
+      final FilterConfig filterConfig = new BenchmarkFilterConfig();
+      init(filterConfig);
+      configureExpectedParameters(filterConfig);
+      this.authority = authority;
+      this.publicKey = publicKey;
+    }
+
+    boolean validate(final JWT token) throws IOException, ServletException {
+      return validateToken(null, null, null, token);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    protected void handleValidationError(HttpServletRequest request, HttpServletResponse response, int status,
+                                         String error) {
+    }
+  }
+
+  private static class BenchmarkFilterConfig implements FilterConfig {
+    @Override
+    public String getFilterName() {
+      return "benchmark";
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+      return null;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+      return null;
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+      return Collections.emptyEnumeration();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteEnvironment;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteProcessor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+
+/**
+ * Rewrite environment of the benchmarks, without gateway services, which
+ * loads the rules of a sample service.
+ */
+class RewriteEnvironment implements UrlRewriteEnvironment {
+  static final String RULES = "rewrite.xml";
+  static final String FILTER = "BENCHMARK/service/outbound/body";
+
+  private final UrlRewriteRulesDescriptor rules;
+  private final UrlRewriteProcessor processor = new UrlRewriteProcessor();
+
+  RewriteEnvironment() throws IOException {
+    try (Reader reader = new InputStreamReader(
+        RewriteEnvironment.class.getResourceAsStream(RULES), StandardCharsets.UTF_8)) {
+      rules = UrlRewriteRulesDescriptorFactory.load("xml", reader);
+    }
+    processor.initialize(this, rules);
+  }
+
+  UrlRewriteRulesDescriptor getRules() {
+    return rules;
+  }
+
+  UrlRewriteProcessor getProcessor() {
+    return processor;
+  }
+
+  void destroy() {
+    processor.destroy();
+  }
+
+  @Override
+  public URL getResource(String name) throws IOException {
+    return RewriteEnvironment.class.getResource(name);
+  }
+
+  @Override
+  public <T> T getAttribute(String name) {
+    return null;
+  }
+
+  @Override
+  public List<String> resolve(String name) {
+    return Collections.emptyList();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
+import org.apache.knox.gateway.util.urltemplate.Parser;
+import org.apache.knox.gateway.util.urltemplate.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rewriting of the request and response URLs with the rules of a service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UrlRewriteProcessorBenchmark {
+  private RewriteEnvironment environment;
+  private Template inbound;
+  private Template outbound;
+
+  @Setup
+  public void setup() throws IOException, URISyntaxException {
+    environment = new RewriteEnvironment();
+    inbound = Parser.parseLiteral(
+        "https://gateway-host:8443/gateway/sandbox/service/api/v1/items/42?op=GET&user.name=guest");
+    outbound = Parser.parseLiteral("http://backend-host:8080/api/v1/items/42?op=GET");
+  }
+
+  @TearDown
+  public void destroy() {
+    environment.destroy();
+  }
+
+  @Benchmark
+  public Template rewriteInbound() {
+    return environment.getProcessor().rewrite(environment, inbound, UrlRewriter.Direction.IN, null);
+  }
+
+  @Benchmark
+  public Template rewriteOutbound() {
+    return environment.getProcessor().rewrite(environment, outbound, UrlRewriter.Direction.OUT, null);
+  }
+
+  @Benchmark
+  public Template rewriteOutboundByRuleName() {
+    return environment.getProcessor().rewrite(environment, outbound, UrlRewriter.Direction.OUT,
+        "BENCHMARK/service/outbound/url");
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.knox.gateway.util.urltemplate.Matcher;
+import org.apache.knox.gateway.util.urltemplate.Parser;
+import org.apache.knox.gateway.util.urltemplate.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of request URLs and their matching against the service templates
+ * of a topology, done by the gateway for every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UrlTemplateBenchmark {
+  private static final String[] SERVICE_TEMPLATES = {
+      "*://*:*/**/webhdfs/{version}/?{**}",
+      "*://*:*/**/webhdfs/{version}/{path=**}?{**}",
+      "*://*:*/**/templeton/{version}/?{**}",
+      "*://*:*/**/templeton/{version}/{path=**}?{**}",
+      "*://*:*/**/oozie/{**}?{**}",
+      "*://*:*/**/hbase/{path=**}?{**}",
+      "*://*:*/**/hive/{path=**}?{**}",
+      "*://*:*/**/resourcemanager/{path=**}?{**}",
+      "*://*:*/**/yarn/{path=**}?{**}",
+      "*://*:*/**/knoxtoken/api/v1/token?{**}"
+  };
+
+  @Param({
+      "https://gateway-host:8443/gateway/sandbox/webhdfs/v1/user/guest/example/file.txt?op=OPEN&user.name=guest",
+      "https://gateway-host:8443/gateway/sandbox/hive/cliservice?hive.server2.transport.mode=http"
+  })
+  public String url;
+
+  private Matcher<String> matcher;
+  private Template template;
+
+  @Setup
+  public void setup() throws URISyntaxException {
+    matcher = new Matcher<>();
+    for (String serviceTemplate : SERVICE_TEMPLATES) {
+      matcher.add(Parser.parseTemplate(serviceTemplate), serviceTemplate);
+    }
+    template = Parser.parseLiteral(url);
+  }
+
+  @Benchmark
+  public Template parseLiteral() throws URISyntaxException {
+    return Parser.parseLiteral(url);
+  }
+
+  @Benchmark
+  public Matcher<String>.Match match() {
+    return matcher.match(template);
+  }
+
+  @Benchmark
+  public Matcher<String>.Match parseLiteralAndMatch() throws URISyntaxException {
+    return matcher.match(Parser.parseLiteral(url));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+public class BaselineComparatorTest {
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private JsonNode results(double score, double allocation) throws IOException {
+    return mapper.readTree("[{\"benchmark\":\"FilterReaderBenchmark.filterJson\",\"params\":{\"entries\":\"10\"},"
+        + "\"primaryMetric\":{\"score\":" + score + ",\"scoreUnit\":\"us/op\"},"
+        + "\"secondaryMetrics\":{\"" + BaselineComparator.ALLOCATION_METRIC + "\":{\"score\":" + allocation
+        + ",\"scoreUnit\":\"B/op\"}}}]");
+  }
+
+  @Test
+  public void testWithinTolerance() throws IOException {
+    final BaselineComparator comparator = new BaselineComparator(0.10);
+    comparator.compare(results(100, 1000), results(109, 900));
+    assertTrue(comparator.getRegressions().isEmpty());
+    assertEquals(2, comparator.getReport().size());
+  }
+
+  @Test
+  public void testScoreRegression() throws IOException {
+    final BaselineComparator comparator = new BaselineComparator(0.10);
+    comparator.compare(results(100, 1000), results(111, 1000));
+    assertEquals(1, comparator.getRegressions().size());
+    assertTrue(comparator.getRegressions().get(0).startsWith("FilterReaderBenchmark.filterJson:entries=10 score"));
+  }
+
+  @Test
+  public void testAllocationRegression() throws IOException {
+    final BaselineComparator comparator = new BaselineComparator(0.10);
+    comparator.compare(results(100, 1000), results(100, 2000));
+    assertEquals(1, comparator.getRegressions().size());
+    assertTrue(comparator.getRegressions().get(0).contains("allocation"));
+  }
+
+  @Test
+  public void testMissingBaseline() throws IOException {
+    final JsonNode baseline = mapper.readTree("[{\"benchmark\":\"FilterReaderBenchmark.filterXml\","
+        + "\"primaryMetric\":{\"score\":100,\"scoreUnit\":\"us/op\"}}]");
+    final BaselineComparator comparator = new BaselineComparator(0.10);
+    comparator.compare(baseline, results(100, 1000));
+    assertTrue(comparator.getRegressions().isEmpty());
+    assertEquals(1, comparator.getReport().size());
+    assertTrue(comparator.getReport().get(0).contains("no baseline"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyBaseline() throws IOException {
+    new BaselineComparator(0.10).compare(mapper.createArrayNode(), results(100, 1000));
+  }
+}
@@ -50,7 +50,11 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -90,11 +94,16 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
 
   private final ClouderaManagerServiceDiscoveryRepository repository = ClouderaManagerServiceDiscoveryRepository.getInstance();
 
+  // Discoveries currently running for a given CM endpoint, cluster and user; concurrent requests for the same
+  // cluster (e.g. from several descriptors) wait for the running discovery instead of querying CM themselves
+  private static final Map<String, CompletableFuture<ClouderaManagerCluster>> IN_FLIGHT_DISCOVERIES = new ConcurrentHashMap<>();
+
   private final AtomicInteger retryAttempts = new AtomicInteger(0);
   private final int retrySleepSeconds = 3;  // It's been agreed that we not expose this config
   private int maxRetryAttempts = -1;
   private Collection<String> excludedServiceTypes = Collections.emptySet();
   private Collection<String> excludedRoleTypes = Collections.emptySet();
+  private int maxConcurrentRequests;
 
   ClouderaManagerServiceDiscovery(GatewayConfig gatewayConfig) {
     this(false, gatewayConfig);
@@ -121,6 +130,7 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
       configureRetryParams(gatewayConfig);
       excludedServiceTypes = getLowercaseStringCollection(gatewayConfig.getClouderaManagerServiceDiscoveryExcludedServiceTypes());
       excludedRoleTypes = getLowercaseStringCollection(gatewayConfig.getClouderaManagerServiceDiscoveryExcludedRoleTypes());
+      maxConcurrentRequests = gatewayConfig.getClouderaManagerServiceDiscoveryMaxConcurrentRequests();
     }
   }
 
@@ -212,7 +222,7 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     }
 
     try {
-      cluster = discoverCluster(client, clusterName, includedServices);
+      cluster = discoverClusterOnce(client, discoveryConfig, clusterName, includedServices);
 
       if (configChangeMonitor != null && cluster != null) {
         // Notify the cluster config monitor about these cluster configuration details
@@ -255,6 +265,50 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     return false;
   }
 
+  /*
+   * Discovers the cluster, unless the same cluster is already being discovered through the same endpoint and user,
+   * in which case the result of that discovery is used.
+   */
+  private ClouderaManagerCluster discoverClusterOnce(DiscoveryApiClient client, ServiceDiscoveryConfig discoveryConfig,
+                                                     String clusterName, Collection<String> includedServices) throws ApiException {
+    final String discoveryKey = discoveryConfig.getAddress() + "#" + clusterName + "#" + discoveryConfig.getUser();
+    final CompletableFuture<ClouderaManagerCluster> discovery = new CompletableFuture<>();
+    final CompletableFuture<ClouderaManagerCluster> inFlightDiscovery = IN_FLIGHT_DISCOVERIES.putIfAbsent(discoveryKey, discovery);
+    if (inFlightDiscovery != null) {
+      log.awaitingInFlightClusterDiscovery(clusterName);
+      return awaitDiscovery(inFlightDiscovery);
+    }
+
+    try {
+      final ClouderaManagerCluster cluster = discoverCluster(client, clusterName, includedServices);
+      discovery.complete(cluster);
+      return cluster;
+    } catch (ApiException | RuntimeException e) {
+      discovery.completeExceptionally(e);
+      throw e;
+    } finally {
+      IN_FLIGHT_DISCOVERIES.remove(discoveryKey, discovery);
+    }
+  }
+
+  private ClouderaManagerCluster awaitDiscovery(CompletableFuture<ClouderaManagerCluster> discovery) throws ApiException {
+    try {
+      return discovery.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ApiException) {
+        throw (ApiException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ApiException(cause);
+    }
+  }
+
   private ClouderaManagerCluster discoverCluster(DiscoveryApiClient client, String clusterName, Collection<String> includedServices)
       throws ApiException {
     ServicesResourceApi servicesResourceApi = new ServicesResourceApi(client);
@@ -280,45 +334,53 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
       // if Legacy Cloudera Manager API Clients Compatibility is turned off, some HDFS settings are in CORE_SETTINGS
       ApiServiceConfig coreSettingsConfig = coreSettingsConfig(client, servicesResourceApi, serviceList);
 
+      // Fetch the service and role details up-front, concurrently if enabled; the fetches of each
+      // stage are independent, while the model generators below are shared and must run serially
+      final DiscoveryRequestExecutor executor = new DiscoveryRequestExecutor(client.getConfig().getAddress(), maxConcurrentRequests);
+      final List<DiscoveryRequestExecutor.DiscoveryRequest<ServiceDetails>> serviceRequests = new ArrayList<>();
       for (ApiService service : serviceList) {
+        serviceRequests.add(() -> fetchServiceDetails(client, servicesResourceApi, rolesResourceApi, clusterName, service));
+      }
+      final List<ServiceDetails> serviceDetailsList = executor.executeAll(serviceRequests);
+
+      final List<DiscoveryRequestExecutor.DiscoveryRequest<ApiConfigList>> roleConfigRequests = new ArrayList<>();
+      for (ServiceDetails serviceDetails : serviceDetailsList) {
+        for (ApiRole role : serviceDetails.roles) {
+          roleConfigRequests.add(() -> fetchRoleConfig(client, rolesResourceApi, serviceDetails.service, role));
+        }
+      }
+      final List<ApiConfigList> roleConfigs = executor.executeAll(roleConfigRequests);
+
+      int roleIndex = 0;
+      for (ServiceDetails serviceDetails : serviceDetailsList) {
+        final ApiService service = serviceDetails.service;
         final List<ServiceModelGenerator> modelGenerators = serviceModelGeneratorsHolder.getServiceModelGenerators(service.getType());
         if (shouldSkipServiceDiscovery(modelGenerators, includedServices)) {
           //log.skipServiceDiscovery(service.getName(), service.getType());
           //continue;
         }
         log.discoveringService(service.getName(), service.getType());
-        ApiServiceConfig serviceConfig = null;
-        /* no reason to check service config for CM or CORE_SETTINGS services */
-        if (!CM_SERVICE_TYPE.equals(service.getType()) && !CORE_SETTINGS_TYPE.equals(service.getType())) {
-          serviceConfig = getServiceConfig(client.getConfig(), servicesResourceApi, service);
-        }
-        ApiRoleList roleList = getRoles(client.getConfig(), rolesResourceApi, clusterName, service);
-        if (roleList != null && roleList.getItems() != null) {
-          for (ApiRole role : roleList.getItems()) {
-            String roleName = role.getName();
-            log.discoveringServiceRole(roleName, role.getType());
-
-            ApiConfigList roleConfig = null;
-            /* no reason to check role config for CM or CORE_SETTINGS services */
-            if (!CM_SERVICE_TYPE.equals(service.getType())  && !CORE_SETTINGS_TYPE.equals(service.getType())) {
-              roleConfig = getRoleConfig(client.getConfig(), rolesResourceApi, service, role);
-            }
-
-            if (modelGenerators != null) {
-              for (ServiceModelGenerator serviceModelGenerator : modelGenerators) {
-                ServiceModelGeneratorHandleResponse response = serviceModelGenerator.handles(service, serviceConfig, role, roleConfig);
-                if (response.handled()) {
-                  serviceModelGenerator.setApiClient(client);
-                  ServiceModel serviceModel = serviceModelGenerator.generateService(service, serviceConfig, role, roleConfig, coreSettingsConfig);
-                  serviceModels.add(serviceModel);
-                } else if (!response.getConfigurationIssues().isEmpty()) {
-                  log.serviceRoleHasConfigurationIssues(roleName, String.join(";", response.getConfigurationIssues()));
-                }
+        ApiServiceConfig serviceConfig = serviceDetails.serviceConfig;
+        for (ApiRole role : serviceDetails.roles) {
+          String roleName = role.getName();
+          log.discoveringServiceRole(roleName, role.getType());
+
+          ApiConfigList roleConfig = roleConfigs.get(roleIndex++);
+
+          if (modelGenerators != null) {
+            for (ServiceModelGenerator serviceModelGenerator : modelGenerators) {
+              ServiceModelGeneratorHandleResponse response = serviceModelGenerator.handles(service, serviceConfig, role, roleConfig);
+              if (response.handled()) {
+                serviceModelGenerator.setApiClient(client);
+                ServiceModel serviceModel = serviceModelGenerator.generateService(service, serviceConfig, role, roleConfig, coreSettingsConfig);
+                serviceModels.add(serviceModel);
+              } else if (!response.getConfigurationIssues().isEmpty()) {
+                log.serviceRoleHasConfigurationIssues(roleName, String.join(";", response.getConfigurationIssues()));
               }
             }
-
-            log.discoveredServiceRole(roleName, role.getType());
           }
+
+          log.discoveredServiceRole(roleName, role.getType());
         }
 
         log.discoveredService(service.getName(), service.getType());
@@ -330,6 +392,26 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     return null;
   }
 
+  private ServiceDetails fetchServiceDetails(DiscoveryApiClient client, ServicesResourceApi servicesResourceApi, RolesResourceApi rolesResourceApi,
+                                            String clusterName, ApiService service) throws ApiException {
+    ApiServiceConfig serviceConfig = null;
+    /* no reason to check service config for CM or CORE_SETTINGS services */
+    if (!CM_SERVICE_TYPE.equals(service.getType()) && !CORE_SETTINGS_TYPE.equals(service.getType())) {
+      serviceConfig = getServiceConfig(client.getConfig(), servicesResourceApi, service);
+    }
+    ApiRoleList roleList = getRoles(client.getConfig(), rolesResourceApi, clusterName, service);
+    final List<ApiRole> roles = roleList == null || roleList.getItems() == null ? Collections.emptyList() : roleList.getItems();
+    return new ServiceDetails(service, serviceConfig, roles);
+  }
+
+  private ApiConfigList fetchRoleConfig(DiscoveryApiClient client, RolesResourceApi rolesResourceApi, ApiService service, ApiRole role) throws ApiException {
+    /* no reason to check role config for CM or CORE_SETTINGS services */
+    if (!CM_SERVICE_TYPE.equals(service.getType())  && !CORE_SETTINGS_TYPE.equals(service.getType())) {
+      return getRoleConfig(client.getConfig(), rolesResourceApi, service, role);
+    }
+    return null;
+  }
+
   private ApiServiceConfig coreSettingsConfig(DiscoveryApiClient client, ServicesResourceApi servicesResourceApi, List<ApiService> serviceList) throws ApiException {
     for (ApiService service : serviceList) {
       if (CORE_SETTINGS_TYPE.equals(service.getType())) {
@@ -482,4 +564,16 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     repository.clear();
   }
 
+  private static final class ServiceDetails {
+    private final ApiService service;
+    private final ApiServiceConfig serviceConfig;
+    private final List<ApiRole> roles;
+
+    ServiceDetails(ApiService service, ApiServiceConfig serviceConfig, List<ApiRole> roles) {
+      this.service = service;
+      this.serviceConfig = serviceConfig;
+      this.roles = roles;
+    }
+  }
+
 }
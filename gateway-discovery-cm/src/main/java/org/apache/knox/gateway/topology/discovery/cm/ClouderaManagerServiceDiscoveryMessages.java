@@ -136,6 +136,10 @@ public interface ClouderaManagerServiceDiscoveryMessages {
            text = "Started ClouderaManager cluster configuration monitor (checking every {0} seconds)")
   void startedClouderaManagerConfigMonitor(long pollingInterval);
 
+  @Message(level = MessageLevel.DEBUG,
+           text = "Next ClouderaManager cluster configuration check in {0} seconds")
+  void adjustedClouderaManagerConfigMonitorInterval(long pollingInterval);
+
   @Message(level = MessageLevel.INFO,
       text = "The Knox Gateway is not yet ready to monitor ClouderaManager cluster configuration changes.")
   void gatewayIsNotYetReadyToMonitorClouderaManagerConfigs();
@@ -205,6 +209,9 @@ public interface ClouderaManagerServiceDiscoveryMessages {
                                                  String discoveryAddress,
                                                  String sinceTimestamp);
 
+  @Message(level = MessageLevel.WARN, text = "Ignoring the invalid ClouderaManager event timestamp: {0}")
+  void invalidEventTimestamp(String timestamp);
+
   @Message(level = MessageLevel.DEBUG, text = "There is no any activation event found within the given time period")
   void noActivationEventFound();
 
@@ -288,4 +295,7 @@ public interface ClouderaManagerServiceDiscoveryMessages {
 
   @Message(level = MessageLevel.DEBUG, text = "Service discovery client connect timeout {0} ms, read timeout {1} ms, write timeout {2} ms")
   void discoveryClientTimeout(long connectTimeout, long readTimeout, long writeTimeout);
+
+  @Message(level = MessageLevel.INFO, text = "Cluster {0} is already being discovered; waiting for the result of that discovery")
+  void awaitingInFlightClusterDiscovery(String clusterName);
 }
@@ -20,6 +20,7 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -151,15 +152,15 @@ class ClouderaManagerServiceDiscoveryRepository {
   }
 
   private static class ServiceDetails {
-    private ApiServiceConfig serviceConfig;
+    private final AtomicReference<ApiServiceConfig> serviceConfig = new AtomicReference<>();
     private Map<ApiRole, ApiConfigList> roleConfigsMap = new ConcurrentHashMap<>();
 
     public ApiServiceConfig getServiceConfig() {
-      return serviceConfig;
+      return serviceConfig.get();
     }
 
     public void setServiceConfig(ApiServiceConfig serviceConfig) {
-      this.serviceConfig = serviceConfig;
+      this.serviceConfig.set(serviceConfig);
     }
 
     public ApiRoleList getRoles() {
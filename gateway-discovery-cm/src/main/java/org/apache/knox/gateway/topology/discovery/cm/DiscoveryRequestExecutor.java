@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.topology.discovery.cm;
+
+import com.cloudera.api.swagger.client.ApiException;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs Cloudera Manager API requests on bounded, per-endpoint thread pools, so that
+ * discovery of a cluster's services and roles is not limited to one request at a time
+ * while no Cloudera Manager instance receives more than the configured number of
+ * concurrent requests from this gateway.
+ */
+class DiscoveryRequestExecutor {
+
+  private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60L;
+
+  private static final Map<String, ThreadPoolExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+  private final String address;
+  private final int maxConcurrentRequests;
+
+  @FunctionalInterface
+  interface DiscoveryRequest<T> {
+    T execute() throws ApiException;
+  }
+
+  DiscoveryRequestExecutor(String address, int maxConcurrentRequests) {
+    this.address = address;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  /**
+   * Executes the requests and returns their results in the order of the requests.
+   * When parallel discovery is disabled, the requests are executed by the calling thread.
+   *
+   * @throws ApiException the first failure reported by any of the requests
+   */
+  <T> List<T> executeAll(List<DiscoveryRequest<T>> requests) throws ApiException {
+    final List<T> results = new ArrayList<>(requests.size());
+    if (maxConcurrentRequests < 2 || requests.size() < 2) {
+      for (DiscoveryRequest<T> request : requests) {
+        results.add(request.execute());
+      }
+      return results;
+    }
+
+    final ThreadPoolExecutor executor = EXECUTORS.computeIfAbsent(address, key -> createExecutor());
+    final List<Future<T>> futures = new ArrayList<>(requests.size());
+    for (DiscoveryRequest<T> request : requests) {
+      futures.add(executor.submit(request::execute));
+    }
+
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel(futures);
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      cancel(futures);
+      final Throwable cause = e.getCause();
+      if (cause instanceof ApiException) {
+        throw (ApiException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ApiException(cause);
+    }
+    return results;
+  }
+
+  private ThreadPoolExecutor createExecutor() {
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrentRequests, maxConcurrentRequests,
+        IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new BasicThreadFactory.Builder().namingPattern("ClouderaManagerServiceDiscovery-%d").daemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static <T> void cancel(List<Future<T>> futures) {
+    futures.forEach(future -> future.cancel(true));
+  }
+}
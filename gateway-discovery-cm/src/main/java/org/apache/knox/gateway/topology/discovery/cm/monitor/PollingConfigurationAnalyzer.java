@@ -56,13 +56,15 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.security.KeyStore;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -116,6 +118,14 @@ public class PollingConfigurationAnalyzer implements Runnable {
 
   private static final int DEFAULT_POLLING_INTERVAL = 60;
 
+  // The shortest polling interval, used right after configuration activation events have been found, since
+  // these usually come in bursts (e.g. a restart of several services)
+  private static final int DEFAULT_MIN_POLLING_INTERVAL = 10;
+
+  // How far before the event cursor the events are queried again, so that events recorded by ClouderaManager
+  // slightly out of order are not missed; the events that have already been processed are skipped
+  private static final long EVENT_CURSOR_OVERLAP_SECONDS = 30;
+
   private static final ClouderaManagerServiceDiscoveryMessages log = MessagesFactory.get(ClouderaManagerServiceDiscoveryMessages.class);
 
   private static final GatewaySpiMessages LOGGER = MessagesFactory.get(GatewaySpiMessages.class);
@@ -139,6 +149,15 @@ public class PollingConfigurationAnalyzer implements Runnable {
   // Polling interval in seconds
   private int interval;
 
+  // Lower bound of the adaptive polling interval in seconds
+  private int minInterval = DEFAULT_MIN_POLLING_INTERVAL;
+
+  // The interval to wait before the next check, between minInterval and interval
+  private int currentInterval;
+
+  // Whether the last check found any configuration activation event that had not been processed yet
+  private boolean activityDetected;
+
   private final Cache<String, Long> processedEvents;
 
   // Cache of ClouderaManager API clients, keyed by discovery address
@@ -147,6 +166,9 @@ public class PollingConfigurationAnalyzer implements Runnable {
   // Timestamp records of the most recent start event query per discovery address
   private Map<String, Instant> eventQueryTimestamps = new ConcurrentHashMap<>();
 
+  // The time of the most recent event reported by ClouderaManager per discovery address and cluster
+  private final Map<String, Instant> eventCursors = new ConcurrentHashMap<>();
+
   // The amount of time before "now" to will check for start events the first time
   private long eventQueryDefaultTimestampOffset = DEFAULT_EVENT_QUERY_DEFAULT_TIMESTAMP_OFFSET;
 
@@ -186,11 +208,20 @@ public class PollingConfigurationAnalyzer implements Runnable {
 
     this.changeListener  = changeListener;
     this.interval        = interval;
-    this.processedEvents = Caffeine.newBuilder().expireAfterAccess(interval * 3, TimeUnit.SECONDS).maximumSize(1000).build();
+    this.currentInterval = interval;
+    this.processedEvents = Caffeine.newBuilder()
+                                   .expireAfterAccess(Math.max(interval, EVENT_CURSOR_OVERLAP_SECONDS) * 3, TimeUnit.SECONDS)
+                                   .maximumSize(1000)
+                                   .build();
   }
 
   void setInterval(int interval) {
     this.interval = interval;
+    this.currentInterval = interval;
+  }
+
+  void setMinInterval(int minInterval) {
+    this.minInterval = minInterval;
   }
 
   void stop() {
@@ -220,12 +251,27 @@ public class PollingConfigurationAnalyzer implements Runnable {
       } else {
         log.gatewayIsNotYetReadyToMonitorClouderaManagerConfigs();
       }
-      waitFor(interval);
+      waitFor(getNextInterval());
     }
 
     log.stoppedClouderaManagerConfigMonitor();
   }
 
+  /**
+   * Determine how long to wait before the next check: the minimum interval right after activation events have been
+   * found, doubling from there back up to the configured interval while no further events show up.
+   */
+  private int getNextInterval() {
+    final int lowerBound = Math.max(1, Math.min(minInterval, interval));
+    final int nextInterval = activityDetected ? lowerBound : Math.max(lowerBound, Math.min(interval, currentInterval * 2));
+    if (nextInterval != currentInterval) {
+      log.adjustedClouderaManagerConfigMonitorInterval(nextInterval);
+    }
+    currentInterval = nextInterval;
+    activityDetected = false;
+    return currentInterval;
+  }
+
   private void monitorClusterConfigurationChanges() {
     try {
       final List<String> clustersToStopMonitoring = new ArrayList<>();
@@ -252,6 +298,9 @@ public class PollingConfigurationAnalyzer implements Runnable {
 
           // If there are no recent start events, then nothing to do now
           if (!relevantEvents.isEmpty()) {
+            if (!activityDetected) {
+              activityDetected = relevantEvents.stream().anyMatch(re -> !alreadyProcessed(re));
+            }
             // If a change has occurred, notify the listeners
             if (hasConfigChanged(address, clusterName, relevantEvents) || hasScaleEvent(relevantEvents)) {
               notifyChangeListener(address, clusterName);
@@ -442,6 +491,8 @@ public class PollingConfigurationAnalyzer implements Runnable {
       log.stoppingConfigMonitoring(source, clusterName);
       ms.clearCache(source, clusterName);
     }
+    eventQueryTimestamps.remove(getClusterKey(source, clusterName));
+    eventCursors.remove(getClusterKey(source, clusterName));
   }
 
   /**
@@ -457,11 +508,19 @@ public class PollingConfigurationAnalyzer implements Runnable {
   }
 
   void setEventQueryTimestamp(final String address, final String cluster, final Instant timestamp) {
-    eventQueryTimestamps.put((address + ":" + cluster), timestamp);
+    eventQueryTimestamps.put(getClusterKey(address, cluster), timestamp);
   }
 
   private Instant getEventQueryTimestamp(final String address, final String cluster) {
-    return eventQueryTimestamps.get(address + ":" + cluster);
+    return eventQueryTimestamps.get(getClusterKey(address, cluster));
+  }
+
+  Instant getEventCursor(final String address, final String cluster) {
+    return eventCursors.get(getClusterKey(address, cluster));
+  }
+
+  private static String getClusterKey(final String address, final String cluster) {
+    return address + ":" + cluster;
   }
 
   /**
@@ -485,16 +544,25 @@ public class PollingConfigurationAnalyzer implements Runnable {
   private List<RelevantEvent> getRelevantEvents(final String address, final String clusterName) {
     List<RelevantEvent> relevantEvents = new ArrayList<>();
 
-    // Get the last event query timestamp
-    Instant lastTimestamp = getEventQueryTimestamp(address, clusterName);
+    Instant lastTimestamp;
 
-    // If this is the first query, then define the last timestamp
-    if (lastTimestamp == null) {
-      lastTimestamp = Instant.now().minus(eventQueryDefaultTimestampOffset, ChronoUnit.MILLIS);
-    }
+    // Continue from the most recent event reported by ClouderaManager, if there is one; its clock
+    // is the one the events are recorded with, so there is no need to go back any further
+    final Instant eventCursor = eventCursors.get(getClusterKey(address, clusterName));
+    if (eventCursor != null) {
+      lastTimestamp = eventCursor.minus(EVENT_CURSOR_OVERLAP_SECONDS, ChronoUnit.SECONDS);
+    } else {
+      // Get the last event query timestamp
+      lastTimestamp = getEventQueryTimestamp(address, clusterName);
 
-    // Go back in time an '2 x interval' more to mitigate the chance of losing a relevant audit event
-    lastTimestamp = lastTimestamp.minus(interval * 2, ChronoUnit.SECONDS);
+      // If this is the first query, then define the last timestamp
+      if (lastTimestamp == null) {
+        lastTimestamp = Instant.now().minus(eventQueryDefaultTimestampOffset, ChronoUnit.MILLIS);
+      }
+
+      // Go back in time an '2 x interval' more to mitigate the chance of losing a relevant audit event
+      lastTimestamp = lastTimestamp.minus(interval * 2, ChronoUnit.SECONDS);
+    }
 
     log.queryingConfigActivationEventsFromCluster(clusterName, address, lastTimestamp.toString());
 
@@ -512,11 +580,40 @@ public class PollingConfigurationAnalyzer implements Runnable {
           relevantEvents.add(new RelevantEvent(event));
         }
       }
+      advanceEventCursor(address, clusterName, events);
     }
 
     return relevantEvents;
   }
 
+  /**
+   * Move the event cursor of the specified cluster to the most recent of the specified events.
+   */
+  private void advanceEventCursor(final String address, final String clusterName, final List<ApiEvent> events) {
+    Instant latest = null;
+    for (ApiEvent event : events) {
+      final Instant occurred = parseEventTime(event.getTimeOccurred());
+      if (occurred != null && (latest == null || occurred.isAfter(latest))) {
+        latest = occurred;
+      }
+    }
+
+    if (latest != null) {
+      eventCursors.merge(getClusterKey(address, clusterName), latest, (current, next) -> next.isAfter(current) ? next : current);
+    }
+  }
+
+  private static Instant parseEventTime(final String timeOccurred) {
+    if (timeOccurred != null) {
+      try {
+        return Instant.parse(timeOccurred);
+      } catch (DateTimeParseException e) {
+        log.invalidEventTimestamp(timeOccurred);
+      }
+    }
+    return null;
+  }
+
   @SuppressWarnings("unchecked")
   private boolean isStartEvent(ApiEvent event) {
     final Map<String, Object> attributeMap = getAttributeMap(event.getAttributes());
@@ -601,10 +698,10 @@ public class PollingConfigurationAnalyzer implements Runnable {
     try {
       ApiServiceConfig svcConfig = api.readServiceConfig(clusterName, service, "full");
 
-      Map<ApiRole, ApiConfigList> roleConfigs = new HashMap<>();
+      Map<ApiRole, ApiConfigList> roleConfigs = new LinkedHashMap<>();
       RolesResourceApi rolesApi = (new RolesResourceApi(apiClient));
       ApiRoleList roles = rolesApi.readRoles(clusterName, service, "", "full");
-      for (ApiRole role : roles.getItems()) {
+      for (ApiRole role : getComparedRoles(roles.getItems())) {
         ApiConfigList config = rolesApi.readRoleConfig(clusterName, role.getName(), service, "full");
         roleConfigs.put(role, config);
       }
@@ -615,6 +712,20 @@ public class PollingConfigurationAnalyzer implements Runnable {
     return currentConfig;
   }
 
+  /**
+   * Every role of a type is compared with the configuration recorded for that type, so the order in which the
+   * roles are read must not depend on the order in which ClouderaManager happens to return them.
+   *
+   * @param roles The roles of a service.
+   *
+   * @return The roles, ordered by role type and name.
+   */
+  static List<ApiRole> getComparedRoles(final List<ApiRole> roles) {
+    List<ApiRole> comparedRoles = new ArrayList<>(roles);
+    comparedRoles.sort(Comparator.comparing(ApiRole::getType).thenComparing(ApiRole::getName));
+    return comparedRoles;
+  }
+
   /**
    * Examine the ServiceConfigurationModel objects for significant differences.
    *
@@ -652,22 +763,15 @@ public class PollingConfigurationAnalyzer implements Runnable {
           break;
         } else {
           previousProps = previous.getRoleProps(roleType);
-          currentProps = current.getRoleProps(roleType);
-          for (String name : previousProps.keySet()) {
-            String prevValue = previousProps.get(name);
-            String currValue = currentProps.get(name);
-            if (currValue == null) { // A missing/removed property
-              if (!(prevValue == null || "null".equals(prevValue))) {
-                log.roleConfigurationPropertyHasChanged(name, prevValue, "null");
-                hasChanged = true;
-                break;
-              }
-            } else if (!currValue.equals(prevValue)) {
-              log.roleConfigurationPropertyHasChanged(name, prevValue, currValue);
+          for (Map<String, String> roleProps : current.getRolePropsPerRole(roleType)) {
+            if (hasRoleConfigurationChanged(previousProps, roleProps)) {
               hasChanged = true;
               break;
             }
           }
+          if (hasChanged) {
+            break;
+          }
         }
       }
     }
@@ -675,6 +779,24 @@ public class PollingConfigurationAnalyzer implements Runnable {
     return hasChanged;
   }
 
+  private boolean hasRoleConfigurationChanged(final Map<String, String> previousProps,
+                                              final Map<String, String> currentProps) {
+    for (String name : previousProps.keySet()) {
+      String prevValue = previousProps.get(name);
+      String currValue = currentProps.get(name);
+      if (currValue == null) { // A missing/removed property
+        if (!(prevValue == null || "null".equals(prevValue))) {
+          log.roleConfigurationPropertyHasChanged(name, prevValue, "null");
+          return true;
+        }
+      } else if (!currValue.equals(prevValue)) {
+        log.roleConfigurationPropertyHasChanged(name, prevValue, currValue);
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Internal representation of a ClouderaManager service start event
    */
@@ -21,6 +21,10 @@ import com.cloudera.api.swagger.model.ApiConfigList;
 import com.cloudera.api.swagger.model.ApiRole;
 import com.cloudera.api.swagger.model.ApiServiceConfig;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,6 +39,9 @@ final class ServiceConfigurationModel {
   private Map<String, String> serviceProps = new ConcurrentHashMap<>();
   private Map<String, Map<String, String>> roleProps = new ConcurrentHashMap<>();
 
+  // The properties of each role of a type, when the model is built from the roles themselves; not persisted
+  private transient Map<String, List<Map<String, String>>> rolePropsPerRole = new ConcurrentHashMap<>();
+
   ServiceConfigurationModel() {
   }
 
@@ -55,14 +62,16 @@ final class ServiceConfigurationModel {
         ApiRole role = entry.getKey();
         ApiConfigList roleConfigList = entry.getValue();
 
+        Map<String, String> props = new HashMap<>();
         for (ApiConfig roleConfig : roleConfigList.getItems()) {
-          roleConfig.getName();
           String value = roleConfig.getValue();
           if (value == null) {
             value = roleConfig.getDefault();
           }
           addRoleProperty(role.getType(), roleConfig.getName(), value);
+          props.put(roleConfig.getName(), (value != null ? value : NULL_VALUE));
         }
+        rolePropsPerRole.computeIfAbsent(role.getType(), t -> new ArrayList<>()).add(props);
       }
     }
   }
@@ -88,6 +97,21 @@ final class ServiceConfigurationModel {
     return roleProps.get(roleType);
   }
 
+  /**
+   * @param roleType The role type.
+   *
+   * @return The properties of each role of the specified type, in the order the roles were added to the model, or
+   * the properties recorded for the type if the model was not built from the roles themselves.
+   */
+  List<Map<String, String>> getRolePropsPerRole(final String roleType) {
+    List<Map<String, String>> perRole = rolePropsPerRole.get(roleType);
+    if (perRole != null) {
+      return perRole;
+    }
+    Map<String, String> props = roleProps.get(roleType);
+    return props == null ? Collections.emptyList() : Collections.singletonList(props);
+  }
+
   Map<String, Map<String, String>> getRoleProps() {
     return roleProps;
   }
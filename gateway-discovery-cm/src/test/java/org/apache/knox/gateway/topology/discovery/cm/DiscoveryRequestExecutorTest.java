@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.topology.discovery.cm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cloudera.api.swagger.client.ApiException;
+import org.junit.Test;
+
+public class DiscoveryRequestExecutorTest {
+
+  @Test
+  public void testResultsAreReturnedInRequestOrder() throws Exception {
+    final DiscoveryRequestExecutor executor = new DiscoveryRequestExecutor("http://cm-ordered:7180", 4);
+    final List<DiscoveryRequestExecutor.DiscoveryRequest<Integer>> requests = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final int value = i;
+      requests.add(() -> {
+        Thread.sleep(20 - value);
+        return value;
+      });
+    }
+
+    final List<Integer> results = executor.executeAll(requests);
+    assertEquals(20, results.size());
+    for (int i = 0; i < 20; i++) {
+      assertEquals(Integer.valueOf(i), results.get(i));
+    }
+  }
+
+  @Test
+  public void testConcurrentRequestsAreBounded() throws Exception {
+    final int maxConcurrentRequests = 3;
+    final DiscoveryRequestExecutor executor = new DiscoveryRequestExecutor("http://cm-bounded:7180", maxConcurrentRequests);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final List<DiscoveryRequestExecutor.DiscoveryRequest<Integer>> requests = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      requests.add(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        Thread.sleep(10);
+        return running.decrementAndGet();
+      });
+    }
+
+    executor.executeAll(requests);
+    assertTrue(maxRunning.get() <= maxConcurrentRequests);
+  }
+
+  @Test
+  public void testApiExceptionIsPropagated() throws Exception {
+    final DiscoveryRequestExecutor executor = new DiscoveryRequestExecutor("http://cm-failing:7180", 4);
+    final List<DiscoveryRequestExecutor.DiscoveryRequest<String>> requests = Arrays.asList(
+        () -> "ok",
+        () -> {
+          throw new ApiException(503, "Service Unavailable");
+        });
+    try {
+      executor.executeAll(requests);
+      fail("Expected an ApiException");
+    } catch (ApiException e) {
+      assertEquals(503, e.getCode());
+    }
+  }
+
+  @Test
+  @SuppressWarnings("PMD.DoNotUseThreads")
+  public void testSerialExecutionWhenParallelDiscoveryIsDisabled() throws Exception {
+    final DiscoveryRequestExecutor executor = new DiscoveryRequestExecutor("http://cm-serial:7180", 1);
+    final Thread caller = Thread.currentThread();
+    final List<DiscoveryRequestExecutor.DiscoveryRequest<Boolean>> requests = Arrays.asList(
+        () -> Thread.currentThread() == caller,
+        () -> Thread.currentThread() == caller);
+    assertEquals(Arrays.asList(true, true), executor.executeAll(requests));
+  }
+}
@@ -20,6 +20,7 @@ import com.cloudera.api.swagger.client.ApiClient;
 import com.cloudera.api.swagger.model.ApiEvent;
 import com.cloudera.api.swagger.model.ApiEventAttribute;
 import com.cloudera.api.swagger.model.ApiEventCategory;
+import com.cloudera.api.swagger.model.ApiRole;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.knox.gateway.GatewayServer;
@@ -42,6 +43,7 @@ import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -49,6 +51,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.apache.knox.gateway.topology.discovery.ClusterConfigurationMonitor.ConfigurationChangeListener;
 import static org.easymock.EasyMock.getCurrentArguments;
@@ -445,6 +448,38 @@ public class PollingConfigurationAnalyzerTest {
     assertFalse("Unexpected change notification", listener.wasNotified(address, clusterName));
   }
 
+  @Test
+  public void testEventQueryContinuesFromTheMostRecentEvent() {
+    final String address = "http://host1:1234";
+    final String clusterName = "Cluster 11";
+
+    final ApiEvent restartEvent = createApiEvent(clusterName,
+                                                 NameNodeServiceModelGenerator.SERVICE_TYPE,
+                                                 NameNodeServiceModelGenerator.SERVICE,
+                                                 PollingConfigurationAnalyzer.RESTART_COMMAND,
+                                                 PollingConfigurationAnalyzer.SUCCEEDED_STATUS);
+
+    final ChangeListener listener = new ChangeListener();
+    final TestablePollingConfigAnalyzer pca = buildPollingConfigAnalyzer(address, clusterName, Collections.emptyMap(), listener);
+    doTestEvent(restartEvent, address, clusterName, Collections.emptyMap(), Collections.emptyMap(), pca);
+
+    final Instant eventCursor = pca.getEventCursor(address, clusterName);
+    assertEquals(Instant.parse(restartEvent.getTimeOccurred()), eventCursor);
+    assertEquals(eventCursor.minusSeconds(30).toString(), pca.getLastQuerySince());
+  }
+
+  @Test
+  public void testComparedRolesAreEveryRoleInAStableOrder() {
+    final ApiRole namenode1 = createApiRole("namenode1", "NAMENODE");
+    final ApiRole datanode1 = createApiRole("datanode1", "DATANODE");
+    final ApiRole namenode2 = createApiRole("namenode2", "NAMENODE");
+    final ApiRole datanode2 = createApiRole("datanode2", "DATANODE");
+
+    final List<ApiRole> expected = Arrays.asList(datanode1, datanode2, namenode1, namenode2);
+    assertEquals(expected, PollingConfigurationAnalyzer.getComparedRoles(Arrays.asList(namenode2, datanode1, namenode1, datanode2)));
+    assertEquals(expected, PollingConfigurationAnalyzer.getComparedRoles(Arrays.asList(datanode2, namenode1, datanode1, namenode2)));
+  }
+
   private void doTestStartEvent(final ApiEventCategory category) {
     final String clusterName = "My Cluster";
     final String serviceType = NameNodeServiceModelGenerator.SERVICE_TYPE;
@@ -675,6 +710,14 @@ public class PollingConfigurationAnalyzerTest {
     return event;
   }
 
+  private ApiRole createApiRole(final String name, final String type) {
+    ApiRole role = EasyMock.createNiceMock(ApiRole.class);
+    EasyMock.expect(role.getName()).andReturn(name).anyTimes();
+    EasyMock.expect(role.getType()).andReturn(type).anyTimes();
+    EasyMock.replay(role);
+    return role;
+  }
+
   private ApiEventAttribute createEventAttribute(final String name, final String value) {
     ApiEventAttribute attr = EasyMock.createNiceMock(ApiEventAttribute.class);
     EasyMock.expect(attr.getName()).andReturn(name).anyTimes();
@@ -709,6 +752,7 @@ public class PollingConfigurationAnalyzerTest {
 
     private final Map<String, List<ApiEvent>> restartEvents = new HashMap<>();
     private final Map<String, ServiceConfigurationModel> serviceConfigModels = new HashMap<>();
+    private final AtomicReference<String> lastQuerySince = new AtomicReference<>();
 
     TestablePollingConfigAnalyzer(GatewayConfig gatewayConfig, ClusterConfigurationCache cache) {
       this(gatewayConfig, cache, null);
@@ -729,6 +773,7 @@ public class PollingConfigurationAnalyzerTest {
 
     @Override
     protected List<ApiEvent> queryEvents(ApiClient client, String clusterName, String since) {
+      lastQuerySince.set(since);
       return restartEvents.computeIfAbsent(clusterName, l -> new ArrayList<>());
     }
 
@@ -739,6 +784,10 @@ public class PollingConfigurationAnalyzerTest {
       return serviceConfigModels.get(getServiceConfigModelKey(address, clusterName, service));
     }
 
+    String getLastQuerySince() {
+      return lastQuerySince.get();
+    }
+
     static String getServiceConfigModelKey(final String address, final String clusterName, final String service) {
       return address + ":" + clusterName + ":" + service;
     }
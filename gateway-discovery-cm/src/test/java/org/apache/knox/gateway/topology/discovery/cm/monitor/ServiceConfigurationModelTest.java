@@ -21,14 +21,17 @@ import com.cloudera.api.swagger.model.ApiRole;
 import org.apache.knox.gateway.topology.discovery.cm.AbstractCMDiscoveryTest;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class ServiceConfigurationModelTest extends AbstractCMDiscoveryTest {
 
@@ -112,6 +115,23 @@ public class ServiceConfigurationModelTest extends AbstractCMDiscoveryTest {
     validateServiceConfigurationModel(model, serviceConfig, roleConfig);
   }
 
+  @Test
+  public void testServiceConfigurationModelKeepsThePropertiesOfEveryRole() {
+    Map<ApiRole, ApiConfigList> apiRoleConfigs = new LinkedHashMap<>();
+    apiRoleConfigs.put(createApiRoleMock("NAMENODE-1", "NAMENODE"), createApiConfigListMock(Collections.singletonMap("port", "8020")));
+    apiRoleConfigs.put(createApiRoleMock("NAMENODE-2", "NAMENODE"), createApiConfigListMock(Collections.singletonMap("port", "8021")));
+
+    ServiceConfigurationModel model =
+        new ServiceConfigurationModel(createApiServiceConfigMock(Collections.emptyMap()), apiRoleConfigs);
+    assertEquals(Arrays.asList(Collections.singletonMap("port", "8020"), Collections.singletonMap("port", "8021")),
+                 model.getRolePropsPerRole("NAMENODE"));
+    assertTrue(model.getRolePropsPerRole("UNKNOWN_ROLE_TYPE").isEmpty());
+
+    // A model that only records the properties per role type has a single set of properties for each type
+    model = new ServiceConfigurationModel();
+    model.addRoleProperty("NAMENODE", "port", "8020");
+    assertEquals(Collections.singletonList(Collections.singletonMap("port", "8020")), model.getRolePropsPerRole("NAMENODE"));
+  }
 
   private void validateServiceConfigurationModel(final ServiceConfigurationModel        model,
                                                  final Map<String, String>              expectedServiceConfig,
@@ -36,6 +36,13 @@ public class Log4jMessageLogger implements MessageLogger {
     return logger.isEnabled( toLevel( level ) );
   }
 
+  @Override
+  public final boolean requiresCaller() {
+    // The location is only computed by Log4j if one of the appenders of the logger uses it
+    return !( logger instanceof org.apache.logging.log4j.core.Logger )
+        || ( (org.apache.logging.log4j.core.Logger)logger ).get().requiresLocation();
+  }
+
   @Override
   public final void log( final StackTraceElement caller, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
     logger.logMessage(toLevel(messageLevel), null, CLASS_NAME, caller, new SimpleMessage(messageText), thrown);
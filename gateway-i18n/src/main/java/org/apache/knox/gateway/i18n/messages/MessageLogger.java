@@ -21,6 +21,14 @@ public interface MessageLogger {
 
   boolean isLoggable( MessageLevel level );
 
+  /**
+   * @return false if the logger does not use the caller passed to {@link #log}, so that
+   * it does not need to be looked up; null is passed as the caller in that case
+   */
+  default boolean requiresCaller() {
+    return true;
+  }
+
   void log( StackTraceElement caller, MessageLevel messageLevel, String messageId, String messageText, Throwable thrown );
 
 }
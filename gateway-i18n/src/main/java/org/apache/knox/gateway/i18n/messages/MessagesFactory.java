@@ -27,6 +27,11 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class MessagesFactory {
 
+  /**
+   * The suffix of the names of the implementations generated for the {@link Messages} interfaces.
+   */
+  public static final String GENERATED_CLASS_SUFFIX = "_Impl";
+
   private static MessageLoggerFactory loggers = getMessageLoggerFactory();
   private static Map<Class<?>, Object> proxies = new ConcurrentHashMap<>();
 
@@ -38,13 +43,33 @@ public class MessagesFactory {
       if( anno == null ) {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Messages.class.getCanonicalName() );
       }
-      MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = newGeneratedMessages( clazz );
+      if( proxy == null ) {
+        MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
   }
 
+  /*
+   * Returns an instance of the implementation generated at build time for the interface, if there is one.
+   */
+  private static Object newGeneratedMessages( Class<?> clazz ) {
+    try {
+      Class<?> generated = Class.forName( clazz.getName() + GENERATED_CLASS_SUFFIX, true, clazz.getClassLoader() );
+      if( clazz.isAssignableFrom( generated ) && MessagesSupport.class.isAssignableFrom( generated ) ) {
+        return generated.getConstructor( MessageLoggerFactory.class ).newInstance( loggers );
+      }
+    } catch( ClassNotFoundException e ) {
+      // The interface has not been processed at build time
+    } catch( ReflectiveOperationException | LinkageError e ) {
+      // Fall back to the proxy
+    }
+    return null;
+  }
+
   private static MessageLoggerFactory getMessageLoggerFactory() {
     MessageLoggerFactory factory;
     ServiceLoader<MessageLoggerFactory> loader = ServiceLoader.load( MessageLoggerFactory.class );
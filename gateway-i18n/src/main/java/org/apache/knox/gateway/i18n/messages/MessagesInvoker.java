@@ -51,8 +51,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
       // From looking at the JRE code it looks this is probably the case.
       // The second version ends up calling the first version after getting the current thread
       // and then checking that it is being called from the current thread.
-      //TODO: Should probably only do this if the logger is at debug or finer to make sure there isn't a performance impact during production usage.
-      StackTraceElement caller = new Throwable().getStackTrace()[2];
+      StackTraceElement caller = logger.requiresCaller() ? new Throwable().getStackTrace()[2] : null;
       // StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
       logger.log( caller, level, code, message, throwable );
     }
@@ -128,7 +127,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return pattern;
   }
 
-  private static String calcBundleName( Class<?> clazz, Messages anno ) {
+  static String calcBundleName( Class<?> clazz, Messages anno ) {
     String bundle = null;
     if( anno != null ) {
       bundle = anno.bundle();
@@ -142,7 +141,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return bundle;
   }
 
-  private static String calcLoggerName( final Class<?> clazz, final Messages anno ) {
+  static String calcLoggerName( final Class<?> clazz, final Messages anno ) {
     String logger = null;
     if( anno != null ) {
       logger = anno.logger();
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.i18n.messages;
+
+import java.text.MessageFormat;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Base class of the {@link Messages} implementations generated by the
+ * {@link org.apache.knox.gateway.i18n.processor.MessagesProcessor}.
+ * <p>
+ * The generated methods check the level before doing anything else and pass the
+ * index of the message, so the patterns are resolved and parsed only once per locale
+ * instead of on every call, and the caller is only captured when the logger uses it.
+ */
+public abstract class MessagesSupport {
+
+  private static final ResourceBundle MISSING_BUNDLE = new ListResourceBundle() {
+    @Override
+    protected Object[][] getContents() {
+      return new Object[0][];
+    }
+  };
+
+  private final Class<?> clazz;
+  private final MessageLogger logger;
+  private final String bundleName;
+  private final String[] names;
+  private final String[] patterns;
+  private final Map<Locale, ResourceBundle> bundles = new ConcurrentHashMap<>();
+  private final Map<Locale, AtomicReferenceArray<MessageFormat>> formats = new ConcurrentHashMap<>();
+
+  /**
+   * @param clazz    the implemented {@link Messages} interface
+   * @param loggers  the factory of the logger the messages are written to
+   * @param names    the method names, used to look the messages up in the resource bundle
+   * @param patterns the patterns used when the resource bundle does not define the message
+   */
+  protected MessagesSupport( final Class<?> clazz, final MessageLoggerFactory loggers, final String[] names, final String[] patterns ) {
+    final Messages anno = clazz.getAnnotation( Messages.class );
+    this.clazz = clazz;
+    this.logger = loggers.getLogger( MessagesInvoker.calcLoggerName( clazz, anno ) );
+    this.bundleName = MessagesInvoker.calcBundleName( clazz, anno );
+    this.names = names;
+    this.patterns = patterns;
+  }
+
+  protected final boolean isLoggable( final MessageLevel level ) {
+    return logger.isLoggable( level );
+  }
+
+  /**
+   * @return the argument, if it is a {@link Throwable} whose stack trace should be logged at the specified level;
+   * otherwise the throwable found in the remaining arguments
+   */
+  protected final Throwable stackTrace( final Object arg, final MessageLevel level, final Throwable next ) {
+    if( arg instanceof Throwable && logger.isLoggable( level ) ) {
+      return (Throwable)arg;
+    }
+    return next;
+  }
+
+  /**
+   * Formats and logs the message. Must be called directly by the generated method, so that the
+   * caller of that method can be found at a fixed depth of the stack.
+   *
+   * @return the formatted message
+   */
+  protected final String log( final int index, final MessageLevel level, final String code, final Object[] args, final Throwable thrown ) {
+    final String message = format( index, args );
+    final StackTraceElement caller = logger.requiresCaller() ? new Throwable().getStackTrace()[ 2 ] : null;
+    logger.log( caller, level, code, message, thrown );
+    return message;
+  }
+
+  private String format( final int index, final Object[] args ) {
+    final Locale locale = Locale.getDefault();
+    final AtomicReferenceArray<MessageFormat> localized =
+        formats.computeIfAbsent( locale, l -> new AtomicReferenceArray<>( patterns.length ) );
+    MessageFormat format = localized.get( index );
+    if( format == null ) {
+      format = new MessageFormat( getPattern( index, locale ), Locale.ROOT );
+      localized.set( index, format );
+    }
+    // MessageFormat is not thread safe, but cloning the parsed prototype is much cheaper than parsing it again
+    return ( (MessageFormat)format.clone() ).format( args );
+  }
+
+  private String getPattern( final int index, final Locale locale ) {
+    final ResourceBundle bundle = bundles.computeIfAbsent( locale, this::loadBundle );
+    if( !MISSING_BUNDLE.equals( bundle ) && bundle.containsKey( names[ index ] ) ) {
+      return bundle.getString( names[ index ] );
+    }
+    return patterns[ index ];
+  }
+
+  private ResourceBundle loadBundle( final Locale locale ) {
+    try {
+      return ResourceBundle.getBundle( bundleName, locale, clazz.getClassLoader() );
+    } catch( MissingResourceException e ) {
+      return MISSING_BUNDLE;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "GeneratedMessages[" + bundleName + "]";
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.i18n.processor;
+
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a class implementing every interface annotated with the processed annotation,
+ * named after the interface with the {@link MessagesFactory#GENERATED_CLASS_SUFFIX} suffix.
+ * <p>
+ * Interfaces that cannot be implemented this way (e.g. generic ones) are skipped, and keep being
+ * served by the proxy.
+ */
+abstract class AbstractImplementationProcessor extends AbstractProcessor {
+
+  static final String INDENT = "  ";
+
+  private final Class<? extends Annotation> annotation;
+  private final Class<?> superclass;
+
+  AbstractImplementationProcessor( final Class<? extends Annotation> annotation, final Class<?> superclass ) {
+    this.annotation = annotation;
+    this.superclass = superclass;
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv ) {
+    for( Element element : roundEnv.getElementsAnnotatedWith( annotation ) ) {
+      if( element.getKind() == ElementKind.INTERFACE ) {
+        generate( (TypeElement)element );
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return whether the generated methods can return the type
+   */
+  abstract boolean isSupportedReturnType( TypeMirror type );
+
+  /**
+   * @return the pattern of the method when the resource bundle does not define it
+   */
+  abstract String getPattern( ExecutableElement method );
+
+  /**
+   * Writes the constructor of the generated class, which passes the method names and patterns
+   * (as Java literals) to the superclass.
+   */
+  abstract void writeConstructor( PrintWriter writer, TypeElement type, String className, List<String> names, List<String> patterns );
+
+  /**
+   * Writes the implementation of the method, which is the index-th one.
+   */
+  abstract void writeMethod( PrintWriter writer, TypeElement type, int index, ExecutableElement method );
+
+  private void generate( final TypeElement type ) {
+    final List<ExecutableElement> methods = getMethods( type );
+    if( methods == null ) {
+      processingEnv.getMessager().printMessage( Diagnostic.Kind.NOTE,
+          "Not generating an implementation of " + type.getQualifiedName() + "; it will be proxied", type );
+      return;
+    }
+
+    final String packageName = processingEnv.getElementUtils().getPackageOf( type ).getQualifiedName().toString();
+    final String interfaceName = type.getQualifiedName().toString();
+    final String binaryName = processingEnv.getElementUtils().getBinaryName( type ).toString();
+    final String className = binaryName.substring( binaryName.lastIndexOf( '.' ) + 1 ) + MessagesFactory.GENERATED_CLASS_SUFFIX;
+
+    final List<String> names = new ArrayList<>();
+    final List<String> patterns = new ArrayList<>();
+    for( ExecutableElement method : methods ) {
+      names.add( literal( method.getSimpleName().toString() ) );
+      patterns.add( literal( getPattern( method ) ) );
+    }
+
+    try( PrintWriter writer = new PrintWriter( processingEnv.getFiler().createSourceFile(
+        packageName.isEmpty() ? className : packageName + '.' + className, type ).openWriter() ) ) {
+      if( !packageName.isEmpty() ) {
+        writer.println( "package " + packageName + ";" );
+        writer.println();
+      }
+      writer.println( "/**" );
+      writer.println( " * Generated by " + getClass().getName() + " from " + interfaceName + "; do not edit." );
+      writer.println( " */" );
+      writer.println( "public final class " + className + " extends " + superclass.getName() + " implements " + interfaceName + " {" );
+      writer.println();
+      writeConstructor( writer, type, className, names, patterns );
+      for( int i = 0; i < methods.size(); i++ ) {
+        writer.println();
+        writeMethod( writer, type, i, methods.get( i ) );
+      }
+      writer.println();
+      writer.println( "}" );
+    } catch( IOException e ) {
+      processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR,
+          "Failed to generate the implementation of " + interfaceName + ": " + e.getMessage(), type );
+    }
+  }
+
+  /*
+   * Returns the methods to implement, or null if the interface cannot be implemented by generated code.
+   */
+  private List<ExecutableElement> getMethods( final TypeElement type ) {
+    if( !type.getTypeParameters().isEmpty() || !isAccessible( type ) ) {
+      return null;
+    }
+
+    final List<ExecutableElement> methods = new ArrayList<>();
+    for( ExecutableElement method : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( type ) ) ) {
+      if( !method.getModifiers().contains( Modifier.ABSTRACT ) || method.getEnclosingElement().getKind() != ElementKind.INTERFACE ) {
+        continue;
+      }
+      if( !method.getTypeParameters().isEmpty() || !isSupportedReturnType( method.getReturnType() ) ) {
+        return null;
+      }
+      for( VariableElement param : method.getParameters() ) {
+        // Unresolved types cannot be written out; the compiler reports them on the interface itself
+        if( param.asType().getKind() == TypeKind.ERROR ) {
+          return null;
+        }
+      }
+      methods.add( method );
+    }
+    return methods;
+  }
+
+  private static boolean isAccessible( final Element type ) {
+    Element element = type;
+    while( !( element instanceof PackageElement ) ) {
+      if( element.getModifiers().contains( Modifier.PRIVATE ) ) {
+        return false;
+      }
+      element = element.getEnclosingElement();
+    }
+    return true;
+  }
+
+  /**
+   * @return the Java literal of the string
+   */
+  String literal( final String value ) {
+    return processingEnv.getElementUtils().getConstantExpression( value );
+  }
+
+  /**
+   * @return the declaration of the method, named after the interface method, with parameters named p0, p1...
+   */
+  static String getDeclaration( final ExecutableElement method ) {
+    final List<? extends VariableElement> params = method.getParameters();
+    final List<String> declarations = new ArrayList<>();
+    for( int i = 0; i < params.size(); i++ ) {
+      String paramType = params.get( i ).asType().toString();
+      if( method.isVarArgs() && i == params.size() - 1 ) {
+        paramType = paramType.substring( 0, paramType.length() - 2 ) + "...";
+      }
+      declarations.add( "final " + paramType + " p" + i );
+    }
+    return "public " + method.getReturnType() + " " + method.getSimpleName() + "( " + String.join( ", ", declarations ) + " )";
+  }
+
+  /**
+   * @return the expression of the array holding the arguments of the method
+   */
+  static String getArguments( final ExecutableElement method ) {
+    final List<String> args = new ArrayList<>();
+    for( int i = 0; i < method.getParameters().size(); i++ ) {
+      args.add( "p" + i );
+    }
+    return "new Object[]{ " + String.join( ", ", args ) + " }";
+  }
+
+  /**
+   * Mirrors ResourcesInvoker: the method name followed by its arguments.
+   */
+  static String getDefaultPattern( final ExecutableElement method ) {
+    final List<String> args = new ArrayList<>();
+    for( int i = 0; i < method.getParameters().size(); i++ ) {
+      args.add( "\"{" + i + "}\"" );
+    }
+    return args.isEmpty() ? method.getSimpleName().toString() : method.getSimpleName() + "(" + String.join( ",", args ) + ")";
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.i18n.processor;
+
+import org.apache.knox.gateway.i18n.messages.Message;
+import org.apache.knox.gateway.i18n.messages.MessageLevel;
+import org.apache.knox.gateway.i18n.messages.MessageLoggerFactory;
+import org.apache.knox.gateway.i18n.messages.Messages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.i18n.messages.MessagesSupport;
+import org.apache.knox.gateway.i18n.messages.StackTrace;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.io.PrintWriter;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Generates an implementation of every {@link Messages} interface, which {@link MessagesFactory}
+ * returns instead of a dynamic proxy. The annotations are read once, at build time: the generated
+ * methods check the message level first and only then format the message, without reflection.
+ */
+@SupportedAnnotationTypes( "org.apache.knox.gateway.i18n.messages.Messages" )
+public class MessagesProcessor extends AbstractImplementationProcessor {
+
+  public MessagesProcessor() {
+    super( Messages.class, MessagesSupport.class );
+  }
+
+  @Override
+  boolean isSupportedReturnType( final TypeMirror type ) {
+    return type.getKind() == TypeKind.VOID || String.class.getName().equals( type.toString() );
+  }
+
+  /*
+   * Mirrors MessagesInvoker: the annotation text, or the method name followed by its arguments.
+   */
+  @Override
+  String getPattern( final ExecutableElement method ) {
+    final Message anno = method.getAnnotation( Message.class );
+    if( anno != null && !Message.DEFAULT_TEXT.equals( anno.text() ) ) {
+      return anno.text();
+    }
+    return getDefaultPattern( method );
+  }
+
+  @Override
+  void writeConstructor( final PrintWriter writer, final TypeElement type, final String className,
+                         final List<String> names, final List<String> patterns ) {
+    writer.println( INDENT + "public " + className + "( final " + MessageLoggerFactory.class.getName() + " loggers ) {" );
+    writer.println( INDENT + INDENT + "super( " + type.getQualifiedName() + ".class, loggers," );
+    writer.println( INDENT + INDENT + INDENT + "new String[]{ " + String.join( ", ", names ) + " }," );
+    writer.println( INDENT + INDENT + INDENT + "new String[]{ " + String.join( ", ", patterns ) + " } );" );
+    writer.println( INDENT + "}" );
+  }
+
+  @Override
+  void writeMethod( final PrintWriter writer, final TypeElement type, final int index, final ExecutableElement method ) {
+    final Message anno = method.getAnnotation( Message.class );
+    final String level = MessageLevel.class.getName() + '.' + ( anno == null ? MessageLevel.INFO : anno.level() ).name();
+    final String code = anno == null || anno.code() == Message.DEFAULT_CODE
+        ? "null" : literal( new MessageFormat( getCodePattern( type ), Locale.ROOT ).format( new Object[]{ anno.code() } ) );
+    final String log = "log( " + index + ", " + level + ", " + code + ", " + getArguments( method ) + ", "
+        + getThrowable( method.getParameters() ) + " )";
+
+    writer.println( INDENT + "@Override" );
+    writer.println( INDENT + getDeclaration( method ) + " {" );
+    if( method.getReturnType().getKind() == TypeKind.VOID ) {
+      writer.println( INDENT + INDENT + "if( isLoggable( " + level + " ) ) {" );
+      writer.println( INDENT + INDENT + INDENT + log + ";" );
+      writer.println( INDENT + INDENT + "}" );
+    } else {
+      writer.println( INDENT + INDENT + "return isLoggable( " + level + " ) ? " + log + " : null;" );
+    }
+    writer.println( INDENT + "}" );
+  }
+
+  /*
+   * Mirrors MessagesInvoker: the first argument annotated with @StackTrace that is a Throwable
+   * and whose stack trace level is enabled is logged.
+   */
+  private static String getThrowable( final List<? extends VariableElement> params ) {
+    String throwable = "null";
+    for( int i = params.size() - 1; i >= 0; i-- ) {
+      final VariableElement param = params.get( i );
+      final StackTrace anno = param.getAnnotation( StackTrace.class );
+      if( anno != null && !param.asType().getKind().isPrimitive() ) {
+        throwable = "stackTrace( p" + i + ", " + MessageLevel.class.getName() + '.' + anno.level().name() + ", " + throwable + " )";
+      }
+    }
+    return throwable;
+  }
+
+  private static String getCodePattern( final TypeElement type ) {
+    final String codes = type.getAnnotation( Messages.class ).codes();
+    return Messages.DEFAULT_CODES.equals( codes ) ? type.getQualifiedName().toString().replace( '.', '/' ) : codes;
+  }
+
+}
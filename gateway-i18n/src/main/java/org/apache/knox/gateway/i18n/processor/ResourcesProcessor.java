@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.i18n.processor;
+
+import org.apache.knox.gateway.i18n.resources.Resource;
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
+import org.apache.knox.gateway.i18n.resources.Resources;
+import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
+import org.apache.knox.gateway.i18n.resources.ResourcesSupport;
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Generates an implementation of every {@link Resources} interface, which {@link ResourcesFactory}
+ * returns instead of a dynamic proxy. Methods returning a {@link ResourceMessage} only capture
+ * their arguments; the others format the resource right away.
+ */
+@SupportedAnnotationTypes( "org.apache.knox.gateway.i18n.resources.Resources" )
+public class ResourcesProcessor extends AbstractImplementationProcessor {
+
+  public ResourcesProcessor() {
+    super( Resources.class, ResourcesSupport.class );
+  }
+
+  @Override
+  boolean isSupportedReturnType( final TypeMirror type ) {
+    return String.class.getName().equals( type.toString() ) || isResourceMessage( type );
+  }
+
+  /*
+   * Mirrors ResourcesInvoker: the annotation text, or the method name followed by its arguments.
+   */
+  @Override
+  String getPattern( final ExecutableElement method ) {
+    final Resource anno = method.getAnnotation( Resource.class );
+    if( anno != null && !Resource.DEFAULT_TEXT.equals( anno.text() ) ) {
+      return anno.text();
+    }
+    return getDefaultPattern( method );
+  }
+
+  @Override
+  void writeConstructor( final PrintWriter writer, final TypeElement type, final String className,
+                         final List<String> names, final List<String> patterns ) {
+    writer.println( INDENT + "public " + className + "() {" );
+    writer.println( INDENT + INDENT + "super( " + type.getQualifiedName() + ".class," );
+    writer.println( INDENT + INDENT + INDENT + "new String[]{ " + String.join( ", ", names ) + " }," );
+    writer.println( INDENT + INDENT + INDENT + "new String[]{ " + String.join( ", ", patterns ) + " } );" );
+    writer.println( INDENT + "}" );
+  }
+
+  @Override
+  void writeMethod( final PrintWriter writer, final TypeElement type, final int index, final ExecutableElement method ) {
+    final String factory = isResourceMessage( method.getReturnType() ) ? "message" : "format";
+    writer.println( INDENT + "@Override" );
+    writer.println( INDENT + getDeclaration( method ) + " {" );
+    writer.println( INDENT + INDENT + "return " + factory + "( " + index + ", " + getArguments( method ) + " );" );
+    writer.println( INDENT + "}" );
+  }
+
+  private static boolean isResourceMessage( final TypeMirror type ) {
+    return ResourceMessage.class.getName().equals( type.toString() );
+  }
+
+}
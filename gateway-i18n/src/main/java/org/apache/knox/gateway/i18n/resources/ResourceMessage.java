@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.i18n.resources;
+
+import java.text.MessageFormat;
+
+/**
+ * A resource text whose arguments have not been formatted yet.
+ * <p>
+ * {@link Resources} methods declared to return a <code>ResourceMessage</code> only capture the
+ * format and the arguments; the text is rendered the first time {@link #toString()} is called,
+ * so it costs nothing when the consumer of the message (e.g. a disabled logger) discards it.
+ */
+public final class ResourceMessage {
+
+  private final MessageFormat format;
+  private final Object[] args;
+  private String text;
+
+  /**
+   * @param format the parsed resource pattern; it is never modified, so it can be shared
+   * @param args   the arguments of the pattern
+   */
+  public ResourceMessage( final MessageFormat format, final Object... args ) {
+    this.format = format;
+    this.args = args;
+  }
+
+  /**
+   * @return the formatted text
+   */
+  @Override
+  public String toString() {
+    String result = text;
+    if( result == null ) {
+      // MessageFormat is not thread safe, so the shared prototype is cloned
+      result = ( (MessageFormat)format.clone() ).format( args );
+      text = result;
+    }
+    return result;
+  }
+
+}
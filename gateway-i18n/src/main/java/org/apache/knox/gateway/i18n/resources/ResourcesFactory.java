@@ -17,12 +17,19 @@
  */
 package org.apache.knox.gateway.i18n.resources;
 
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ResourcesFactory {
 
+  /**
+   * The suffix of the names of the implementations generated for the {@link Resources} interfaces.
+   */
+  public static final String GENERATED_CLASS_SUFFIX = MessagesFactory.GENERATED_CLASS_SUFFIX;
+
   private static Map<Class<?>, Object> proxies = new ConcurrentHashMap<>();
 
   @SuppressWarnings( "unchecked" )
@@ -33,11 +40,31 @@ public class ResourcesFactory {
       if( anno == null ) {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Resources.class.getCanonicalName() );
       }
-      ResourcesInvoker invoker = new ResourcesInvoker( clazz );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = newGeneratedResources( clazz );
+      if( proxy == null ) {
+        ResourcesInvoker invoker = new ResourcesInvoker( clazz );
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
   }
 
+  /*
+   * Returns an instance of the implementation generated at build time for the interface, if there is one.
+   */
+  private static Object newGeneratedResources( Class<?> clazz ) {
+    try {
+      Class<?> generated = Class.forName( clazz.getName() + GENERATED_CLASS_SUFFIX, true, clazz.getClassLoader() );
+      if( clazz.isAssignableFrom( generated ) && ResourcesSupport.class.isAssignableFrom( generated ) ) {
+        return generated.getConstructor().newInstance();
+      }
+    } catch( ClassNotFoundException e ) {
+      // The interface has not been processed at build time
+    } catch( ReflectiveOperationException | LinkageError e ) {
+      // Fall back to the proxy
+    }
+    return null;
+  }
+
 }
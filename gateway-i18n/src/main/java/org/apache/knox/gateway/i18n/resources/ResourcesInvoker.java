@@ -47,6 +47,9 @@ public class ResourcesInvoker implements InvocationHandler {
 
   @Override
   public Object invoke( final Object proxy, final Method method, final Object[] args ) throws Throwable {
+    if( ResourceMessage.class.equals( method.getReturnType() ) ) {
+      return new ResourceMessage( new MessageFormat( getPattern( method ), Locale.ROOT ), args );
+    }
     return getText( method, args );
   }
 
@@ -120,7 +123,7 @@ public class ResourcesInvoker implements InvocationHandler {
 
   }
 
-  private static String calcBundleName( final Class<?> clazz ) {
+  static String calcBundleName( final Class<?> clazz ) {
     String bundle = null;
     final Resources anno = clazz.getAnnotation( Resources.class );
     if( anno != null ) {
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.i18n.resources;
+
+import java.text.MessageFormat;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Base class of the {@link Resources} implementations generated by the
+ * {@link org.apache.knox.gateway.i18n.processor.ResourcesProcessor}.
+ * <p>
+ * The generated methods pass the index of the resource, so the patterns are resolved
+ * and parsed only once per locale instead of on every call.
+ */
+public abstract class ResourcesSupport {
+
+  private static final ResourceBundle MISSING_BUNDLE = new ListResourceBundle() {
+    @Override
+    protected Object[][] getContents() {
+      return new Object[0][];
+    }
+  };
+
+  private final Class<?> clazz;
+  private final String bundleName;
+  private final String[] names;
+  private final String[] patterns;
+  private final Map<Locale, ResourceBundle> bundles = new ConcurrentHashMap<>();
+  private final Map<Locale, AtomicReferenceArray<MessageFormat>> formats = new ConcurrentHashMap<>();
+
+  /**
+   * @param clazz    the implemented {@link Resources} interface
+   * @param names    the method names, used to look the resources up in the resource bundle
+   * @param patterns the patterns used when the resource bundle does not define the resource
+   */
+  protected ResourcesSupport( final Class<?> clazz, final String[] names, final String[] patterns ) {
+    this.clazz = clazz;
+    this.bundleName = ResourcesInvoker.calcBundleName( clazz );
+    this.names = names;
+    this.patterns = patterns;
+  }
+
+  /**
+   * @return the formatted resource
+   */
+  protected final String format( final int index, final Object[] args ) {
+    // MessageFormat is not thread safe, but cloning the parsed prototype is much cheaper than parsing it again
+    return ( (MessageFormat)getFormat( index ).clone() ).format( args );
+  }
+
+  /**
+   * @return the resource, formatted when it is first used
+   */
+  protected final ResourceMessage message( final int index, final Object[] args ) {
+    return new ResourceMessage( getFormat( index ), args );
+  }
+
+  private MessageFormat getFormat( final int index ) {
+    final Locale locale = Locale.getDefault();
+    final AtomicReferenceArray<MessageFormat> localized =
+        formats.computeIfAbsent( locale, l -> new AtomicReferenceArray<>( patterns.length ) );
+    MessageFormat format = localized.get( index );
+    if( format == null ) {
+      format = new MessageFormat( getPattern( index, locale ), Locale.ROOT );
+      localized.set( index, format );
+    }
+    return format;
+  }
+
+  private String getPattern( final int index, final Locale locale ) {
+    final ResourceBundle bundle = bundles.computeIfAbsent( locale, this::loadBundle );
+    if( !MISSING_BUNDLE.equals( bundle ) && bundle.containsKey( names[ index ] ) ) {
+      return bundle.getString( names[ index ] );
+    }
+    return patterns[ index ];
+  }
+
+  private ResourceBundle loadBundle( final Locale locale ) {
+    try {
+      return ResourceBundle.getBundle( bundleName, locale, clazz.getClassLoader() );
+    } catch( MissingResourceException e ) {
+      return MISSING_BUNDLE;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "GeneratedResources[" + bundleName + "]";
+  }
+
+}
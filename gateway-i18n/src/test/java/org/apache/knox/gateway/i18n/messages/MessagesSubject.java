@@ -21,4 +21,7 @@ package org.apache.knox.gateway.i18n.messages;
 public interface MessagesSubject {
   @Message(level= MessageLevel.ERROR, code=3, text="p0={0}" )
   void withFullAnnotationAndParameter( int x );
+
+  @Message(level= MessageLevel.WARN, text="failed: {0}" )
+  String withStackTrace( String reason, @StackTrace( level=MessageLevel.DEBUG ) Exception e );
 }
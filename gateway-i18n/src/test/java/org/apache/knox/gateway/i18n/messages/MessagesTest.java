@@ -26,7 +26,9 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @Category( { UnitTests.class, FastTests.class } )
@@ -44,5 +46,27 @@ public class MessagesTest {
 
     assertThat( record.getCaller().getClassName(), is( this.getClass().getName() ) );
     assertThat( record.getCaller().getMethodName(), is( "testFirst" ) );
+    logger.records.clear();
+  }
+
+  @Test
+  public void testGeneratedImplementation() {
+    MessagesSubject log = MessagesFactory.get( MessagesSubject.class );
+    assertThat( log, instanceOf( MessagesSupport.class ) );
+
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( "some.logger.name" );
+    logger.records.clear();
+    try {
+      Exception e = new IllegalStateException();
+      assertThat( log.withStackTrace( "timeout", e ), is( "failed: timeout" ) );
+      assertThat( logger.records.size(), equalTo( 1 ) );
+
+      TestMessageRecord record = logger.records.get( 0 );
+      assertThat( record.getLevel(), is( MessageLevel.WARN ) );
+      assertThat( record.getThrowable(), sameInstance( e ) );
+      assertThat( record.getCaller().getMethodName(), is( "testGeneratedImplementation" ) );
+    } finally {
+      logger.records.clear();
+    }
   }
 }
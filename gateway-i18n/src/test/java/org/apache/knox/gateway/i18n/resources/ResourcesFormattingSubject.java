@@ -39,4 +39,7 @@ public interface ResourcesFormattingSubject {
 
   @Resource(text="{0}")
   String withLessFormatParamsThanMethodParams( int x, int y );
+
+  @Resource(text="status {0}")
+  ResourceMessage withDeferredFormatting( int status );
 }
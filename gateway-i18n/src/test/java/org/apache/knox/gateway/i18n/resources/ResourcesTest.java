@@ -24,9 +24,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.lang.reflect.Proxy;
 import java.util.Locale;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @Category( { UnitTests.class, FastTests.class } )
@@ -80,6 +82,17 @@ public class ResourcesTest {
         equalTo( "7" ) );
   }
 
+  @Test
+  public void testDeferredFormatting() {
+    ResourcesFormattingSubject res = ResourcesFactory.get( ResourcesFormattingSubject.class );
+    assertThat( res, instanceOf( ResourcesSupport.class ) );
+    assertThat( res.withDeferredFormatting( 404 ).toString(), equalTo( "status 404" ) );
+
+    ResourcesFormattingSubject proxy = (ResourcesFormattingSubject)Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class[]{ ResourcesFormattingSubject.class }, new ResourcesInvoker( ResourcesFormattingSubject.class ) );
+    assertThat( proxy.withDeferredFormatting( 404 ).toString(), equalTo( "status 404" ) );
+  }
+
   @Test
   public void testResourceLocales() {
     ResourcesLocaleSubject res = ResourcesFactory.get( ResourcesLocaleSubject.class );
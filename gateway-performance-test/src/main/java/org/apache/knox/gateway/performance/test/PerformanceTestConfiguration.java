@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.knox.gateway.performance.test.proxy.ProxyUseCaseRunner;
 
 public class PerformanceTestConfiguration {
 
@@ -76,6 +77,9 @@ public class PerformanceTestConfiguration {
     knoxTokenDefaultTopologies.put("tokenbased", "tokenbased");
     defaultUseCaseMap = new HashMap<>();
     defaultUseCaseMap.put(USE_CASE_NAME, knoxTokenDefaultTopologies);
+    final Map<String, String> proxyDefaultTopologies = new HashMap<>();
+    proxyDefaultTopologies.put("gateway", "perftest");
+    defaultUseCaseMap.put(ProxyUseCaseRunner.USE_CASE_NAME, proxyDefaultTopologies);
   }
 
   /* Gateway connection */
@@ -138,4 +142,8 @@ public class PerformanceTestConfiguration {
     return configuration.getProperty(USE_CASE_PREFIX + useCase + "." + param);
   }
 
+  public String getUseCaseParam(String useCase, String param, String defaultValue) {
+    return configuration.getProperty(USE_CASE_PREFIX + useCase + "." + param, defaultValue);
+  }
+
 }
@@ -76,4 +76,28 @@ public interface PerformanceTestMessages {
 
   @Message(level = MessageLevel.INFO, text = "Metrics reporter is shut down")
   void shutDownMetricsReporter();
+
+  @Message(level = MessageLevel.INFO, text = "Backend simulator is listening on port {0}")
+  void startedBackendSimulator(int port);
+
+  @Message(level = MessageLevel.INFO, text = "Backend simulator is stopped")
+  void stoppedBackendSimulator();
+
+  @Message(level = MessageLevel.INFO, text = "Deployed topology {0}, waiting {1} seconds for the gateway to pick it up ...")
+  void deployedTopology(String topologyFile, long waitTime);
+
+  @Message(level = MessageLevel.INFO, text = "Running the {0} proxy scenario on {1} threads for {2} seconds ...")
+  void runProxyScenario(String scenario, int numOfThreads, long duration);
+
+  @Message(level = MessageLevel.INFO, text = "Proxy scenario {0} finished: {1} requests, {2} errors, {3} requests/s")
+  void finishProxyScenario(String scenario, long requests, long errors, double throughput);
+
+  @Message(level = MessageLevel.ERROR, text = "Failed to run the {0} proxy scenario: {1}")
+  void failedToRunProxyScenario(String scenario, String errorMessage, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.DEBUG, text = "Failed to execute {0} proxy request: {1}")
+  void failedToExecuteProxyRequest(String scenario, String errorMessage);
+
+  @Message(level = MessageLevel.WARN, text = "Unable to sample the gateway JVM over JMX, GC and allocation rates will not be reported: {0}")
+  void failedToSampleGatewayJvm(String errorMessage);
 }
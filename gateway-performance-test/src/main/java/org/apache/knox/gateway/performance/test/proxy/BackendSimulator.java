@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.performance.test.PerformanceTestMessages;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.server.WebSocketHandler;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+
+/**
+ * In-process Jetty server simulating the backends of the proxy scenarios, so
+ * that the gateway can be loaded without a cluster. Websocket upgrades are
+ * answered by an echo endpoint, every other request by
+ * {@link BackendSimulatorServlet}.
+ */
+class BackendSimulator {
+  private static final PerformanceTestMessages LOG = MessagesFactory.get(PerformanceTestMessages.class);
+
+  private final Server server;
+  private final ServerConnector connector;
+  private final BackendSimulatorServlet servlet;
+  private final String host;
+
+  BackendSimulator(String host, int port, int maxThreads, Map<ProxyScenario, ScenarioProfile> profiles) {
+    this.host = host;
+    final QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads);
+    threadPool.setName("BackendSimulator");
+    server = new Server(threadPool);
+    connector = new ServerConnector(server);
+    connector.setHost(host);
+    connector.setPort(port);
+    server.addConnector(connector);
+
+    servlet = new BackendSimulatorServlet(profiles);
+    final ServletContextHandler context = new ServletContextHandler();
+    context.setContextPath("/");
+    context.addServlet(new ServletHolder(servlet), "/*");
+
+    final ScenarioProfile websocketProfile = profiles.get(ProxyScenario.WEBSOCKET);
+    final long websocketLatency = websocketProfile == null ? 0 : websocketProfile.getLatencyInMillis();
+    final WebSocketHandler websocketHandler = new WebSocketHandler() {
+      @Override
+      public void configure(WebSocketServletFactory factory) {
+        factory.getPolicy().setMaxTextMessageSize(Integer.MAX_VALUE);
+        factory.setCreator((request, response) -> new EchoSocket(websocketLatency));
+      }
+    };
+    websocketHandler.setHandler(context);
+    server.setHandler(websocketHandler);
+  }
+
+  void start() throws Exception {
+    server.start();
+    servlet.generatePayloads(getUrl("http"));
+    LOG.startedBackendSimulator(connector.getLocalPort());
+  }
+
+  void stop() throws Exception {
+    server.stop();
+    LOG.stoppedBackendSimulator();
+  }
+
+  String getUrl(String scheme) {
+    return scheme + "://" + host + ":" + connector.getLocalPort();
+  }
+
+  /*
+   * Echoes the text messages after the configured latency
+   */
+  private static class EchoSocket extends WebSocketAdapter {
+    private final long latencyInMillis;
+
+    EchoSocket(long latencyInMillis) {
+      this.latencyInMillis = latencyInMillis;
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+      if (isNotConnected()) {
+        return;
+      }
+      try {
+        TimeUnit.MILLISECONDS.sleep(latencyInMillis);
+        getRemote().sendString(message, null);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
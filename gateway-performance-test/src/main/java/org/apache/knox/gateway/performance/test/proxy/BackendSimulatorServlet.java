@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the canned responses of the simulated WebHDFS, YARN
+ * ResourceManager, Oozie and HTML UI backends after the configured latency.
+ * The responses contain backend URLs, so the gateway rewrites them as it
+ * would for a real service.
+ */
+class BackendSimulatorServlet extends HttpServlet {
+  private static final long serialVersionUID = 1L;
+
+  private final transient Map<ProxyScenario, ScenarioProfile> profiles;
+  private final transient Map<ProxyScenario, byte[]> payloads = new ConcurrentHashMap<>();
+
+  BackendSimulatorServlet(Map<ProxyScenario, ScenarioProfile> profiles) {
+    this.profiles = profiles;
+  }
+
+  void generatePayloads(String backendUrl) {
+    for (ScenarioProfile profile : profiles.values()) {
+      payloads.put(profile.getScenario(),
+          generatePayload(profile.getScenario(), backendUrl, profile.getPayloadEntries()).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    final ProxyScenario scenario = ProxyScenario.forBackendPath(request.getRequestURI());
+    final byte[] payload = scenario == null ? null : payloads.get(scenario);
+    if (payload == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    try {
+      TimeUnit.MILLISECONDS.sleep(profiles.get(scenario).getLatencyInMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(scenario.getContentType());
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.setContentLength(payload.length);
+    response.getOutputStream().write(payload);
+  }
+
+  static String generatePayload(ProxyScenario scenario, String backendUrl, int entries) {
+    final StringBuilder payload = new StringBuilder();
+    switch (scenario) {
+    case WEBHDFS:
+      payload.append("{\"FileStatuses\":{\"FileStatus\":[");
+      for (int i = 0; i < entries; i++) {
+        payload.append(i == 0 ? "{" : ",{")
+            .append("\"accessTime\":0,\"blockSize\":134217728,\"childrenNum\":0,\"fileId\":").append(16386 + i)
+            .append(",\"group\":\"hdfs\",\"length\":1048576,"
+                + "\"modificationTime\":1577836800000,\"owner\":\"guest\",\"pathSuffix\":\"file-").append(i)
+            .append(".txt\",\"permission\":\"644\",\"replication\":3,\"storagePolicy\":0,\"type\":\"FILE\"}");
+      }
+      payload.append("]}}");
+      break;
+    case RESOURCEMANAGER:
+      payload.append("{\"apps\":{\"app\":[");
+      for (int i = 0; i < entries; i++) {
+        payload.append(i == 0 ? "{" : ",{")
+            .append("\"id\":\"application_1577836800000_").append(i)
+            .append("\",\"user\":\"guest\",\"name\":\"job-").append(i)
+            .append("\",\"queue\":\"default\",\"state\":\"FINISHED\",\"finalStatus\":\"SUCCEEDED\",\"progress\":100.0,"
+                + "\"trackingUI\":\"History\",\"trackingUrl\":\"").append(backendUrl)
+            .append("/proxy/application_1577836800000_").append(i)
+            .append("/\",\"amContainerLogs\":\"").append(backendUrl).append("/node/containerlogs/container_1577836800000_")
+            .append(i).append("_01_000001/guest\",\"amHostHttpAddress\":\"localhost:8042\"}");
+      }
+      payload.append("]}}");
+      break;
+    case OOZIE:
+      payload.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><configuration>");
+      for (int i = 0; i < entries; i++) {
+        payload.append("<property><name>oozie.service.property.").append(i).append("</name><value>")
+            .append(backendUrl).append("/oozie/v2/job/").append(i).append("</value></property>");
+      }
+      payload.append("</configuration>");
+      break;
+    case HTMLUI:
+      payload.append("<!DOCTYPE html><html><head><title>Applications</title>"
+          + "<link rel=\"stylesheet\" href=\"/static/yarn.css\"><script src=\"/static/yarn.dt.plugins.js\"></script>"
+          + "</head><body><table id=\"apps\"><tbody>");
+      for (int i = 0; i < entries; i++) {
+        payload.append("<tr><td><a href=\"").append(backendUrl).append("/ui/cluster/app/application_1577836800000_")
+            .append(i).append("\">application_1577836800000_").append(i)
+            .append("</a></td><td>guest</td><td><a href=\"").append(backendUrl).append("/proxy/application_1577836800000_").append(i)
+            .append("/\">History</a></td></tr>");
+      }
+      payload.append("</tbody></table></body></html>");
+      break;
+    case WEBSOCKET:
+    default:
+      for (int i = 0; i < entries; i++) {
+        payload.append("message-").append(i).append(';');
+      }
+      break;
+    }
+    return payload.toString();
+  }
+}
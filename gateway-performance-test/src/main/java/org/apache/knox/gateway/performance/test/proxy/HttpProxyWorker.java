@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+import java.time.Instant;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.performance.test.PerformanceTestConfiguration;
+import org.apache.knox.gateway.performance.test.PerformanceTestMessages;
+import org.apache.knox.gateway.shell.ErrorResponse;
+import org.apache.knox.gateway.shell.KnoxSession;
+
+/**
+ * Requests the gateway path of an HTTP proxy scenario back to back until
+ * the end of the scenario, recording the response times.
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+class HttpProxyWorker implements Runnable {
+  private static final PerformanceTestMessages LOG = MessagesFactory.get(PerformanceTestMessages.class);
+
+  private final PerformanceTestConfiguration configuration;
+  private final ProxyScenario scenario;
+  private final ScenarioStatistics statistics;
+  private final Instant end;
+
+  HttpProxyWorker(PerformanceTestConfiguration configuration, ProxyScenario scenario, ScenarioStatistics statistics, Instant end) {
+    this.configuration = configuration;
+    this.scenario = scenario;
+    this.statistics = statistics;
+    this.end = end;
+  }
+
+  @Override
+  public void run() {
+    final String topologyUrl = configuration.getUseCaseUrl(ProxyUseCaseRunner.USE_CASE_NAME, "gateway");
+    try (KnoxSession session = KnoxSession.login(topologyUrl, configuration.getGatewayUser(), configuration.getGatewayPassword())) {
+      final String url = topologyUrl + scenario.getGatewayPath();
+      while (Instant.now().isBefore(end)) {
+        execute(session, url);
+      }
+    } catch (Exception e) {
+      LOG.failedToRunProxyScenario(scenario.getName(), e.getMessage(), e);
+    }
+  }
+
+  private void execute(KnoxSession session, String url) {
+    final long start = System.nanoTime();
+    try (CloseableHttpResponse response = session.executeNow(new HttpGet(url))) {
+      final HttpEntity entity = response.getEntity();
+      final long responseBytes = entity == null ? 0 : EntityUtils.toByteArray(entity).length;
+      statistics.recordResponse(System.nanoTime() - start, responseBytes);
+    } catch (ErrorResponse e) {
+      // error statuses are thrown by the session, release their connection
+      EntityUtils.consumeQuietly(e.getResponse().getEntity());
+      LOG.failedToExecuteProxyRequest(scenario.getName(), e.getMessage());
+      statistics.recordError();
+    } catch (Exception e) {
+      LOG.failedToExecuteProxyRequest(scenario.getName(), e.getMessage());
+      statistics.recordError();
+    }
+  }
+}
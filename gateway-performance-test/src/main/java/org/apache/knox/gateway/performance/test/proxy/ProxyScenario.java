@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+/**
+ * Load scenarios of the proxy use case: the gateway path requested by the
+ * load workers, and the backend path and content served by the simulator.
+ */
+public enum ProxyScenario {
+  WEBHDFS("webhdfs", "/webhdfs/v1/tmp?op=LISTSTATUS", "/webhdfs/", "application/json"),
+  RESOURCEMANAGER("resourcemanager", "/resourcemanager/v1/cluster/apps", "/ws/", "application/json"),
+  OOZIE("oozie", "/oozie/v2/admin/configuration", "/oozie/", "application/xml"),
+  HTMLUI("htmlui", "/yarn/cluster/apps", "/ui/", "text/html"),
+  WEBSOCKET("websocket", "/zeppelin/ws", "/zeppelin/ws", "text/plain");
+
+  private final String name;
+  private final String gatewayPath;
+  private final String backendPath;
+  private final String contentType;
+
+  ProxyScenario(String name, String gatewayPath, String backendPath, String contentType) {
+    this.name = name;
+    this.gatewayPath = gatewayPath;
+    this.backendPath = backendPath;
+    this.contentType = contentType;
+  }
+
+  /**
+   * @return the name of the scenario in the configuration and the reports
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the path requested from the gateway, relative to the topology URL
+   */
+  public String getGatewayPath() {
+    return gatewayPath;
+  }
+
+  /**
+   * @return the path prefix served by the backend simulator
+   */
+  public String getBackendPath() {
+    return backendPath;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  static ProxyScenario forBackendPath(String path) {
+    for (ProxyScenario scenario : values()) {
+      if (path.startsWith(scenario.backendPath)) {
+        return scenario;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.performance.test.ExecutorServiceUtils;
+import org.apache.knox.gateway.performance.test.PerformanceTestConfiguration;
+import org.apache.knox.gateway.performance.test.PerformanceTestLifeCyleListener;
+import org.apache.knox.gateway.performance.test.PerformanceTestMessages;
+import org.apache.knox.gateway.performance.test.ResponseTimeCache;
+import org.apache.knox.gateway.performance.test.UseCaseRunner;
+import org.apache.knox.gateway.performance.test.reporting.GatewayJvmSampler;
+import org.apache.knox.gateway.performance.test.reporting.ReportEngine;
+import org.apache.knox.gateway.performance.test.reporting.ReportEngines;
+
+/**
+ * Drives proxy load through the gateway to the in-process backends of
+ * {@link BackendSimulator}, one {@link ProxyScenario} after the other, and
+ * reports the throughput, the response time percentiles and the GC and
+ * allocation rates of the gateway for each scenario.
+ * <p>
+ * When a topology deployment folder is configured, the topology routing
+ * the services to the simulator is deployed there for the duration of the
+ * test; otherwise it has to be deployed beforehand with the configured
+ * backend port.
+ */
+public class ProxyUseCaseRunner implements UseCaseRunner {
+
+  public static final String USE_CASE_NAME = "proxy";
+
+  private static final PerformanceTestMessages LOG = MessagesFactory.get(PerformanceTestMessages.class);
+  private static final String PARAM_BACKEND_HOST = "backend.host";
+  private static final String PARAM_BACKEND_PORT = "backend.port";
+  private static final String PARAM_BACKEND_MAX_THREADS = "backend.maxThreads";
+  private static final String PARAM_TOPOLOGY_DEPLOY_FOLDER = "topology.deploy.folder";
+  private static final String PARAM_TOPOLOGY_DEPLOY_WAIT = "topology.deploy.waitInSecs";
+  private static final String TOPOLOGY_TEMPLATE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>%n"
+      + "<topology>%n"
+      + "  <gateway>%n"
+      + "    <provider><role>authentication</role><name>Anonymous</name><enabled>true</enabled></provider>%n"
+      + "    <provider><role>identity-assertion</role><name>Default</name><enabled>true</enabled></provider>%n"
+      + "  </gateway>%n"
+      + "  <service><role>WEBHDFS</role><url>%1$s/webhdfs</url></service>%n"
+      + "  <service><role>RESOURCEMANAGER</role><url>%1$s/ws</url></service>%n"
+      + "  <service><role>OOZIE</role><url>%1$s/oozie</url></service>%n"
+      + "  <service><role>YARNUI</role><url>%1$s/ui</url></service>%n"
+      + "  <service><role>ZEPPELINWS</role><url>%2$s/zeppelin</url></service>%n"
+      + "</topology>%n";
+
+  @Override
+  public void setResponseTimeCache(ResponseTimeCache responseTimeCache) {
+    // the proxy scenarios keep their own statistics
+  }
+
+  @Override
+  public void execute(PerformanceTestConfiguration configuration, List<PerformanceTestLifeCyleListener> lifeCyleListeners) {
+    final Map<ProxyScenario, ScenarioProfile> profiles = new EnumMap<>(ProxyScenario.class);
+    for (ProxyScenario scenario : ProxyScenario.values()) {
+      final ScenarioProfile profile = new ScenarioProfile(configuration, scenario);
+      if (profile.isEnabled()) {
+        profiles.put(scenario, profile);
+      }
+    }
+
+    final BackendSimulator simulator = new BackendSimulator(getParam(configuration, PARAM_BACKEND_HOST, "localhost"),
+        Integer.parseInt(getParam(configuration, PARAM_BACKEND_PORT, "0")),
+        Integer.parseInt(getParam(configuration, PARAM_BACKEND_MAX_THREADS, "200")), profiles);
+    Path deployedTopology = null;
+    GatewayJvmSampler sampler = null;
+    try {
+      simulator.start();
+      deployedTopology = deployTopology(configuration, simulator);
+      try {
+        sampler = new GatewayJvmSampler(configuration);
+      } catch (IOException e) {
+        LOG.failedToSampleGatewayJvm(e.getMessage());
+      }
+      final List<ReportEngine> reportEngines = ReportEngines.create(configuration);
+      for (ScenarioProfile profile : profiles.values()) {
+        final Map<String, Object> report = runScenario(configuration, profile, sampler);
+        for (ReportEngine reportEngine : reportEngines) {
+          reportEngine.generateReport(USE_CASE_NAME + "-" + profile.getScenario().getName(), report);
+        }
+      }
+    } catch (Exception e) {
+      LOG.failedToRunProxyScenario(USE_CASE_NAME, e.getMessage(), e);
+    } finally {
+      try {
+        simulator.stop();
+        if (deployedTopology != null) {
+          Files.deleteIfExists(deployedTopology);
+        }
+        if (sampler != null) {
+          sampler.close();
+        }
+      } catch (Exception e) {
+        // NOP
+      }
+      lifeCyleListeners.forEach(lifeCyleListener -> lifeCyleListener.onFinish());
+    }
+  }
+
+  private Map<String, Object> runScenario(PerformanceTestConfiguration configuration, ScenarioProfile profile,
+                                          GatewayJvmSampler sampler) throws Exception {
+    final ProxyScenario scenario = profile.getScenario();
+    final ScenarioStatistics statistics = new ScenarioStatistics();
+    final ThreadFactory threadFactory = new BasicThreadFactory.Builder().namingPattern("ProxyUseCaseRunner-" + scenario.getName() + "-%d").build();
+    final ExecutorService pool = Executors.newFixedThreadPool(profile.getNumberOfThreads(), threadFactory);
+    final String message = BackendSimulatorServlet.generatePayload(scenario, "", profile.getPayloadEntries());
+    LOG.runProxyScenario(scenario.getName(), profile.getNumberOfThreads(), profile.getDurationInSeconds());
+
+    final GatewayJvmSampler.Sample before = sampler == null ? null : sampler.sample();
+    final long start = System.nanoTime();
+    final Instant end = Instant.now().plusSeconds(profile.getDurationInSeconds());
+    for (int i = 0; i < profile.getNumberOfThreads(); i++) {
+      pool.submit(scenario == ProxyScenario.WEBSOCKET
+          ? new WebSocketProxyWorker(configuration, scenario, message, statistics, end)
+          : new HttpProxyWorker(configuration, scenario, statistics, end));
+    }
+    ExecutorServiceUtils.shutdownAndAwaitTermination(pool, profile.getDurationInSeconds() + 60, TimeUnit.SECONDS);
+    final long elapsed = System.nanoTime() - start;
+
+    final Map<String, Object> report = statistics.toReport(elapsed);
+    report.put("numOfThreads", profile.getNumberOfThreads());
+    report.put("backendLatencyInMs", profile.getLatencyInMillis());
+    report.put("payloadEntries", profile.getPayloadEntries());
+    if (before != null) {
+      report.put("gateway", GatewayJvmSampler.getRates(before, sampler.sample()));
+    }
+    LOG.finishProxyScenario(scenario.getName(), statistics.getRequests(), statistics.getErrors(), statistics.getThroughput(elapsed));
+    return report;
+  }
+
+  private Path deployTopology(PerformanceTestConfiguration configuration, BackendSimulator simulator) throws Exception {
+    final String deployFolder = getParam(configuration, PARAM_TOPOLOGY_DEPLOY_FOLDER, null);
+    if (StringUtils.isBlank(deployFolder)) {
+      return null;
+    }
+    final Path topology = Paths.get(deployFolder, configuration.getUseCaseTopology(USE_CASE_NAME, "gateway") + ".xml");
+    final String content = String.format(Locale.ROOT, TOPOLOGY_TEMPLATE, simulator.getUrl("http"), simulator.getUrl("ws"));
+    Files.write(topology, content.getBytes(StandardCharsets.UTF_8));
+    final long waitTime = Long.parseLong(getParam(configuration, PARAM_TOPOLOGY_DEPLOY_WAIT, "15"));
+    LOG.deployedTopology(topology.toString(), waitTime);
+    TimeUnit.SECONDS.sleep(waitTime);
+    return topology;
+  }
+
+  private static String getParam(PerformanceTestConfiguration configuration, String param, String defaultValue) {
+    return configuration.getUseCaseParam(USE_CASE_NAME, param, defaultValue);
+  }
+
+  @Override
+  public String getUseCaseName() {
+    return USE_CASE_NAME;
+  }
+}
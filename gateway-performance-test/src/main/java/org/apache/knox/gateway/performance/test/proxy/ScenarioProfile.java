@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+import org.apache.knox.gateway.performance.test.PerformanceTestConfiguration;
+
+/**
+ * Load profile of a proxy scenario: the number of concurrent clients and the
+ * duration of the load, and the latency and the payload size of the
+ * simulated backend.
+ */
+class ScenarioProfile {
+  static final String PARAM_ENABLED = "enabled";
+  static final String PARAM_NUMBER_OF_THREADS = "numOfThreads";
+  static final String PARAM_DURATION_IN_SECONDS = "testDurationInSecs";
+  static final String PARAM_LATENCY_IN_MILLIS = "latencyInMs";
+  static final String PARAM_PAYLOAD_ENTRIES = "payloadEntries";
+
+  private static final String DEFAULT_NUMBER_OF_THREADS = "10";
+  private static final String DEFAULT_DURATION_IN_SECONDS = "60";
+  private static final String DEFAULT_LATENCY_IN_MILLIS = "0";
+  private static final String DEFAULT_PAYLOAD_ENTRIES = "100";
+
+  private final ProxyScenario scenario;
+  private final boolean enabled;
+  private final int numberOfThreads;
+  private final long durationInSeconds;
+  private final long latencyInMillis;
+  private final int payloadEntries;
+
+  ScenarioProfile(PerformanceTestConfiguration configuration, ProxyScenario scenario) {
+    this.scenario = scenario;
+    this.enabled = Boolean.parseBoolean(getParam(configuration, PARAM_ENABLED, "false"));
+    this.numberOfThreads = Integer.parseInt(getParam(configuration, PARAM_NUMBER_OF_THREADS, DEFAULT_NUMBER_OF_THREADS));
+    this.durationInSeconds = Long.parseLong(getParam(configuration, PARAM_DURATION_IN_SECONDS, DEFAULT_DURATION_IN_SECONDS));
+    this.latencyInMillis = Long.parseLong(getParam(configuration, PARAM_LATENCY_IN_MILLIS, DEFAULT_LATENCY_IN_MILLIS));
+    this.payloadEntries = Integer.parseInt(getParam(configuration, PARAM_PAYLOAD_ENTRIES, DEFAULT_PAYLOAD_ENTRIES));
+  }
+
+  private String getParam(PerformanceTestConfiguration configuration, String param, String defaultValue) {
+    return configuration.getUseCaseParam(ProxyUseCaseRunner.USE_CASE_NAME, scenario.getName() + "." + param, defaultValue);
+  }
+
+  ProxyScenario getScenario() {
+    return scenario;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  long getDurationInSeconds() {
+    return durationInSeconds;
+  }
+
+  long getLatencyInMillis() {
+    return latencyInMillis;
+  }
+
+  int getPayloadEntries() {
+    return payloadEntries;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.math3.stat.StatUtils;
+
+/**
+ * Response times and errors of the requests of a proxy scenario.
+ */
+class ScenarioStatistics {
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+  private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+  private final Queue<Long> responseTimes = new ConcurrentLinkedQueue<>();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+
+  void recordResponse(long responseTimeNanos, long responseBytes) {
+    responseTimes.offer(responseTimeNanos);
+    bytes.add(responseBytes);
+  }
+
+  void recordError() {
+    errors.increment();
+  }
+
+  long getRequests() {
+    return responseTimes.size() + errors.sum();
+  }
+
+  long getErrors() {
+    return errors.sum();
+  }
+
+  double getThroughput(long elapsedNanos) {
+    return responseTimes.size() / Math.max(1e-9, elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  Map<String, Object> toReport(long elapsedNanos) {
+    final double[] responseTimesMillis = responseTimes.stream()
+        .mapToDouble(responseTime -> responseTime / (double) TimeUnit.MILLISECONDS.toNanos(1)).toArray();
+    final Map<String, Object> report = new HashMap<>();
+    report.put("requests", getRequests());
+    report.put("errors", getErrors());
+    report.put("responseBytes", bytes.sum());
+    report.put("durationInSecs", elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    report.put("throughput", getThroughput(elapsedNanos));
+    if (responseTimesMillis.length > 0) {
+      final Map<String, Object> latency = new HashMap<>();
+      latency.put("min", StatUtils.min(responseTimesMillis));
+      latency.put("max", StatUtils.max(responseTimesMillis));
+      latency.put("mean", StatUtils.mean(responseTimesMillis));
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        latency.put(PERCENTILE_NAMES[i], StatUtils.percentile(responseTimesMillis, PERCENTILES[i]));
+      }
+      report.put("latencyMs", latency);
+    }
+    return report;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.proxy;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.performance.test.PerformanceTestConfiguration;
+import org.apache.knox.gateway.performance.test.PerformanceTestMessages;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+/**
+ * Sends messages over a websocket connection proxied by the gateway to the
+ * echo endpoint of the backend simulator, one at a time until the end of the
+ * scenario, recording the round trip times.
+ * <p>
+ * The gateway of a performance test uses a self-signed certificate, which
+ * this worker trusts.
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+class WebSocketProxyWorker implements Runnable {
+  private static final PerformanceTestMessages LOG = MessagesFactory.get(PerformanceTestMessages.class);
+  private static final long ECHO_TIMEOUT_IN_SECONDS = 30;
+
+  private final PerformanceTestConfiguration configuration;
+  private final ProxyScenario scenario;
+  private final String message;
+  private final ScenarioStatistics statistics;
+  private final Instant end;
+
+  WebSocketProxyWorker(PerformanceTestConfiguration configuration, ProxyScenario scenario, String message,
+                       ScenarioStatistics statistics, Instant end) {
+    this.configuration = configuration;
+    this.scenario = scenario;
+    this.message = message;
+    this.statistics = statistics;
+    this.end = end;
+  }
+
+  @Override
+  public void run() {
+    final String topologyUrl = configuration.getUseCaseUrl(ProxyUseCaseRunner.USE_CASE_NAME, "gateway");
+    final URI uri = URI.create(topologyUrl.replaceFirst("^http", "ws") + scenario.getGatewayPath());
+    final HttpClient httpClient = new HttpClient(new SslContextFactory.Client(true));
+    final WebSocketClient client = new WebSocketClient(httpClient);
+    final EchoClientSocket socket = new EchoClientSocket();
+    try {
+      client.start();
+      final ClientUpgradeRequest request = new ClientUpgradeRequest();
+      final String credentials = configuration.getGatewayUser() + ":" + configuration.getGatewayPassword();
+      request.setHeader("Authorization",
+          "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+      final Session session = client.connect(socket, uri, request).get(ECHO_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+      while (Instant.now().isBefore(end) && session.isOpen()) {
+        final long start = System.nanoTime();
+        try {
+          session.getRemote().sendString(message);
+          final String echo = socket.messages.poll(ECHO_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+          if (echo == null) {
+            LOG.failedToExecuteProxyRequest(scenario.getName(), "no echo within " + ECHO_TIMEOUT_IN_SECONDS + " seconds");
+            statistics.recordError();
+          } else {
+            statistics.recordResponse(System.nanoTime() - start, echo.length());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (Exception e) {
+          LOG.failedToExecuteProxyRequest(scenario.getName(), e.getMessage());
+          statistics.recordError();
+        }
+      }
+      session.close();
+    } catch (Exception e) {
+      LOG.failedToRunProxyScenario(scenario.getName(), e.getMessage(), e);
+    } finally {
+      try {
+        client.stop();
+      } catch (Exception e) {
+        // NOP
+      }
+    }
+  }
+
+  private static class EchoClientSocket extends WebSocketAdapter {
+    private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onWebSocketText(String message) {
+      messages.offer(message);
+    }
+  }
+}
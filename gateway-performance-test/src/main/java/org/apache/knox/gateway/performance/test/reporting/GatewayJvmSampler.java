@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.test.reporting;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import org.apache.knox.gateway.performance.test.PerformanceTestConfiguration;
+
+/**
+ * Samples the garbage collections and the allocated bytes of the gateway JVM
+ * over JMX, so that the GC and allocation rates of a load scenario can be
+ * derived from a sample taken before and after it.
+ * <p>
+ * The allocated bytes are summed over the live threads of the gateway, the
+ * allocations of the threads that died during the scenario are missed. The
+ * request threads of the gateway are pooled, so the loss is small.
+ */
+public class GatewayJvmSampler implements Closeable {
+  private static final String GARBAGE_COLLECTORS_OBJECT_NAME = ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",*";
+
+  private final JMXConnector jmxConnector;
+  private final MBeanServerConnection mbeanConn;
+
+  public GatewayJvmSampler(PerformanceTestConfiguration configuration) throws IOException {
+    jmxConnector = JMXConnectorFactory.connect(new JMXServiceURL(configuration.getGatewayJmxUrl()), null);
+    mbeanConn = jmxConnector.getMBeanServerConnection();
+  }
+
+  public Sample sample() throws Exception {
+    long collections = 0;
+    long collectionTime = 0;
+    for (ObjectName collector : mbeanConn.queryNames(ObjectName.getInstance(GARBAGE_COLLECTORS_OBJECT_NAME), null)) {
+      collections += Math.max(0, (Long) mbeanConn.getAttribute(collector, "CollectionCount"));
+      collectionTime += Math.max(0, (Long) mbeanConn.getAttribute(collector, "CollectionTime"));
+    }
+
+    final ObjectName threading = ObjectName.getInstance(ManagementFactory.THREAD_MXBEAN_NAME);
+    final long[] threadIds = (long[]) mbeanConn.getAttribute(threading, "AllThreadIds");
+    final long[] threadAllocatedBytes = (long[]) mbeanConn.invoke(threading, "getThreadAllocatedBytes",
+        new Object[] { threadIds }, new String[] { long[].class.getName() });
+    long allocatedBytes = 0;
+    for (long threadAllocated : threadAllocatedBytes) {
+      allocatedBytes += Math.max(0, threadAllocated);
+    }
+    return new Sample(System.nanoTime(), collections, collectionTime, allocatedBytes);
+  }
+
+  @Override
+  public void close() throws IOException {
+    jmxConnector.close();
+  }
+
+  /**
+   * @return the GC and allocation rates of the gateway between two samples
+   */
+  public static Map<String, Object> getRates(Sample before, Sample after) {
+    final double elapsedSeconds = Math.max(1, after.time - before.time) / (double) TimeUnit.SECONDS.toNanos(1);
+    final long collectionTime = after.collectionTime - before.collectionTime;
+    final Map<String, Object> rates = new HashMap<>();
+    rates.put("gcCount", after.collections - before.collections);
+    rates.put("gcTimeMs", collectionTime);
+    rates.put("gcTimeRatio", collectionTime / (elapsedSeconds * 1000));
+    rates.put("allocatedBytes", after.allocatedBytes - before.allocatedBytes);
+    rates.put("allocationRateBytesPerSec", (after.allocatedBytes - before.allocatedBytes) / elapsedSeconds);
+    return rates;
+  }
+
+  public static class Sample {
+    private final long time;
+    private final long collections;
+    private final long collectionTime;
+    private final long allocatedBytes;
+
+    Sample(long time, long collections, long collectionTime, long allocatedBytes) {
+      this.time = time;
+      this.collections = collections;
+      this.collectionTime = collectionTime;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+
+}
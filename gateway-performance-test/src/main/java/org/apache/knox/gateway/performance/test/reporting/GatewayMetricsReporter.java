@@ -18,7 +18,6 @@
 package org.apache.knox.gateway.performance.test.reporting;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -67,7 +66,7 @@ public class GatewayMetricsReporter implements PerformanceTestLifeCyleListener {
     objectNamesToQuery.put("tokenStateStatistics", TOKEN_STATE_STATISTICS_OBJECT_NAME);
     objectNamesToQuery.put("timers", TIMERS_OBJECT_NAME);
     objectNamesToQuery.put("heapGauges", HEAP_GAUGES_OBJECT_NAME);
-    this.reportEngines = Arrays.asList(new JsonReportEngine(configuration), new YamlReportEngine(configuration));
+    this.reportEngines = ReportEngines.create(configuration);
   }
 
   public void start() throws IOException {
@@ -66,4 +66,13 @@ public interface IdentityAsserterMessages {
 
   @Message( level = MessageLevel.WARN, text = "Invalid result: {2}. Expected String when evaluating mapping: {1} for user: {0}.")
   void invalidAdvancedPrincipalMappingResult(String principalName, AbstractSyntaxTree mapping, Object result);
+
+  @Message( level = MessageLevel.INFO, text = "Identity mapping cache of topology {0} enabled with max {1} entries, TTL {2} seconds, keyed by request values {3}")
+  void identityMappingCacheEnabled(String topology, long maxSize, long ttlSeconds, String requestValues);
+
+  @Message( level = MessageLevel.WARN, text = "Identity mapping cache of topology {0} disabled, the mapping {1} reads request values by computed names or has side effects")
+  void identityMappingNotCacheable(String topology, AbstractSyntaxTree mapping);
+
+  @Message( level = MessageLevel.WARN, text = "Invalid identity mapping cache parameter {0}={1}, using {2}")
+  void invalidIdentityMappingCacheParameter(String name, String value, long defaultValue);
 }
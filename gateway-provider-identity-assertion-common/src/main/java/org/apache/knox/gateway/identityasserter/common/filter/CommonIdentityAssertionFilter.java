@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.security.AccessController;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -44,13 +45,16 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.IdentityAsserterMessages;
 import org.apache.knox.gateway.context.ContextAttributes;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.plang.AbstractSyntaxTree;
-import org.apache.knox.gateway.plang.Interpreter;
+import org.apache.knox.gateway.plang.Bindings;
+import org.apache.knox.gateway.plang.Expression;
+import org.apache.knox.gateway.plang.ExpressionCompiler;
 import org.apache.knox.gateway.plang.Parser;
 import org.apache.knox.gateway.plang.SyntaxException;
 import org.apache.knox.gateway.security.GroupPrincipal;
@@ -58,6 +62,8 @@ import org.apache.knox.gateway.security.SubjectUtils;
 import org.apache.knox.gateway.security.principal.PrincipalMappingException;
 import org.apache.knox.gateway.security.principal.SimplePrincipalMapper;
 import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.knox.gateway.util.AuthFilterUtils;
 import org.apache.knox.gateway.util.AuthorizationException;
 import org.apache.knox.gateway.util.HttpExceptionUtils;
@@ -79,8 +85,10 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
   /* List of all default and configured impersonation params */
   protected final List<String> impersonationParamsList = new ArrayList<>();
   protected boolean impersonationEnabled;
-  private AbstractSyntaxTree expressionPrincipalMapping;
+  private Expression expressionPrincipalMapping;
   private String topologyName;
+  private IdentityMappingCache mappingCache;
+  private ServletContext servletContext;
 
   @Override
   public void init(FilterConfig filterConfig) throws ServletException {
@@ -104,18 +112,37 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
 
     final List<String> initParameterNames = AuthFilterUtils.getInitParameterNamesAsList(filterConfig);
 
-    virtualGroupMapper = new VirtualGroupMapper(loadVirtualGroups(filterConfig, initParameterNames));
+    final Map<String, AbstractSyntaxTree> virtualGroups = loadVirtualGroups(filterConfig, initParameterNames);
+    virtualGroupMapper = new VirtualGroupMapper(virtualGroups);
+    initMappingCache(filterConfig, virtualGroups.values());
 
     initImpersonationParamsList(filterConfig);
     initProxyUserConfiguration(filterConfig, initParameterNames);
   }
 
-  private AbstractSyntaxTree parseAdvancedPrincipalMapping(FilterConfig filterConfig) {
+  private void initMappingCache(FilterConfig filterConfig, Collection<AbstractSyntaxTree> virtualGroupPredicates) {
+    final List<AbstractSyntaxTree> expressions = new ArrayList<>(virtualGroupPredicates);
+    if (expressionPrincipalMapping != null) {
+      expressions.add(expressionPrincipalMapping.ast());
+    }
+    mappingCache = IdentityMappingCache.acquire(filterConfig, topologyName, expressions, () -> getMetricRegistry(filterConfig));
+    if (mappingCache != null) {
+      servletContext = filterConfig.getServletContext();
+    }
+  }
+
+  private static MetricRegistry getMetricRegistry(FilterConfig filterConfig) {
+    final GatewayServices services = (GatewayServices) filterConfig.getServletContext().getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    final MetricsService metricsService = services == null ? null : services.getService(ServiceType.METRICS_SERVICE);
+    return metricsService == null ? null : metricsService.getRegistry();
+  }
+
+  private Expression parseAdvancedPrincipalMapping(FilterConfig filterConfig) {
     String expression = filterConfig.getInitParameter(ADVANCED_PRINCIPAL_MAPPING);
     if (StringUtils.isBlank(expression)) {
       expression = filterConfig.getServletContext().getInitParameter(ADVANCED_PRINCIPAL_MAPPING);
     }
-    return StringUtils.isBlank(expression) ? null : parser.parse(expression);
+    return StringUtils.isBlank(expression) ? null : new ExpressionCompiler().compile(parser.parse(expression));
   }
 
   /*
@@ -211,6 +238,10 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
 
   @Override
   public void destroy() {
+    if (mappingCache != null) {
+      mappingCache.release(servletContext);
+      mappingCache = null;
+    }
   }
 
   /**
@@ -228,17 +259,30 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
       throw new IllegalStateException("Required Subject Missing");
     }
 
-    String mappedPrincipalName = null;
+    final String principalName;
     try {
-      mappedPrincipalName = handleProxyUserImpersonation(request, subject);
+      principalName = handleProxyUserImpersonation(request, subject);
     } catch(AuthorizationException e) {
       LOG.hadoopAuthProxyUserFailed(e);
       HttpExceptionUtils.createServletExceptionResponse((HttpServletResponse) response, HttpServletResponse.SC_FORBIDDEN, e);
       return;
     }
 
+    final IdentityMappingCache.Mapping mapping = mappingCache == null
+        ? mapIdentity(request, subject, principalName)
+        : mappingCache.get(principalName, groups(subject), request, () -> mapIdentity(request, subject, principalName));
+
+    HttpServletRequestWrapper wrapper = wrapHttpServletRequest(request, mapping.getPrincipalName());
+
+    continueChainAsPrincipal(wrapper, response, chain, mapping.getPrincipalName(), mapping.getGroups());
+  }
+
+  /*
+   * Maps the principal name and groups of the subject, after impersonation, to the identity to assert
+   */
+  private IdentityMappingCache.Mapping mapIdentity(ServletRequest request, Subject subject, String principalName) {
     // mapping principal name using user principal mapping (if configured)
-    mappedPrincipalName = mapUserPrincipalBase(mappedPrincipalName);
+    String mappedPrincipalName = mapUserPrincipalBase(principalName);
     mappedPrincipalName = mapUserPrincipal(mappedPrincipalName);
     if (expressionPrincipalMapping != null) {
       String result = evalAdvancedPrincipalMapping(request, subject, mappedPrincipalName);
@@ -251,23 +295,19 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
     String[] virtualGroups = virtualGroupMapper.mapGroups(mappedPrincipalName, combine(subject, groups), request).toArray(new String[0]);
     groups = combineGroupMappings(mappedGroups, groups);
     groups = combineGroupMappings(virtualGroups, groups);
-
-    HttpServletRequestWrapper wrapper = wrapHttpServletRequest(request, mappedPrincipalName);
-
-
-    continueChainAsPrincipal(wrapper, response, chain, mappedPrincipalName, unique(groups));
+    return new IdentityMappingCache.Mapping(mappedPrincipalName, unique(groups));
   }
 
   private String evalAdvancedPrincipalMapping(ServletRequest request, Subject subject, String originalPrincipal) {
-    Interpreter interpreter = new Interpreter();
-    interpreter.addConstant("username", originalPrincipal);
-    interpreter.addConstant("groups", groups(subject));
-    addRequestFunctions(request, interpreter);
-    Object mappedPrincipal = interpreter.eval(expressionPrincipalMapping);
+    Bindings bindings = new Bindings()
+        .addConstant("username", originalPrincipal)
+        .addConstant("groups", groups(subject));
+    addRequestFunctions(request, bindings);
+    Object mappedPrincipal = expressionPrincipalMapping.eval(bindings);
     if (mappedPrincipal instanceof String) {
       return (String)mappedPrincipal;
     } else {
-      LOG.invalidAdvancedPrincipalMappingResult(originalPrincipal, expressionPrincipalMapping, mappedPrincipal);
+      LOG.invalidAdvancedPrincipalMappingResult(originalPrincipal, expressionPrincipalMapping.ast(), mappedPrincipal);
       return null;
     }
   }
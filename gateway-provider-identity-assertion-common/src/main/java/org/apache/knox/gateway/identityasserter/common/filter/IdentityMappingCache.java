@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.identityasserter.common.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.knox.gateway.IdentityAsserterMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.plang.AbstractSyntaxTree;
+
+/**
+ * A bounded cache of the identities asserted for an authenticated principal.
+ *
+ * The mapped principal name and groups only depend on the principal, its
+ * groups and the request values read by the mapping expressions. These
+ * values are found by analysing the expressions, and make up the key of the
+ * cache. Expressions reading request values with computed names, or having
+ * side effects, are not cacheable.
+ *
+ * The cache is disabled by default, because the group lookups of some
+ * identity assertion providers may change over time. The TTL bounds how long
+ * such a change goes unnoticed.
+ *
+ * The identity assertion filters of the resources of a topology deployment
+ * share one cache, kept as an attribute of their servlet context.
+ */
+class IdentityMappingCache {
+  private static final IdentityAsserterMessages LOG = MessagesFactory.get(IdentityAsserterMessages.class);
+
+  static final String CACHE_ENABLED = "identity.mapping.cache.enabled";
+  static final String CACHE_MAX = "identity.mapping.cache.max";
+  static final String CACHE_TTL = "identity.mapping.cache.ttl";
+  private static final long CACHE_MAX_DEFAULT = 10000;
+  private static final String CONTEXT_ATTRIBUTE = IdentityMappingCache.class.getName();
+  private static final long CACHE_TTL_DEFAULT = TimeUnit.MINUTES.toSeconds(5);
+
+  private static final Set<String> REQUEST_FUNCTIONS = new HashSet<>(Arrays.asList(
+      VirtualGroupMapper.REQUEST_ATTRIBUTE, VirtualGroupMapper.REQUEST_HEADER, VirtualGroupMapper.SESSION));
+
+  private final Cache<Key, Mapping> cache;
+  private final List<RequestValue> requestValues;
+  private final String metricsPrefix;
+  private final Map<String, Metric> metrics = new HashMap<>();
+  private MetricRegistry metricRegistry;
+  private int references;
+
+  private IdentityMappingCache(long maxSize, long ttlSeconds, List<RequestValue> requestValues, String topology) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    this.requestValues = requestValues;
+    this.metricsPrefix = MetricRegistry.name("identity-assertion", topology, "mapping-cache");
+  }
+
+  /**
+   * @param config the configuration of the identity assertion provider
+   * @param topology the name of the topology
+   * @param expressions the mapping expressions, null elements are ignored
+   * @return the cache, null if it is disabled or the expressions are not cacheable
+   */
+  static IdentityMappingCache create(FilterConfig config, String topology, Collection<AbstractSyntaxTree> expressions) {
+    if (!isEnabled(config)) {
+      return null;
+    }
+    final Set<RequestValue> requestValues = new LinkedHashSet<>();
+    for (AbstractSyntaxTree expression : expressions) {
+      if (!collectRequestValues(expression, requestValues)) {
+        LOG.identityMappingNotCacheable(topology, expression);
+        return null;
+      }
+    }
+    final long maxSize = getLong(config, CACHE_MAX, CACHE_MAX_DEFAULT);
+    final long ttlSeconds = getLong(config, CACHE_TTL, CACHE_TTL_DEFAULT);
+    LOG.identityMappingCacheEnabled(topology, maxSize, ttlSeconds, requestValues.toString());
+    return new IdentityMappingCache(maxSize, ttlSeconds, new ArrayList<>(requestValues), topology);
+  }
+
+  /**
+   * Acquires the cache shared by the filters of the servlet context of the configuration, creating it
+   * and registering its metrics for the first of them.
+   *
+   * @param config the configuration of the identity assertion provider
+   * @param topology the name of the topology
+   * @param expressions the mapping expressions, null elements are ignored
+   * @param registry supplies the registry of the cache metrics, null if the metrics are disabled
+   * @return the cache, to be released by {@link #release(ServletContext)}; null if it is disabled or the expressions are not cacheable
+   */
+  static IdentityMappingCache acquire(FilterConfig config, String topology, Collection<AbstractSyntaxTree> expressions, Supplier<MetricRegistry> registry) {
+    if (!isEnabled(config)) {
+      return null;
+    }
+    final ServletContext context = config.getServletContext();
+    synchronized (context) {
+      IdentityMappingCache cache = (IdentityMappingCache) context.getAttribute(CONTEXT_ATTRIBUTE);
+      if (cache == null) {
+        cache = create(config, topology, expressions);
+        if (cache == null) {
+          return null;
+        }
+        final MetricRegistry metricRegistry = registry.get();
+        if (metricRegistry != null) {
+          cache.registerMetrics(metricRegistry);
+        }
+        context.setAttribute(CONTEXT_ATTRIBUTE, cache);
+      }
+      cache.references++;
+      return cache;
+    }
+  }
+
+  /**
+   * Releases a cache acquired from the servlet context, destroying it when its last filter releases it.
+   */
+  void release(ServletContext context) {
+    synchronized (context) {
+      references--;
+      if (references == 0) {
+        context.removeAttribute(CONTEXT_ATTRIBUTE);
+        destroy();
+      }
+    }
+  }
+
+  private static boolean isEnabled(FilterConfig config) {
+    return Boolean.parseBoolean(config.getInitParameter(CACHE_ENABLED));
+  }
+
+  /*
+   * Returns false if the value of the expression may depend on more than the request values it collects.
+   */
+  static boolean collectRequestValues(AbstractSyntaxTree ast, Set<RequestValue> requestValues) {
+    if (ast == null || !ast.isFunction()) {
+      return true;
+    }
+    final String function = ast.functionName();
+    final List<AbstractSyntaxTree> parameters = ast.functionParameters();
+    if ("print".equals(function)) {
+      return false;
+    }
+    if (REQUEST_FUNCTIONS.contains(function)) {
+      if (parameters.size() != 1 || !parameters.get(0).isStr()) {
+        return false;
+      }
+      requestValues.add(new RequestValue(function, parameters.get(0).strValue()));
+      return true;
+    }
+    for (AbstractSyntaxTree parameter : parameters) {
+      if (!collectRequestValues(parameter, requestValues)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param principalName the principal, after impersonation
+   * @param groups the groups of the authenticated subject
+   * @param request the request
+   * @param mapping computes the mapping when it is not cached
+   * @return the mapped identity
+   */
+  Mapping get(String principalName, Set<String> groups, ServletRequest request, Supplier<Mapping> mapping) {
+    if (principalName == null || !(request instanceof HttpServletRequest)) {
+      return mapping.get();
+    }
+    final List<String> values = new ArrayList<>(requestValues.size());
+    for (RequestValue requestValue : requestValues) {
+      values.add(VirtualGroupMapper.requestValue(request, requestValue.function, requestValue.name));
+    }
+    return cache.get(new Key(principalName, groups, values), key -> mapping.get());
+  }
+
+  /**
+   * Registers the hits, misses, hit rate and size of the cache, in place of the metrics of a cache
+   * of the topology it replaces.
+   */
+  void registerMetrics(MetricRegistry registry) {
+    removeMetrics();
+    this.metricRegistry = registry;
+    metrics.put(metricName("hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+    metrics.put(metricName("misses"), (Gauge<Long>) () -> cache.stats().missCount());
+    metrics.put(metricName("hit-rate"), (Gauge<Double>) () -> cache.stats().hitRate());
+    metrics.put(metricName("size"), (Gauge<Long>) cache::estimatedSize);
+    synchronized (registry) {
+      for (Map.Entry<String, Metric> metric : metrics.entrySet()) {
+        registry.remove(metric.getKey());
+        registry.register(metric.getKey(), metric.getValue());
+      }
+    }
+  }
+
+  void destroy() {
+    removeMetrics();
+    cache.invalidateAll();
+  }
+
+  long size() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
+
+  /*
+   * Removes the metrics of this cache, leaving the ones of a cache that replaced it.
+   */
+  private void removeMetrics() {
+    if (metricRegistry != null) {
+      metricRegistry.removeMatching((name, metric) -> metrics.get(name) == metric);
+      metrics.clear();
+    }
+  }
+
+  private String metricName(String metric) {
+    return MetricRegistry.name(metricsPrefix, metric);
+  }
+
+  private static long getLong(FilterConfig config, String name, long defaultValue) {
+    final String value = config.getInitParameter(name);
+    if (value != null && !value.isEmpty()) {
+      try {
+        final long result = Long.parseLong(value.trim());
+        if (result > 0) {
+          return result;
+        }
+      } catch (NumberFormatException e) {
+        // use the default
+      }
+      LOG.invalidIdentityMappingCacheParameter(name, value, defaultValue);
+    }
+    return defaultValue;
+  }
+
+  /**
+   * The identity asserted for a principal.
+   */
+  static class Mapping {
+    private final String principalName;
+    private final String[] groups;
+
+    Mapping(String principalName, String[] groups) {
+      this.principalName = principalName;
+      this.groups = groups;
+    }
+
+    String getPrincipalName() {
+      return principalName;
+    }
+
+    String[] getGroups() {
+      return groups.clone();
+    }
+  }
+
+  static final class RequestValue {
+    private final String function;
+    private final String name;
+
+    RequestValue(String function, String name) {
+      this.function = function;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof RequestValue)) {
+        return false;
+      }
+      RequestValue that = (RequestValue) o;
+      return function.equals(that.function) && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(function, name);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "(%s '%s')", function, name);
+    }
+  }
+
+  private static final class Key {
+    private final String principalName;
+    private final Set<String> groups;
+    private final List<String> requestValues;
+    private final int hashCode;
+
+    Key(String principalName, Set<String> groups, List<String> requestValues) {
+      this.principalName = principalName;
+      this.groups = groups == null ? Collections.emptySet() : groups;
+      this.requestValues = requestValues;
+      this.hashCode = Objects.hash(principalName, this.groups, requestValues);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return hashCode == that.hashCode
+          && principalName.equals(that.principalName)
+          && groups.equals(that.groups)
+          && requestValues.equals(that.requestValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.knox.gateway.identityasserter.common.filter;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -29,15 +30,23 @@ import org.apache.knox.gateway.IdentityAsserterMessages;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.plang.Arity;
 import org.apache.knox.gateway.plang.AbstractSyntaxTree;
-import org.apache.knox.gateway.plang.Interpreter;
+import org.apache.knox.gateway.plang.Bindings;
+import org.apache.knox.gateway.plang.Expression;
+import org.apache.knox.gateway.plang.ExpressionCompiler;
 
 public class VirtualGroupMapper {
     public static final String PRIMARY_GROUP = "$PRIMARY_GROUP";
+    static final String REQUEST_ATTRIBUTE = "request-attribute";
+    static final String REQUEST_HEADER = "request-header";
+    static final String SESSION = "session";
     private final IdentityAsserterMessages LOG = MessagesFactory.get(IdentityAsserterMessages.class);
-    private final Map<String, AbstractSyntaxTree> virtualGroupToPredicateMap;
+    private final Map<String, Expression> virtualGroupToPredicateMap = new HashMap<>();
 
     public VirtualGroupMapper(Map<String, AbstractSyntaxTree> virtualGroupToPredicateMap) {
-        this.virtualGroupToPredicateMap = virtualGroupToPredicateMap;
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        for (Map.Entry<String, AbstractSyntaxTree> each : virtualGroupToPredicateMap.entrySet()) {
+            this.virtualGroupToPredicateMap.put(each.getKey(), compiler.compile(each.getValue()));
+        }
     }
 
     /**
@@ -45,15 +54,23 @@ public class VirtualGroupMapper {
      */
     public Set<String> mapGroups(String username, Set<String> groups, ServletRequest request) {
         Set<String> virtualGroups = new HashSet<>();
-        for (Map.Entry<String, AbstractSyntaxTree> each : virtualGroupToPredicateMap.entrySet()) {
+        if (virtualGroupToPredicateMap.isEmpty()) {
+            LOG.virtualGroups(username, groups, virtualGroups);
+            return virtualGroups;
+        }
+        Bindings bindings = new Bindings()
+                .addConstant("username", username)
+                .addConstant("groups", new ArrayList<>(groups));
+        addRequestFunctions(request, bindings);
+        for (Map.Entry<String, Expression> each : virtualGroupToPredicateMap.entrySet()) {
             String virtualGroupName = each.getKey();
             // check for logical virtual groups - names to be dynamically created
             virtualGroupName = resolveLogicalGroupName(username, virtualGroupName);
 
-            AbstractSyntaxTree predicate = each.getValue();
-            if (evalPredicate(virtualGroupName, username, groups, predicate, request)) {
+            Expression predicate = each.getValue();
+            if (evalPredicate(virtualGroupName, username, groups, predicate, bindings)) {
                 virtualGroups.add(virtualGroupName);
-                LOG.addingUserToVirtualGroup(username, virtualGroupName, predicate);
+                LOG.addingUserToVirtualGroup(username, virtualGroupName, predicate.ast());
             }
         }
         LOG.virtualGroups(username, groups, virtualGroups);
@@ -70,28 +87,37 @@ public class VirtualGroupMapper {
     /**
      * @return true if the user should be added to the virtual group based on the given predicate
      */
-    private boolean evalPredicate(String virtualGroupName, String userName, Set<String> ldapGroups, AbstractSyntaxTree predicate, ServletRequest request) {
-        Interpreter interpreter = new Interpreter();
-        interpreter.addConstant("username", userName);
-        interpreter.addConstant("groups", new ArrayList<>(ldapGroups));
-        addRequestFunctions(request, interpreter);
-        LOG.checkingVirtualGroup(userName, ldapGroups, virtualGroupName, predicate);
-        Object result = interpreter.eval(predicate);
+    private boolean evalPredicate(String virtualGroupName, String userName, Set<String> ldapGroups, Expression predicate, Bindings bindings) {
+        LOG.checkingVirtualGroup(userName, ldapGroups, virtualGroupName, predicate.ast());
+        Object result = predicate.eval(bindings);
         if (!(result instanceof Boolean)) {
-            LOG.invalidResult(virtualGroupName, predicate, result);
+            LOG.invalidResult(virtualGroupName, predicate.ast(), result);
             return false;
         }
         return (boolean)result;
     }
 
-    public static void addRequestFunctions(ServletRequest req, Interpreter interpreter) {
+    public static void addRequestFunctions(ServletRequest req, Bindings bindings) {
         if (req instanceof HttpServletRequest) {
-            interpreter.addFunction("request-attribute", Arity.UNARY, params ->
-                    ensureNotNull(req.getAttribute((String)params.get(0))));
-            interpreter.addFunction("request-header", Arity.UNARY, params ->
-                    ensureNotNull(((HttpServletRequest) req).getHeader((String)params.get(0))));
-            interpreter.addFunction("session", Arity.UNARY, params ->
-                    ensureNotNull(sessionAttribute((HttpServletRequest) req, (String)params.get(0))));
+            bindings.addFunction(REQUEST_ATTRIBUTE, Arity.UNARY, params -> requestValue(req, REQUEST_ATTRIBUTE, (String)params.get(0)));
+            bindings.addFunction(REQUEST_HEADER, Arity.UNARY, params -> requestValue(req, REQUEST_HEADER, (String)params.get(0)));
+            bindings.addFunction(SESSION, Arity.UNARY, params -> requestValue(req, SESSION, (String)params.get(0)));
+        }
+    }
+
+    /**
+     * @return the value of a request attribute, header or session attribute, as read by the request functions
+     */
+    static String requestValue(ServletRequest req, String function, String name) {
+        switch (function) {
+            case REQUEST_ATTRIBUTE:
+                return ensureNotNull(req.getAttribute(name));
+            case REQUEST_HEADER:
+                return ensureNotNull(((HttpServletRequest) req).getHeader(name));
+            case SESSION:
+                return ensureNotNull(sessionAttribute((HttpServletRequest) req, name));
+            default:
+                throw new IllegalArgumentException(function);
         }
     }
 
@@ -22,6 +22,7 @@ import static org.apache.knox.gateway.identityasserter.common.filter.AbstractIde
 import static org.easymock.EasyMock.createMock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -33,9 +34,11 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import javax.security.auth.Subject;
@@ -49,11 +52,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.knox.gateway.context.ContextAttributes;
 import org.apache.knox.gateway.security.GroupPrincipal;
 import org.apache.knox.gateway.security.PrimaryPrincipal;
 import org.apache.knox.gateway.security.SubjectUtils;
 import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.knox.gateway.util.AuthFilterUtils;
 import org.apache.logging.log4j.ThreadContext;
 import org.easymock.EasyMock;
@@ -245,6 +251,59 @@ public class CommonIdentityAssertionFilterTest {
     assertEquals("bob", SubjectUtils.getEffectivePrincipalName(impersonatedSubject));
   }
 
+  @Test
+  public void testFiltersOfATopologyShareTheMappingCache() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    final MetricsService metricsService = EasyMock.createNiceMock(MetricsService.class);
+    EasyMock.expect(metricsService.getRegistry()).andReturn(metricRegistry).anyTimes();
+    final GatewayServices services = EasyMock.createNiceMock(GatewayServices.class);
+    EasyMock.expect(services.getService(ServiceType.METRICS_SERVICE)).andReturn(metricsService).anyTimes();
+
+    final Map<String, Object> attributes = new HashMap<>();
+    attributes.put(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE, "topology1");
+    attributes.put(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE, services);
+    final ServletContext servletContext = EasyMock.createNiceMock(ServletContext.class);
+    EasyMock.expect(servletContext.getAttribute(EasyMock.anyString()))
+        .andAnswer(() -> attributes.get((String) EasyMock.getCurrentArguments()[0])).anyTimes();
+    servletContext.setAttribute(EasyMock.anyString(), EasyMock.anyObject());
+    EasyMock.expectLastCall().andAnswer(() -> attributes.put((String) EasyMock.getCurrentArguments()[0], EasyMock.getCurrentArguments()[1])).anyTimes();
+    servletContext.removeAttribute(EasyMock.anyString());
+    EasyMock.expectLastCall().andAnswer(() -> attributes.remove((String) EasyMock.getCurrentArguments()[0])).anyTimes();
+    final FilterConfig config = EasyMock.createNiceMock(FilterConfig.class);
+    EasyMock.expect(config.getServletContext()).andReturn(servletContext).anyTimes();
+    EasyMock.expect(config.getInitParameter(IdentityMappingCache.CACHE_ENABLED)).andReturn("true").anyTimes();
+    EasyMock.replay(metricsService, services, servletContext, config);
+
+    // one filter per resource of the topology
+    final CommonIdentityAssertionFilter filter1 = new CommonIdentityAssertionFilter();
+    final CommonIdentityAssertionFilter filter2 = new CommonIdentityAssertionFilter();
+    filter1.init(config);
+    filter2.init(config);
+    final String hits = "identity-assertion.topology1.mapping-cache.hits";
+    final String misses = "identity-assertion.topology1.mapping-cache.misses";
+    assertTrue(metricRegistry.getGauges().containsKey(hits));
+
+    final Subject subject = new Subject();
+    subject.getPrincipals().add(new PrimaryPrincipal("guest"));
+    for (CommonIdentityAssertionFilter resourceFilter : Arrays.asList(filter1, filter2)) {
+      final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+      final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+      EasyMock.replay(request, response);
+      Subject.doAs(subject, (PrivilegedExceptionAction<Object>) () -> {
+        resourceFilter.doFilter(request, response, (req, resp) -> { });
+        return null;
+      });
+    }
+    assertEquals(1L, metricRegistry.getGauges().get(misses).getValue());
+    assertEquals(1L, metricRegistry.getGauges().get(hits).getValue());
+
+    filter1.destroy();
+    assertTrue(metricRegistry.getGauges().containsKey(hits));
+    filter2.destroy();
+    assertFalse(metricRegistry.getGauges().containsKey(hits));
+    assertNull(attributes.get(IdentityMappingCache.class.getName()));
+  }
+
   private static final class FilterChainWrapper implements FilterChain {
     private final FilterChain wrappedFilterChain;
     private Subject subject;
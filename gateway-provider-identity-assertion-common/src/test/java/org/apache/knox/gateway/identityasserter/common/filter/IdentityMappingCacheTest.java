@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.identityasserter.common.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.knox.gateway.plang.Parser;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class IdentityMappingCacheTest {
+  private final Parser parser = new Parser();
+
+  @Test
+  public void testCollectRequestValues() {
+    Set<IdentityMappingCache.RequestValue> values = new LinkedHashSet<>();
+    assertTrue(IdentityMappingCache.collectRequestValues(parser.parse(
+        "(or (member 'admin') (= (request-header 'X-Dept') 'sales') (= (session 'tenant') 'acme'))"), values));
+    assertEquals("[(request-header 'X-Dept'), (session 'tenant')]", values.toString());
+    assertTrue(IdentityMappingCache.collectRequestValues(null, values));
+  }
+
+  @Test
+  public void testNotCacheable() {
+    Set<IdentityMappingCache.RequestValue> values = new HashSet<>();
+    assertFalse(IdentityMappingCache.collectRequestValues(parser.parse(
+        "(= (request-header (concat 'X-' 'Dept')) 'sales')"), values));
+    assertFalse(IdentityMappingCache.collectRequestValues(parser.parse("(print username)"), values));
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    assertNull(IdentityMappingCache.create(filterConfig(null), "sandbox", Collections.emptyList()));
+  }
+
+  @Test
+  public void testDisabledForExpressionsNotCacheable() {
+    assertNull(IdentityMappingCache.create(filterConfig("true"), "sandbox",
+        Collections.singletonList(parser.parse("(print username)"))));
+  }
+
+  @Test
+  public void testCachedByPrincipalGroupsAndRequestValues() {
+    IdentityMappingCache cache = IdentityMappingCache.create(filterConfig("true"), "sandbox",
+        Collections.singletonList(parser.parse("(= (request-header 'X-Dept') 'sales')")));
+    assertNotNull(cache);
+
+    HttpServletRequest sales = request("sales");
+    HttpServletRequest hr = request("hr");
+    Set<String> groups = new HashSet<>(Arrays.asList("users", "admin"));
+    AtomicInteger mappings = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      IdentityMappingCache.Mapping mapping = cache.get("guest", groups, sales, () -> {
+        mappings.incrementAndGet();
+        return new IdentityMappingCache.Mapping("GUEST", new String[] { "users", "admin", "sales" });
+      });
+      assertEquals("GUEST", mapping.getPrincipalName());
+      assertEquals(3, mapping.getGroups().length);
+    }
+    assertEquals(1, mappings.get());
+
+    cache.get("guest", groups, hr, () -> {
+      mappings.incrementAndGet();
+      return new IdentityMappingCache.Mapping("GUEST", new String[0]);
+    });
+    cache.get("guest", Collections.singleton("users"), sales, () -> {
+      mappings.incrementAndGet();
+      return new IdentityMappingCache.Mapping("GUEST", new String[0]);
+    });
+    cache.get("admin", groups, sales, () -> {
+      mappings.incrementAndGet();
+      return new IdentityMappingCache.Mapping("ADMIN", new String[0]);
+    });
+    assertEquals(4, mappings.get());
+    assertEquals(4, cache.size());
+
+    cache.destroy();
+    assertEquals(0, cache.size());
+  }
+
+  private static FilterConfig filterConfig(String enabled) {
+    FilterConfig config = EasyMock.createNiceMock(FilterConfig.class);
+    EasyMock.expect(config.getInitParameter(IdentityMappingCache.CACHE_ENABLED)).andReturn(enabled).anyTimes();
+    EasyMock.replay(config);
+    return config;
+  }
+
+  private static HttpServletRequest request(String dept) {
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getHeader("X-Dept")).andReturn(dept).anyTimes();
+    EasyMock.replay(request);
+    return request;
+  }
+}
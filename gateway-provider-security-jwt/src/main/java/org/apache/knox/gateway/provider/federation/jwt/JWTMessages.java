@@ -126,4 +126,16 @@ public interface JWTMessages {
 
   @Message(level = MessageLevel.ERROR, text = "Invalid URL ignored. Not a valid JWKS url {0}")
   void invalidJwksUrl(String jwksUrl);
+
+  @Message( level = MessageLevel.ERROR, text = "The configuration value ({1}) for {0} is invalid; Using the default value." )
+  void invalidRejectedTokenCacheConfiguration(String name, String value);
+
+  @Message( level = MessageLevel.INFO, text = "Initialized rejected token cache for the {0} topology." )
+  void initializedRejectedTokenCache(String topology);
+
+  @Message( level = MessageLevel.DEBUG, text = "Token {0} has recently been rejected; Rejecting it again without validation." )
+  void rejectedTokenFromCache(String tokenDisplayText);
+
+  @Message( level = MessageLevel.ERROR, text = "Token is revoked: {0}" )
+  void revokedToken(String tokenId);
 }
@@ -24,7 +24,7 @@ import java.net.URI;
 import java.security.Principal;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
-import java.security.interfaces.RSAPublicKey;
+import java.security.PublicKey;
 import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -111,8 +111,9 @@ public abstract class AbstractJWTFilter implements Filter {
 
   protected List<String> audiences;
   protected JWTokenAuthority authority;
-  protected RSAPublicKey publicKey;
+  protected PublicKey publicKey;
   protected SignatureVerificationCache signatureVerificationCache;
+  protected RejectedTokenCache rejectedTokenCache;
   private String expectedIssuer;
   private String expectedSigAlg;
   protected String expectedPrincipalClaim;
@@ -158,6 +159,10 @@ public abstract class AbstractJWTFilter implements Filter {
     // Setup the verified tokens cache
     topologyName = context != null ? (String) context.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE) : null;
     signatureVerificationCache = SignatureVerificationCache.getInstance(topologyName, filterConfig);
+
+    // Setup the rejected tokens cache
+    rejectedTokenCache = RejectedTokenCache.getInstance(topologyName, filterConfig);
+    rejectedTokenCache.listenForRevocations(tokenStateService);
   }
 
   protected void configureExpectedParameters(FilterConfig filterConfig) {
@@ -205,6 +210,10 @@ public abstract class AbstractJWTFilter implements Filter {
   private Date getServerManagedStateExpiration(final String tokenId) throws UnknownTokenException {
     Date expires = null;
     if (tokenStateService != null) {
+      if (isRevoked(tokenId)) {
+        log.revokedToken(Tokens.getTokenIDDisplayText(tokenId));
+        throw new UnknownTokenException(tokenId);
+      }
       long value = tokenStateService.getTokenExpiration(tokenId);
       if (value > 0) {
         expires = new Date(value);
@@ -213,6 +222,10 @@ public abstract class AbstractJWTFilter implements Filter {
     return expires;
   }
 
+  private boolean isRevoked(final String tokenId) {
+    return rejectedTokenCache != null && rejectedTokenCache.isRevoked(tokenId);
+  }
+
   /**
    * Validate whether any of the accepted audience claims is present in the
    * issued token claims list for audience. Override this method in subclasses
@@ -369,7 +382,7 @@ public abstract class AbstractJWTFilter implements Filter {
                     return true;
                   } else {
                     log.failedToVerifyTokenSignature(displayableToken, displayableTokenId);
-                    handleValidationError(request, response, HttpServletResponse.SC_UNAUTHORIZED, null);
+                    rejectToken(request, response, token, HttpServletResponse.SC_UNAUTHORIZED, null);
                   }
                 } else {
                   log.idleTimoutExceeded(token.getSubject(), displayableTokenId, idleTimeoutSeconds);
@@ -397,12 +410,16 @@ public abstract class AbstractJWTFilter implements Filter {
           // records for other valid tokens from being prematurely evicted from the cache.
           removeSignatureVerificationRecord(token.toString());
 
-          handleValidationError(request, response, HttpServletResponse.SC_UNAUTHORIZED, "Token has expired");
+          rejectToken(request, response, token, HttpServletResponse.SC_UNAUTHORIZED, "Token has expired");
 
         }
       } catch (UnknownTokenException e) {
         log.unableToVerifyExpiration(e);
-        handleValidationError(request, response, HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+        if (isRevoked(tokenId)) {
+          rejectToken(request, response, token, HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+        } else {
+          handleValidationError(request, response, HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+        }
       }
     } else {
       handleValidationError(request, response, HttpServletResponse.SC_UNAUTHORIZED, null);
@@ -411,6 +428,37 @@ public abstract class AbstractJWTFilter implements Filter {
     return false;
   }
 
+  /**
+   * Reject the specified token, without parsing and validating it, if it has recently been rejected because it was
+   * expired, revoked or its signature could not be verified.
+   *
+   * @param request         The request carrying the token.
+   * @param response        The response to the request.
+   * @param serializedToken A serialized JWT.
+   *
+   * @return true, if the token has been rejected; Otherwise, false.
+   */
+  protected boolean rejectIfPreviouslyRejected(final HttpServletRequest request, final HttpServletResponse response,
+                                               final String serializedToken) throws IOException {
+    final RejectedTokenCache.Rejection rejection = rejectedTokenCache.getRejection(serializedToken);
+    if (rejection != null) {
+      log.rejectedTokenFromCache(Tokens.getTokenDisplayText(serializedToken));
+      handleValidationError(request, response, rejection.getStatus(), rejection.getError());
+      return true;
+    }
+    return false;
+  }
+
+  /*
+   * Records the rejection of a token which would be rejected again for the same reason,
+   * so that subsequent requests with that token are rejected without validating it.
+   */
+  private void rejectToken(final HttpServletRequest request, final HttpServletResponse response, final JWT token,
+                           final int status, final String error) throws IOException {
+    rejectedTokenCache.recordRejection(token.toString(), token.getExpiresDate(), status, error);
+    handleValidationError(request, response, status, error);
+  }
+
   private boolean isTokenEnabled(TokenMetadata tokenMetadata) throws UnknownTokenException {
     return tokenMetadata == null ? true : tokenMetadata.isEnabled();
   }
@@ -149,7 +149,7 @@ public class JWTFederationFilter extends AbstractJWTFilter {
     String verificationPEM = filterConfig.getInitParameter(TOKEN_VERIFICATION_PEM);
     // setup the public key of the token issuer for verification
     if (verificationPEM != null) {
-      publicKey = CertificateUtils.parseRSAPublicKey(verificationPEM);
+      publicKey = CertificateUtils.parsePublicKey(verificationPEM);
     }
 
     final String unAuthPathString = filterConfig
@@ -226,6 +226,9 @@ public class JWTFederationFilter extends AbstractJWTFilter {
       String    tokenValue = wireToken.getRight();
 
       if (TokenType.JWT.equals(tokenType)) {
+        if (rejectIfPreviouslyRejected((HttpServletRequest) request, (HttpServletResponse) response, tokenValue)) {
+          return;
+        }
         try {
           JWT token = new JWTToken(tokenValue);
           if (validateToken((HttpServletRequest) request, (HttpServletResponse) response, chain, token)) {
@@ -372,8 +375,12 @@ public class JWTFederationFilter extends AbstractJWTFilter {
       throws NoValidCookiesException, ServletException, IOException {
     final List<Cookie> relevantCookies = CookieUtils.getCookiesForName(request, cookieName);
     for (Cookie ssoCookie : relevantCookies) {
+      final String wireToken = ssoCookie.getValue();
+      if (rejectIfPreviouslyRejected(request, response, wireToken)) {
+        continue;
+      }
       try {
-        final JWT token = new JWTToken(ssoCookie.getValue());
+        final JWT token = new JWTToken(wireToken);
         if (validateToken(request, response, chain, token)) {
           final Subject subject = createSubjectFromToken(token);
           continueWithEstablishedSecurityContext(subject, request, response, chain);
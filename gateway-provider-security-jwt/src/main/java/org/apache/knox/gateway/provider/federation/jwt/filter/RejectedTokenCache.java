@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.provider.federation.jwt.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.provider.federation.jwt.JWTMessages;
+import org.apache.knox.gateway.services.security.token.TokenRevocationListener;
+import org.apache.knox.gateway.services.security.token.TokenStateService;
+
+import javax.servlet.FilterConfig;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A shared record of recently rejected tokens, so that repeated requests with the same expired, badly signed or
+ * revoked token can be rejected without parsing and verifying that token again.
+ * <p>
+ * Rejections are kept by token hash, for the configured time but never beyond the expiration of the token (except
+ * for expired tokens). The identifiers of the tokens revoked through the token state service are recorded as well,
+ * which allows the rejection of a revoked token without looking up its state.
+ */
+public class RejectedTokenCache implements TokenRevocationListener {
+
+    public static final String TOKENS_REJECTED_CACHE_MAX = "tokens.rejected.cache.max";
+    private static final int   TOKENS_REJECTED_CACHE_MAX_DEFAULT = 1000;
+
+    // The time (in seconds) for which a rejection is remembered; 0 disables the caching of rejections
+    public static final String TOKENS_REJECTED_CACHE_TTL = "tokens.rejected.cache.ttl";
+    private static final long  TOKENS_REJECTED_CACHE_TTL_DEFAULT = 60;
+
+    public static final String TOKENS_REVOKED_CACHE_MAX = "tokens.revoked.cache.max";
+    private static final int   TOKENS_REVOKED_CACHE_MAX_DEFAULT = 10000;
+
+    static final String DEFAULT_CACHE_ID = SignatureVerificationCache.DEFAULT_CACHE_ID;
+
+    static JWTMessages log = MessagesFactory.get( JWTMessages.class );
+
+    private static final ConcurrentHashMap<String, RejectedTokenCache> instances = new ConcurrentHashMap<>();
+
+    private final Cache<String, Rejection> rejectedTokens;
+
+    private final Cache<String, Boolean> revokedTokenIds;
+
+    private final Set<TokenStateService> revocationSources = ConcurrentHashMap.newKeySet();
+
+    private final long ttl;
+
+    /**
+     * Caches are topology-specific because the configuration is defined at the provider level.
+     *
+     * @param topology The topology for which the cache is being requested, or null if the default is sufficient.
+     * @param config   The FilterConfig associated with the calling provider.
+     *
+     * @return A RejectedTokenCache for the specified topology, or the default one if no topology is specified.
+     */
+    @SuppressWarnings("PMD.SingletonClassReturningNewInstance")
+    public static RejectedTokenCache getInstance(final String topology, final FilterConfig config) {
+        String cacheId = topology != null ? topology : DEFAULT_CACHE_ID;
+        return instances.computeIfAbsent(cacheId, c -> initializeCacheForTopology(cacheId, config));
+    }
+
+    private static RejectedTokenCache initializeCacheForTopology(final String topology, final FilterConfig config) {
+        RejectedTokenCache cache = new RejectedTokenCache(config);
+        log.initializedRejectedTokenCache(topology);
+        return cache;
+    }
+
+    private RejectedTokenCache(final FilterConfig config) {
+        ttl = TimeUnit.SECONDS.toMillis(getConfigValue(config, TOKENS_REJECTED_CACHE_TTL, TOKENS_REJECTED_CACHE_TTL_DEFAULT));
+        rejectedTokens = Caffeine.newBuilder()
+                                 .maximumSize(getConfigValue(config, TOKENS_REJECTED_CACHE_MAX, TOKENS_REJECTED_CACHE_MAX_DEFAULT))
+                                 .expireAfter(new RejectionExpiry())
+                                 .build();
+        revokedTokenIds = Caffeine.newBuilder()
+                                  .maximumSize(getConfigValue(config, TOKENS_REVOKED_CACHE_MAX, TOKENS_REVOKED_CACHE_MAX_DEFAULT))
+                                  .build();
+    }
+
+    private static long getConfigValue(final FilterConfig config, final String name, final long defaultValue) {
+        long value = defaultValue;
+        String configValue = config.getInitParameter(name);
+        if (configValue != null && !configValue.isEmpty()) {
+            try {
+                value = Long.parseLong(configValue.trim());
+            } catch (NumberFormatException e) {
+                log.invalidRejectedTokenCacheConfiguration(name, configValue);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Record the revocations of the tokens managed by the specified service.
+     *
+     * @param tokenStateService The token state service of the calling provider, or null if there is none.
+     */
+    public void listenForRevocations(final TokenStateService tokenStateService) {
+        if (tokenStateService != null && revocationSources.add(tokenStateService)) {
+            tokenStateService.addTokenRevocationListener(this);
+        }
+    }
+
+    @Override
+    public void onTokenRevoked(final String tokenId) {
+        revokedTokenIds.put(tokenId, true);
+    }
+
+    /**
+     * @param tokenId A token unique identifier.
+     *
+     * @return true, if the specified token has been revoked; Otherwise, false.
+     */
+    public boolean isRevoked(final String tokenId) {
+        return tokenId != null && revokedTokenIds.getIfPresent(tokenId) != null;
+    }
+
+    /**
+     * @param token A serialized JWT.
+     *
+     * @return The recorded rejection of the specified token, or null if it has not been rejected recently.
+     */
+    public Rejection getRejection(final String token) {
+        return token == null ? null : rejectedTokens.getIfPresent(hash(token));
+    }
+
+    /**
+     * Record the rejection of a token.
+     *
+     * @param token      A serialized JWT.
+     * @param expiration The expiration of the token, or null if it does not expire.
+     * @param status     The HTTP status with which the token has been rejected.
+     * @param error      The error with which the token has been rejected.
+     */
+    public void recordRejection(final String token, final Date expiration, final int status, final String error) {
+        if (ttl > 0) {
+            final long now = System.currentTimeMillis();
+            long expiresAt = now + ttl;
+            if (expiration != null && expiration.getTime() > now) {
+                expiresAt = Math.min(expiresAt, expiration.getTime());
+            }
+            rejectedTokens.put(hash(token), new Rejection(status, error, expiresAt));
+        }
+    }
+
+    private static String hash(final String token) {
+        return DigestUtils.sha256Hex(token);
+    }
+
+    /**
+     * @return The number of recorded rejections.
+     */
+    public long getSize() {
+        return rejectedTokens.estimatedSize();
+    }
+
+    /**
+     * Remove any entries which should be evicted from the cache.
+     */
+    public void performMaintenance() {
+        rejectedTokens.cleanUp();
+        revokedTokenIds.cleanUp();
+    }
+
+    /**
+     * Clear the contents of the cache.
+     */
+    public void clear() {
+        rejectedTokens.invalidateAll();
+        revokedTokenIds.invalidateAll();
+    }
+
+    /**
+     * The outcome of the validation of a rejected token.
+     */
+    public static final class Rejection {
+        private final int status;
+        private final String error;
+        private final long expiresAt;
+
+        Rejection(final int status, final String error, final long expiresAt) {
+            this.status = status;
+            this.error = error;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    private static final class RejectionExpiry implements Expiry<String, Rejection> {
+        @Override
+        public long expireAfterCreate(String key, Rejection rejection, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, rejection.expiresAt - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Rejection rejection, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, rejection, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Rejection rejection, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
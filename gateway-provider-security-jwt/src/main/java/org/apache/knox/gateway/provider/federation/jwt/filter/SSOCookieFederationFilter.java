@@ -104,7 +104,7 @@ public class SSOCookieFederationFilter extends AbstractJWTFilter {
     String verificationPEM = filterConfig.getInitParameter(SSO_VERIFICATION_PEM);
     // setup the public key of the token issuer for verification
     if (verificationPEM != null) {
-      publicKey = CertificateUtils.parseRSAPublicKey(verificationPEM);
+      publicKey = CertificateUtils.parsePublicKey(verificationPEM);
     }
 
     final String unAuthPathString = filterConfig
@@ -169,6 +169,9 @@ public class SSOCookieFederationFilter extends AbstractJWTFilter {
     } else {
       for(Cookie ssoCookie : ssoCookies) {
         String wireToken = ssoCookie.getValue();
+        if (rejectIfPreviouslyRejected(req, res, wireToken)) {
+          continue;
+        }
         try {
           JWT token = new JWTToken(wireToken);
           if (validateToken(req, res, chain, token)) {
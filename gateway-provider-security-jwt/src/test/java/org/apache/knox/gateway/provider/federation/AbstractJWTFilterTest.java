@@ -29,6 +29,7 @@ import com.nimbusds.jwt.SignedJWT;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.knox.gateway.provider.federation.jwt.filter.AbstractJWTFilter;
 import org.apache.knox.gateway.provider.federation.jwt.filter.SSOCookieFederationFilter;
+import org.apache.knox.gateway.provider.federation.jwt.filter.RejectedTokenCache;
 import org.apache.knox.gateway.provider.federation.jwt.filter.SignatureVerificationCache;
 import org.apache.knox.gateway.security.PrimaryPrincipal;
 import org.apache.knox.gateway.services.security.token.JWTokenAttributes;
@@ -1031,6 +1032,42 @@ public abstract class AbstractJWTFilterTest  {
     }
   }
 
+  /**
+   * A token which failed the signature verification should be rejected again without being verified.
+   */
+  @Test
+  public void testFailedSignatureValidationRecordedAsRejection() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+    kpg.initialize(2048);
+    KeyPair kp = kpg.genKeyPair();
+
+    Properties props = getProperties();
+    props.put(TestFilterConfig.TOPOLOGY_NAME_PROP, "jwt-rejection-test");
+    handler.init(new TestFilterConfig(props));
+
+    final SignedJWT jwt = getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER,
+                                 "bob",
+                                 new Date(new Date().getTime() + TimeUnit.MINUTES.toMillis(10)),
+                                 (RSAPrivateKey) kp.getPrivate());
+    final RejectedTokenCache rejectedTokenCache = getRejectedTokenCache(handler);
+    Assert.assertNull("The token should not have been rejected yet.", rejectedTokenCache.getRejection(jwt.serialize()));
+
+    for (int i = 0; i < 2; i++) {
+      HttpServletRequest request = createMockRequest(jwt);
+      HttpServletResponse response = createMockResponse();
+      EasyMock.expect(request.getPathInfo()).andReturn("resource").anyTimes();
+      EasyMock.replay(request, response);
+
+      TestFilterChain chain = new TestFilterChain();
+      handler.doFilter(request, response, chain);
+      Assert.assertFalse("doFilterCalled should not be true.", chain.doFilterCalled);
+
+      final RejectedTokenCache.Rejection rejection = rejectedTokenCache.getRejection(jwt.serialize());
+      Assert.assertNotNull("The rejection of the token should have been recorded.", rejection);
+      Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, rejection.getStatus());
+    }
+  }
+
   private HttpServletRequest createMockRequest(final SignedJWT jwt) {
     HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
     setTokenOnRequest(request, jwt);
@@ -1093,6 +1130,12 @@ public abstract class AbstractJWTFilterTest  {
     return (SignatureVerificationCache) f.get(filter);
   }
 
+  private static RejectedTokenCache getRejectedTokenCache(final AbstractJWTFilter filter) throws Exception {
+    Field f = filter.getClass().getSuperclass().getSuperclass().getDeclaredField("rejectedTokenCache");
+    f.setAccessible(true);
+    return (RejectedTokenCache) f.get(filter);
+  }
+
   protected Properties getProperties() {
     Properties props = new Properties();
     props.setProperty(
@@ -316,6 +316,11 @@ public class TokenIDAsHTTPBasicCredsFederationFilterTest extends JWTAsHTTPBasicC
         // Override to disable N/A test
     }
 
+    @Override
+    public void testFailedSignatureValidationRecordedAsRejection() throws Exception {
+        // Override to disable N/A test
+    }
+
     @Override
     public void testInvalidVerificationPEM() throws Exception {
         // Override to disable N/A test
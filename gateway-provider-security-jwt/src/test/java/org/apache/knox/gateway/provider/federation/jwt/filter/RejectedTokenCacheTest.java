@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.provider.federation.jwt.filter;
+
+import com.nimbusds.jwt.SignedJWT;
+import org.apache.knox.gateway.provider.federation.TestFilterConfig;
+import org.apache.knox.gateway.services.security.token.TokenStateService;
+import org.easymock.EasyMock;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Date;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RejectedTokenCacheTest {
+
+    private static RSAPrivateKey privateKey;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        KeyPair KPair = kpg.generateKeyPair();
+        privateKey = (RSAPrivateKey) KPair.getPrivate();
+    }
+
+    @Test
+    public void testRejectedTokenCacheForTopology() throws Exception {
+        final String topologyName = "test-topology-rejected";
+        final TestFilterConfig filterConfig = createFilterConfig(topologyName, new Properties());
+
+        RejectedTokenCache cache = RejectedTokenCache.getInstance(topologyName, filterConfig);
+        assertNotNull(cache);
+        assertSame("Expected the same cache when the same topology is specified.",
+                   cache, RejectedTokenCache.getInstance(topologyName, filterConfig));
+
+        final String serializedJWT = createTestJWT(System.currentTimeMillis() + 60000).serialize();
+        assertNull("The token should NOT have been rejected yet.", cache.getRejection(serializedJWT));
+
+        cache.recordRejection(serializedJWT, null, HttpServletResponse.SC_UNAUTHORIZED, "Token has expired");
+        RejectedTokenCache.Rejection rejection = cache.getRejection(serializedJWT);
+        assertNotNull("The token rejection should have been recorded.", rejection);
+        assertEquals(HttpServletResponse.SC_UNAUTHORIZED, rejection.getStatus());
+        assertEquals("Token has expired", rejection.getError());
+        assertEquals(1, cache.getSize());
+
+        cache.clear();
+        assertNull("The token rejection should no longer be in the cache.", cache.getRejection(serializedJWT));
+    }
+
+    /**
+     * A rejection should not be remembered beyond the expiration of the rejected token.
+     */
+    @Test
+    public void testRejectionBoundedByTokenExpiration() throws Exception {
+        final String topologyName = "test-topology-rejected-expiration";
+        RejectedTokenCache cache = RejectedTokenCache.getInstance(topologyName, createFilterConfig(topologyName, new Properties()));
+
+        final long expiration = System.currentTimeMillis() + 1000;
+        final String serializedJWT = createTestJWT(expiration).serialize();
+        cache.recordRejection(serializedJWT, new Date(expiration), HttpServletResponse.SC_UNAUTHORIZED, null);
+        assertNotNull(cache.getRejection(serializedJWT));
+
+        while (System.currentTimeMillis() <= expiration) {
+            Thread.sleep(100);
+        }
+        assertNull("The rejection should have expired with the token.", cache.getRejection(serializedJWT));
+    }
+
+    @Test
+    public void testRejectedTokenCacheDisabled() throws Exception {
+        final String topologyName = "test-topology-rejected-disabled";
+        final Properties filterProps = new Properties();
+        filterProps.setProperty(RejectedTokenCache.TOKENS_REJECTED_CACHE_TTL, "0");
+        RejectedTokenCache cache = RejectedTokenCache.getInstance(topologyName, createFilterConfig(topologyName, filterProps));
+
+        final String serializedJWT = createTestJWT(System.currentTimeMillis() + 60000).serialize();
+        cache.recordRejection(serializedJWT, null, HttpServletResponse.SC_UNAUTHORIZED, null);
+        assertNull("Rejections should not be recorded when the cache is disabled.", cache.getRejection(serializedJWT));
+    }
+
+    @Test
+    public void testRevokedTokens() throws Exception {
+        final String topologyName = "test-topology-revoked";
+        RejectedTokenCache cache = RejectedTokenCache.getInstance(topologyName, createFilterConfig(topologyName, new Properties()));
+
+        // The cache should only register once with the token state service
+        TokenStateService tokenStateService = EasyMock.createMock(TokenStateService.class);
+        tokenStateService.addTokenRevocationListener(cache);
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(tokenStateService);
+        cache.listenForRevocations(tokenStateService);
+        cache.listenForRevocations(tokenStateService);
+        cache.listenForRevocations(null);
+        EasyMock.verify(tokenStateService);
+
+        final String tokenId = UUID.randomUUID().toString();
+        assertFalse(cache.isRevoked(tokenId));
+        assertFalse(cache.isRevoked(null));
+
+        cache.onTokenRevoked(tokenId);
+        assertTrue("The token should have been recorded as revoked.", cache.isRevoked(tokenId));
+        assertFalse(cache.isRevoked(UUID.randomUUID().toString()));
+    }
+
+    private static TestFilterConfig createFilterConfig(final String topologyName, final Properties filterProps) {
+        filterProps.setProperty(TestFilterConfig.TOPOLOGY_NAME_PROP, topologyName);
+        return new TestFilterConfig(filterProps);
+    }
+
+    private SignedJWT createTestJWT(final long expiration) throws Exception {
+        return JWTTestUtils.getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER,
+                                   "alice",
+                                   new Date(expiration),
+                                   privateKey);
+    }
+
+}
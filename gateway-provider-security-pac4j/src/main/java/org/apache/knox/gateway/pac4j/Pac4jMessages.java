@@ -58,4 +58,13 @@ public interface Pac4jMessages {
 
   @Message( level = MessageLevel.DEBUG, text = "Pac4j keystore type : {0}")
   void pac4jSamlKeystoreType(String type);
+
+  @Message( level = MessageLevel.ERROR, text = "Unable to derive the pac4j session encryption key: {0}")
+  void unableToDeriveSessionEncryptionKey(Exception e);
+
+  @Message( level = MessageLevel.ERROR, text = "Unable to initialize the pac4j session store backend {0}: {1}")
+  void unableToInitializeSessionStoreBackend(String backend, Exception e);
+
+  @Message( level = MessageLevel.INFO, text = "Using the server-side pac4j session store with up to {0} sessions expiring after {1} seconds, backend: {2}")
+  void usingServerSideSessionStore(long maxSessions, long ttlSeconds, String backend);
 }
@@ -25,6 +25,9 @@ import org.apache.knox.gateway.pac4j.config.ClientConfigurationDecorator;
 import org.apache.knox.gateway.pac4j.config.Pac4jClientConfigurationDecorator;
 import org.apache.knox.gateway.pac4j.config.SAML2ClientConfigurationDecorator;
 import org.apache.knox.gateway.pac4j.session.KnoxSessionStore;
+import org.apache.knox.gateway.pac4j.session.ServerSideSessionStore;
+import org.apache.knox.gateway.pac4j.session.SessionCipher;
+import org.apache.knox.gateway.pac4j.session.SessionStoreBackend;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.security.AliasService;
@@ -61,6 +64,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
@@ -74,7 +78,9 @@ import java.util.Map;
  *     <li>to the {@link SecurityFilter} otherwise: it starts the authentication process (redirection to the identity provider) if the user is not authenticated</li>
  * </ul>
  * <p>It uses the {@link KnoxSessionStore} to manage session data. The generated cookies are defined on a domain name
- * which can be configured via the domain suffix parameter: <code>pac4j.cookie.domain.suffix</code>.</p>
+ * which can be configured via the domain suffix parameter: <code>pac4j.cookie.domain.suffix</code>.
+ * With <code>pac4j.session.store=server</code>, the {@link ServerSideSessionStore} keeps the session data on the
+ * gateway instead and the cookie only carries the session id.</p>
  * <p>The callback url must be defined to the current protected url (KnoxSSO service for example) via the parameter: <code>pac4j.callbackUrl</code>.</p>
  *
  * @since 0.8.0
@@ -101,6 +107,24 @@ public class Pac4jDispatcherFilter implements Filter, SessionInvalidator {
 
   private static final String PAC4J_SESSION_STORE = "pac4j.session.store";
 
+  private static final String PAC4J_SESSION_STORE_SERVER = "server";
+
+  /* legacy (default) or compact, the encoding of the session data written by the gateway */
+  private static final String PAC4J_SESSION_STORE_ENCODING = "pac4j.session.store.encoding";
+
+  private static final String PAC4J_SESSION_STORE_ENCODING_COMPACT = "compact";
+
+  private static final String PAC4J_SESSION_STORE_SERVER_MAX_SESSIONS = "pac4j.session.store.server.max.sessions";
+
+  private static final long PAC4J_SESSION_STORE_SERVER_MAX_SESSIONS_DEFAULT = 10000L;
+
+  private static final String PAC4J_SESSION_STORE_SERVER_TTL = "pac4j.session.store.server.ttl";
+
+  private static final long PAC4J_SESSION_STORE_SERVER_TTL_DEFAULT = 3600L;
+
+  /* class name of the SessionStoreBackend sharing the server-side sessions between the gateway instances */
+  private static final String PAC4J_SESSION_STORE_SERVER_BACKEND = "pac4j.session.store.server.backend";
+
   public static final String PAC4J_SESSION_STORE_EXCLUDE_GROUPS = "pac4j.session.store.exclude.groups";
 
   public static final String PAC4J_SESSION_STORE_EXCLUDE_ROLES = "pac4j.session.store.exclude.roles";
@@ -231,11 +255,22 @@ public class Pac4jDispatcherFilter implements Filter, SessionInvalidator {
 
     SessionStore sessionStore;
 
-    if(!StringUtils.isBlank(sessionStoreVar) && JEESessionStore.class.getName().contains(sessionStoreVar) ) {
+    if (PAC4J_SESSION_STORE_SERVER.equalsIgnoreCase(sessionStoreVar)) {
+      final long maxSessions = getLongParameter(filterConfig, PAC4J_SESSION_STORE_SERVER_MAX_SESSIONS, PAC4J_SESSION_STORE_SERVER_MAX_SESSIONS_DEFAULT);
+      final long ttlSeconds = getLongParameter(filterConfig, PAC4J_SESSION_STORE_SERVER_TTL, PAC4J_SESSION_STORE_SERVER_TTL_DEFAULT);
+      final String backendName = filterConfig.getInitParameter(PAC4J_SESSION_STORE_SERVER_BACKEND);
+      final SessionStoreBackend backend = StringUtils.isBlank(backendName) ? null : createSessionStoreBackend(filterConfig, clusterName, backendName.trim());
+      log.usingServerSideSessionStore(maxSessions, ttlSeconds, backend == null ? "local" : backendName.trim());
+      sessionStore = new ServerSideSessionStore(cryptoService, clusterName, domainSuffix, sessionStoreConfigs,
+          createSessionCipher(clusterName), maxSessions, ttlSeconds, backend);
+    } else if(!StringUtils.isBlank(sessionStoreVar) && JEESessionStore.class.getName().contains(sessionStoreVar) ) {
       /* NOTE: this is a final variable, and will be used by all requests in Knox */
       sessionStore = JEESessionStore.INSTANCE;
     } else {
-      sessionStore = new KnoxSessionStore(cryptoService, clusterName, domainSuffix, sessionStoreConfigs);
+      /* compact cookies are read whichever encoding is written, e.g. after a rollback or by a peer with other settings */
+      final boolean compactEncoding = PAC4J_SESSION_STORE_ENCODING_COMPACT.equalsIgnoreCase(filterConfig.getInitParameter(PAC4J_SESSION_STORE_ENCODING));
+      sessionStore = new KnoxSessionStore(cryptoService, clusterName, domainSuffix, sessionStoreConfigs,
+          createSessionCipher(clusterName), compactEncoding);
     }
 
     config.setSessionStore(sessionStore);
@@ -256,6 +291,49 @@ public class Pac4jDispatcherFilter implements Filter, SessionInvalidator {
   }
 
 
+  private static long getLongParameter(final FilterConfig filterConfig, final String name, final long defaultValue) throws ServletException {
+    final String value = filterConfig.getInitParameter(name);
+    if (StringUtils.isBlank(value)) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid value for " + name + ": " + value, e);
+    }
+  }
+
+  /*
+   * Derives the session encryption key once, instead of for every session value
+   */
+  private SessionCipher createSessionCipher(final String clusterName) throws ServletException {
+    try {
+      return new SessionCipher(aliasService.getPasswordFromAliasForCluster(clusterName, KnoxSessionStore.PAC4J_PASSWORD), clusterName);
+    } catch (AliasServiceException | GeneralSecurityException e) {
+      log.unableToDeriveSessionEncryptionKey(e);
+      throw new ServletException("Unable to derive the session encryption key.", e);
+    }
+  }
+
+  private SessionStoreBackend createSessionStoreBackend(final FilterConfig filterConfig, final String clusterName, final String backendName)
+      throws ServletException {
+    final Map<String, String> properties = new HashMap<>();
+    final Enumeration<String> names = filterConfig.getInitParameterNames();
+    while (names.hasMoreElements()) {
+      final String key = names.nextElement();
+      properties.put(key, resolveAlias(clusterName, key, filterConfig.getInitParameter(key)));
+    }
+    try {
+      final SessionStoreBackend backend = Class.forName(backendName).asSubclass(SessionStoreBackend.class)
+          .getDeclaredConstructor().newInstance();
+      backend.init(properties);
+      return backend;
+    } catch (Exception e) {
+      log.unableToInitializeSessionStoreBackend(backendName, e);
+      throw new ServletException("Unable to initialize the session store backend " + backendName, e);
+    }
+  }
+
   private String resolveAlias(String clusterName, String key, String value) throws ServletException {
     if (value.startsWith(ALIAS_PREFIX) && value.endsWith("}")) {
       String alias = value.substring(ALIAS_PREFIX.length(), value.length() - 1);
@@ -40,6 +40,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -60,6 +61,12 @@ import static org.apache.knox.gateway.pac4j.filter.Pac4jDispatcherFilter.PAC4J_S
 /**
  * Specific session store where data are saved into cookies (and not in memory).
  * Each data is encrypted and base64 encoded before being saved as a cookie (for security reasons).
+ * <p>
+ * With a {@link SessionCipher}, cookies written with the compact {@link SessionCodec}, and encrypted
+ * with the key the cipher derived once for the cluster, are read whichever encoding the store writes,
+ * so that sessions survive a switch of <code>pac4j.session.store.encoding</code> in either direction
+ * and gateways with different settings share them. Only <code>compact</code> writes the cookies with
+ * that encoding; cookies written with the legacy encoding are always read.
  *
  * @since 0.8.0
  */
@@ -71,8 +78,19 @@ public class KnoxSessionStore<C extends WebContext> implements SessionStore<C> {
 
     public static final String PAC4J_SESSION_PREFIX = "pac4j.session.";
 
+    /* Prefix of the cookies written with the compact encoding, not part of the base64 alphabet */
+    static final String COMPACT_PREFIX = "2.";
+
+    private static final int COOKIE_SIZE_WARNING_THRESHOLD = 3000;
+
     private final JavaSerializationHelper javaSerializationHelper;
 
+    private final SessionCodec sessionCodec = new SessionCodec();
+
+    private final SessionCipher sessionCipher;
+
+    private final boolean compactEncoding;
+
     private final CryptoService cryptoService;
 
     private final String clusterName;
@@ -89,11 +107,32 @@ public class KnoxSessionStore<C extends WebContext> implements SessionStore<C> {
         final String clusterName,
         final String domainSuffix,
         final Map<String, String> sessionStoreConfigs) {
+        this(cryptoService, clusterName, domainSuffix, sessionStoreConfigs, null, false);
+    }
+
+    /**
+     * @param sessionCipher cipher of the compact encoding, which cookies written
+     *                      with that encoding are read with
+     * @param compactEncoding true to write the cookies with the compact encoding,
+     *                        false to write them with the legacy encoding
+     * @since 2.1.0
+     */
+    public KnoxSessionStore(final CryptoService cryptoService,
+        final String clusterName,
+        final String domainSuffix,
+        final Map<String, String> sessionStoreConfigs,
+        final SessionCipher sessionCipher,
+        final boolean compactEncoding) {
+        if (compactEncoding && sessionCipher == null) {
+            throw new IllegalArgumentException("The compact encoding requires a session cipher");
+        }
         javaSerializationHelper = new JavaSerializationHelper();
         this.cryptoService = cryptoService;
         this.clusterName = clusterName;
         this.domainSuffix = domainSuffix;
         this.sessionStoreConfigs = sessionStoreConfigs;
+        this.sessionCipher = sessionCipher;
+        this.compactEncoding = compactEncoding;
     }
 
 
@@ -122,12 +161,75 @@ public class KnoxSessionStore<C extends WebContext> implements SessionStore<C> {
         return null;
     }
 
+    /**
+     * Encodes and encrypts a session value with the compact encoding
+     * @param value value to encode
+     * @param context name the encrypted value is bound to
+     * @return encrypted value
+     * @since 2.1.0
+     */
+    byte[] encodeEncrypt(final Object value, final String context) {
+        try {
+            return sessionCipher.encrypt(sessionCodec.encode(value), context);
+        } catch (final IOException | GeneralSecurityException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    /**
+     * Decrypts and decodes a session value written with the compact encoding
+     * @param encrypted encrypted value
+     * @param context name the encrypted value is bound to
+     * @return the value or null if it was not encrypted with the key of this cluster
+     * @since 2.1.0
+     */
+    Object decryptDecode(final byte[] encrypted, final String context) {
+        final byte[] clear;
+        try {
+            clear = sessionCipher.decrypt(encrypted, context);
+        } catch (final GeneralSecurityException e) {
+            logger.debug("Discarding session data that cannot be decrypted: {}", e.toString());
+            return null;
+        }
+        try {
+            return sessionCodec.decode(clear);
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private Object decode(final String name, final String v) {
+        if (v != null && v.startsWith(COMPACT_PREFIX)) {
+            if (sessionCipher == null) {
+                return null;
+            }
+            return decryptDecode(Base64.decodeBase64(v.substring(COMPACT_PREFIX.length())), name);
+        }
+        return uncompressDecryptBase64(v);
+    }
+
+    private String encode(final String name, final Object o) {
+        if (!compactEncoding) {
+            return compressEncryptBase64(o);
+        }
+        if (o == null || o.equals("")
+            || (o instanceof Map<?,?> && ((Map<?,?>)o).isEmpty())) {
+            return null;
+        }
+        final String encoded = COMPACT_PREFIX + Base64.encodeBase64URLSafeString(encodeEncrypt(o, name));
+        if (encoded.length() > COOKIE_SIZE_WARNING_THRESHOLD) {
+            logger.warn("Cookie too big, it might not be properly set");
+        }
+        return encoded;
+    }
+
     @Override
     public Optional<Object> get(WebContext context, String key) {
-        final Cookie cookie = ContextHelper.getCookie(context, PAC4J_SESSION_PREFIX + key);
+        final String name = PAC4J_SESSION_PREFIX + key;
+        final Cookie cookie = ContextHelper.getCookie(context, name);
         Object value = null;
         if (cookie != null) {
-            value = uncompressDecryptBase64(cookie.getValue());
+            value = decode(name, cookie.getValue());
         }
         logger.debug("Get from session: {} = {}", key, value);
         return Optional.ofNullable(value);
@@ -144,7 +246,7 @@ public class KnoxSessionStore<C extends WebContext> implements SessionStore<C> {
             try {
                 bytes = compress(bytes);
 
-                if(bytes.length > 3000) {
+                if(bytes.length > COOKIE_SIZE_WARNING_THRESHOLD) {
                     logger.warn("Cookie too big, it might not be properly set");
                 }
 
@@ -159,20 +261,42 @@ public class KnoxSessionStore<C extends WebContext> implements SessionStore<C> {
 
     @Override
     public void set(WebContext context, String key, Object value) {
-        Object profile = value;
-        Cookie cookie;
+        final String name = PAC4J_SESSION_PREFIX + key;
+        String cookieValue = null;
 
-        if (value == null) {
-            cookie = new Cookie(PAC4J_SESSION_PREFIX + key, null);
-        } else {
-            if (key.contentEquals(Pac4jConstants.USER_PROFILES)) {
-                /* trim the profile object */
-                profile = clearUserProfile(value);
-            }
+        if (value != null) {
+            final Object profile = trim(key, value);
             logger.debug("Save in session: {} = {}", key, profile);
-            cookie = new Cookie(PAC4J_SESSION_PREFIX + key,
-                compressEncryptBase64(profile));
+            cookieValue = encode(name, profile);
         }
+        context.addResponseCookie(newCookie(context, name, cookieValue));
+    }
+
+    /**
+     * Trims the user profiles to the fields needed by pac4j
+     * @param key session key
+     * @param value session value
+     * @return the value to store in the session
+     * @since 2.1.0
+     */
+    protected Object trim(final String key, final Object value) {
+        if (key.contentEquals(Pac4jConstants.USER_PROFILES)) {
+            /* trim the profile object */
+            return clearUserProfile(value);
+        }
+        return value;
+    }
+
+    /**
+     * Creates a session cookie for the domain and path of the request
+     * @param context web context
+     * @param name cookie name
+     * @param value cookie value, null to discard the cookie
+     * @return the cookie
+     * @since 2.1.0
+     */
+    protected Cookie newCookie(final WebContext context, final String name, final String value) {
+        final Cookie cookie = new Cookie(name, value);
         try {
             String domain = Urls
                 .getDomainName(context.getFullRequestURL(), this.domainSuffix);
@@ -201,7 +325,7 @@ public class KnoxSessionStore<C extends WebContext> implements SessionStore<C> {
             cookie.setPath(parts[0]);
 
         }
-        context.addResponseCookie(cookie);
+        return cookie;
     }
 
     /**
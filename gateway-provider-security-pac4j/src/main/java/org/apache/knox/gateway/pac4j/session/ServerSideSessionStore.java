@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.pac4j.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.knox.gateway.services.security.CryptoService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pac4j.core.context.ContextHelper;
+import org.pac4j.core.context.Cookie;
+import org.pac4j.core.context.WebContext;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session store keeping the pac4j session data on the gateway; the cookie only
+ * carries an opaque, random session id.
+ * <p>
+ * Sessions are kept in a bounded local cache and expire when they have not been
+ * used for the configured time. When a {@link SessionStoreBackend} is configured,
+ * the sessions are kept encrypted in that backend instead, so that the gateway
+ * instances of an HA deployment share them. A request then loads its session from
+ * the backend once, keeping it in the request attributes, and touches it once to
+ * restart that time.
+ *
+ * @since 2.1.0
+ */
+public class ServerSideSessionStore<C extends WebContext> extends KnoxSessionStore<C> {
+
+    private static final Logger logger = LogManager.getLogger(ServerSideSessionStore.class);
+
+    public static final String PAC4J_SESSION_ID = PAC4J_SESSION_PREFIX + "id";
+
+    /* The session of this request, as loaded from the backend */
+    private static final String PAC4J_SESSION_DATA = PAC4J_SESSION_PREFIX + "data";
+
+    private static final int SESSION_ID_LENGTH = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final Cache<String, Map<String, Object>> sessions;
+
+    private final SessionStoreBackend backend;
+
+    private final long ttlSeconds;
+
+    /**
+     * @param sessionCipher cipher of the sessions kept in the backend
+     * @param maxSessions max number of sessions kept locally
+     * @param ttlSeconds time after which unused sessions expire
+     * @param backend shared storage of the sessions, null to keep them locally
+     */
+    public ServerSideSessionStore(final CryptoService cryptoService,
+        final String clusterName,
+        final String domainSuffix,
+        final Map<String, String> sessionStoreConfigs,
+        final SessionCipher sessionCipher,
+        final long maxSessions,
+        final long ttlSeconds,
+        final SessionStoreBackend backend) {
+        super(cryptoService, clusterName, domainSuffix, sessionStoreConfigs, sessionCipher, true);
+        this.ttlSeconds = ttlSeconds;
+        this.backend = backend;
+        this.sessions = backend == null ? Caffeine.newBuilder()
+            .maximumSize(maxSessions)
+            .expireAfterAccess(ttlSeconds, TimeUnit.SECONDS)
+            .build() : null;
+    }
+
+    @Override
+    public String getOrCreateSessionId(WebContext context) {
+        String sessionId = getSessionId(context);
+        if (sessionId == null) {
+            sessionId = newSessionId();
+            setSessionId(context, sessionId);
+        }
+        return sessionId;
+    }
+
+    @Override
+    public Optional<Object> get(WebContext context, String key) {
+        final String sessionId = getSessionId(context);
+        final Map<String, Object> session = sessionId == null ? null : load(context, sessionId);
+        final Object value = session == null ? null : session.get(key);
+        logger.debug("Get from session: {} = {}", key, value);
+        return Optional.ofNullable(value);
+    }
+
+    @Override
+    public void set(WebContext context, String key, Object value) {
+        if (value == null) {
+            final String sessionId = getSessionId(context);
+            final Map<String, Object> session = sessionId == null ? null : load(context, sessionId);
+            if (session != null && session.remove(key) != null) {
+                save(context, sessionId, session);
+            }
+            return;
+        }
+        final String sessionId = getOrCreateSessionId(context);
+        Map<String, Object> session = load(context, sessionId);
+        if (session == null) {
+            session = new ConcurrentHashMap<>();
+        }
+        final Object trimmed = trim(key, value);
+        logger.debug("Save in session: {} = {}", key, trimmed);
+        session.put(key, trimmed);
+        save(context, sessionId, session);
+    }
+
+    @Override
+    public boolean destroySession(WebContext context) {
+        final String sessionId = getSessionId(context);
+        if (sessionId != null) {
+            remove(context, sessionId);
+        }
+        context.setRequestAttribute(PAC4J_SESSION_ID, null);
+        context.addResponseCookie(newCookie(context, PAC4J_SESSION_ID, null));
+        return true;
+    }
+
+    /*
+     * Moves the session to a new id, pac4j renews the session after a login so
+     * that a session id known before the login cannot be used after it
+     */
+    @Override
+    public boolean renewSession(WebContext context) {
+        final String sessionId = getSessionId(context);
+        final Map<String, Object> session = sessionId == null ? null : load(context, sessionId);
+        if (sessionId != null) {
+            remove(context, sessionId);
+        }
+        final String renewedSessionId = newSessionId();
+        setSessionId(context, renewedSessionId);
+        if (session != null) {
+            save(context, renewedSessionId, session);
+        }
+        return true;
+    }
+
+    /*
+     * The id of the session of this request or, if it still exists, the one of
+     * the session cookie. Unknown ids are not reused for new sessions.
+     */
+    private String getSessionId(WebContext context) {
+        final Optional<Object> current = context.getRequestAttribute(PAC4J_SESSION_ID);
+        if (current.isPresent()) {
+            return (String) current.get();
+        }
+        final Cookie cookie = ContextHelper.getCookie(context, PAC4J_SESSION_ID);
+        if (cookie != null && cookie.getValue() != null && resume(context, cookie.getValue())) {
+            context.setRequestAttribute(PAC4J_SESSION_ID, cookie.getValue());
+            return cookie.getValue();
+        }
+        return null;
+    }
+
+    /*
+     * Checks that the session of a cookie still exists and restarts its inactivity
+     * timeout, once per request since its id is then kept in the request attributes
+     */
+    private boolean resume(WebContext context, String sessionId) {
+        if (backend == null) {
+            return sessions.getIfPresent(sessionId) != null;
+        }
+        final byte[] encrypted = backend.get(sessionId);
+        final Map<String, Object> session = decode(encrypted, sessionId);
+        if (session == null) {
+            return false;
+        }
+        backend.touch(sessionId, encrypted, ttlSeconds);
+        context.setRequestAttribute(PAC4J_SESSION_DATA, session);
+        return true;
+    }
+
+    private void setSessionId(WebContext context, String sessionId) {
+        context.setRequestAttribute(PAC4J_SESSION_ID, sessionId);
+        if (backend != null) {
+            /* a new session, there is nothing to load from the backend yet */
+            context.setRequestAttribute(PAC4J_SESSION_DATA, new ConcurrentHashMap<String, Object>());
+        }
+        context.addResponseCookie(newCookie(context, PAC4J_SESSION_ID, sessionId));
+    }
+
+    private String newSessionId() {
+        final byte[] bytes = new byte[SESSION_ID_LENGTH];
+        random.nextBytes(bytes);
+        return Base64.encodeBase64URLSafeString(bytes);
+    }
+
+    /*
+     * The session of this request, a backend is only read when resuming the
+     * session of the cookie
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> load(WebContext context, String sessionId) {
+        if (backend == null) {
+            return sessions.getIfPresent(sessionId);
+        }
+        final Optional<Object> loaded = context.getRequestAttribute(PAC4J_SESSION_DATA);
+        if (loaded.isPresent()) {
+            return (Map<String, Object>) loaded.get();
+        }
+        final Map<String, Object> session = decode(backend.get(sessionId), sessionId);
+        context.setRequestAttribute(PAC4J_SESSION_DATA, session);
+        return session;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> decode(byte[] encrypted, String sessionId) {
+        final Object session = encrypted == null ? null : decryptDecode(encrypted, sessionId);
+        return session instanceof Map ? new ConcurrentHashMap<>((Map<String, Object>) session) : null;
+    }
+
+    private void save(WebContext context, String sessionId, Map<String, Object> session) {
+        if (backend == null) {
+            sessions.put(sessionId, session);
+        } else {
+            backend.put(sessionId, encodeEncrypt(session, sessionId), ttlSeconds);
+            context.setRequestAttribute(PAC4J_SESSION_DATA, session);
+        }
+    }
+
+    private void remove(WebContext context, String sessionId) {
+        if (backend == null) {
+            sessions.invalidate(sessionId);
+        } else {
+            backend.remove(sessionId);
+            context.setRequestAttribute(PAC4J_SESSION_DATA, null);
+        }
+    }
+}
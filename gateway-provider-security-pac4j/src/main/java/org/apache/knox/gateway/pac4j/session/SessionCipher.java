@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.pac4j.session;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Authenticated encryption of the pac4j session data of a cluster.
+ * <p>
+ * The AES key is derived from the pac4j password of the cluster once, when
+ * the cipher is created, instead of for every encrypted value. The
+ * encrypted values are bound to a context (the name of the session entry)
+ * so that they cannot be swapped.
+ *
+ * @since 2.1.0
+ */
+public class SessionCipher {
+  private static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA256";
+  private static final String KEY_ALGORITHM = "AES";
+  private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final String SALT_PREFIX = "pac4j.session.";
+  private static final int ITERATION_COUNT = 65536;
+  private static final int KEY_LENGTH = 128;
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH = 128;
+
+  private final SecretKey key;
+  private final SecureRandom random = new SecureRandom();
+
+  /**
+   * @param password pac4j password of the cluster
+   * @param clusterName name of the cluster, salting the key
+   * @throws GeneralSecurityException if the key cannot be derived
+   */
+  public SessionCipher(final char[] password, final String clusterName) throws GeneralSecurityException {
+    final byte[] salt = (SALT_PREFIX + clusterName).getBytes(StandardCharsets.UTF_8);
+    final PBEKeySpec spec = new PBEKeySpec(password, salt, ITERATION_COUNT, KEY_LENGTH);
+    try {
+      final SecretKeyFactory factory = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM);
+      this.key = new SecretKeySpec(factory.generateSecret(spec).getEncoded(), KEY_ALGORITHM);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+
+  /**
+   * @param clear data to encrypt
+   * @param context context the data is bound to
+   * @return the IV followed by the cipher text and its authentication tag
+   * @throws GeneralSecurityException if the data cannot be encrypted
+   */
+  public byte[] encrypt(final byte[] clear, final String context) throws GeneralSecurityException {
+    final byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+    final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+    cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+    final byte[] encrypted = Arrays.copyOf(iv, IV_LENGTH + cipher.getOutputSize(clear.length));
+    cipher.doFinal(clear, 0, clear.length, encrypted, IV_LENGTH);
+    return encrypted;
+  }
+
+  /**
+   * @param encrypted data returned by {@link #encrypt(byte[], String)}
+   * @param context context the data was bound to
+   * @return the clear data
+   * @throws GeneralSecurityException if the data was not encrypted with this
+   *         key and context or has been tampered with
+   */
+  public byte[] decrypt(final byte[] encrypted, final String context) throws GeneralSecurityException {
+    if (encrypted.length < IV_LENGTH + TAG_LENGTH / Byte.SIZE) {
+      throw new GeneralSecurityException("Encrypted session data is too short");
+    }
+    final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, encrypted, 0, IV_LENGTH));
+    cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+    return cipher.doFinal(encrypted, IV_LENGTH, encrypted.length - IV_LENGTH);
+  }
+}
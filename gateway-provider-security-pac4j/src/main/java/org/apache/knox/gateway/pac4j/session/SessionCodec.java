@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.pac4j.session;
+
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.util.JavaSerializationHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact encoding of the values of the pac4j session.
+ * <p>
+ * Profiles, strings, numbers, dates and collections of them are written
+ * field by field with a one byte type tag, instead of with Java
+ * serialization which repeats class descriptors for every object. Any other
+ * value falls back to Java serialization. Encodings larger than
+ * {@value #COMPRESSION_THRESHOLD} bytes are deflated.
+ */
+final class SessionCodec {
+  private static final int VERSION = 1;
+  private static final int COMPRESSED = 0x80;
+  private static final int COMPRESSION_THRESHOLD = 512;
+
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int BOOLEAN = 2;
+  private static final int INTEGER = 3;
+  private static final int LONG = 4;
+  private static final int DOUBLE = 5;
+  private static final int DATE = 6;
+  private static final int LIST = 7;
+  private static final int SET = 8;
+  private static final int MAP = 9;
+  private static final int PROFILE = 10;
+  private static final int SERIALIZED = 11;
+
+  private final JavaSerializationHelper javaSerializationHelper = new JavaSerializationHelper();
+
+  byte[] encode(final Object value) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeValue(out, value);
+    }
+    final byte[] encoded = bytes.toByteArray();
+    if (encoded.length <= COMPRESSION_THRESHOLD) {
+      return prepend(VERSION, encoded, encoded.length);
+    }
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream(encoded.length / 2);
+    try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+      deflater.write(encoded);
+    }
+    return prepend(VERSION | COMPRESSED, compressed.toByteArray(), compressed.size());
+  }
+
+  Object decode(final byte[] encoded) throws IOException {
+    final int header = encoded.length == 0 ? 0 : encoded[0] & 0xFF;
+    if ((header & ~COMPRESSED) != VERSION) {
+      throw new IOException("Unsupported session encoding");
+    }
+    InputStream in = new ByteArrayInputStream(encoded, 1, encoded.length - 1);
+    if ((header & COMPRESSED) != 0) {
+      in = new InflaterInputStream(in);
+    }
+    try (DataInputStream data = new DataInputStream(in)) {
+      return readValue(data);
+    }
+  }
+
+  private static byte[] prepend(final int header, final byte[] data, final int length) {
+    final byte[] result = new byte[length + 1];
+    result[0] = (byte) header;
+    System.arraycopy(data, 0, result, 1, length);
+    return result;
+  }
+
+  private void writeValue(final DataOutputStream out, final Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value.getClass() == Date.class) {
+      out.writeByte(DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (value instanceof List || value instanceof Set) {
+      out.writeByte(value instanceof Set ? SET : LIST);
+      writeCollection(out, (Collection<?>) value);
+    } else if (value instanceof Map) {
+      out.writeByte(MAP);
+      writeMap(out, (Map<?, ?>) value);
+    } else if (value instanceof CommonProfile && hasDefaultConstructor(value.getClass())) {
+      out.writeByte(PROFILE);
+      writeProfile(out, (CommonProfile) value);
+    } else if (value instanceof Serializable) {
+      out.writeByte(SERIALIZED);
+      final byte[] serialized = javaSerializationHelper.serializeToBytes((Serializable) value);
+      writeLength(out, serialized.length);
+      out.write(serialized);
+    } else {
+      throw new IOException("Cannot encode session value of type " + value.getClass().getName());
+    }
+  }
+
+  private Object readValue(final DataInputStream in) throws IOException {
+    final int tag = in.readUnsignedByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case BOOLEAN:
+        return in.readBoolean();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case DATE:
+        return new Date(in.readLong());
+      case LIST:
+        return readCollection(in, new ArrayList<>());
+      case SET:
+        return readCollection(in, new LinkedHashSet<>());
+      case MAP:
+        return readMap(in);
+      case PROFILE:
+        return readProfile(in);
+      case SERIALIZED:
+        final byte[] serialized = new byte[readLength(in)];
+        in.readFully(serialized);
+        return javaSerializationHelper.deserializeFromBytes(serialized);
+      default:
+        throw new IOException("Unknown session value type " + tag);
+    }
+  }
+
+  private void writeCollection(final DataOutputStream out, final Collection<?> values) throws IOException {
+    writeLength(out, values.size());
+    for (Object value : values) {
+      writeValue(out, value);
+    }
+  }
+
+  private Collection<Object> readCollection(final DataInputStream in, final Collection<Object> values) throws IOException {
+    final int size = readLength(in);
+    for (int i = 0; i < size; i++) {
+      values.add(readValue(in));
+    }
+    return values;
+  }
+
+  private void writeMap(final DataOutputStream out, final Map<?, ?> values) throws IOException {
+    writeLength(out, values.size());
+    for (Map.Entry<?, ?> entry : values.entrySet()) {
+      writeValue(out, entry.getKey());
+      writeValue(out, entry.getValue());
+    }
+  }
+
+  private Map<Object, Object> readMap(final DataInputStream in) throws IOException {
+    final int size = readLength(in);
+    final Map<Object, Object> values = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      values.put(readValue(in), readValue(in));
+    }
+    return values;
+  }
+
+  private void writeProfile(final DataOutputStream out, final CommonProfile profile) throws IOException {
+    writeString(out, profile.getClass().getName());
+    writeValue(out, profile.getId());
+    writeValue(out, profile.getLinkedId());
+    writeValue(out, profile.getClientName());
+    out.writeBoolean(profile.isRemembered());
+    writeCollection(out, profile.getRoles());
+    writeCollection(out, profile.getPermissions());
+    writeMap(out, profile.getAttributes());
+    writeMap(out, profile.getAuthenticationAttributes());
+  }
+
+  @SuppressWarnings("unchecked")
+  private CommonProfile readProfile(final DataInputStream in) throws IOException {
+    final CommonProfile profile = newProfile(readString(in));
+    profile.setId((String) readValue(in));
+    profile.setLinkedId((String) readValue(in));
+    profile.setClientName((String) readValue(in));
+    profile.setRemembered(in.readBoolean());
+    profile.addRoles((Collection<String>) (Collection<?>) readCollection(in, new LinkedHashSet<>()));
+    profile.addPermissions((Collection<String>) (Collection<?>) readCollection(in, new LinkedHashSet<>()));
+    readMap(in).forEach((name, value) -> profile.addAttribute((String) name, value));
+    readMap(in).forEach((name, value) -> profile.addAuthenticationAttribute((String) name, value));
+    return profile;
+  }
+
+  private static CommonProfile newProfile(final String className) throws IOException {
+    try {
+      final Class<?> profileClass = Class.forName(className, false, SessionCodec.class.getClassLoader());
+      if (!CommonProfile.class.isAssignableFrom(profileClass)) {
+        throw new IOException("Not a profile class: " + className);
+      }
+      return (CommonProfile) profileClass.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IOException("Cannot create profile of type " + className, e);
+    }
+  }
+
+  private static boolean hasDefaultConstructor(final Class<?> type) {
+    try {
+      type.getDeclaredConstructor();
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private static void writeString(final DataOutputStream out, final String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeLength(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(final DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[readLength(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /*
+   * Lengths are written as unsigned varints, a single byte for up to 127
+   */
+  private static void writeLength(final DataOutputStream out, final int length) throws IOException {
+    int remaining = length;
+    while ((remaining & ~0x7F) != 0) {
+      out.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.writeByte(remaining);
+  }
+
+  private static int readLength(final DataInputStream in) throws IOException {
+    int length = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      final int b = in.readUnsignedByte();
+      length |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (length < 0) {
+          break;
+        }
+        return length;
+      }
+    }
+    throw new IOException("Invalid length in session data");
+  }
+}
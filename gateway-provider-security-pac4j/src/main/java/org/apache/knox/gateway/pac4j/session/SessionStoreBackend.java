@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.pac4j.session;
+
+import java.util.Map;
+
+/**
+ * Storage shared by the gateway instances of an HA deployment for the
+ * sessions of the {@link ServerSideSessionStore}.
+ * <p>
+ * Implementations are configured with the <code>pac4j.session.store.server.backend</code>
+ * parameter of the provider and need a public no-argument constructor. The
+ * sessions are handed to them encrypted.
+ *
+ * @since 2.1.0
+ */
+public interface SessionStoreBackend {
+
+  /**
+   * @param properties parameters of the pac4j provider, with aliases resolved
+   * @throws Exception if the backend cannot be initialized
+   */
+  void init(Map<String, String> properties) throws Exception;
+
+  /**
+   * @param sessionId id of the session
+   * @return the session data or null if there is no such session
+   */
+  byte[] get(String sessionId);
+
+  /**
+   * @param sessionId id of the session
+   * @param session session data
+   * @param ttlSeconds time after which the session can be discarded
+   */
+  void put(String sessionId, byte[] session, long ttlSeconds);
+
+  /**
+   * Restarts the time after which a session that is still in use can be discarded,
+   * by writing it again unless the backend has a cheaper way.
+   * @param sessionId id of the session
+   * @param session session data, as returned by {@link #get(String)}
+   * @param ttlSeconds time after which the session can be discarded
+   */
+  default void touch(String sessionId, byte[] session, long ttlSeconds) {
+    put(sessionId, session, ttlSeconds);
+  }
+
+  /**
+   * @param sessionId id of the session to discard
+   */
+  void remove(String sessionId);
+}
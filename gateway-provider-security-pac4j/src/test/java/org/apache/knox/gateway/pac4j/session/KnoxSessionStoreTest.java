@@ -30,9 +30,11 @@ import org.pac4j.core.util.Pac4jConstants;
 import org.pac4j.saml.profile.SAML2Profile;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.apache.knox.gateway.pac4j.filter.Pac4jDispatcherFilter.PAC4J_SESSION_STORE_EXCLUDE_CUSTOM_ATTRIBUTES;
@@ -155,4 +157,122 @@ public class KnoxSessionStoreTest {
     Assert.assertNotNull(samlProfile.getAttribute("https://knox.apache.org/SAML/Attributes/groups"));
     Assert.assertNotNull(samlProfile.getAttribute("https://knox.apache.org/SAML/Attributes/groups2"));
   }
+
+  /**
+   * Test that profiles written with the compact encoding are read back,
+   * and that cookies written with the legacy encoding are still read.
+   */
+  @Test
+  public void compactEncodingTest() throws Exception {
+    final AliasService aliasService = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(aliasService.getPasswordFromAliasForCluster(CLUSTER_NAME, PAC4J_PASSWORD))
+        .andReturn(PAC4J_PASSWORD.toCharArray()).anyTimes();
+    EasyMock.replay(aliasService);
+
+    final DefaultCryptoService cryptoService = new DefaultCryptoService();
+    cryptoService.setAliasService(aliasService);
+
+    final Map<String, String> sessionStoreConfigs = new HashMap<>();
+    sessionStoreConfigs.put(PAC4J_SESSION_STORE_EXCLUDE_GROUPS, "false");
+    final KnoxSessionStore compactStore = new KnoxSessionStore(cryptoService, CLUSTER_NAME, null, sessionStoreConfigs,
+        new SessionCipher(PAC4J_PASSWORD.toCharArray(), CLUSTER_NAME), true);
+    final KnoxSessionStore legacyStore = new KnoxSessionStore(cryptoService, CLUSTER_NAME, null, sessionStoreConfigs);
+
+    final org.pac4j.core.context.Cookie compactCookie = setProfile(compactStore);
+    Assert.assertTrue(compactCookie.getValue().startsWith(KnoxSessionStore.COMPACT_PREFIX));
+    assertProfile(compactStore.get(requestWithCookie(compactCookie), Pac4jConstants.USER_PROFILES));
+
+    /* a tampered cookie is discarded */
+    final String value = compactCookie.getValue();
+    final org.pac4j.core.context.Cookie tamperedCookie = new org.pac4j.core.context.Cookie(compactCookie.getName(),
+        value.substring(0, value.length() - 2) + (value.endsWith("AA") ? "BB" : "AA"));
+    Assert.assertFalse(compactStore.get(requestWithCookie(tamperedCookie), Pac4jConstants.USER_PROFILES).isPresent());
+
+    final org.pac4j.core.context.Cookie legacyCookie = setProfile(legacyStore);
+    Assert.assertFalse(legacyCookie.getValue().startsWith(KnoxSessionStore.COMPACT_PREFIX));
+    assertProfile(compactStore.get(requestWithCookie(legacyCookie), Pac4jConstants.USER_PROFILES));
+  }
+
+  /**
+   * Test that a store writing the legacy encoding still reads the cookies
+   * written with the compact encoding, e.g. after a rollback of the setting.
+   */
+  @Test
+  public void legacyEncodingReadsCompactCookiesTest() throws Exception {
+    final AliasService aliasService = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(aliasService.getPasswordFromAliasForCluster(CLUSTER_NAME, PAC4J_PASSWORD))
+        .andReturn(PAC4J_PASSWORD.toCharArray()).anyTimes();
+    EasyMock.replay(aliasService);
+
+    final DefaultCryptoService cryptoService = new DefaultCryptoService();
+    cryptoService.setAliasService(aliasService);
+
+    final Map<String, String> sessionStoreConfigs = new HashMap<>();
+    sessionStoreConfigs.put(PAC4J_SESSION_STORE_EXCLUDE_GROUPS, "false");
+    final KnoxSessionStore compactStore = new KnoxSessionStore(cryptoService, CLUSTER_NAME, null, sessionStoreConfigs,
+        new SessionCipher(PAC4J_PASSWORD.toCharArray(), CLUSTER_NAME), true);
+    final KnoxSessionStore legacyStore = new KnoxSessionStore(cryptoService, CLUSTER_NAME, null, sessionStoreConfigs,
+        new SessionCipher(PAC4J_PASSWORD.toCharArray(), CLUSTER_NAME), false);
+
+    final org.pac4j.core.context.Cookie compactCookie = setProfile(compactStore);
+    Assert.assertTrue(compactCookie.getValue().startsWith(KnoxSessionStore.COMPACT_PREFIX));
+    assertProfile(legacyStore.get(requestWithCookie(compactCookie), Pac4jConstants.USER_PROFILES));
+
+    final org.pac4j.core.context.Cookie legacyCookie = setProfile(legacyStore);
+    Assert.assertFalse(legacyCookie.getValue().startsWith(KnoxSessionStore.COMPACT_PREFIX));
+    assertProfile(legacyStore.get(requestWithCookie(legacyCookie), Pac4jConstants.USER_PROFILES));
+  }
+
+  /**
+   * Test that values large enough to be compressed are read back.
+   */
+  @Test
+  public void compressedCompactEncodingTest() throws Exception {
+    final KnoxSessionStore sessionStore = new KnoxSessionStore(null, CLUSTER_NAME, null, new HashMap<>(),
+        new SessionCipher(PAC4J_PASSWORD.toCharArray(), CLUSTER_NAME), true);
+    final String requestedUrl = "https://local.com/gateway/sandbox/webhdfs/v1/?op=LISTSTATUS&path=" + String.join("", Collections.nCopies(100, "/dir"));
+
+    final Capture<org.pac4j.core.context.Cookie> captureCookieValue = EasyMock.newCapture();
+    final WebContext mockContext = EasyMock.createNiceMock(WebContext.class);
+    EasyMock.expect(mockContext.getFullRequestURL()).andReturn("https://local.com/gateway/knoxsso/").anyTimes();
+    mockContext.addResponseCookie(EasyMock.capture(captureCookieValue));
+    EasyMock.replay(mockContext);
+    sessionStore.set(mockContext, Pac4jConstants.REQUESTED_URL, requestedUrl);
+
+    Assert.assertEquals(requestedUrl,
+        sessionStore.get(requestWithCookie(captureCookieValue.getValue()), Pac4jConstants.REQUESTED_URL).orElse(null));
+  }
+
+  private static org.pac4j.core.context.Cookie setProfile(KnoxSessionStore sessionStore) {
+    final SAML2Profile samlProfile = new SAML2Profile();
+    samlProfile.setId("admin");
+    samlProfile.addAttribute("groups", new HashSet<>(Arrays.asList("admin_2", "admin_1", "admin")));
+    final Map<String, CommonProfile> profile = new HashMap<>();
+    profile.put("SAML2Client", samlProfile);
+
+    final Capture<org.pac4j.core.context.Cookie> captureCookieValue = EasyMock.newCapture();
+    final WebContext mockContext = EasyMock.createNiceMock(WebContext.class);
+    EasyMock.expect(mockContext.getFullRequestURL()).andReturn("https://local.com/gateway/knoxsso/").anyTimes();
+    mockContext.addResponseCookie(EasyMock.capture(captureCookieValue));
+    EasyMock.replay(mockContext);
+
+    sessionStore.set(mockContext, Pac4jConstants.USER_PROFILES, profile);
+    return captureCookieValue.getValue();
+  }
+
+  private static WebContext requestWithCookie(org.pac4j.core.context.Cookie cookie) {
+    final WebContext mockContext = EasyMock.createNiceMock(WebContext.class);
+    EasyMock.expect(mockContext.getRequestCookies()).andReturn(Collections.singletonList(cookie)).anyTimes();
+    EasyMock.replay(mockContext);
+    return mockContext;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void assertProfile(Optional<Object> value) {
+    Assert.assertTrue(value.isPresent());
+    final CommonProfile samlProfile = ((Map<String, CommonProfile>) value.get()).get("SAML2Client");
+    Assert.assertTrue(samlProfile instanceof SAML2Profile);
+    Assert.assertEquals("admin", samlProfile.getId());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("admin_2", "admin_1", "admin")), samlProfile.getAttribute("groups"));
+  }
 }
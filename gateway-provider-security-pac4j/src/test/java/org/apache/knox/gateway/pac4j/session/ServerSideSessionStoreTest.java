@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.pac4j.session;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.pac4j.core.context.Cookie;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.saml.profile.SAML2Profile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ServerSideSessionStoreTest {
+  private static final String CLUSTER_NAME = "knox";
+  private static final String REQUESTED_URL = "requestedUrl";
+
+  @Test
+  public void testSessionIsKeptOnTheServer() throws Exception {
+    final ServerSideSessionStore<WebContext> sessionStore = newSessionStore(null);
+
+    final List<Cookie> responseCookies = new ArrayList<>();
+    final WebContext login = context(null, responseCookies);
+    sessionStore.set(login, Pac4jConstants.USER_PROFILES, profiles());
+    sessionStore.set(login, REQUESTED_URL, "https://local.com/gateway/sandbox/webhdfs/v1/");
+
+    /* a single cookie, carrying the session id */
+    Assert.assertEquals(1, responseCookies.size());
+    final Cookie sessionCookie = responseCookies.get(0);
+    Assert.assertEquals(ServerSideSessionStore.PAC4J_SESSION_ID, sessionCookie.getName());
+    Assert.assertEquals(sessionStore.getOrCreateSessionId(login), sessionCookie.getValue());
+
+    final WebContext next = context(sessionCookie, new ArrayList<>());
+    assertProfiles(sessionStore.get(next, Pac4jConstants.USER_PROFILES));
+    Assert.assertEquals("https://local.com/gateway/sandbox/webhdfs/v1/", sessionStore.get(next, REQUESTED_URL).orElse(null));
+
+    sessionStore.set(next, REQUESTED_URL, null);
+    Assert.assertFalse(sessionStore.get(context(sessionCookie, new ArrayList<>()), REQUESTED_URL).isPresent());
+  }
+
+  @Test
+  public void testUnknownSessionIdIsNotReused() throws Exception {
+    final ServerSideSessionStore<WebContext> sessionStore = newSessionStore(null);
+
+    final Cookie forged = new Cookie(ServerSideSessionStore.PAC4J_SESSION_ID, "forged");
+    final List<Cookie> responseCookies = new ArrayList<>();
+    final WebContext context = context(forged, responseCookies);
+    Assert.assertFalse(sessionStore.get(context, Pac4jConstants.USER_PROFILES).isPresent());
+
+    sessionStore.set(context, REQUESTED_URL, "https://local.com/");
+    Assert.assertNotEquals("forged", sessionStore.getOrCreateSessionId(context));
+    Assert.assertNotEquals("forged", responseCookies.get(0).getValue());
+  }
+
+  @Test
+  public void testRenewAndDestroySession() throws Exception {
+    final ServerSideSessionStore<WebContext> sessionStore = newSessionStore(null);
+
+    final List<Cookie> responseCookies = new ArrayList<>();
+    final WebContext login = context(null, responseCookies);
+    sessionStore.set(login, REQUESTED_URL, "https://local.com/");
+    final Cookie sessionCookie = responseCookies.get(0);
+
+    final List<Cookie> renewedCookies = new ArrayList<>();
+    final WebContext callback = context(sessionCookie, renewedCookies);
+    Assert.assertTrue(sessionStore.renewSession(callback));
+    final Cookie renewedCookie = renewedCookies.get(0);
+    Assert.assertNotEquals(sessionCookie.getValue(), renewedCookie.getValue());
+
+    /* the data moved to the new session, the old id is no longer valid */
+    Assert.assertFalse(sessionStore.get(context(sessionCookie, new ArrayList<>()), REQUESTED_URL).isPresent());
+    Assert.assertEquals("https://local.com/", sessionStore.get(context(renewedCookie, new ArrayList<>()), REQUESTED_URL).orElse(null));
+
+    Assert.assertTrue(sessionStore.destroySession(context(renewedCookie, new ArrayList<>())));
+    Assert.assertFalse(sessionStore.get(context(renewedCookie, new ArrayList<>()), REQUESTED_URL).isPresent());
+  }
+
+  @Test
+  public void testSessionIsSharedThroughTheBackend() throws Exception {
+    final InMemoryBackend backend = new InMemoryBackend();
+    final ServerSideSessionStore<WebContext> gateway1 = newSessionStore(backend);
+    final ServerSideSessionStore<WebContext> gateway2 = newSessionStore(backend);
+
+    final List<Cookie> responseCookies = new ArrayList<>();
+    gateway1.set(context(null, responseCookies), Pac4jConstants.USER_PROFILES, profiles());
+    final Cookie sessionCookie = responseCookies.get(0);
+
+    /* the backend only gets encrypted data */
+    final byte[] stored = backend.sessions.get(sessionCookie.getValue());
+    Assert.assertNotNull(stored);
+    Assert.assertFalse(new String(stored, StandardCharsets.ISO_8859_1).contains("admin"));
+
+    assertProfiles(gateway2.get(context(sessionCookie, new ArrayList<>()), Pac4jConstants.USER_PROFILES));
+    /* the read restarted the inactivity timeout of the session */
+    Assert.assertEquals(Collections.singletonList(sessionCookie.getValue()), backend.touched);
+  }
+
+  @Test
+  public void testBackendIsReadOncePerRequest() throws Exception {
+    final InMemoryBackend backend = new InMemoryBackend();
+    final ServerSideSessionStore<WebContext> sessionStore = newSessionStore(backend);
+
+    final List<Cookie> responseCookies = new ArrayList<>();
+    final WebContext login = context(null, responseCookies);
+    sessionStore.set(login, Pac4jConstants.USER_PROFILES, profiles());
+    sessionStore.set(login, REQUESTED_URL, "https://local.com/");
+    /* a new session has nothing to read */
+    Assert.assertEquals(0, backend.reads.get());
+
+    final WebContext next = context(responseCookies.get(0), new ArrayList<>());
+    assertProfiles(sessionStore.get(next, Pac4jConstants.USER_PROFILES));
+    Assert.assertEquals("https://local.com/", sessionStore.get(next, REQUESTED_URL).orElse(null));
+    sessionStore.set(next, REQUESTED_URL, "https://local.com/gateway/");
+    Assert.assertEquals("https://local.com/gateway/", sessionStore.get(next, REQUESTED_URL).orElse(null));
+    Assert.assertEquals(1, backend.reads.get());
+    Assert.assertEquals(1, backend.touched.size());
+  }
+
+  private static ServerSideSessionStore<WebContext> newSessionStore(SessionStoreBackend backend) throws Exception {
+    final Map<String, String> sessionStoreConfigs = new HashMap<>();
+    sessionStoreConfigs.put("pac4j.session.store.exclude.groups", "false");
+    return new ServerSideSessionStore<>(null, CLUSTER_NAME, null, sessionStoreConfigs,
+        new SessionCipher("pac4j.password".toCharArray(), CLUSTER_NAME), 100L, 60L, backend);
+  }
+
+  private static Map<String, CommonProfile> profiles() {
+    final SAML2Profile profile = new SAML2Profile();
+    profile.setId("admin");
+    profile.setClientName("SAML2Client");
+    profile.addAttribute("groups", new ArrayList<>(Arrays.asList("admin_1", "admin_2")));
+    profile.addAttribute("mail", "admin@local.com");
+    final Map<String, CommonProfile> profiles = new LinkedHashMap<>();
+    profiles.put("SAML2Client", profile);
+    return profiles;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void assertProfiles(Optional<Object> value) {
+    Assert.assertTrue(value.isPresent());
+    final CommonProfile profile = ((Map<String, CommonProfile>) value.get()).get("SAML2Client");
+    Assert.assertTrue(profile instanceof SAML2Profile);
+    Assert.assertEquals("admin", profile.getId());
+    Assert.assertEquals("SAML2Client", profile.getClientName());
+    Assert.assertEquals(Arrays.asList("admin_1", "admin_2"), profile.getAttribute("groups"));
+    Assert.assertEquals("admin@local.com", profile.getAttribute("mail"));
+  }
+
+  /*
+   * A request carrying the given cookie and recording the cookies of its response
+   */
+  private static WebContext context(Cookie requestCookie, List<Cookie> responseCookies) {
+    final Map<String, Object> attributes = new HashMap<>();
+    final WebContext context = EasyMock.createNiceMock(WebContext.class);
+    EasyMock.expect(context.getFullRequestURL()).andReturn("https://local.com/gateway/knoxsso/").anyTimes();
+    EasyMock.expect(context.getRequestCookies())
+        .andReturn(requestCookie == null ? Collections.emptyList() : Collections.singletonList(requestCookie)).anyTimes();
+    EasyMock.expect(context.getRequestAttribute(EasyMock.anyString()))
+        .andAnswer(() -> Optional.ofNullable(attributes.get((String) EasyMock.getCurrentArguments()[0]))).anyTimes();
+    context.setRequestAttribute(EasyMock.anyString(), EasyMock.anyObject());
+    EasyMock.expectLastCall().andAnswer(() -> {
+      attributes.put((String) EasyMock.getCurrentArguments()[0], EasyMock.getCurrentArguments()[1]);
+      return null;
+    }).anyTimes();
+    context.addResponseCookie(EasyMock.anyObject(Cookie.class));
+    EasyMock.expectLastCall().andAnswer(() -> {
+      responseCookies.add((Cookie) EasyMock.getCurrentArguments()[0]);
+      return null;
+    }).anyTimes();
+    EasyMock.replay(context);
+    return context;
+  }
+
+  private static class InMemoryBackend implements SessionStoreBackend {
+    private final Map<String, byte[]> sessions = new ConcurrentHashMap<>();
+    private final List<String> touched = new ArrayList<>();
+    private final AtomicInteger reads = new AtomicInteger();
+
+    @Override
+    public void init(Map<String, String> properties) {
+    }
+
+    @Override
+    public byte[] get(String sessionId) {
+      reads.incrementAndGet();
+      return sessions.get(sessionId);
+    }
+
+    @Override
+    public void put(String sessionId, byte[] session, long ttlSeconds) {
+      sessions.put(sessionId, session);
+    }
+
+    @Override
+    public void touch(String sessionId, byte[] session, long ttlSeconds) {
+      touched.add(sessionId);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+      sessions.remove(sessionId);
+    }
+  }
+}
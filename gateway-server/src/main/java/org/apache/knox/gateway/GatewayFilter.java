@@ -55,6 +55,8 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
+import org.apache.knox.gateway.services.metrics.RequestMetrics;
+import org.apache.knox.gateway.services.metrics.RequestPhase;
 import org.apache.knox.gateway.topology.Topology;
 import org.apache.knox.gateway.util.ServletRequestUtils;
 import org.apache.knox.gateway.util.urltemplate.Matcher;
@@ -240,12 +242,30 @@ public class GatewayFilter implements Filter {
   }
 
   public void addFilter( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
+    addFilter( path, name, filter, params, resourceRole, null );
+  }
+
+  /**
+   * @param filterRole role of the filter within the resource, e.g. "authentication",
+   *                   used to record the filter's processing time as a {@link RequestPhase}
+   */
+  public void addFilter( String path, String name, Filter filter, Map<String,String> params, String resourceRole, String filterRole ) throws URISyntaxException {
     Holder holder = new Holder( path, name, filter, params, resourceRole );
+    holder.phase = RequestPhase.forFilterRole( filterRole );
     addHolder( holder );
   }
 
   public void addFilter( String path, String name, String clazz, Map<String,String> params, String resourceRole ) throws URISyntaxException {
+    addFilter( path, name, clazz, params, resourceRole, null );
+  }
+
+  /**
+   * @param filterRole role of the filter within the resource, e.g. "authentication",
+   *                   used to record the filter's processing time as a {@link RequestPhase}
+   */
+  public void addFilter( String path, String name, String clazz, Map<String,String> params, String resourceRole, String filterRole ) throws URISyntaxException {
     Holder holder = new Holder( path, name, clazz, params, resourceRole );
+    holder.phase = RequestPhase.forFilterRole( filterRole );
     addHolder( holder );
   }
 
@@ -286,9 +306,39 @@ public class GatewayFilter implements Filter {
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
       if( chainList != null && !chainList.isEmpty() ) {
-        final Filter filter = chainList.get( 0 );
+        final Holder filter = chainList.get( 0 );
         final FilterChain chain = subChain();
-        filter.doFilter( servletRequest, servletResponse, chain );
+        final RequestMetrics requestMetrics = filter.phase == null ? null : RequestMetrics.get( servletRequest );
+        if( requestMetrics == null ) {
+          filter.doFilter( servletRequest, servletResponse, chain );
+        } else {
+          doTimedFilter( filter, chain, requestMetrics, servletRequest, servletResponse );
+        }
+      }
+    }
+
+    /*
+     * Records the time spent in the filter itself, excluding the rest of the chain
+     * and the nested phases such as the response streaming of the dispatch.
+     */
+    private void doTimedFilter( Holder filter, FilterChain chain, RequestMetrics requestMetrics,
+                                ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
+      final long[] nestedNanos = new long[1];
+      final long recordedNanos = requestMetrics.getRecordedNanos();
+      final long started = System.nanoTime();
+      try {
+        filter.doFilter( servletRequest, servletResponse, ( request, response ) -> {
+          final long chainRecordedNanos = requestMetrics.getRecordedNanos();
+          final long chainStarted = System.nanoTime();
+          try {
+            chain.doFilter( request, response );
+          } finally {
+            nestedNanos[0] += System.nanoTime() - chainStarted - ( requestMetrics.getRecordedNanos() - chainRecordedNanos );
+          }
+        } );
+      } finally {
+        requestMetrics.record( filter.phase, System.nanoTime() - started - nestedNanos[0]
+            - ( requestMetrics.getRecordedNanos() - recordedNanos ) );
       }
     }
 
@@ -317,6 +367,7 @@ public class GatewayFilter implements Filter {
     private Class<? extends Filter> clazz;
     private String type;
     private String resourceRole;
+    private RequestPhase phase;
 
     Holder( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
       this.template = Parser.parseTemplate( path );
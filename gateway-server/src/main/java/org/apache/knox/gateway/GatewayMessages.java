@@ -108,6 +108,33 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.INFO, text = "Deactivating topology {0}" )
   void deactivatingTopology( String name );
 
+  @Message( level = MessageLevel.INFO, text = "Swapped topology {0} context {1}; draining previous context for up to {2} ms" )
+  void swappedTopologyContext( String topology, String contextPath, long drainTimeout );
+
+  @Message( level = MessageLevel.DEBUG, text = "Watching directory {0} for changes" )
+  void watchingDirectoryForChanges( String directory );
+
+  @Message( level = MessageLevel.INFO, text = "Native change notifications are not available for {0}; polling it for changes instead" )
+  void fallingBackToPollingDirectoryMonitor( String directory );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to watch directory {0} for changes: {1}" )
+  void failedToWatchDirectory( String directory, @StackTrace(level=MessageLevel.DEBUG) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to process the changes of the watched directories: {0}" )
+  void failedToProcessDirectoryChanges( @StackTrace(level=MessageLevel.DEBUG) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to notify the listeners of the changes in directory {0}: {1}" )
+  void failedToNotifyDirectoryChanges( String directory, @StackTrace(level=MessageLevel.DEBUG) Exception e );
+
+  @Message( level = MessageLevel.INFO, text = "Drained previous topology {0} context {1}" )
+  void drainedTopologyContext( String topology, String contextPath );
+
+  @Message( level = MessageLevel.WARN, text = "Timed out draining previous topology {0} context {1} with {2} active requests; stopping it" )
+  void drainTopologyContextTimedOut( String topology, String contextPath, int activeRequests );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to warm up topology {0} context {1}: {2}" )
+  void failedToWarmUpTopologyContext( String topology, String contextPath, @StackTrace(level=MessageLevel.DEBUG) Exception e );
+
   @Message( level = MessageLevel.ERROR, text = "Failed to deploy topology {0}: {1}" )
   void failedToDeployTopology( String name, @StackTrace(level=MessageLevel.DEBUG) Throwable e );
 
@@ -18,6 +18,7 @@
 package org.apache.knox.gateway;
 
 import org.apache.knox.gateway.i18n.resources.Resource;
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
 import org.apache.knox.gateway.i18n.resources.Resources;
 
 @Resources
@@ -75,10 +76,10 @@ public interface GatewayResources {
   String failedToCreateKeyStoreDirectory( String name );
 
   @Resource( text="Response status: {0}" )
-  String responseStatus( int status );
+  ResourceMessage responseStatus( int status );
 
   @Resource( text="Request method: {0}" )
-  String requestMethod( String method );
+  ResourceMessage requestMethod( String method );
 
   @Resource( text="Forward method: {0} to default context: {1}" )
   String forwardToDefaultTopology(String method, String context );
@@ -95,9 +96,9 @@ public interface GatewayResources {
   @Resource( text="The private signing key was not found in the signing keystore using the alias name {0}. The alias could be missing or the password could be incorrect.")
   String privateSigningKeyNotFound( String alias );
 
-  @Resource( text="The private signing key found in the signing keystore using the alias name {0} is not a RSAPrivateKey")
+  @Resource( text="The private signing key found in the signing keystore using the alias name {0} is not an RSA, EC or EdDSA private key")
   String privateSigningKeyWrongType( String alias );
 
-  @Resource( text="The public signing key found in the signing keystore using the alias name {0} is not a RSAPublicKey")
+  @Resource( text="The public signing key found in the signing keystore using the alias name {0} is not an RSA, EC or EdDSA public key")
   String publicSigningKeyWrongType( String alias );
 }
@@ -21,6 +21,7 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.knox.gateway.audit.api.Action;
 import org.apache.knox.gateway.audit.api.ActionOutcome;
 import org.apache.knox.gateway.audit.api.AuditServiceFactory;
@@ -69,6 +70,8 @@ import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.webapp.Configuration;
@@ -110,6 +113,7 @@ import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -121,6 +125,10 @@ import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
@@ -145,7 +153,12 @@ public class GatewayServer {
   private TopologyService monitor;
   private TopologyListener listener;
   private Map<String, WebAppContext> deployments;
+  private TopologyContextActivator<WebAppContext> contextActivator;
+  // The last successfully activated version of each topology, by name.
+  private final Map<String, Topology> activeTopologies = new ConcurrentHashMap<>();
   private AtomicBoolean stopped = new AtomicBoolean(false);
+  private final ExecutorService drainExecutor = Executors.newCachedThreadPool(
+      new BasicThreadFactory.Builder().namingPattern("TopologyContextDrainer-%d").daemon(true).build());
   private GatewayStatusService gatewayStatusService;
 
   public static void main( String[] args ) {
@@ -166,6 +179,7 @@ public class GatewayServer {
         }
         final GatewayConfig config = new GatewayConfigImpl();
         validateConfigurableGatewayDirectories(config);
+        configureStructuredAudit(config);
         if (config.isHadoopKerberosSecured()) {
           validateKerberosConfig(config);
           configureKerberosSecurity( config );
@@ -242,6 +256,13 @@ public class GatewayServer {
     setSystemProperty(GatewayConfig.KRB5_USE_SUBJECT_CREDS_ONLY,  "false");
   }
 
+  private static void configureStructuredAudit(GatewayConfig config) {
+    final String file = config.getStructuredAuditFile();
+    if (file != null && !file.isEmpty()) {
+      AuditServiceFactory.enableStructuredAudit(file, config.isStructuredAuditAggregated(), config.getStructuredAuditQueueSize());
+    }
+  }
+
   private static void validateConfigurableGatewayDirectories(GatewayConfig config) throws GatewayConfigurationException {
     final Set<String> errors = new HashSet<>();
     checkIfDirectoryExistsAndCanBeRead(Paths.get(config.getGatewayConfDir()), GatewayConfig.KNOX_GATEWAY_CONF_DIR_VAR, errors);
@@ -604,6 +625,7 @@ public class GatewayServer {
 
      // A map to keep track of current deployments by cluster name.
     deployments = new ConcurrentHashMap<>();
+    contextActivator = new TopologyContextActivator<>( contexts, deployments );
 
     // Create Jetty.
     createJetty();
@@ -736,6 +758,7 @@ public class GatewayServer {
         log.stoppingGateway();
         services.stop();
         monitor.stopMonitor();
+        drainExecutor.shutdownNow();
         jetty.stop();
         jetty.join();
         log.stoppedGateway();
@@ -836,6 +859,8 @@ public class GatewayServer {
     log.setMaxFormContentSize(config.getJettyMaxFormContentSize());
     context.setMaxFormKeys(config.getJettyMaxFormKeys());
     log.setMaxFormKeys(config.getJettyMaxFormKeys());
+    // Track in-flight requests so that a replaced context can be drained before it is stopped.
+    context.insertHandler(new StatisticsHandler());
     return context;
   }
 
@@ -914,42 +939,82 @@ public class GatewayServer {
     createArchiveTempDir( warDir );
   }
 
-  private synchronized void internalActivateTopology( Topology topology, File topoDir ) {
+  /*
+   * Activates all the contexts of the deployment, or none of them: if one of them
+   * fails to start, the deployed contexts of the topology are kept.
+   */
+  private synchronized Set<String> internalActivateTopology( Topology topology, File topoDir ) throws Exception {
     log.activatingTopology( topology.getName() );
+    List<WebAppContext> newContexts = new ArrayList<>();
     File[] files = topoDir.listFiles( new RegexFilenameFilter( "%.*" ) );
     if( files != null ) {
       for( File file : files ) {
-        internalActivateArchive( topology, file );
+        log.activatingTopologyArchive( topology.getName(), file.getName() );
+        newContexts.add( createWebAppContext( topology, file, Urls.decode( file.getName() ) ) );
       }
     }
-  }
 
-  private synchronized void internalActivateArchive( Topology topology, File warDir ) {
-    log.activatingTopologyArchive( topology.getName(), warDir.getName() );
-    try {
-      WebAppContext newContext = createWebAppContext( topology, warDir, Urls.decode( warDir.getName() ) );
-      WebAppContext oldContext = deployments.get( newContext.getContextPath() );
-      deployments.put( newContext.getContextPath(), newContext );
-      if( oldContext != null ) {
-        contexts.removeHandler( oldContext );
-      }
-      contexts.addHandler( newContext );
+    // Fully start and warm the new contexts before they become visible so that
+    // requests are served by the old contexts until the new ones are ready.
+    List<WebAppContext> replaced = contextActivator.activate( newContexts, context -> warmUpContext( topology, context ) );
+    replaced.forEach( oldContext -> drainContext( topology, oldContext ) );
 
-      processApplicationPathAliases(warDir, topology);
+    Set<String> activated = new HashSet<>();
+    for( WebAppContext context : newContexts ) {
+      activated.add( context.getContextPath() );
+    }
+    if( files != null ) {
+      for( File file : files ) {
+        processApplicationPathAliases( file, topology );
+      }
+    }
+    return activated;
+  }
 
-      if( contexts.isRunning() && !newContext.isRunning() ) {
-        newContext.start();
-        if(!newContext.isAvailable()) {
-          throw newContext.getUnavailableException();
+  /*
+   * Servlets are initialized lazily by Jetty; initializing them here creates the
+   * gateway filter chain (providers, rewrite rules, dispatch clients) up front.
+   */
+  private void warmUpContext( Topology topology, WebAppContext context ) {
+    ServletHolder[] holders = context.getServletHandler().getServlets();
+    if( holders != null ) {
+      for( ServletHolder holder : holders ) {
+        try {
+          holder.getServlet();
+        } catch( Exception e ) {
+          log.failedToWarmUpTopologyContext( topology.getName(), context.getContextPath(), e );
         }
       }
-
-    } catch( Throwable e ) {
-      auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
-      log.failedToDeployTopology( topology.getName(), e );
     }
   }
 
+  private void drainContext( Topology topology, WebAppContext context ) {
+    final long timeout = config.getTopologyRedeployDrainTimeout();
+    final String contextPath = context.getContextPath();
+    log.swappedTopologyContext( topology.getName(), contextPath, timeout );
+    drainExecutor.execute( () -> {
+      StatisticsHandler stats = context.getChildHandlerByClass( StatisticsHandler.class );
+      try {
+        if( stats != null ) {
+          stats.shutdown().get( timeout, TimeUnit.MILLISECONDS );
+        }
+        log.drainedTopologyContext( topology.getName(), contextPath );
+      } catch( TimeoutException e ) {
+        log.drainTopologyContextTimedOut( topology.getName(), contextPath, stats.getRequestsActive() );
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      } catch( Exception e ) {
+        log.failedToUndeployTopology( topology.getName(), e );
+      }
+      try {
+        context.stop();
+      } catch( Exception e ) {
+        auditor.audit( Action.UNDEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
+        log.failedToUndeployTopology( topology.getName(), e );
+      }
+    } );
+  }
+
   private void processApplicationPathAliases(File warDir, Topology topology) {
     final Map<String, Collection<String>> applicationPathAliases = config.getApplicationPathAliases();
     applicationPathAliases.forEach((appName, aliases) -> {
@@ -966,21 +1031,83 @@ public class GatewayServer {
 
     log.deactivatingTopology( topology.getName() );
 
-    String topoName = topology.getName();
-    String topoPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topoName );
-    String topoPathSlash = topoPath + "/";
+    removeClusterServices( topology );
+    internalDeactivateContexts( topology, Collections.emptySet() );
+    activeTopologies.remove( topology.getName() );
+  }
 
+  private void removeClusterServices( Topology topology ) {
     ServiceRegistry sr = getGatewayServices().getService(ServiceType.SERVICE_REGISTRY_SERVICE);
     if (sr != null) {
-      sr.removeClusterServices( topoName );
+      sr.removeClusterServices( topology.getName() );
+    }
+  }
+
+  /*
+   * The URLs registered for the services of the active version of the topology, by service role.
+   */
+  private Map<String, List<String>> getRegisteredClusterServices( String topologyName ) {
+    Map<String, List<String>> registered = new HashMap<>();
+    ServiceRegistry sr = getGatewayServices().getService(ServiceType.SERVICE_REGISTRY_SERVICE);
+    Topology active = activeTopologies.get( topologyName );
+    if( sr != null && active != null ) {
+      for( org.apache.knox.gateway.topology.Service service : active.getServices() ) {
+        List<String> urls = sr.lookupServiceURLs( topologyName, service.getRole() );
+        if( urls != null ) {
+          registered.put( service.getRole(), urls );
+        }
+      }
+    }
+    return registered;
+  }
+
+  /*
+   * Replaces the services registered for the topology with the given ones.
+   */
+  private void replaceClusterServices( String topologyName, Map<String, List<String>> services ) {
+    ServiceRegistry sr = getGatewayServices().getService(ServiceType.SERVICE_REGISTRY_SERVICE);
+    if( sr != null ) {
+      sr.removeClusterServices( topologyName );
+      services.forEach( ( role, urls ) -> sr.registerService( sr.getRegistrationCode( topologyName ), topologyName, role, urls ) );
+    }
+  }
+
+  /*
+   * Deploying a topology registers its services over the ones of the active version;
+   * once the new version is active, the services it no longer has are unregistered.
+   */
+  private void removeStaleClusterServices( Topology topology, Map<String, List<String>> previous ) {
+    Set<String> roles = new HashSet<>();
+    for( org.apache.knox.gateway.topology.Service service : topology.getServices() ) {
+      roles.add( service.getRole() );
+    }
+    ServiceRegistry sr = getGatewayServices().getService(ServiceType.SERVICE_REGISTRY_SERVICE);
+    if( sr != null && !roles.containsAll( previous.keySet() ) ) {
+      Map<String, List<String>> current = new HashMap<>();
+      for( String role : roles ) {
+        List<String> urls = sr.lookupServiceURLs( topology.getName(), role );
+        if( urls != null ) {
+          current.put( role, urls );
+        }
+      }
+      replaceClusterServices( topology.getName(), current );
     }
+  }
+
+  /*
+   * Stops every deployed context of the topology whose path is not in the retained set.
+   */
+  private synchronized void internalDeactivateContexts( Topology topology, Set<String> retained ) {
+    String topoName = topology.getName();
+    String topoPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topoName );
+    String topoPathSlash = topoPath + "/";
 
     // Find all the deployed contexts we need to deactivate.
     if( deployments != null ) {
       List<WebAppContext> deactivate = new ArrayList<>();
       for( WebAppContext app : deployments.values() ) {
         String appPath = app.getContextPath();
-        if( appPath.equals( topoPath ) || appPath.startsWith( topoPathSlash ) ) {
+        if( ( appPath.equals( topoPath ) || appPath.startsWith( topoPathSlash ) ) && !retained.contains( appPath ) ) {
           deactivate.add( app );
         }
       }
@@ -1046,24 +1173,34 @@ public class GatewayServer {
           }
 
           log.deployingTopology( topology.getName(), topoDir.getAbsolutePath() );
-          internalDeactivateTopology( topology ); // KNOX-152
-
-          EnterpriseArchive ear = DeploymentFactory.createDeployment( config, topology );
-          if( !deployDir.exists() && !deployDir.mkdirs() ) {
-            throw new DeploymentException( "Failed to create topology deployment temporary directory: " + deployDir.getAbsolutePath() );
-          }
-          File tmp = ear.as( ExplodedExporter.class ).exportExploded( deployDir, topoDir.getName() + ".tmp" );
-          if( !tmp.renameTo( topoDir ) ) {
-            FileUtils.deleteQuietly( tmp );
-            throw new DeploymentException( "Failed to create topology deployment directory: " + topoDir.getAbsolutePath() );
+          // KNOX-152: the previous deployment and its services are kept until the new one is activated
+          Map<String, List<String>> previousServices = getRegisteredClusterServices( topology.getName() );
+          try {
+            EnterpriseArchive ear = DeploymentFactory.createDeployment( config, topology );
+            if( !deployDir.exists() && !deployDir.mkdirs() ) {
+              throw new DeploymentException( "Failed to create topology deployment temporary directory: " + deployDir.getAbsolutePath() );
+            }
+            File tmp = ear.as( ExplodedExporter.class ).exportExploded( deployDir, topoDir.getName() + ".tmp" );
+            if( !tmp.renameTo( topoDir ) ) {
+              FileUtils.deleteQuietly( tmp );
+              throw new DeploymentException( "Failed to create topology deployment directory: " + topoDir.getAbsolutePath() );
+            }
+            internalDeployApplications( topology, topoDir );
+            Set<String> activated = internalActivateTopology( topology, topoDir );
+            internalDeactivateContexts( topology, activated );
+          } catch( Throwable e ) {
+            replaceClusterServices( topology.getName(), previousServices );
+            FileUtils.deleteQuietly( topoDir );
+            throw e;
           }
-          internalDeployApplications( topology, topoDir );
-          internalActivateTopology( topology, topoDir );
+          removeStaleClusterServices( topology, previousServices );
+          activeTopologies.put( topology.getName(), topology );
           log.deployedTopology( topology.getName());
         } else {
           auditor.audit( Action.REDEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
           log.redeployingTopology( topology.getName(), topoDir.getAbsolutePath() );
           internalActivateTopology( topology, topoDir );
+          activeTopologies.put( topology.getName(), topology );
           log.redeployedTopology( topology.getName() );
         }
         cleanupTopologyDeployments( deployDir, topology );
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway;
+
+import org.apache.knox.gateway.deploy.DeploymentException;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.webapp.WebAppContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Activates the contexts of a topology deployment as a unit. While the gateway
+ * is running, all the new contexts are started before any of them replaces a
+ * deployed context; if one of them fails to start, the ones already started are
+ * stopped and the deployed contexts keep serving requests.
+ */
+class TopologyContextActivator<C extends ContextHandler> {
+
+  private final ContextHandlerCollection contexts;
+  private final Map<String, C> deployed;
+
+  /**
+   * @param contexts the handler collection the contexts are served from
+   * @param deployed the deployed contexts by context path, updated as the new contexts replace them
+   */
+  TopologyContextActivator(ContextHandlerCollection contexts, Map<String, C> deployed) {
+    this.contexts = contexts;
+    this.deployed = deployed;
+  }
+
+  /**
+   * @param newContexts the contexts of the new deployment
+   * @param warmUp initializes a started context before it becomes visible
+   * @return the contexts replaced by the new ones; they are still running so that their in-flight requests can be drained
+   * @throws Exception if one of the new contexts fails to start, in which case no deployed context has been replaced
+   */
+  List<C> activate(List<C> newContexts, Consumer<C> warmUp) throws Exception {
+    final List<C> replaced = new ArrayList<>();
+    if (!contexts.isRunning()) {
+      for (C newContext : newContexts) {
+        final C oldContext = deployed.put(newContext.getContextPath(), newContext);
+        if (oldContext != null) {
+          contexts.removeHandler(oldContext);
+        }
+        contexts.addHandler(newContext);
+      }
+      return replaced;
+    }
+
+    start(newContexts, warmUp);
+    for (C newContext : newContexts) {
+      final C oldContext = deployed.get(newContext.getContextPath());
+      swap(oldContext, newContext);
+      deployed.put(newContext.getContextPath(), newContext);
+      if (oldContext != null) {
+        replaced.add(oldContext);
+      }
+    }
+    return replaced;
+  }
+
+  private void start(List<C> newContexts, Consumer<C> warmUp) throws Exception {
+    final List<C> started = new ArrayList<>();
+    try {
+      for (C newContext : newContexts) {
+        final C oldContext = deployed.get(newContext.getContextPath());
+        if (oldContext != null) {
+          newContext.setVirtualHosts(oldContext.getVirtualHosts());
+        }
+        newContext.setServer(contexts.getServer());
+        started.add(newContext);
+        newContext.start();
+        if (!newContext.isAvailable()) {
+          throw unavailable(newContext);
+        }
+        warmUp.accept(newContext);
+      }
+    } catch (Exception e) {
+      for (C context : started) {
+        try {
+          context.stop();
+        } catch (Exception stopFailure) {
+          e.addSuppressed(stopFailure);
+        }
+      }
+      throw e;
+    }
+  }
+
+  private static Exception unavailable(ContextHandler context) {
+    if (context instanceof WebAppContext && ((WebAppContext) context).getUnavailableException() instanceof Exception) {
+      return (Exception) ((WebAppContext) context).getUnavailableException();
+    }
+    return new DeploymentException("Context " + context.getContextPath() + " is not available after start.");
+  }
+
+  /*
+   * Replaces the old context with the new one in a single handler update. The old
+   * context is unmanaged first so that removing it does not stop it while it still
+   * has requests in flight.
+   */
+  private void swap(C oldContext, C newContext) {
+    final List<Handler> handlers = new ArrayList<>();
+    if (contexts.getHandlers() != null) {
+      handlers.addAll(Arrays.asList(contexts.getHandlers()));
+    }
+    final int index = oldContext == null ? -1 : handlers.indexOf(oldContext);
+    if (index >= 0) {
+      contexts.unmanage(oldContext);
+      handlers.set(index, newContext);
+    } else {
+      handlers.add(newContext);
+    }
+    contexts.setHandlers(handlers.toArray(new Handler[0]));
+    contexts.manage(newContext);
+  }
+}
@@ -157,6 +157,14 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String WEBSOCKET_ASYNC_WRITE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.async.write.timeout";
   public static final String WEBSOCKET_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.idle.timeout";
   public static final String WEBSOCKET_MAX_WAIT_BUFFER_COUNT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.max.wait.buffer.count";
+  public static final String WEBSOCKET_CLIENT_MAX_THREADS = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.client.max.threads";
+  public static final String WEBSOCKET_MAX_PENDING_BYTES = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.max.pending.bytes";
+  public static final String WEBSOCKET_POOL_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.pool.size";
+  public static final String WEBSOCKET_POOL_QUEUE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.pool.queue.size";
+
+  public static final String STRUCTURED_AUDIT_FILE = GATEWAY_CONFIG_FILE_PREFIX + ".audit.structured.file";
+  public static final String STRUCTURED_AUDIT_AGGREGATE = GATEWAY_CONFIG_FILE_PREFIX + ".audit.structured.aggregate";
+  public static final String STRUCTURED_AUDIT_QUEUE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".audit.structured.queue.size";
 
 
   /* @since 2.0.0 WebShell config variables */
@@ -220,6 +228,12 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final int DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT = 60000;
   public static final int DEFAULT_WEBSOCKET_IDLE_TIMEOUT = 300000;
   public static final int DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT = 100;
+  public static final int DEFAULT_WEBSOCKET_CLIENT_MAX_THREADS = 32;
+  public static final long DEFAULT_WEBSOCKET_MAX_PENDING_BYTES = 1024L * 1024L;
+  public static final int DEFAULT_WEBSOCKET_POOL_SIZE = 10;
+  public static final int DEFAULT_WEBSOCKET_POOL_QUEUE_SIZE = 1024;
+  public static final boolean DEFAULT_STRUCTURED_AUDIT_AGGREGATE = false;
+  public static final int DEFAULT_STRUCTURED_AUDIT_QUEUE_SIZE = 8192;
 
   public static final boolean DEFAULT_WEBSHELL_FEATURE_ENABLED = false;
   public static final boolean DEFAULT_WEBSHELL_AUDIT_LOGGING_ENABLED = false;
@@ -299,10 +313,13 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_WRITE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.write.timeout.ms";
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_EXCLUDED_SERVICE_TYPES = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.excluded.service.types";
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_EXCLUDED_ROLE_TYPES = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.excluded.role.types";
+  private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_MAX_CONCURRENT_REQUESTS = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.max.concurrent.requests";
 
   private static final long CLOUDERA_MANAGER_SERVICE_DISCOVERY_CONNECT_TIMEOUT_DEFAULT = 10000;
   private static final long CLOUDERA_MANAGER_SERVICE_DISCOVERY_READ_TIMEOUT_DEFAULT = 10000;
   private static final long CLOUDERA_MANAGER_SERVICE_DISCOVERY_WRITE_TIMEOUT_DEFAULT = 10000;
+  private static final String SERVICE_DISCOVERY_RESULT_CACHE_TTL = GATEWAY_CONFIG_FILE_PREFIX + ".service.discovery.result.cache.ttl";
+  private static final long SERVICE_DISCOVERY_RESULT_CACHE_TTL_DEFAULT = 60;
 
   private static final String KNOX_TOKEN_EVICTION_INTERVAL = KNOX_TOKEN_PREFIX + ".eviction.interval";
   private static final String KNOX_TOKEN_EVICTION_GRACE_PERIOD = KNOX_TOKEN_PREFIX + ".eviction.grace.period";
@@ -357,6 +374,17 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String JWKS_OUTAGE_CACHE_TTL = GATEWAY_CONFIG_FILE_PREFIX + ".jwks.outage.cache.ttl";;
   private static final long JWKS_OUTAGE_CACHE_TTL_DEFAULT = TimeUnit.HOURS.toMillis(2);
 
+  private static final String TOPOLOGY_REDEPLOY_DRAIN_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".topology.redeploy.drain.timeout";
+  private static final long TOPOLOGY_REDEPLOY_DRAIN_TIMEOUT_DEFAULT = TimeUnit.SECONDS.toMillis(30);
+
+  private static final String TOPOLOGY_MONITOR_WATCH_SERVICE_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".topology.monitor.watch.service.enabled";
+  private static final String TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".topology.monitor.debounce.interval";
+  private static final long TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL_DEFAULT = 500L;
+
+  private static final String SIGNING_KEY_VERIFICATION_ALIASES = GATEWAY_CONFIG_FILE_PREFIX + ".signing.key.verification.aliases";
+  private static final String SIGNING_KEYSTORE_RELOAD_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".signing.keystore.reload.interval";
+  private static final long SIGNING_KEYSTORE_RELOAD_INTERVAL_DEFAULT = TimeUnit.MINUTES.toMillis(1);
+
   public GatewayConfigImpl() {
     init();
   }
@@ -1031,6 +1059,41 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getInt( WEBSOCKET_MAX_WAIT_BUFFER_COUNT, DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT);
   }
 
+  @Override
+  public int getWebsocketClientMaxThreads() {
+    return getInt( WEBSOCKET_CLIENT_MAX_THREADS, DEFAULT_WEBSOCKET_CLIENT_MAX_THREADS);
+  }
+
+  @Override
+  public long getWebsocketMaxPendingBytes() {
+    return getLong( WEBSOCKET_MAX_PENDING_BYTES, DEFAULT_WEBSOCKET_MAX_PENDING_BYTES);
+  }
+
+  @Override
+  public int getWebsocketPoolSize() {
+    return getInt( WEBSOCKET_POOL_SIZE, DEFAULT_WEBSOCKET_POOL_SIZE);
+  }
+
+  @Override
+  public int getWebsocketPoolQueueSize() {
+    return getInt( WEBSOCKET_POOL_QUEUE_SIZE, DEFAULT_WEBSOCKET_POOL_QUEUE_SIZE);
+  }
+
+  @Override
+  public String getStructuredAuditFile() {
+    return getTrimmed( STRUCTURED_AUDIT_FILE );
+  }
+
+  @Override
+  public boolean isStructuredAuditAggregated() {
+    return getBoolean( STRUCTURED_AUDIT_AGGREGATE, DEFAULT_STRUCTURED_AUDIT_AGGREGATE);
+  }
+
+  @Override
+  public int getStructuredAuditQueueSize() {
+    return getInt( STRUCTURED_AUDIT_QUEUE_SIZE, DEFAULT_STRUCTURED_AUDIT_QUEUE_SIZE);
+  }
+
   @Override
   public Map<String, Integer> getGatewayPortMappings() {
 
@@ -1316,6 +1379,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getTrimmedStringCollection(CLOUDERA_MANAGER_SERVICE_DISCOVERY_EXCLUDED_ROLE_TYPES);
   }
 
+  @Override
+  public int getClouderaManagerServiceDiscoveryMaxConcurrentRequests() {
+    return getInt(CLOUDERA_MANAGER_SERVICE_DISCOVERY_MAX_CONCURRENT_REQUESTS, DEFAULT_CM_SERVICE_DISCOVERY_MAX_CONCURRENT_REQUESTS);
+  }
+
   @Override
   public boolean isServerManagedTokenStateEnabled() {
     return getBoolean(TOKEN_STATE_SERVER_MANAGED, false);
@@ -1547,6 +1615,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getLong(CLOUDERA_MANAGER_SERVICE_DISCOVERY_WRITE_TIMEOUT, CLOUDERA_MANAGER_SERVICE_DISCOVERY_WRITE_TIMEOUT_DEFAULT);
   }
 
+  @Override
+  public long getServiceDiscoveryResultCacheTTL() {
+    return getLong(SERVICE_DISCOVERY_RESULT_CACHE_TTL, SERVICE_DISCOVERY_RESULT_CACHE_TTL_DEFAULT);
+  }
+
   private Map<String, Collection<String>> getPathAliases(String qualifier) {
     final String prefix = GATEWAY_CONFIG_FILE_PREFIX + qualifier + DEPLOYMENT_PATH_ALIAS;
     final Map<String, Collection<String>> pathAliases = new HashMap<>();
@@ -1598,4 +1671,34 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getLong(JWKS_OUTAGE_CACHE_TTL, JWKS_OUTAGE_CACHE_TTL_DEFAULT);
   }
 
+  @Override
+  public long getTopologyRedeployDrainTimeout() {
+    return getLong(TOPOLOGY_REDEPLOY_DRAIN_TIMEOUT, TOPOLOGY_REDEPLOY_DRAIN_TIMEOUT_DEFAULT);
+  }
+
+  @Override
+  public boolean isTopologyMonitorWatchServiceEnabled() {
+    return getBoolean(TOPOLOGY_MONITOR_WATCH_SERVICE_ENABLED, true);
+  }
+
+  @Override
+  public long getTopologyMonitorDebounceInterval() {
+    return getLong(TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL, TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL_DEFAULT);
+  }
+
+  @Override
+  public List<String> getSigningKeyVerificationAliases() {
+    final List<String> aliases = new ArrayList<>();
+    final String value = get(SIGNING_KEY_VERIFICATION_ALIASES);
+    if (value != null && !value.trim().isEmpty()) {
+      aliases.addAll(Arrays.asList(value.trim().split("\\s*,\\s*")));
+    }
+    return aliases;
+  }
+
+  @Override
+  public long getSigningKeystoreReloadInterval() {
+    return getLong(SIGNING_KEYSTORE_RELOAD_INTERVAL, SIGNING_KEYSTORE_RELOAD_INTERVAL_DEFAULT);
+  }
+
 }
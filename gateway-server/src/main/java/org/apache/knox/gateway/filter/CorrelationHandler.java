@@ -19,11 +19,14 @@ package org.apache.knox.gateway.filter;
 
 import java.io.IOException;
 import java.util.UUID;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.knox.gateway.audit.api.AuditServiceFactory;
 import org.apache.knox.gateway.audit.api.CorrelationService;
 import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationContext;
@@ -34,16 +37,21 @@ import org.eclipse.jetty.server.handler.HandlerWrapper;
 public class CorrelationHandler extends HandlerWrapper {
   public static final String REQUEST_ID_HEADER_NAME = "X-Request-Id";
   public static final String TRACE_ID = "trace_id";
+  private static final String REQUEST_ID_ATTRIBUTE = CorrelationHandler.class.getName() + ".requestId";
 
   @Override
   public void handle( String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response )
       throws IOException, ServletException {
     CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
-    /* If request contains X-Request-Id header use it else use random uuid as correlation id */
-    final String reqID =
-        StringUtils.isBlank(request.getHeader(REQUEST_ID_HEADER_NAME)) ?
-            UUID.randomUUID().toString() :
-            request.getHeader(REQUEST_ID_HEADER_NAME);
+    /* An async dispatch keeps the correlation id of the request; otherwise if request contains X-Request-Id header use it
+     * else use random uuid as correlation id */
+    String reqID = (String) request.getAttribute(REQUEST_ID_ATTRIBUTE);
+    if (reqID == null) {
+      reqID = StringUtils.isBlank(request.getHeader(REQUEST_ID_HEADER_NAME)) ?
+          UUID.randomUUID().toString() :
+          request.getHeader(REQUEST_ID_HEADER_NAME);
+      request.setAttribute(REQUEST_ID_ATTRIBUTE, reqID);
+    }
 
     correlationService.attachContext(
             new Log4jCorrelationContext(reqID,
@@ -52,6 +60,40 @@ public class CorrelationHandler extends HandlerWrapper {
       super.handle( target, baseRequest, request, response );
     } finally {
       correlationService.detachContext();
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new RequestCompletion(reqID));
+      } else {
+        AuditServiceFactory.getAuditService().completeRequest(reqID);
+      }
+    }
+  }
+
+  /*
+   * Completes the request once its asynchronous processing is over, on whichever thread that happens.
+   */
+  private static class RequestCompletion implements AsyncListener {
+    private final String requestId;
+
+    RequestCompletion(String requestId) {
+      this.requestId = requestId;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      AuditServiceFactory.getAuditService().completeRequest(requestId);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
     }
   }
 }
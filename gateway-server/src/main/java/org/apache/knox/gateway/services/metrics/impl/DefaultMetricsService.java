@@ -153,6 +153,11 @@ public class DefaultMetricsService implements MetricsService {
     return instrumentationProvider.getInstrumented(context);
   }
 
+  @Override
+  public MetricRegistry getRegistry() {
+    return config.isMetricsEnabled() ? metrics : null;
+  }
+
   public Map<Class<?>, InstrumentationProvider> getInstrumentationProviders() {
     return instrumentationProviders;
   }
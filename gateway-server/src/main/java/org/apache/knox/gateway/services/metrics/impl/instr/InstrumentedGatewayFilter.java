@@ -20,6 +20,10 @@ package org.apache.knox.gateway.services.metrics.impl.instr;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import org.apache.knox.gateway.GatewayFilter;
+import org.apache.knox.gateway.filter.AbstractGatewayFilter;
+import org.apache.knox.gateway.services.metrics.RequestMetrics;
+import org.apache.knox.gateway.services.metrics.SummingTimer;
+import org.apache.knox.gateway.topology.Topology;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -28,17 +32,24 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class InstrumentedGatewayFilter extends GatewayFilter {
 
+  private static final String TOPOLOGY_ATTRIBUTE = "org.apache.knox.gateway.topology";
+
   private GatewayFilter gatewayFilter;
 
   private MetricRegistry metricRegistry;
 
+  private final ConcurrentMap<String, ServiceMetrics> serviceMetrics = new ConcurrentHashMap<>();
+
   public InstrumentedGatewayFilter(GatewayFilter gatewayFilter, MetricRegistry metricRegistry) {
     this.gatewayFilter = gatewayFilter;
     this.metricRegistry = metricRegistry;
@@ -59,31 +70,79 @@ public class InstrumentedGatewayFilter extends GatewayFilter {
     gatewayFilter.addFilter(path, name, filter, params, resourceRole);
   }
 
+  @Override
+  public void addFilter(String path, String name, Filter filter, Map<String, String> params, String resourceRole, String filterRole) throws URISyntaxException {
+    gatewayFilter.addFilter(path, name, filter, params, resourceRole, filterRole);
+  }
+
   @Override
   public void addFilter(String path, String name, String clazz, Map<String, String> params, String resourceRole) throws URISyntaxException {
     gatewayFilter.addFilter(path, name, clazz, params, resourceRole);
   }
 
+  @Override
+  public void addFilter(String path, String name, String clazz, Map<String, String> params, String resourceRole, String filterRole) throws URISyntaxException {
+    gatewayFilter.addFilter(path, name, clazz, params, resourceRole, filterRole);
+  }
+
   @Override
   public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
     Timer.Context timerContext = this.timer(servletRequest).time();
+    RequestMetrics requestMetrics = attachRequestMetrics(servletRequest);
+    long started = System.nanoTime();
+    boolean failed = true;
     try {
       gatewayFilter.doFilter(servletRequest, servletResponse, filterChain);
+      failed = false;
     } finally {
       timerContext.stop();
+      updateServiceMetrics(servletRequest, servletResponse, System.nanoTime() - started, failed, requestMetrics);
     }
   }
 
   @Override
   public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) throws IOException, ServletException {
     Timer.Context timerContext = this.timer(servletRequest).time();
+    RequestMetrics requestMetrics = attachRequestMetrics(servletRequest);
+    long started = System.nanoTime();
+    boolean failed = true;
     try {
       gatewayFilter.doFilter(servletRequest, servletResponse);
+      failed = false;
     } finally {
       timerContext.stop();
+      updateServiceMetrics(servletRequest, servletResponse, System.nanoTime() - started, failed, requestMetrics);
     }
   }
 
+  private RequestMetrics attachRequestMetrics(ServletRequest request) {
+    RequestMetrics requestMetrics = new RequestMetrics();
+    request.setAttribute(RequestMetrics.REQUEST_METRICS_ATTRIBUTE, requestMetrics);
+    return requestMetrics;
+  }
+
+  /*
+   * A request counts as an error if it failed with an exception or a server error status.
+   * Requests not matching any service of the topology are not recorded.
+   */
+  private void updateServiceMetrics(ServletRequest request, ServletResponse response, long durationNanos,
+                                    boolean failed, RequestMetrics requestMetrics) {
+    Object role = request.getAttribute(AbstractGatewayFilter.TARGET_SERVICE_ROLE);
+    if (role == null) {
+      return;
+    }
+    boolean error = failed || (response instanceof HttpServletResponse
+        && ((HttpServletResponse) response).getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    serviceMetrics(request, role.toString()).update(durationNanos, error, requestMetrics);
+  }
+
+  private ServiceMetrics serviceMetrics(ServletRequest request, String role) {
+    Object topology = request.getServletContext().getAttribute(TOPOLOGY_ATTRIBUTE);
+    String topologyName = topology instanceof Topology ? ((Topology) topology).getName() : "unknown";
+    return serviceMetrics.computeIfAbsent(topologyName + '/' + role,
+        key -> new ServiceMetrics(metricRegistry, topologyName, role));
+  }
+
   private Timer timer(ServletRequest request) {
     StringBuilder builder = new StringBuilder();
     builder.append("client.")
@@ -95,6 +154,6 @@ public class InstrumentedGatewayFilter extends GatewayFilter {
       builder.append(httpServletRequest.getMethod().toLowerCase(Locale.ROOT));
       builder.append("-requests");
     }
-    return metricRegistry.timer(builder.toString());
+    return metricRegistry.timer(builder.toString(), SummingTimer::new);
   }
 }
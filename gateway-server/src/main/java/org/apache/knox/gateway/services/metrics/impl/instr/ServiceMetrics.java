@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.instr;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.services.metrics.RequestMetrics;
+import org.apache.knox.gateway.services.metrics.RequestPhase;
+import org.apache.knox.gateway.services.metrics.SummingTimer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate, errors and duration of the requests of a service of a topology, and
+ * the duration of each of their phases. The metrics are named
+ * {@code topology.<topology>.service.<role>.<metric>}.
+ * <p>
+ * The timers keep a bounded sample biased towards the last five minutes,
+ * whatever the request rate, and the total duration of the requests.
+ */
+class ServiceMetrics {
+  private final Timer requests;
+  private final Meter errors;
+  private final Timer[] phases = new Timer[RequestPhase.values().length];
+
+  ServiceMetrics(MetricRegistry metricRegistry, String topology, String role) {
+    final String prefix = MetricRegistry.name("topology", topology, "service", role);
+    requests = timer(metricRegistry, MetricRegistry.name(prefix, "requests"));
+    errors = metricRegistry.meter(MetricRegistry.name(prefix, "errors"));
+    for (RequestPhase phase : RequestPhase.values()) {
+      phases[phase.ordinal()] = timer(metricRegistry, MetricRegistry.name(prefix, phase.getMetricName()));
+    }
+  }
+
+  private static Timer timer(MetricRegistry metricRegistry, String name) {
+    return metricRegistry.timer(name, SummingTimer::new);
+  }
+
+  void update(long durationNanos, boolean failed, RequestMetrics requestMetrics) {
+    requests.update(durationNanos, TimeUnit.NANOSECONDS);
+    if (failed) {
+      errors.mark();
+    }
+    for (RequestPhase phase : RequestPhase.values()) {
+      final long phaseNanos = requestMetrics.getNanos(phase);
+      if (phaseNanos > 0) {
+        phases[phase.ordinal()].update(phaseNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
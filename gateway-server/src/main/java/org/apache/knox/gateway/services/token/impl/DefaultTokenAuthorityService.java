@@ -28,6 +28,8 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
@@ -37,6 +39,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JOSEObjectType;
 import com.nimbusds.jose.JWSAlgorithm;
@@ -45,15 +49,12 @@ import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.KeyLengthException;
 import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jose.crypto.MACVerifier;
-import com.nimbusds.jose.crypto.RSASSASigner;
-import com.nimbusds.jose.crypto.RSASSAVerifier;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
 import com.nimbusds.jose.proc.BadJOSEException;
 import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
 import com.nimbusds.jose.proc.JOSEObjectTypeVerifier;
 import com.nimbusds.jose.proc.JWSKeySelector;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
 import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
@@ -80,19 +81,30 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
   private static final GatewayResources RESOURCES = ResourcesFactory.get(GatewayResources.class);
   private static final TokenAuthorityServiceMessages LOG = MessagesFactory.get(TokenAuthorityServiceMessages.class);
 
-  // Only standard RSA and HMAC signature algorithms are accepted
+  // Only standard RSA, EC, EdDSA and HMAC signature algorithms are accepted
   // https://tools.ietf.org/html/rfc7518
-  private static final Set<String> SUPPORTED_PKI_SIG_ALGS = new HashSet<>(Arrays.asList("RS256", "RS384", "RS512", "PS256", "PS384", "PS512"));
+  // https://tools.ietf.org/html/rfc8037
+  private static final Set<String> SUPPORTED_PKI_SIG_ALGS = new HashSet<>(Arrays.asList("RS256", "RS384", "RS512", "PS256", "PS384", "PS512",
+      "ES256", "ES384", "ES512", "EdDSA"));
   private static final Set<String> SUPPORTED_HMAC_SIG_ALGS = new HashSet<>(Arrays.asList("HS256", "HS384", "HS512"));
+  private static final int MAX_JWK_SOURCES = 100;
+  private static final int MAX_VERIFICATION_KEYS = 100;
   private AliasService aliasService;
   private KeystoreService keystoreService;
   private GatewayConfig config;
 
   private char[] cachedSigningKeyPassphrase;
   private byte[] cachedSigningHmacSecret;
-  private RSAPrivateKey signingKey;
-
-  private Optional<String> cachedSigningKeyID = Optional.empty();
+  private JWSSigner hmacSigner;
+  private JWSVerifier hmacVerifier;
+  private SigningKeyRegistry signingKeys;
+  // verifiers of the keys passed by the callers, such as the one configured for a federation provider
+  private final Cache<PublicKey, JWSVerifier> verifiers = Caffeine.newBuilder()
+      .maximumSize(MAX_VERIFICATION_KEYS)
+      .build();
+  private final Cache<String, JWKSource<SecurityContext>> jwkSources = Caffeine.newBuilder()
+      .maximumSize(MAX_JWK_SOURCES)
+      .build();
 
   public void setKeystoreService(KeystoreService ks) {
     this.keystoreService = ks;
@@ -109,7 +121,7 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
       jwtAttributes.setKid(null);
       jwtAttributes.setJku(null);
     } else {
-      jwtAttributes.setKid(cachedSigningKeyID.isPresent() ? cachedSigningKeyID.get() : null);
+      jwtAttributes.setKid(getCachedSigningKeyID().orElse(null));
     }
     final JWT token = SUPPORTED_PKI_SIG_ALGS.contains(algorithm) || SUPPORTED_HMAC_SIG_ALGS.contains(algorithm)
         ? new JWTToken(jwtAttributes)
@@ -118,7 +130,7 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
       if (SUPPORTED_HMAC_SIG_ALGS.contains(algorithm)) {
         signTokenWithHMAC(token);
       } else {
-        signTokenWithRSA(token, jwtAttributes.getSigningKeystoreName(), jwtAttributes.getSigningKeystoreAlias(), jwtAttributes.getSigningKeystorePassphrase());
+        signTokenWithKey(token, jwtAttributes.getSigningKeystoreName(), jwtAttributes.getSigningKeystoreAlias(), jwtAttributes.getSigningKeystorePassphrase());
       }
       return token;
     } else {
@@ -126,31 +138,35 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
     }
   }
 
-  private void signTokenWithRSA(final JWT token, String signingKeystoreName, String signingKeystoreAlias, char[] signingKeystorePassphrase) throws TokenServiceException {
+  private void signTokenWithKey(final JWT token, String signingKeystoreName, String signingKeystoreAlias, char[] signingKeystorePassphrase) throws TokenServiceException {
     try {
-      final RSAPrivateKey key = getSigningKey(signingKeystoreName, signingKeystoreAlias, signingKeystorePassphrase);
-      // allowWeakKey to not break existing 1024 bit certificates
-      final JWSSigner signer = new RSASSASigner(key, true);
-      token.sign(signer);
+      final JWSSigner jwsSigner = getSigner(signingKeystoreName, signingKeystoreAlias, signingKeystorePassphrase);
+      final String algorithm = token.getSignatureAlgorithm().getName();
+      if (!JWSProviders.supports(jwsSigner, algorithm)) {
+        throw new TokenServiceException("Cannot issue token - algorithm " + algorithm + " does not match the signing key");
+      }
+      token.sign(jwsSigner);
     } catch (KeystoreServiceException e) {
       throw new TokenServiceException(e);
     }
   }
 
-  private RSAPrivateKey getSigningKey(final String signingKeystoreName, final String signingKeystoreAlias, final char[] signingKeystorePassphrase)
-      throws KeystoreServiceException, TokenServiceException {
+  private JWSSigner getSigner(final String signingKeystoreName, final String signingKeystoreAlias, final char[] signingKeystorePassphrase)
+      throws KeystoreServiceException {
 
     if (signingKeystorePassphrase != null) {
-      return (RSAPrivateKey) keystoreService.getSigningKey(signingKeystoreName, getSigningKeyAlias(signingKeystoreAlias), getSigningKeyPassphrase(signingKeystorePassphrase));
+      return signingKeys.getSigner(signingKeystoreName, getSigningKeyAlias(signingKeystoreAlias), getSigningKeyPassphrase(signingKeystorePassphrase));
     }
 
-    return signingKey;
+    return signingKeys.getSigner();
   }
 
   private void signTokenWithHMAC(final JWT token) throws TokenServiceException {
     try {
-      final JWSSigner signer = new MACSigner(getHmacSecret());
-      token.sign(signer);
+      if (hmacSigner == null) {
+        hmacSigner = new MACSigner(getHmacSecret());
+      }
+      token.sign(hmacSigner);
     } catch (KeyLengthException e) {
       throw new TokenServiceException(e);
     }
@@ -188,34 +204,46 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
 
   @Override
   public boolean verifyToken(JWT token) throws TokenServiceException {
-    return verifyToken(token, null);
+    return verifyToken(token, (PublicKey) null);
   }
 
   @Override
   public boolean verifyToken(JWT token, RSAPublicKey publicKey) throws TokenServiceException {
+    return verifyToken(token, (PublicKey) publicKey);
+  }
+
+  @Override
+  public boolean verifyToken(JWT token, PublicKey publicKey) throws TokenServiceException {
     final String signatureAlgorithm = token.getSignatureAlgorithm().getName();
-    return SUPPORTED_HMAC_SIG_ALGS.contains(signatureAlgorithm) ? verifyTokenUsingHMAC(token) : verifyTokenUsingRSA(token, publicKey);
+    return SUPPORTED_HMAC_SIG_ALGS.contains(signatureAlgorithm) ? verifyTokenUsingHMAC(token) : verifyTokenUsingKey(token, publicKey);
   }
 
-  private boolean verifyTokenUsingRSA(JWT token, RSAPublicKey publicKey) throws TokenServiceException {
+  private boolean verifyTokenUsingKey(JWT token, PublicKey publicKey) throws TokenServiceException {
     try {
-      PublicKey key = publicKey;
-      if (key == null) {
-        key = keystoreService.getSigningKeystore().getCertificate(getSigningKeyAlias()).getPublicKey();
-      }
-      final JWSVerifier verifier = new RSASSAVerifier((RSAPublicKey) key);
       // TODO: interrogate the token for issuer claim in order to determine the public key to use for verification
       // consider jwk for specifying the key too
-      return token.verify(verifier);
-    } catch (KeyStoreException | KeystoreServiceException e) {
+      final JWSVerifier jwsVerifier = publicKey == null ? signingKeys.getVerifier(token.getKeyId()) : getVerifier(publicKey);
+      return token.verify(jwsVerifier);
+    } catch (JOSEException e) {
       throw new TokenServiceException("Cannot verify token.", e);
     }
   }
 
+  private JWSVerifier getVerifier(PublicKey publicKey) throws JOSEException {
+    JWSVerifier verifier = verifiers.getIfPresent(publicKey);
+    if (verifier == null) {
+      verifier = JWSProviders.createVerifier(publicKey);
+      verifiers.put(publicKey, verifier);
+    }
+    return verifier;
+  }
+
   private boolean verifyTokenUsingHMAC(JWT token) throws TokenServiceException {
     try {
-      final JWSVerifier verifier = new MACVerifier(getHmacSecret());
-      return token.verify(verifier);
+      if (hmacVerifier == null) {
+        hmacVerifier = new MACVerifier(getHmacSecret());
+      }
+      return token.verify(hmacVerifier);
     } catch (JOSEException e) {
       throw new TokenServiceException("Cannot verify token.", e);
     }
@@ -228,16 +256,13 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
       if (algorithm != null && jwksurl != null) {
         JWSAlgorithm expectedJWSAlg = JWSAlgorithm.parse(algorithm);
         /* Retry one time in case of failure and cache JWKS in case there is outage, TTL is OUTAGE_TTL */
-        long outageTTL = config.getJwksOutageCacheTTL();
-        JWKSource<SecurityContext> keySource = JWKSourceBuilder.create(new URL(jwksurl))
-                .retrying(true)
-                .outageTolerant(outageTTL)
-                .build();
-        JWSKeySelector<SecurityContext> keySelector = new JWSVerificationKeySelector<>(expectedJWSAlg, keySource);
+        JWKSource<SecurityContext> keySource = getJWKSource(jwksurl);
+        JWSKeySelector<SecurityContext> keySelector = new JWSProviders.VerificationKeySelector(expectedJWSAlg, keySource);
 
         // Create a JWT processor for the access tokens
         ConfigurableJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
         jwtProcessor.setJWSKeySelector(keySelector);
+        jwtProcessor.setJWSVerifierFactory(new JWSProviders.VerifierFactory());
         JWTClaimsSetVerifier<SecurityContext> claimsVerifier = new DefaultJWTClaimsVerifier<>();
         jwtProcessor.setJWTClaimsSetVerifier(claimsVerifier);
         final JOSEObjectTypeVerifier<SecurityContext> objectTypeVerifier = new DefaultJOSEObjectTypeVerifier<>(allowedJwsTypes);
@@ -254,6 +279,22 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
     return verified;
   }
 
+  /*
+   * JWK sources are kept per URL so that their JWKS cache and outage cache are
+   * used across verifications
+   */
+  private JWKSource<SecurityContext> getJWKSource(String jwksurl) throws MalformedURLException {
+    JWKSource<SecurityContext> keySource = jwkSources.getIfPresent(jwksurl);
+    if (keySource == null) {
+      keySource = JWKSourceBuilder.create(new URL(jwksurl))
+          .retrying(true)
+          .outageTolerant(config.getJwksOutageCacheTTL())
+          .build();
+      jwkSources.put(jwksurl, keySource);
+    }
+    return keySource;
+  }
+
   @Override
   public boolean verifyToken(JWT token, Set<URI> jwksurls, String algorithm, Set<JOSEObjectType> allowedJwsTypes) throws TokenServiceException {
     boolean verified = false;
@@ -317,16 +358,11 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
       if (publicKey == null) {
         throw new ServiceLifecycleException(RESOURCES.publicSigningKeyNotFound(signingKeyAlias));
       }
-      else if (! (publicKey instanceof  RSAPublicKey)) {
+      else if (!isSupportedSigningKey(publicKey)) {
         throw new ServiceLifecycleException(RESOURCES.publicSigningKeyWrongType(signingKeyAlias));
       }
-      cachedSigningKeyID = Optional.of(TokenUtils.getThumbprint((RSAPublicKey) publicKey, "SHA-256"));
     } catch (KeyStoreException e) {
       throw new ServiceLifecycleException(RESOURCES.publicSigningKeyNotFound(signingKeyAlias), e);
-    } catch (final JOSEException e) {
-      /* in case there is an error getting KID log and move one */
-      LOG.errorGettingKid(e.toString());
-      cachedSigningKeyID = Optional.empty();
     }
 
     // Ensure that the private signing keys is available
@@ -335,13 +371,26 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
       if (key == null) {
         throw new ServiceLifecycleException(RESOURCES.privateSigningKeyNotFound(signingKeyAlias));
       }
-      else if (! (key instanceof RSAPrivateKey)) {
+      else if (!isSupportedSigningKey(key)) {
         throw new ServiceLifecycleException(RESOURCES.privateSigningKeyWrongType(signingKeyAlias));
       }
-      signingKey = (RSAPrivateKey) key;
     } catch (KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e) {
       throw new ServiceLifecycleException(RESOURCES.privateSigningKeyNotFound(signingKeyAlias), e);
     }
+
+    // Create the signers and verifiers of the signing keys once, they are reused for every token
+    try {
+      signingKeys = new SigningKeyRegistry(keystoreService, config, signingKeyAlias, cachedSigningKeyPassphrase);
+      signingKeys.load();
+    } catch (KeystoreServiceException e) {
+      throw new ServiceLifecycleException(RESOURCES.privateSigningKeyNotFound(signingKeyAlias), e);
+    }
+  }
+
+  private static boolean isSupportedSigningKey(Key key) {
+    return key instanceof RSAPublicKey || key instanceof RSAPrivateKey
+        || key instanceof ECPublicKey || key instanceof ECPrivateKey
+        || TokenUtils.isEdDSAKey(key);
   }
 
   @Override
@@ -349,6 +398,6 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
   }
 
   protected Optional<String> getCachedSigningKeyID() {
-    return cachedSigningKeyID;
+    return signingKeys == null ? Optional.empty() : Optional.ofNullable(signingKeys.getSigningKeyId());
   }
 }
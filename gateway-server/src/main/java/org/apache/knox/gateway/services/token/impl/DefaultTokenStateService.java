@@ -18,18 +18,26 @@ package org.apache.knox.gateway.services.token.impl;
 
 import java.lang.management.ManagementFactory;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import javax.management.InstanceAlreadyExistsException;
@@ -42,7 +50,11 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.ServiceLifecycleException;
 import org.apache.knox.gateway.services.security.token.KnoxToken;
+import org.apache.knox.gateway.services.security.token.TokenBatchResult;
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
+import org.apache.knox.gateway.services.security.token.TokenPage;
+import org.apache.knox.gateway.services.security.token.TokenQuery;
+import org.apache.knox.gateway.services.security.token.TokenRevocationListener;
 import org.apache.knox.gateway.services.security.token.TokenStateService;
 import org.apache.knox.gateway.services.security.token.TokenUtils;
 import org.apache.knox.gateway.services.security.token.UnknownTokenException;
@@ -64,13 +76,21 @@ public class DefaultTokenStateService implements TokenStateService {
 
   protected static final TokenStateServiceMessages log = MessagesFactory.get(TokenStateServiceMessages.class);
 
-  private final Map<String, Long> tokenExpirations = new ConcurrentHashMap<>();
+  // The state of every token, in a single record per token
+  private final Map<String, TokenRecord> tokens = new ConcurrentHashMap<>();
 
-  private final Map<String, Long> tokenIssueTimes = new ConcurrentHashMap<>();
+  // The tokens ordered by expiration, so that the eviction only visits the expired ones and the listings walk them in order
+  private final NavigableSet<IndexEntry> expiryIndex = new ConcurrentSkipListSet<>();
 
-  private final Map<String, Long> maxTokenLifetimes = new ConcurrentHashMap<>();
+  // The tokens ordered by issue time, the default order of the listings
+  private final NavigableSet<IndexEntry> issueTimeIndex = new ConcurrentSkipListSet<>();
 
-  private final Map<String, TokenMetadata> metadataMap = new ConcurrentHashMap<>();
+  // The tokens of each user, and the tokens created by each user on behalf of others
+  private final Map<String, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+
+  private final Map<String, Set<String>> tokensByCreator = new ConcurrentHashMap<>();
+
+  private final List<TokenRevocationListener> revocationListeners = new CopyOnWriteArrayList<>();
 
   // Token eviction interval (in seconds)
   private long tokenEvictionInterval;
@@ -146,7 +166,7 @@ public class DefaultTokenStateService implements TokenStateService {
                              long   maxLifetimeDuration) {
     validateTokenIdentifier(tokenId);
     setIssueTime(tokenId, issueTime);
-    tokenExpirations.put(tokenId, expiration);
+    updateTokenState(tokenId, state -> state.withExpiration(expiration));
     setMaxLifetime(tokenId, issueTime, maxLifetimeDuration);
     log.addedToken(Tokens.getTokenIDDisplayText(tokenId), getTimestampDisplay(expiration));
     if (tokenStateServiceStatistics != null) {
@@ -155,17 +175,17 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   protected void setIssueTime(String tokenId, long issueTime) {
-    tokenIssueTimes.put(tokenId, issueTime);
+    updateTokenState(tokenId, state -> state.withIssueTime(issueTime));
   }
 
   @Override
   public long getTokenIssueTime(String tokenId) throws UnknownTokenException {
     validateToken(tokenId);
-    final Long issueTime = tokenIssueTimes.get(tokenId);
-    if (issueTime == null) {
+    final TokenRecord state = tokens.get(tokenId);
+    if (state == null || !state.hasIssueTime()) {
       throw new UnknownTokenException(tokenId);
     }
-    return issueTime.longValue();
+    return state.getIssueTime();
   }
 
   @Override
@@ -202,11 +222,11 @@ public class DefaultTokenStateService implements TokenStateService {
       validateToken(tokenId);
     }
 
-    final Long expiration = tokenExpirations.get(tokenId);
-    if (expiration == null) {
+    final TokenRecord state = tokens.get(tokenId);
+    if (state == null || !state.hasExpiration()) {
       throw new UnknownTokenException(tokenId);
     }
-    return expiration.longValue();
+    return state.getExpiration();
   }
 
   @Override
@@ -262,7 +282,42 @@ public class DefaultTokenStateService implements TokenStateService {
   public void revokeToken(final String tokenId) throws UnknownTokenException {
     /* no reason to keep revoked tokens around */
     removeToken(tokenId);
+    tokenRevoked(tokenId);
+  }
+
+  /*
+   * The state of all the known tokens is removed at once, so that the backends persist the removal in a single write
+   */
+  @Override
+  public TokenBatchResult<Void> revokeTokens(final Collection<String> tokenIds) {
+    final TokenBatchResult<Void> result = new TokenBatchResult<>();
+    final Set<String> knownTokenIds = new LinkedHashSet<>();
+    for (final String tokenId : tokenIds) {
+      try {
+        validateToken(tokenId);
+        knownTokenIds.add(tokenId);
+      } catch (UnknownTokenException | IllegalArgumentException e) {
+        result.failed(tokenId, e);
+      }
+    }
+    if (!knownTokenIds.isEmpty()) {
+      removeTokens(knownTokenIds);
+      for (final String tokenId : knownTokenIds) {
+        tokenRevoked(tokenId);
+        result.succeeded(tokenId, null);
+      }
+    }
+    return result;
+  }
+
+  protected void tokenRevoked(final String tokenId) {
     log.revokedToken(Tokens.getTokenIDDisplayText(tokenId));
+    revocationListeners.forEach(listener -> listener.onTokenRevoked(tokenId));
+  }
+
+  @Override
+  public void addTokenRevocationListener(final TokenRevocationListener listener) {
+    revocationListeners.add(listener);
   }
 
   @Override
@@ -271,7 +326,7 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   protected void setMaxLifetime(final String token, long maxLifeTime) {
-    maxTokenLifetimes.put(token, maxLifeTime);
+    updateTokenState(token, state -> state.withMaxLifetime(maxLifeTime));
   }
 
   protected void setMaxLifetime(final String token, long issueTime, long maxLifetimeDuration) {
@@ -284,11 +339,12 @@ public class DefaultTokenStateService implements TokenStateService {
    * @return false, if the service has previously stored the specified token; Otherwise, true.
    */
   protected boolean isUnknown(final String token) {
-    return !tokenExpirations.containsKey(token);
+    final TokenRecord state = tokens.get(token);
+    return state == null || !state.hasExpiration();
   }
 
   protected void updateExpiration(final String tokenId, long expiration) {
-    tokenExpirations.put(tokenId, expiration);
+    updateTokenState(tokenId, state -> state.withExpiration(expiration));
   }
 
   protected void removeToken(final String tokenId) throws UnknownTokenException {
@@ -306,21 +362,87 @@ public class DefaultTokenStateService implements TokenStateService {
   }
 
   private void removeTokenState(final Set<String> tokenIds) {
-    tokenIssueTimes.keySet().removeAll(tokenIds);
-    tokenExpirations.keySet().removeAll(tokenIds);
-    maxTokenLifetimes.keySet().removeAll(tokenIds);
-    metadataMap.keySet().removeAll(tokenIds);
+    for (final String tokenId : tokenIds) {
+      tokens.computeIfPresent(tokenId, (id, state) -> {
+        updateIndexes(id, state, null);
+        return null;
+      });
+    }
     log.removedTokenState(String.join(", ", Tokens.getDisplayableTokenIDsText(tokenIds)));
   }
 
   protected boolean hasRemainingRenewals(final String tokenId, long renewInterval) {
-    final long maximumTokenLifetime = getMaxLifetime(tokenId);
+    return isWithinMaxLifetime(getMaxLifetime(tokenId), renewInterval);
+  }
+
+  protected static boolean isWithinMaxLifetime(long maximumTokenLifetime, long renewInterval) {
     // If the current time + buffer + the renewal interval is less than the max lifetime for the token?
     return maximumTokenLifetime < 0 ? true : ((System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30) + renewInterval) < maximumTokenLifetime);
   }
 
   protected long getMaxLifetime(final String tokenId) {
-    return maxTokenLifetimes.getOrDefault(tokenId, 0L);
+    final TokenRecord state = tokens.get(tokenId);
+    return state == null || !state.hasMaxLifetime() ? 0L : state.getMaxLifetime();
+  }
+
+  /*
+   * Token state updates replace the record of the token, and maintain the indexes, atomically
+   */
+  private void updateTokenState(final String tokenId, final UnaryOperator<TokenRecord> update) {
+    tokens.compute(tokenId, (id, state) -> {
+      final TokenRecord updated = update.apply(state == null ? TokenRecord.EMPTY : state);
+      updateIndexes(id, state, updated);
+      return updated;
+    });
+  }
+
+  private void updateIndexes(final String tokenId, final TokenRecord previous, final TokenRecord updated) {
+    reindex(expiryIndex,
+        previous == null || !previous.hasExpiration() ? null : new IndexEntry(previous.getExpiration(), tokenId),
+        updated == null || !updated.hasExpiration() ? null : new IndexEntry(updated.getExpiration(), tokenId));
+    reindex(issueTimeIndex,
+        previous == null || !previous.hasIssueTime() ? null : new IndexEntry(previous.getIssueTime(), tokenId),
+        updated == null || !updated.hasIssueTime() ? null : new IndexEntry(updated.getIssueTime(), tokenId));
+    final TokenMetadata previousMetadata = previous == null ? null : previous.getMetadata();
+    final TokenMetadata updatedMetadata = updated == null ? null : updated.getMetadata();
+    reindex(tokensByUser, tokenId,
+        previousMetadata == null ? null : previousMetadata.getUserName(),
+        updatedMetadata == null ? null : updatedMetadata.getUserName());
+    reindex(tokensByCreator, tokenId,
+        previousMetadata == null ? null : previousMetadata.getCreatedBy(),
+        updatedMetadata == null ? null : updatedMetadata.getCreatedBy());
+  }
+
+  private static void reindex(final NavigableSet<IndexEntry> index, final IndexEntry previousEntry, final IndexEntry updatedEntry) {
+    if (Objects.equals(previousEntry, updatedEntry)) {
+      return;
+    }
+    if (previousEntry != null) {
+      index.remove(previousEntry);
+    }
+    if (updatedEntry != null) {
+      index.add(updatedEntry);
+    }
+  }
+
+  private static void reindex(final Map<String, Set<String>> index, final String tokenId,
+                              final String previousKey, final String updatedKey) {
+    if (Objects.equals(previousKey, updatedKey)) {
+      return;
+    }
+    if (previousKey != null) {
+      index.computeIfPresent(previousKey, (key, tokenIds) -> {
+        tokenIds.remove(tokenId);
+        return tokenIds.isEmpty() ? null : tokenIds;
+      });
+    }
+    if (updatedKey != null) {
+      index.compute(updatedKey, (key, tokenIds) -> {
+        final Set<String> indexed = tokenIds == null ? ConcurrentHashMap.newKeySet() : tokenIds;
+        indexed.add(tokenId);
+        return indexed;
+      });
+    }
   }
 
   private void validateTokenIdentifier(final String tokenId) {
@@ -372,7 +494,11 @@ public class DefaultTokenStateService implements TokenStateService {
 
   protected Set<String> getExpiredTokens() {
     final Set<String> expiredTokens = new HashSet<>();
-    for (final String tokenId : getTokenIds()) {
+    // Only the tokens which expired more than the grace period ago are candidates for eviction
+    final long evictableExpiration = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(tokenEvictionGracePeriod);
+    // Tokens which never expire are indexed with a non-positive expiration
+    for (final IndexEntry expiry : expiryIndex.subSet(new IndexEntry(1L, ""), true, new IndexEntry(evictableExpiration + 1, ""), false)) {
+      final String tokenId = expiry.tokenId;
       try {
         if (needsEviction(tokenId)) {
           log.evictToken(Tokens.getTokenIDDisplayText(tokenId));
@@ -406,20 +532,50 @@ public class DefaultTokenStateService implements TokenStateService {
    * @return
    */
   protected List<String> getTokenIds() {
-    return tokenExpirations.keySet().stream().collect(Collectors.toList());
+    return tokens.entrySet().stream()
+        .filter(entry -> entry.getValue().hasExpiration())
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
   }
 
   @Override
   public void addMetadata(String tokenId, TokenMetadata metadata) {
-    metadataMap.put(tokenId, metadata);
+    if (metadata == null) {
+      throw new IllegalArgumentException("Token metadata cannot be null.");
+    }
+    updateTokenState(tokenId, state -> state.withMetadata(metadata));
   }
 
   @Override
   public TokenMetadata getTokenMetadata(String tokenId) throws UnknownTokenException {
-    if (!metadataMap.containsKey(tokenId)) {
+    final TokenRecord state = tokens.get(tokenId);
+    if (state == null || state.getMetadata() == null) {
       throw new UnknownTokenException(tokenId);
     }
-    return metadataMap.get(tokenId);
+    return state.getMetadata();
+  }
+
+  @Override
+  public Map<String, KnoxToken> getTokensById(Collection<String> tokenIds) {
+    final Map<String, KnoxToken> knoxTokens = new LinkedHashMap<>();
+    for (final String tokenId : tokenIds) {
+      if (tokenId == null || tokenId.isEmpty() || isUnknown(tokenId)) {
+        continue;
+      }
+      TokenMetadata metadata = null;
+      try {
+        metadata = getTokenMetadata(tokenId);
+      } catch (UnknownTokenException e) {
+        // the token is known, but it has no metadata
+      }
+      try {
+        knoxTokens.put(tokenId, new KnoxToken(tokenId, getTokenIssueTime(tokenId), getTokenExpiration(tokenId, false),
+            getMaxLifetime(tokenId), metadata == null ? new TokenMetadata() : metadata));
+      } catch (UnknownTokenException e) {
+        // the token has been removed in the meantime
+      }
+    }
+    return knoxTokens;
   }
 
   @Override
@@ -437,28 +593,201 @@ public class DefaultTokenStateService implements TokenStateService {
     return fetchTokens(createdBy, true);
   }
 
+  @Override
+  public TokenPage listTokens(TokenQuery query) {
+    final Collection<String> tokenIds;
+    if (query.getUserName() != null) {
+      tokenIds = getIndexedTokenIds(tokensByUser, query.getUserName());
+    } else if (query.getCreatedBy() != null) {
+      tokenIds = getIndexedTokenIds(tokensByCreator, query.getCreatedBy());
+    } else if (query.getUserNameOrCreatedBy() != null) {
+      tokenIds = new HashSet<>(getIndexedTokenIds(tokensByUser, query.getUserNameOrCreatedBy()));
+      tokenIds.addAll(getIndexedTokenIds(tokensByCreator, query.getUserNameOrCreatedBy()));
+    } else {
+      return listIndexedTokens(query);
+    }
+    // only the records matching the query are turned into candidates, the query then keeps the ones of the page
+    final List<KnoxToken> candidates = new ArrayList<>();
+    for (final String tokenId : tokenIds) {
+      final KnoxToken token = toListedToken(query, tokenId, tokens.get(tokenId));
+      if (token != null && query.isAfterCursor(query.getSortValue(token), tokenId)) {
+        candidates.add(token);
+      }
+    }
+    return query.select(candidates);
+  }
+
+  /*
+   * Walks the index of the sort field from the cursor, so that a page only visits the tokens up to its
+   * last one, and the tokens not matching the query in between
+   */
+  private TokenPage listIndexedTokens(TokenQuery query) {
+    final NavigableSet<IndexEntry> index = query.getSortField() == TokenQuery.SortField.EXPIRATION ? expiryIndex : issueTimeIndex;
+    NavigableSet<IndexEntry> entries = index;
+    if (query.getCursorSortValue() != null) {
+      final IndexEntry cursor = new IndexEntry(query.getCursorSortValue(), query.getCursorTokenId());
+      entries = query.isDescending() ? index.headSet(cursor, false) : index.tailSet(cursor, false);
+    }
+    if (query.isDescending()) {
+      entries = entries.descendingSet();
+    }
+    final List<KnoxToken> ordered = new ArrayList<>();
+    for (final IndexEntry entry : entries) {
+      final KnoxToken token = toListedToken(query, entry.tokenId, tokens.get(entry.tokenId));
+      // an entry replaced by a concurrent update is skipped, the token is listed at its new position
+      if (token != null && query.getSortValue(token) == entry.sortValue) {
+        ordered.add(token);
+        if (ordered.size() > query.getPageSize()) {
+          break;
+        }
+      }
+    }
+    return query.toPage(ordered);
+  }
+
+  private static KnoxToken toListedToken(TokenQuery query, String tokenId, TokenRecord state) {
+    if (state != null && state.getMetadata() != null && state.hasIssueTime() && state.hasExpiration()
+        && query.matches(state.getExpiration(), state.getMetadata())) {
+      return new KnoxToken(tokenId, state.getIssueTime(), state.getExpiration(),
+          state.hasMaxLifetime() ? state.getMaxLifetime() : 0L, state.getMetadata());
+    }
+    return null;
+  }
+
+  private static Set<String> getIndexedTokenIds(final Map<String, Set<String>> index, final String userName) {
+    final Set<String> tokenIds = index.get(userName);
+    return tokenIds == null ? Collections.emptySet() : tokenIds;
+  }
+
   private Collection<KnoxToken> fetchTokens(String userName, boolean createdBy) {
-    final Collection<KnoxToken> tokens = new TreeSet<>();
-    final Predicate<Map.Entry<String, TokenMetadata>> filterPredicate;
+    final Collection<KnoxToken> knoxTokens = new TreeSet<>();
+    final Collection<String> tokenIds;
+    final Predicate<TokenMetadata> filterPredicate;
     if (userName == null) {
-      filterPredicate = entry -> true;
+      tokenIds = tokens.keySet();
+      filterPredicate = metadata -> true;
     } else {
+      // Only visit the tokens of the user, as recorded in the index
+      tokenIds = getIndexedTokenIds(createdBy ? tokensByCreator : tokensByUser, userName);
       if (createdBy) {
-        filterPredicate = entry -> userName.equals(entry.getValue().getCreatedBy());
+        filterPredicate = metadata -> userName.equals(metadata.getCreatedBy());
       } else {
-        filterPredicate = entry -> userName.equals(entry.getValue().getUserName());
+        filterPredicate = metadata -> userName.equals(metadata.getUserName());
       }
     }
-    metadataMap.entrySet().stream().filter(filterPredicate).forEach(metadata -> {
-      String tokenId = metadata.getKey();
-      try {
-        tokens.add(new KnoxToken(tokenId, getTokenIssueTime(tokenId), getTokenExpiration(tokenId), getMaxLifetime(tokenId), metadata.getValue()));
-      } catch (UnknownTokenException e) {
-        // NOP: since this is coming from memory the only reason an UTE is thrown that the token got removed/revoked.
-        // In that case we would not want to return it anyway
+    for (final String tokenId : tokenIds) {
+      final TokenRecord state = tokens.get(tokenId);
+      final TokenMetadata metadata = state == null ? null : state.getMetadata();
+      if (metadata != null && filterPredicate.test(metadata)) {
+        try {
+          knoxTokens.add(new KnoxToken(tokenId, getTokenIssueTime(tokenId), getTokenExpiration(tokenId), getMaxLifetime(tokenId), metadata));
+        } catch (UnknownTokenException e) {
+          // NOP: since this is coming from memory the only reason an UTE is thrown that the token got removed/revoked.
+          // In that case we would not want to return it anyway
+        }
       }
-    });
-    return tokens;
+    }
+    return knoxTokens;
+  }
+
+  /**
+   * The state of a token. Records are immutable; every update of the state of a token replaces its record.
+   */
+  static final class TokenRecord {
+    private static final long UNSET = Long.MIN_VALUE;
+
+    static final TokenRecord EMPTY = new TokenRecord(UNSET, UNSET, UNSET, null);
+
+    private final long issueTime;
+    private final long expiration;
+    private final long maxLifetime;
+    private final TokenMetadata metadata;
+
+    private TokenRecord(long issueTime, long expiration, long maxLifetime, TokenMetadata metadata) {
+      this.issueTime = issueTime;
+      this.expiration = expiration;
+      this.maxLifetime = maxLifetime;
+      this.metadata = metadata;
+    }
+
+    boolean hasIssueTime() {
+      return issueTime != UNSET;
+    }
+
+    long getIssueTime() {
+      return issueTime;
+    }
+
+    boolean hasExpiration() {
+      return expiration != UNSET;
+    }
+
+    long getExpiration() {
+      return expiration;
+    }
+
+    boolean hasMaxLifetime() {
+      return maxLifetime != UNSET;
+    }
+
+    long getMaxLifetime() {
+      return maxLifetime;
+    }
+
+    TokenMetadata getMetadata() {
+      return metadata;
+    }
+
+    TokenRecord withIssueTime(long issueTime) {
+      return new TokenRecord(issueTime, expiration, maxLifetime, metadata);
+    }
+
+    TokenRecord withExpiration(long expiration) {
+      return new TokenRecord(issueTime, expiration, maxLifetime, metadata);
+    }
+
+    TokenRecord withMaxLifetime(long maxLifetime) {
+      return new TokenRecord(issueTime, expiration, maxLifetime, metadata);
+    }
+
+    TokenRecord withMetadata(TokenMetadata metadata) {
+      return new TokenRecord(issueTime, expiration, maxLifetime, metadata);
+    }
+  }
+
+  /**
+   * An entry of an ordered index, ordered by sort value then token identifier.
+   */
+  private static final class IndexEntry implements Comparable<IndexEntry> {
+    private final long sortValue;
+    private final String tokenId;
+
+    IndexEntry(long sortValue, String tokenId) {
+      this.sortValue = sortValue;
+      this.tokenId = tokenId;
+    }
+
+    @Override
+    public int compareTo(IndexEntry other) {
+      final int result = Long.compare(sortValue, other.sortValue);
+      return result != 0 ? result : tokenId.compareTo(other.tokenId);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof IndexEntry)) {
+        return false;
+      }
+      return sortValue == ((IndexEntry) other).sortValue && tokenId.equals(((IndexEntry) other).tokenId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sortValue, tokenId);
+    }
   }
 
 }
@@ -20,6 +20,7 @@ package org.apache.knox.gateway.services.token.impl;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -33,8 +34,11 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.services.ServiceLifecycleException;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.token.KnoxToken;
+import org.apache.knox.gateway.services.security.token.TokenBatchResult;
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
 import org.apache.knox.gateway.services.security.token.TokenMigrationTarget;
+import org.apache.knox.gateway.services.security.token.TokenPage;
+import org.apache.knox.gateway.services.security.token.TokenQuery;
 import org.apache.knox.gateway.services.security.token.TokenStateServiceException;
 import org.apache.knox.gateway.services.security.token.UnknownTokenException;
 import org.apache.knox.gateway.util.JDBCUtils;
@@ -356,4 +360,114 @@ public class JDBCTokenStateService extends AbstractPersistentTokenStateService i
       return Collections.emptyList();
     }
   }
+
+  @Override
+  public Map<String, KnoxToken> getTokensById(Collection<String> tokenIds) {
+    try {
+      return tokenDatabase.getTokens(tokenIds);
+    } catch (SQLException e) {
+      log.errorFetchingTokensFromDatabase(tokenIds.size(), e.getMessage(), e);
+      throw new TokenStateServiceException("An error occurred while fetching " + tokenIds.size() + " tokens from the database", e);
+    }
+  }
+
+  @Override
+  public TokenBatchResult<Void> revokeTokens(Collection<String> tokenIds) {
+    final TokenBatchResult<Void> result = new TokenBatchResult<>();
+    try {
+      final Set<String> removedTokenIds = tokenDatabase.removeTokens(tokenIds);
+      log.removedRevokedTokensFromDatabase(removedTokenIds.size());
+      super.removeTokens(removedTokenIds);
+      for (String tokenId : tokenIds) {
+        if (removedTokenIds.contains(tokenId)) {
+          tokenRevoked(tokenId);
+          result.succeeded(tokenId, null);
+        } else {
+          result.failed(tokenId, new UnknownTokenException(tokenId));
+        }
+      }
+    } catch (SQLException e) {
+      log.errorRemovingRevokedTokensFromDatabase(tokenIds.size(), e.getMessage(), e);
+      tokenIds.forEach(tokenId -> result.failed(tokenId,
+          new TokenStateServiceException("An error occurred while removing " + Tokens.getTokenIDDisplayText(tokenId) + " from the database", e)));
+    }
+    return result;
+  }
+
+  /*
+   * The tokens are looked up with a single query, and all the renewable ones are renewed with a single batch
+   */
+  @Override
+  public TokenBatchResult<Long> renewTokens(Collection<String> tokenIds, long renewInterval) {
+    final TokenBatchResult<Long> result = new TokenBatchResult<>();
+    try {
+      final Map<String, KnoxToken> tokens = tokenDatabase.getTokens(tokenIds);
+      final long expiration = System.currentTimeMillis() + renewInterval;
+      final Map<String, Long> expirations = new LinkedHashMap<>();
+      for (String tokenId : tokenIds) {
+        final KnoxToken token = tokens.get(tokenId);
+        if (token == null) {
+          result.failed(tokenId, new UnknownTokenException(tokenId));
+        } else if (isWithinMaxLifetime(token.getMaxLifetimeLong(), renewInterval)) {
+          expirations.put(tokenId, expiration);
+        } else {
+          log.renewalLimitExceeded(Tokens.getTokenIDDisplayText(tokenId));
+          result.failed(tokenId, new IllegalArgumentException("The renewal limit for the token has been exceeded"));
+        }
+      }
+      if (!expirations.isEmpty()) {
+        tokenDatabase.updateExpirations(expirations);
+        expirations.forEach((tokenId, updatedExpiration) -> {
+          log.updatedExpirationInDatabase(Tokens.getTokenIDDisplayText(tokenId), updatedExpiration);
+          super.updateExpiration(tokenId, updatedExpiration);
+          if (tokenStateServiceStatistics != null) {
+            tokenStateServiceStatistics.renewToken();
+          }
+          result.succeeded(tokenId, updatedExpiration);
+        });
+      }
+    } catch (SQLException e) {
+      log.errorRenewingTokensInDatabase(tokenIds.size(), e.getMessage(), e);
+      tokenIds.stream().filter(tokenId -> !result.isDone(tokenId)).forEach(tokenId -> result.failed(tokenId,
+          new TokenStateServiceException("An error occurred while updating expiration for " + Tokens.getTokenIDDisplayText(tokenId) + " in the database", e)));
+    }
+    return result;
+  }
+
+  @Override
+  public TokenBatchResult<Void> addMetadata(Map<String, TokenMetadata> metadata) {
+    final TokenBatchResult<Void> result = new TokenBatchResult<>();
+    final Map<String, Map<String, String>> metadataMaps = new LinkedHashMap<>();
+    metadata.forEach((tokenId, tokenMetadata) -> metadataMaps.put(tokenId, tokenMetadata.getMetadataMap()));
+    addMetadataLock.lock();
+    try {
+      final Set<String> updatedTokenIds = tokenDatabase.saveMetadata(metadataMaps);
+      metadata.forEach((tokenId, tokenMetadata) -> {
+        if (updatedTokenIds.contains(tokenId)) {
+          log.updatedMetadataInDatabase(Tokens.getTokenIDDisplayText(tokenId));
+          super.addMetadata(tokenId, tokenMetadata);
+          result.succeeded(tokenId, null);
+        } else {
+          result.failed(tokenId, new UnknownTokenException(tokenId));
+        }
+      });
+    } catch (SQLException e) {
+      log.errorUpdatingTokensMetadataInDatabase(metadata.size(), e.getMessage(), e);
+      metadata.keySet().forEach(tokenId -> result.failed(tokenId,
+          new TokenStateServiceException("An error occurred while updating metadata for " + Tokens.getTokenIDDisplayText(tokenId) + " in the database", e)));
+    } finally {
+      addMetadataLock.unlock();
+    }
+    return result;
+  }
+
+  @Override
+  public TokenPage listTokens(TokenQuery query) {
+    try {
+      return tokenDatabase.listTokens(query);
+    } catch (SQLException e) {
+      log.errorListingTokensFromDatabase(e.getMessage(), e);
+      return new TokenPage(Collections.emptyList(), null);
+    }
+  }
 }
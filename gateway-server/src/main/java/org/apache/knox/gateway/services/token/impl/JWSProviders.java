@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.token.impl;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSProvider;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import org.apache.knox.gateway.services.security.token.TokenUtils;
+
+/**
+ * Creates the JWS signers and verifiers of the RSA, EC and EdDSA keys used by
+ * the token authority.
+ * <p>
+ * Nimbus only signs with EdDSA keys through Tink, which is not shipped with
+ * Knox; Ed25519 signatures are computed with the JCA instead, which supports
+ * them as of Java 15.
+ */
+final class JWSProviders {
+  static final String ED25519 = "Ed25519";
+
+  private JWSProviders() {
+  }
+
+  /**
+   * @return a signer of the key; signers are thread-safe and meant to be reused
+   * @throws JOSEException if the key type is not supported
+   */
+  static JWSSigner createSigner(final PrivateKey key) throws JOSEException {
+    if (key instanceof RSAPrivateKey) {
+      // allowWeakKey to not break existing 1024 bit certificates
+      return new RSASSASigner(key, true);
+    }
+    if (key instanceof ECPrivateKey) {
+      return new ECDSASigner((ECPrivateKey) key);
+    }
+    if (TokenUtils.isEdDSAKey(key)) {
+      return new EdDSASigner(key);
+    }
+    throw new JOSEException("Unsupported signing key type: " + (key == null ? null : key.getAlgorithm()));
+  }
+
+  /**
+   * @return a verifier of the key; verifiers are thread-safe and meant to be reused
+   * @throws JOSEException if the key type is not supported
+   */
+  static JWSVerifier createVerifier(final PublicKey key) throws JOSEException {
+    if (key instanceof RSAPublicKey) {
+      return new RSASSAVerifier((RSAPublicKey) key);
+    }
+    if (key instanceof ECPublicKey) {
+      return new ECDSAVerifier((ECPublicKey) key);
+    }
+    if (TokenUtils.isEdDSAKey(key)) {
+      return new EdDSAVerifier(key);
+    }
+    throw new JOSEException("Unsupported verification key type: " + (key == null ? null : key.getAlgorithm()));
+  }
+
+  /**
+   * @return true if the provider signs or verifies with the given algorithm;
+   *         an EC key, for instance, only supports the algorithm of its curve
+   */
+  static boolean supports(final JWSProvider provider, final String algorithm) {
+    return provider.supportedJWSAlgorithms().contains(JWSAlgorithm.parse(algorithm));
+  }
+
+  static PublicKey toEd25519PublicKey(final OctetKeyPair jwk) throws JOSEException {
+    try {
+      return KeyFactory.getInstance(ED25519)
+          .generatePublic(new X509EncodedKeySpec(TokenUtils.getEd25519X509Encoding(jwk.getX().decode())));
+    } catch (GeneralSecurityException e) {
+      throw new JOSEException("Cannot build Ed25519 public key: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Selects the keys of the JWKS endpoint to verify a token with, including
+   * the Ed25519 keys nimbus only converts to JCA keys through Tink.
+   */
+  static class VerificationKeySelector extends JWSVerificationKeySelector<SecurityContext> {
+    VerificationKeySelector(final JWSAlgorithm algorithm, final JWKSource<SecurityContext> keySource) {
+      super(algorithm, keySource);
+    }
+
+    @Override
+    public List<Key> selectJWSKeys(final JWSHeader header, final SecurityContext context)
+        throws KeySourceException {
+      if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm()) || !isAllowed(header.getAlgorithm())) {
+        return super.selectJWSKeys(header, context);
+      }
+      final JWKMatcher matcher = createJWKMatcher(header);
+      if (matcher == null) {
+        return Collections.emptyList();
+      }
+      final List<Key> keys = new ArrayList<>();
+      for (final JWK jwk : getJWKSource().get(new JWKSelector(matcher), context)) {
+        if (jwk instanceof OctetKeyPair && Curve.Ed25519.equals(((OctetKeyPair) jwk).getCurve())) {
+          try {
+            keys.add(toEd25519PublicKey((OctetKeyPair) jwk));
+          } catch (JOSEException e) {
+            throw new KeySourceException(e.getMessage(), e);
+          }
+        }
+      }
+      return keys;
+    }
+  }
+
+  /**
+   * Creates the verifiers of the keys selected by {@link VerificationKeySelector}.
+   */
+  static class VerifierFactory extends DefaultJWSVerifierFactory {
+    @Override
+    public JWSVerifier createJWSVerifier(final JWSHeader header, final Key key) throws JOSEException {
+      if (JWSAlgorithm.EdDSA.equals(header.getAlgorithm()) && key instanceof PublicKey) {
+        return new EdDSAVerifier((PublicKey) key);
+      }
+      return super.createJWSVerifier(header, key);
+    }
+  }
+
+  private abstract static class EdDSAProvider implements JWSProvider {
+    private final JCAContext jcaContext = new JCAContext();
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+      return Collections.singleton(JWSAlgorithm.EdDSA);
+    }
+
+    @Override
+    public JCAContext getJCAContext() {
+      return jcaContext;
+    }
+
+    Signature newSignature() throws JOSEException {
+      try {
+        return jcaContext.getProvider() == null
+            ? Signature.getInstance(ED25519)
+            : Signature.getInstance(ED25519, jcaContext.getProvider());
+      } catch (GeneralSecurityException e) {
+        throw new JOSEException("Ed25519 signatures are not supported by this JVM: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  static class EdDSASigner extends EdDSAProvider implements JWSSigner {
+    private final PrivateKey privateKey;
+
+    EdDSASigner(final PrivateKey privateKey) {
+      this.privateKey = privateKey;
+    }
+
+    @Override
+    public Base64URL sign(final JWSHeader header, final byte[] signingInput) throws JOSEException {
+      final Signature signature = newSignature();
+      try {
+        signature.initSign(privateKey);
+        signature.update(signingInput);
+        return Base64URL.encode(signature.sign());
+      } catch (GeneralSecurityException e) {
+        throw new JOSEException(e.getMessage(), e);
+      }
+    }
+  }
+
+  static class EdDSAVerifier extends EdDSAProvider implements JWSVerifier {
+    private final PublicKey publicKey;
+
+    EdDSAVerifier(final PublicKey publicKey) {
+      this.publicKey = publicKey;
+    }
+
+    @Override
+    public boolean verify(final JWSHeader header, final byte[] signingInput, final Base64URL signature)
+        throws JOSEException {
+      if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+        return false;
+      }
+      final Signature verifier = newSignature();
+      try {
+        verifier.initVerify(publicKey);
+        verifier.update(signingInput);
+        return verifier.verify(signature.decode());
+      } catch (GeneralSecurityException e) {
+        return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.token.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.services.security.KeystoreService;
+import org.apache.knox.gateway.services.security.KeystoreServiceException;
+import org.apache.knox.gateway.services.security.token.TokenUtils;
+
+/**
+ * Signers and verifiers of the keys the token authority works with, created
+ * once per key and reused; nimbus signers and verifiers are thread-safe.
+ * <p>
+ * The signing key of the gateway signing keystore and the keys listed in
+ * <code>gateway.signing.key.verification.aliases</code> form the active key
+ * set. Tokens are verified with the key matching their kid, so that tokens
+ * signed with a previous key stay valid during a key rotation. Keystore files
+ * are checked for changes at most once per reload interval and a changed
+ * keystore replaces the key set in a single step; a failed reload keeps the
+ * current keys.
+ */
+class SigningKeyRegistry {
+  private static final TokenAuthorityServiceMessages LOG = MessagesFactory.get(TokenAuthorityServiceMessages.class);
+
+  private static final String THUMBPRINT_HASH_ALGORITHM = "SHA-256";
+  private static final String CUSTOM_KEYSTORE_SUFFIX = ".jks";
+
+  private final KeystoreService keystoreService;
+  private final GatewayConfig config;
+  private final String signingKeyAlias;
+  private final char[] signingKeyPassphrase;
+  private final long reloadInterval;
+
+  private final AtomicReference<KeySet> activeKeys = new AtomicReference<>();
+  private final Map<CustomKeyId, CustomKey> customKeys = new ConcurrentHashMap<>();
+
+  SigningKeyRegistry(KeystoreService keystoreService, GatewayConfig config, String signingKeyAlias,
+                     char[] signingKeyPassphrase) {
+    this.keystoreService = keystoreService;
+    this.config = config;
+    this.signingKeyAlias = signingKeyAlias;
+    this.signingKeyPassphrase = signingKeyPassphrase;
+    this.reloadInterval = config.getSigningKeystoreReloadInterval();
+  }
+
+  /**
+   * Loads the active key set.
+   */
+  void load() throws KeystoreServiceException {
+    activeKeys.set(loadKeySet());
+  }
+
+  /**
+   * @return the kid of the signing key, if its thumbprint could be computed
+   */
+  String getSigningKeyId() {
+    return getActiveKeys().signingKey.kid;
+  }
+
+  JWSSigner getSigner() {
+    return getActiveKeys().signingKey.signer;
+  }
+
+  /**
+   * @return the verifier of the active key with the given kid; the verifier of
+   *         the signing key if the kid is null or unknown
+   */
+  JWSVerifier getVerifier(String kid) {
+    final KeySet keys = getActiveKeys();
+    final JWSVerifier verifier = kid == null ? null : keys.verifiers.get(kid);
+    return verifier == null ? keys.signingKey.verifier : verifier;
+  }
+
+  /**
+   * @return the signer of a key of a custom signing keystore
+   */
+  JWSSigner getSigner(String keystoreName, String alias, char[] passphrase) throws KeystoreServiceException {
+    final CustomKeyId id = new CustomKeyId(keystoreName, alias);
+    CustomKey customKey = customKeys.get(id);
+    if (customKey == null || !Arrays.equals(customKey.passphrase, passphrase) || customKey.isModified(reloadInterval)) {
+      final Path path = keystoreName == null
+          ? Paths.get(config.getSigningKeystorePath())
+          // custom signing keystores are resolved the way the keystore service does
+          : Paths.get(config.getGatewayKeystoreDir(), keystoreName + CUSTOM_KEYSTORE_SUFFIX);
+      final FileTime lastModified = getLastModifiedTime(path);
+      final KeyStore keystore = keystoreService.getSigningKeystore(keystoreName);
+      customKey = new CustomKey(path, lastModified, passphrase.clone(), loadSigningKey(keystore, alias, passphrase));
+      customKeys.put(id, customKey);
+    }
+    return customKey.signingKey.signer;
+  }
+
+  private KeySet getActiveKeys() {
+    final KeySet keys = activeKeys.get();
+    if (keys.isModified(reloadInterval)) {
+      try {
+        activeKeys.compareAndSet(keys, loadKeySet());
+        LOG.reloadedSigningKeys(keys.path.toString());
+      } catch (KeystoreServiceException e) {
+        LOG.failedToReloadSigningKeys(keys.path.toString(), e.toString());
+      }
+    }
+    return activeKeys.get();
+  }
+
+  private KeySet loadKeySet() throws KeystoreServiceException {
+    final Path path = Paths.get(config.getSigningKeystorePath());
+    // read before loading the keystore, a change made while loading is picked up by the next check
+    final FileTime lastModified = getLastModifiedTime(path);
+    final KeyStore keystore = keystoreService.getSigningKeystore();
+    final SigningKey signingKey = loadSigningKey(keystore, signingKeyAlias, signingKeyPassphrase);
+
+    final Map<String, JWSVerifier> verifiers = new LinkedHashMap<>();
+    final List<String> verificationAliases = config.getSigningKeyVerificationAliases();
+    for (String alias : verificationAliases == null ? Collections.<String>emptyList() : verificationAliases) {
+      try {
+        final Certificate certificate = keystore.getCertificate(alias);
+        if (certificate == null) {
+          LOG.verificationKeyNotFound(alias);
+          continue;
+        }
+        final PublicKey publicKey = certificate.getPublicKey();
+        verifiers.put(TokenUtils.getThumbprint(publicKey, THUMBPRINT_HASH_ALGORITHM), JWSProviders.createVerifier(publicKey));
+      } catch (GeneralSecurityException | JOSEException e) {
+        throw new KeystoreServiceException(e);
+      }
+    }
+    if (signingKey.kid != null) {
+      verifiers.put(signingKey.kid, signingKey.verifier);
+    }
+    return new KeySet(path, lastModified, signingKey, Collections.unmodifiableMap(verifiers));
+  }
+
+  private SigningKey loadSigningKey(KeyStore keystore, String alias, char[] passphrase) throws KeystoreServiceException {
+    try {
+      final Key key = keystore.getKey(alias, passphrase);
+      final Certificate certificate = keystore.getCertificate(alias);
+      if (!(key instanceof PrivateKey) || certificate == null) {
+        throw new KeystoreServiceException("No signing key found for alias " + alias);
+      }
+      final PublicKey publicKey = certificate.getPublicKey();
+      String kid = null;
+      try {
+        kid = TokenUtils.getThumbprint(publicKey, THUMBPRINT_HASH_ALGORITHM);
+      } catch (JOSEException e) {
+        /* in case there is an error getting KID log and move on */
+        LOG.errorGettingKid(e.toString());
+      }
+      return new SigningKey(kid, JWSProviders.createSigner((PrivateKey) key), JWSProviders.createVerifier(publicKey));
+    } catch (GeneralSecurityException | JOSEException e) {
+      throw new KeystoreServiceException(e);
+    }
+  }
+
+  private static FileTime getLastModifiedTime(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static class SigningKey {
+    private final String kid;
+    private final JWSSigner signer;
+    private final JWSVerifier verifier;
+
+    SigningKey(String kid, JWSSigner signer, JWSVerifier verifier) {
+      this.kid = kid;
+      this.signer = signer;
+      this.verifier = verifier;
+    }
+  }
+
+  /*
+   * Keys loaded from a keystore file, along with the modification time of the file
+   */
+  private abstract static class KeystoreSnapshot {
+    final Path path;
+    private final FileTime lastModified;
+    private final AtomicLong lastChecked = new AtomicLong(System.currentTimeMillis());
+
+    KeystoreSnapshot(Path path, FileTime lastModified) {
+      this.path = path;
+      this.lastModified = lastModified;
+    }
+
+    /*
+     * Only one caller per interval checks the file, the others keep using the current keys
+     */
+    boolean isModified(long reloadInterval) {
+      if (reloadInterval <= 0) {
+        return false;
+      }
+      final long now = System.currentTimeMillis();
+      final long checked = lastChecked.get();
+      if (now - checked < reloadInterval || !lastChecked.compareAndSet(checked, now)) {
+        return false;
+      }
+      final FileTime current = getLastModifiedTime(path);
+      return current != null && !Objects.equals(current, lastModified);
+    }
+  }
+
+  private static class KeySet extends KeystoreSnapshot {
+    private final SigningKey signingKey;
+    private final Map<String, JWSVerifier> verifiers;
+
+    KeySet(Path path, FileTime lastModified, SigningKey signingKey, Map<String, JWSVerifier> verifiers) {
+      super(path, lastModified);
+      this.signingKey = signingKey;
+      this.verifiers = verifiers;
+    }
+  }
+
+  private static class CustomKey extends KeystoreSnapshot {
+    private final char[] passphrase;
+    private final SigningKey signingKey;
+
+    CustomKey(Path path, FileTime lastModified, char[] passphrase, SigningKey signingKey) {
+      super(path, lastModified);
+      this.passphrase = passphrase;
+      this.signingKey = signingKey;
+    }
+  }
+
+  private static class CustomKeyId {
+    private final String keystoreName;
+    private final String alias;
+
+    CustomKeyId(String keystoreName, String alias) {
+      this.keystoreName = keystoreName;
+      this.alias = alias;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final CustomKeyId that = (CustomKeyId) o;
+      return Objects.equals(keystoreName, that.keystoreName) && Objects.equals(alias, that.alias);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(keystoreName, alias);
+    }
+  }
+}
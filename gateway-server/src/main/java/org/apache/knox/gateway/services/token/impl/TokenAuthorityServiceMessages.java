@@ -28,4 +28,13 @@ public interface TokenAuthorityServiceMessages {
 
   @Message(level = MessageLevel.ERROR, text = "Failed to verify token using JWKS endpoint {0}, reason: {1}")
   void jwksVerificationFailed(String jwksUrl, String reason);
+
+  @Message(level = MessageLevel.INFO, text = "Reloaded the token signing keys of keystore {0}")
+  void reloadedSigningKeys(String keystore);
+
+  @Message(level = MessageLevel.ERROR, text = "Failed to reload the token signing keys of keystore {0}, keeping the current ones, cause: {1}")
+  void failedToReloadSigningKeys(String keystore, String message);
+
+  @Message(level = MessageLevel.WARN, text = "No certificate found in the signing keystore for the verification key alias {0}")
+  void verificationKeyNotFound(String alias);
 }
@@ -23,17 +23,24 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.sql.DataSource;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.services.security.token.KnoxToken;
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
+import org.apache.knox.gateway.services.security.token.TokenPage;
+import org.apache.knox.gateway.services.security.token.TokenQuery;
 import org.apache.knox.gateway.util.JDBCUtils;
 
 public class TokenStateDatabase {
@@ -59,6 +66,15 @@ public class TokenStateDatabase {
   private static final String GET_TOKENS_CREATED_BY_USER_NAME_SQL = GET_ALL_TOKENS_SQL + " AND kt.token_id IN (SELECT token_id FROM " + TOKEN_METADATA_TABLE_NAME + " WHERE md_name = '" + TokenMetadata.CREATED_BY + "' AND md_value = ? )"
       + " ORDER BY kt.issue_time";
 
+  private static final String LIST_TOKENS_SQL = "SELECT kt.token_id, kt.issue_time, kt.expiration, kt.max_lifetime FROM " + TOKENS_TABLE_NAME + " kt WHERE 1 = 1";
+  private static final String TOKENS_WITH_METADATA_SQL = "kt.token_id IN (SELECT token_id FROM " + TOKEN_METADATA_TABLE_NAME;
+  private static final String GET_METADATA_OF_TOKENS_SQL = "SELECT token_id, md_name, md_value FROM " + TOKEN_METADATA_TABLE_NAME + " WHERE token_id IN (";
+  private static final String GET_TOKENS_BY_ID_SQL = "SELECT kt.token_id, kt.issue_time, kt.expiration, kt.max_lifetime, ktm.md_name, ktm.md_value FROM " + TOKENS_TABLE_NAME
+      + " kt LEFT JOIN " + TOKEN_METADATA_TABLE_NAME + " ktm ON kt.token_id = ktm.token_id WHERE kt.token_id IN (";
+  private static final String REMOVE_TOKENS_SQL = "DELETE FROM " + TOKENS_TABLE_NAME + " WHERE token_id IN (";
+  // keeps the IN lists of the statements on many tokens within the limits of all the supported databases
+  private static final int MAX_TOKEN_IDS_PER_STATEMENT = 500;
+
   private final DataSource dataSource;
 
   TokenStateDatabase(DataSource dataSource) throws Exception {
@@ -177,6 +193,10 @@ public class TokenStateDatabase {
     }
   }
 
+  private static String encodeMetadata(String metadataName, String metadataValue) {
+    return metadataName.equals(TokenMetadata.PASSCODE) ? Base64.encodeBase64String(metadataValue.getBytes(UTF_8)) : metadataValue;
+  }
+
   private static String decodeMetadata(String metadataName, String metadataValue) {
     return metadataName.equals(TokenMetadata.PASSCODE) ? new String(Base64.decodeBase64(metadataValue.getBytes(UTF_8)), UTF_8) : metadataValue;
   }
@@ -214,4 +234,254 @@ public class TokenStateDatabase {
       }
     }
   }
+
+  /*
+   * The criteria, the cursor and the order of the query are applied in SQL; the page size is applied
+   * with the maximum number of rows of the statement, which the JDBC drivers pass on to the database.
+   * The metadata of the tokens of the page is then fetched with a second query, in chunks as large pages would
+   * exceed the number of parameters a statement takes.
+   */
+  TokenPage listTokens(TokenQuery query) throws SQLException {
+    final StringBuilder sql = new StringBuilder(LIST_TOKENS_SQL);
+    final List<Object> parameters = new ArrayList<>();
+    if (query.getUserName() != null) {
+      sql.append(" AND ").append(TOKENS_WITH_METADATA_SQL).append(" WHERE md_name = ? AND md_value = ?)");
+      parameters.add(TokenMetadata.USER_NAME);
+      parameters.add(query.getUserName());
+    }
+    if (query.getCreatedBy() != null) {
+      sql.append(" AND ").append(TOKENS_WITH_METADATA_SQL).append(" WHERE md_name = ? AND md_value = ?)");
+      parameters.add(TokenMetadata.CREATED_BY);
+      parameters.add(query.getCreatedBy());
+    }
+    if (query.getUserNameOrCreatedBy() != null) {
+      sql.append(" AND ").append(TOKENS_WITH_METADATA_SQL).append(" WHERE md_name IN (?, ?) AND md_value = ?)");
+      parameters.add(TokenMetadata.USER_NAME);
+      parameters.add(TokenMetadata.CREATED_BY);
+      parameters.add(query.getUserNameOrCreatedBy());
+    }
+    if (query.getUserName() == null && query.getCreatedBy() == null && query.getUserNameOrCreatedBy() == null) {
+      // as when fetching all tokens, only the tokens with metadata are listed
+      sql.append(" AND ").append(TOKENS_WITH_METADATA_SQL).append(')');
+    }
+    if (query.getEnabled() != null) {
+      sql.append(query.getEnabled() ? " AND " : " AND NOT ").append(TOKENS_WITH_METADATA_SQL).append(" WHERE md_name = ? AND md_value = ?)");
+      parameters.add(TokenMetadata.ENABLED);
+      parameters.add(Boolean.TRUE.toString());
+    }
+    if (!query.getMetadata().isEmpty()) {
+      final List<String> metadataConditions = new ArrayList<>();
+      for (Map.Entry<String, List<String>> metadata : query.getMetadata().entrySet()) {
+        final StringBuilder condition = new StringBuilder(TOKENS_WITH_METADATA_SQL).append(" WHERE md_name = ?");
+        parameters.add(metadata.getKey());
+        if (!metadata.getValue().contains("*")) {
+          condition.append(" AND md_value IN (").append(placeholders(metadata.getValue().size())).append(')');
+          metadata.getValue().forEach(value -> parameters.add(encodeMetadata(metadata.getKey(), value)));
+        }
+        metadataConditions.add(condition.append(')').toString());
+      }
+      sql.append(" AND (").append(String.join(" OR ", metadataConditions)).append(')');
+    }
+    if (query.getExpiresAfter() != null) {
+      sql.append(" AND (kt.expiration < 0 OR kt.expiration >= ?)");
+      parameters.add(query.getExpiresAfter());
+    }
+    if (query.getExpiresBefore() != null) {
+      sql.append(" AND kt.expiration >= 0 AND kt.expiration < ?");
+      parameters.add(query.getExpiresBefore());
+    }
+    final String sortColumn = query.getSortField() == TokenQuery.SortField.EXPIRATION ? "kt.expiration" : "kt.issue_time";
+    final String direction = query.isDescending() ? " DESC" : " ASC";
+    if (query.getCursorSortValue() != null) {
+      final String after = query.isDescending() ? " < ?" : " > ?";
+      sql.append(" AND (").append(sortColumn).append(after).append(" OR (").append(sortColumn).append(" = ? AND kt.token_id").append(after).append("))");
+      parameters.add(query.getCursorSortValue());
+      parameters.add(query.getCursorSortValue());
+      parameters.add(query.getCursorTokenId());
+    }
+    sql.append(" ORDER BY ").append(sortColumn).append(direction).append(", kt.token_id").append(direction);
+
+    final Map<String, KnoxToken> tokenMap = new LinkedHashMap<>();
+    try (Connection connection = dataSource.getConnection(); PreparedStatement listTokensStatement = connection.prepareStatement(sql.toString())) {
+      setParameters(listTokensStatement, parameters);
+      listTokensStatement.setMaxRows(query.getPageSize() + 1);
+      try (ResultSet rs = listTokensStatement.executeQuery()) {
+        while (rs.next()) {
+          final String tokenId = rs.getString(1);
+          tokenMap.put(tokenId, new KnoxToken(tokenId, rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+        }
+      }
+      for (List<String> tokenIdsChunk : chunk(tokenMap.keySet())) {
+        try (PreparedStatement getMetadataStatement = connection.prepareStatement(GET_METADATA_OF_TOKENS_SQL + placeholders(tokenIdsChunk.size()) + ')')) {
+          setParameters(getMetadataStatement, tokenIdsChunk);
+          try (ResultSet rs = getMetadataStatement.executeQuery()) {
+            while (rs.next()) {
+              final String metadataName = rs.getString(2);
+              tokenMap.get(rs.getString(1)).addMetadata(metadataName, decodeMetadata(metadataName, rs.getString(3)));
+            }
+          }
+        }
+      }
+    }
+    return query.toPage(new ArrayList<>(tokenMap.values()));
+  }
+
+  /*
+   * Tokens without metadata are fetched too, with an empty metadata
+   */
+  Map<String, KnoxToken> getTokens(Collection<String> tokenIds) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      return getTokens(connection, tokenIds);
+    }
+  }
+
+  private Map<String, KnoxToken> getTokens(Connection connection, Collection<String> tokenIds) throws SQLException {
+    final Map<String, KnoxToken> tokenMap = new LinkedHashMap<>();
+    for (List<String> tokenIdsChunk : chunk(tokenIds)) {
+      try (PreparedStatement getTokensStatement = connection.prepareStatement(GET_TOKENS_BY_ID_SQL + placeholders(tokenIdsChunk.size()) + ')')) {
+        setParameters(getTokensStatement, tokenIdsChunk);
+        try (ResultSet rs = getTokensStatement.executeQuery()) {
+          while (rs.next()) {
+            final String tokenId = rs.getString(1);
+            KnoxToken token = tokenMap.get(tokenId);
+            if (token == null) {
+              token = new KnoxToken(tokenId, rs.getLong(2), rs.getLong(3), rs.getLong(4));
+              tokenMap.put(tokenId, token);
+            }
+            final String metadataName = rs.getString(5);
+            if (metadataName != null) {
+              token.addMetadata(metadataName, decodeMetadata(metadataName, rs.getString(6)));
+            }
+          }
+        }
+      }
+    }
+    return tokenMap;
+  }
+
+  /*
+   * The tokens are removed in a single transaction; returns the identifiers of the removed tokens, the others are unknown
+   */
+  Set<String> removeTokens(Collection<String> tokenIds) throws SQLException {
+    return inTransaction(connection -> {
+      final Set<String> knownTokenIds = new LinkedHashSet<>(getTokens(connection, tokenIds).keySet());
+      removeKnownTokens(connection, knownTokenIds);
+      return knownTokenIds;
+    });
+  }
+
+  private void removeKnownTokens(Connection connection, Collection<String> tokenIds) throws SQLException {
+    for (List<String> tokenIdsChunk : chunk(tokenIds)) {
+      try (PreparedStatement removeTokensStatement = connection.prepareStatement(REMOVE_TOKENS_SQL + placeholders(tokenIdsChunk.size()) + ')')) {
+        setParameters(removeTokensStatement, tokenIdsChunk);
+        removeTokensStatement.executeUpdate();
+      }
+    }
+  }
+
+  /*
+   * The expirations are updated with a single batch, in a single transaction
+   */
+  void updateExpirations(Map<String, Long> expirations) throws SQLException {
+    inTransaction(connection -> {
+      try (PreparedStatement updateTokenExpirationStatement = connection.prepareStatement(UPDATE_TOKEN_EXPIRATION_SQL)) {
+        for (Map.Entry<String, Long> expiration : expirations.entrySet()) {
+          updateTokenExpirationStatement.setLong(1, expiration.getValue());
+          updateTokenExpirationStatement.setString(2, expiration.getKey());
+          updateTokenExpirationStatement.addBatch();
+        }
+        updateTokenExpirationStatement.executeBatch();
+      }
+      return null;
+    });
+  }
+
+  /*
+   * The metadata is added to, or updated for, the known tokens with a batch of updates and a batch of inserts,
+   * in a single transaction; returns the identifiers of the updated tokens, the others are unknown
+   */
+  Set<String> saveMetadata(Map<String, Map<String, String>> metadata) throws SQLException {
+    return inTransaction(connection -> {
+      final Map<String, KnoxToken> knownTokens = getTokens(connection, metadata.keySet());
+      try (PreparedStatement updateMetadataStatement = connection.prepareStatement(UPDATE_METADATA_SQL);
+           PreparedStatement addMetadataStatement = connection.prepareStatement(ADD_METADATA_SQL)) {
+        boolean updates = false;
+        boolean additions = false;
+        for (KnoxToken token : knownTokens.values()) {
+          final Set<String> savedMetadataNames = token.getMetadata().getMetadataMap().keySet();
+          for (Map.Entry<String, String> metadataEntry : metadata.get(token.getTokenId()).entrySet()) {
+            if (StringUtils.isBlank(metadataEntry.getValue())) {
+              continue;
+            }
+            final String metadataValue = encodeMetadata(metadataEntry.getKey(), metadataEntry.getValue());
+            if (savedMetadataNames.contains(metadataEntry.getKey())) {
+              updateMetadataStatement.setString(1, metadataValue);
+              updateMetadataStatement.setString(2, token.getTokenId());
+              updateMetadataStatement.setString(3, metadataEntry.getKey());
+              updateMetadataStatement.addBatch();
+              updates = true;
+            } else {
+              addMetadataStatement.setString(1, token.getTokenId());
+              addMetadataStatement.setString(2, metadataEntry.getKey());
+              addMetadataStatement.setString(3, metadataValue);
+              addMetadataStatement.addBatch();
+              additions = true;
+            }
+          }
+        }
+        if (updates) {
+          updateMetadataStatement.executeBatch();
+        }
+        if (additions) {
+          addMetadataStatement.executeBatch();
+        }
+      }
+      return knownTokens.keySet();
+    });
+  }
+
+  private <T> T inTransaction(DatabaseOperation<T> operation) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      final boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        final T result = operation.execute(connection);
+        connection.commit();
+        return result;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
+  private interface DatabaseOperation<T> {
+    T execute(Connection connection) throws SQLException;
+  }
+
+  private static List<List<String>> chunk(Collection<String> tokenIds) {
+    final List<String> distinctTokenIds = new ArrayList<>(new LinkedHashSet<>(tokenIds));
+    final List<List<String>> chunks = new ArrayList<>();
+    for (int from = 0; from < distinctTokenIds.size(); from += MAX_TOKEN_IDS_PER_STATEMENT) {
+      chunks.add(distinctTokenIds.subList(from, Math.min(from + MAX_TOKEN_IDS_PER_STATEMENT, distinctTokenIds.size())));
+    }
+    return chunks;
+  }
+
+  private static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  private static void setParameters(PreparedStatement statement, List<?> parameters) throws SQLException {
+    for (int i = 0; i < parameters.size(); i++) {
+      final Object parameter = parameters.get(i);
+      if (parameter instanceof Long) {
+        statement.setLong(i + 1, (Long) parameter);
+      } else {
+        statement.setString(i + 1, (String) parameter);
+      }
+    }
+  }
 }
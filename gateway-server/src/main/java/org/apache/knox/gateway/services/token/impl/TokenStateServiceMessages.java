@@ -262,6 +262,24 @@ public interface TokenStateServiceMessages {
   @Message(level = MessageLevel.ERROR, text = "An error occurred while fetching impersonation tokens for user {0} from the database : {1}")
   void errorFetchingDoAsTokensForUserFromDatabase(String userName, String errorMessage, @StackTrace(level = MessageLevel.DEBUG) Exception e);
 
+  @Message(level = MessageLevel.ERROR, text = "An error occurred while listing a page of tokens from the database : {0}")
+  void errorListingTokensFromDatabase(String errorMessage, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.ERROR, text = "An error occurred while fetching {0} token(s) from the database : {1}")
+  void errorFetchingTokensFromDatabase(int size, String errorMessage, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.DEBUG, text = "{0} revoked token(s) have been removed from the database")
+  void removedRevokedTokensFromDatabase(int size);
+
+  @Message(level = MessageLevel.ERROR, text = "An error occurred while removing {0} revoked token(s) from the database : {1}")
+  void errorRemovingRevokedTokensFromDatabase(int size, String errorMessage, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.ERROR, text = "An error occurred while renewing {0} token(s) in the database : {1}")
+  void errorRenewingTokensInDatabase(int size, String errorMessage, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.ERROR, text = "An error occurred while updating the metadata of {0} token(s) in the database : {1}")
+  void errorUpdatingTokensMetadataInDatabase(int size, String errorMessage, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
   @Message(level = MessageLevel.WARN, text = "The configured TokenStateService implementation, {0}, is deprecated!")
   void deprecatedServiceUsage(String className);
 
@@ -22,7 +22,6 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.monitor.FileAlterationListener;
 import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
-import org.apache.commons.io.monitor.FileAlterationMonitor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.apache.knox.gateway.GatewayMessages;
 import org.apache.knox.gateway.GatewayServer;
@@ -42,6 +41,7 @@ import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.topology.TopologyService;
 import org.apache.knox.gateway.services.topology.monitor.DescriptorsMonitor;
+import org.apache.knox.gateway.services.topology.monitor.DirectoryWatchMonitor;
 import org.apache.knox.gateway.services.topology.monitor.SharedProviderConfigMonitor;
 import org.apache.knox.gateway.topology.ClusterConfigurationMonitorService;
 import org.apache.knox.gateway.topology.Service;
@@ -57,6 +57,7 @@ import org.apache.knox.gateway.topology.monitor.RemoteConfigurationMonitorServic
 import org.apache.knox.gateway.topology.monitor.RemoteConfigurationMonitor;
 import org.apache.knox.gateway.topology.simple.SimpleDescriptor;
 import org.apache.knox.gateway.topology.simple.SimpleDescriptorFactory;
+import org.apache.knox.gateway.topology.simple.SimpleDescriptorHandler;
 import org.apache.knox.gateway.topology.validation.TopologyValidator;
 import org.apache.knox.gateway.util.ServiceDefinitionsLoader;
 import org.apache.knox.gateway.util.TopologyUtils;
@@ -97,7 +98,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   public static final List<String> SUPPORTED_TOPOLOGY_FILE_EXTENSIONS = Collections.unmodifiableList(Arrays.asList("xml", "conf"));
 
   private static final GatewayMessages log = MessagesFactory.get(GatewayMessages.class);
-  private final Map<String, FileAlterationMonitor> monitors = new ConcurrentHashMap<>();
+  private final Map<String, DirectoryWatchMonitor> monitors = new ConcurrentHashMap<>();
   private File topologiesDirectory;
   private File sharedProvidersDirectory;
   private File descriptorsDirectory;
@@ -251,7 +252,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
     return configDir.getAbsoluteFile();
   }
 
-  private void initListener(String monitorName, FileAlterationMonitor monitor, File directory, FileFilter filter, FileAlterationListener listener) {
+  private void initListener(String monitorName, DirectoryWatchMonitor monitor, File directory, FileFilter filter, FileAlterationListener listener) {
     monitors.put(monitorName, monitor);
     FileAlterationObserver observer = new FileAlterationObserver(directory, filter);
     observer.addListener(listener);
@@ -261,7 +262,11 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   private void initListener(String monitorName, File directory, FileFilter filter, FileAlterationListener listener) {
     // Increasing the monitoring interval to 5 seconds as profiling has shown
     // this is rather expensive in terms of generated garbage objects.
-    initListener(monitorName, new FileAlterationMonitor(5000L), directory, filter, listener);
+    // When native change notifications are available, the directories are only
+    // scanned after a change has been reported.
+    final DirectoryWatchMonitor monitor = new DirectoryWatchMonitor(5000L, config.getTopologyMonitorDebounceInterval(),
+                                                                    config.isTopologyMonitorWatchServiceEnabled());
+    initListener(monitorName, monitor, directory, filter, listener);
   }
 
   private Map<File, Topology> loadTopologies(File directory) {
@@ -533,7 +538,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   @Override
   public void startMonitor() throws Exception {
     // Start the local configuration monitors
-    for (Entry<String, FileAlterationMonitor> monitor : monitors.entrySet()) {
+    for (Entry<String, DirectoryWatchMonitor> monitor : monitors.entrySet()) {
       monitor.getValue().start();
       log.startedMonitor(monitor.getKey());
     }
@@ -562,7 +567,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   @Override
   public void stopMonitor() throws Exception {
     // Stop the local configuration monitors
-    for (Entry<String, FileAlterationMonitor> monitor : monitors.entrySet()) {
+    for (Entry<String, DirectoryWatchMonitor> monitor : monitors.entrySet()) {
       monitor.getValue().stop();
       log.stoppedMonitor(monitor.getKey());
     }
@@ -739,6 +744,9 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
       log.noticedClusterConfigurationChange(source, clusterName);
       boolean affectedDescriptors = false;
 
+      // The cached discovery results of the cluster are stale now
+      SimpleDescriptorHandler.invalidateDiscoveryResults(source, clusterName);
+
       // Identify any descriptors associated with the cluster configuration change
       for (File descriptor : topologyService.getDescriptors()) {
         try {
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.topology.monitor;
+
+import org.apache.commons.io.monitor.FileAlterationMonitor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.knox.gateway.GatewayMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A directory monitor that is notified of directory changes through a
+ * {@link WatchService} instead of scanning the observed directories on every interval.
+ * <p>
+ * Events are only used as a trigger: bursts of events are coalesced for the debounce
+ * interval and the affected observers then run {@link FileAlterationObserver#checkAndNotify()},
+ * so listeners and filters behave exactly as they do with the polling monitor.
+ * Observers whose directory cannot be watched natively (the directory does not exist,
+ * the file system does not support it or the JDK only offers a polling implementation)
+ * fall back to a regular polling {@link FileAlterationMonitor} with the configured interval,
+ * as do all the observers when the watch service is disabled.
+ */
+public class DirectoryWatchMonitor {
+  private static final GatewayMessages log = MessagesFactory.get(GatewayMessages.class);
+
+  // Upper bound of a coalescing window, relative to the debounce interval, so a
+  // directory that keeps changing is still checked regularly
+  private static final int MAX_DEBOUNCE_ROUNDS = 10;
+
+  private final long pollingInterval;
+  private final long debounceInterval;
+  private final boolean watchServiceEnabled;
+  private final FileAlterationMonitor pollingMonitor;
+  private final List<FileAlterationObserver> observers = new CopyOnWriteArrayList<>();
+  private final Map<WatchKey, FileAlterationObserver> watchedObservers = new ConcurrentHashMap<>();
+
+  private WatchService watchService;
+  private ExecutorService watcher;
+  private boolean pollingStarted;
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  public DirectoryWatchMonitor(long pollingInterval, long debounceInterval) {
+    this(pollingInterval, debounceInterval, true);
+  }
+
+  public DirectoryWatchMonitor(long pollingInterval, long debounceInterval, boolean watchServiceEnabled) {
+    this.pollingInterval = pollingInterval;
+    this.debounceInterval = Math.max(1L, debounceInterval);
+    this.watchServiceEnabled = watchServiceEnabled;
+    this.pollingMonitor = new FileAlterationMonitor(pollingInterval);
+  }
+
+  public long getInterval() {
+    return pollingInterval;
+  }
+
+  public void addObserver(FileAlterationObserver observer) {
+    if (observer != null) {
+      observers.add(observer);
+    }
+  }
+
+  public void removeObserver(FileAlterationObserver observer) {
+    observers.remove(observer);
+  }
+
+  public Iterable<FileAlterationObserver> getObservers() {
+    return observers;
+  }
+
+  public synchronized void start() throws Exception {
+    if (running.get()) {
+      throw new IllegalStateException("Monitor is already running");
+    }
+
+    watchService = watchServiceEnabled ? createWatchService() : null;
+    for (FileAlterationObserver observer : observers) {
+      final WatchKey key = register(observer.getDirectory());
+      if (key == null) {
+        if (watchServiceEnabled) {
+          log.fallingBackToPollingDirectoryMonitor(observer.getDirectory().getAbsolutePath());
+        }
+        pollingMonitor.addObserver(observer);
+      } else {
+        observer.initialize();
+        watchedObservers.put(key, observer);
+      }
+    }
+    running.set(true);
+
+    if (watchedObservers.isEmpty()) {
+      closeWatchService();
+    } else {
+      watcher = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder().namingPattern("DirectoryWatchMonitor-%d").daemon(true).build());
+      final WatchService service = watchService;
+      watcher.execute(() -> watch(service));
+    }
+
+    if (pollingMonitor.getObservers().iterator().hasNext()) {
+      startPolling();
+    }
+  }
+
+  public synchronized void stop() throws Exception {
+    stop(pollingInterval);
+  }
+
+  public synchronized void stop(long stopInterval) throws Exception {
+    if (!running.get()) {
+      throw new IllegalStateException("Monitor is not running");
+    }
+    running.set(false);
+
+    closeWatchService();
+    if (watcher != null) {
+      watcher.shutdownNow();
+      watcher.awaitTermination(stopInterval, TimeUnit.MILLISECONDS);
+      watcher = null;
+    }
+    for (FileAlterationObserver observer : watchedObservers.values()) {
+      observer.destroy();
+    }
+    watchedObservers.clear();
+
+    if (pollingStarted) {
+      pollingMonitor.stop(stopInterval);
+      pollingStarted = false;
+    }
+    for (FileAlterationObserver observer : pollingMonitor.getObservers()) {
+      pollingMonitor.removeObserver(observer);
+    }
+  }
+
+  private WatchService createWatchService() {
+    try {
+      final WatchService service = FileSystems.getDefault().newWatchService();
+      // Some JDKs (e.g. on macOS) implement the watch service by polling, which is no better than the regular monitor
+      if (service.getClass().getSimpleName().contains("Polling")) {
+        service.close();
+        return null;
+      }
+      return service;
+    } catch (IOException | UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  private WatchKey register(File directory) {
+    if (watchService == null || !directory.isDirectory()) {
+      return null;
+    }
+
+    try {
+      final WatchKey key = directory.toPath().register(watchService,
+          StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+      log.watchingDirectoryForChanges(directory.getAbsolutePath());
+      return key;
+    } catch (IOException | UnsupportedOperationException e) {
+      log.failedToWatchDirectory(directory.getAbsolutePath(), e);
+      return null;
+    }
+  }
+
+  private void watch(WatchService service) {
+    try {
+      while (running.get()) {
+        final Set<FileAlterationObserver> changed = new LinkedHashSet<>();
+        try {
+          collect(service.take(), changed);
+
+          // Coalesce the burst of events a single change usually produces
+          WatchKey next;
+          int rounds = 0;
+          while (rounds++ < MAX_DEBOUNCE_ROUNDS && (next = service.poll(debounceInterval, TimeUnit.MILLISECONDS)) != null) {
+            collect(next, changed);
+          }
+        } catch (RuntimeException e) {
+          log.failedToProcessDirectoryChanges(e);
+        }
+
+        for (FileAlterationObserver observer : changed) {
+          // A failing listener must not stop the monitoring of the directories
+          try {
+            observer.checkAndNotify();
+          } catch (RuntimeException e) {
+            log.failedToNotifyDirectoryChanges(observer.getDirectory().getAbsolutePath(), e);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // the monitor has been stopped
+    }
+  }
+
+  private void collect(WatchKey key, Set<FileAlterationObserver> changed) {
+    key.pollEvents();
+    final FileAlterationObserver observer = watchedObservers.get(key);
+    if (observer != null) {
+      changed.add(observer);
+      if (!key.reset()) {
+        // The directory is no longer accessible (e.g. it has been deleted)
+        watchedObservers.remove(key);
+        fallBackToPolling(observer);
+      }
+    }
+  }
+
+  private synchronized void fallBackToPolling(FileAlterationObserver observer) {
+    if (running.get()) {
+      log.fallingBackToPollingDirectoryMonitor(observer.getDirectory().getAbsolutePath());
+      pollingMonitor.addObserver(observer);
+      if (!pollingStarted) {
+        try {
+          startPolling();
+        } catch (Exception e) {
+          log.failedToWatchDirectory(observer.getDirectory().getAbsolutePath(), e);
+        }
+      }
+    }
+  }
+
+  private void startPolling() throws Exception {
+    pollingMonitor.start();
+    pollingStarted = true;
+  }
+
+  private void closeWatchService() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+      watchService = null;
+    }
+  }
+}
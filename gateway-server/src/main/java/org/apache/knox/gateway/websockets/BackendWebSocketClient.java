@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.Session;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.jsr356.ClientContainer;
+
+/**
+ * Client of the websocket connections to the backend of a topology service.
+ * <p>
+ * The client is shared by all the connections proxied to the service, so
+ * that its selector, thread pool and SSL context are set up once instead of
+ * for every frontend connection. Each connection acquires the client before
+ * connecting and releases it once closed; a retired client can no longer be
+ * acquired and stops once the last connection has released it.
+ * <p>
+ * A redeployed topology gets a new client while the replaced one drains its
+ * connections, so the metrics of a service are shared by the generations of
+ * its client and removed when the last one stops.
+ */
+public class BackendWebSocketClient {
+  private static final WebsocketLogMessages LOG = MessagesFactory.get(WebsocketLogMessages.class);
+
+  /* Room for the selector and the threads reserved by the client */
+  static final int MIN_THREADS = 8;
+
+  private final String name;
+  private final HttpClient httpClient;
+  private final ClientContainer container;
+  private final MetricRegistry metricRegistry;
+  private final SharedMetrics metrics;
+  private final AtomicInteger openSessions = new AtomicInteger();
+  private final AtomicInteger references = new AtomicInteger();
+  private final AtomicBoolean retired = new AtomicBoolean();
+  private final AtomicBoolean stopped = new AtomicBoolean();
+
+  /**
+   * @param name name of the client, used for its threads and metrics
+   * @param policy policy of the frontend connections, the backend
+   *               connections use the same buffer sizes and timeouts
+   * @param truststore truststore used to verify the backends, may be null
+   * @param maxThreads max number of threads of the client
+   * @param metricRegistry registry of the client metrics, null if the
+   *                       metrics are disabled
+   * @throws Exception if the client fails to start
+   */
+  public BackendWebSocketClient(final String name, final WebSocketPolicy policy, final KeyStore truststore,
+                                final int maxThreads, final MetricRegistry metricRegistry) throws Exception {
+    this.name = name;
+    this.metricRegistry = metricRegistry;
+
+    final SslContextFactory sslContextFactory = new SslContextFactory.Client();
+    if (truststore != null) {
+      sslContextFactory.setTrustStore(truststore);
+    }
+
+    final QueuedThreadPool threadPool = new QueuedThreadPool(Math.max(maxThreads, MIN_THREADS), MIN_THREADS);
+    threadPool.setName("WebSocketClient-" + name);
+    threadPool.setDaemon(true);
+
+    httpClient = new HttpClient(sslContextFactory);
+    httpClient.setExecutor(threadPool);
+    httpClient.setName("WebSocketClient-" + name);
+
+    container = new ClientContainer(httpClient);
+    container.setDefaultMaxTextMessageBufferSize(policy.getMaxTextMessageBufferSize());
+    container.setDefaultMaxBinaryMessageBufferSize(policy.getMaxBinaryMessageBufferSize());
+    container.setAsyncSendTimeout(policy.getAsyncWriteTimeout());
+    container.setDefaultMaxSessionIdleTimeout(policy.getIdleTimeout());
+
+    httpClient.start();
+    container.start();
+
+    metrics = SharedMetrics.acquire(metricRegistry, name);
+    LOG.startedBackendClient(name);
+  }
+
+  /**
+   * Reserves the client for a connection, which must release it with
+   * {@link #release(Session)} once closed.
+   *
+   * @return false if the client is retired, the connection must then use
+   *         the client that replaced it
+   */
+  public boolean acquire() {
+    references.incrementAndGet();
+    if (retired.get()) {
+      release(null);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Connects to the backend, the client must have been acquired.
+   *
+   * @param endpoint endpoint receiving the backend messages
+   * @param clientConfig configuration of the connection
+   * @param backend URI of the backend
+   * @return the session with the backend
+   * @throws DeploymentException if the endpoint is not valid
+   * @throws IOException if the connection fails
+   */
+  public Session connect(final Endpoint endpoint, final ClientEndpointConfig clientConfig, final URI backend)
+      throws DeploymentException, IOException {
+    final Timer.Context time = metrics.connectTimer.time();
+    try {
+      final Session session = container.connectToServer(endpoint, clientConfig, backend);
+      openSessions.incrementAndGet();
+      metrics.openSessions.incrementAndGet();
+      return session;
+    } finally {
+      time.stop();
+    }
+  }
+
+  /**
+   * Releases the client acquired with {@link #acquire()}.
+   *
+   * @param session the session opened with
+   *                {@link #connect(Endpoint, ClientEndpointConfig, URI)},
+   *                null if the connection failed
+   */
+  public void release(final Session session) {
+    if (session != null) {
+      openSessions.decrementAndGet();
+      metrics.openSessions.decrementAndGet();
+    }
+    if (references.decrementAndGet() <= 0 && retired.get()) {
+      stop();
+    }
+  }
+
+  /**
+   * Stops the client once all the connections have released it.
+   */
+  public void retire() {
+    retired.set(true);
+    if (references.get() <= 0) {
+      stop();
+    }
+  }
+
+  /**
+   * Stops the client, closing its open sessions.
+   */
+  public void stop() {
+    if (!stopped.compareAndSet(false, true)) {
+      return;
+    }
+    metrics.release(metricRegistry, name);
+    try {
+      container.stop();
+      httpClient.stop();
+      LOG.stoppedBackendClient(name);
+    } catch (Exception e) {
+      LOG.failedToStopBackendClient(name, e);
+    }
+  }
+
+  /**
+   * Records bytes relayed from a frontend to the backend.
+   */
+  public void markBytesToBackend(final long bytes) {
+    metrics.bytesToBackend.mark(bytes);
+  }
+
+  /**
+   * Records bytes relayed from the backend to a frontend.
+   */
+  public void markBytesToFrontend(final long bytes) {
+    metrics.bytesToFrontend.mark(bytes);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getOpenSessions() {
+    return openSessions.get();
+  }
+
+  public Timer getConnectTimer() {
+    return metrics.connectTimer;
+  }
+
+  public Meter getBytesToBackend() {
+    return metrics.bytesToBackend;
+  }
+
+  public Meter getBytesToFrontend() {
+    return metrics.bytesToFrontend;
+  }
+
+  public boolean isStopped() {
+    return stopped.get();
+  }
+
+  /*
+   * Metrics of a service, registered by the first generation of its client
+   * and removed by the last one. The registry guards the generation count.
+   */
+  private static final class SharedMetrics implements Gauge<Integer> {
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final Timer connectTimer = new Timer();
+    private final Meter bytesToBackend = new Meter();
+    private final Meter bytesToFrontend = new Meter();
+    private int clients;
+
+    @Override
+    public Integer getValue() {
+      return openSessions.get();
+    }
+
+    static SharedMetrics acquire(final MetricRegistry registry, final String name) {
+      if (registry == null) {
+        return new SharedMetrics();
+      }
+      synchronized (registry) {
+        final SharedMetrics metrics = (SharedMetrics) registry.gauge(
+            MetricRegistry.name("websocket", name, "open-sessions"), SharedMetrics::new);
+        if (metrics.clients++ == 0) {
+          registry.register(MetricRegistry.name("websocket", name, "connect"), metrics.connectTimer);
+          registry.register(MetricRegistry.name("websocket", name, "bytes-to-backend"), metrics.bytesToBackend);
+          registry.register(MetricRegistry.name("websocket", name, "bytes-to-frontend"), metrics.bytesToFrontend);
+        }
+        return metrics;
+      }
+    }
+
+    void release(final MetricRegistry registry, final String name) {
+      if (registry == null) {
+        return;
+      }
+      synchronized (registry) {
+        if (--clients == 0) {
+          registry.remove(MetricRegistry.name("websocket", name, "open-sessions"));
+          registry.remove(MetricRegistry.name("websocket", name, "connect"));
+          registry.remove(MetricRegistry.name("websocket", name, "bytes-to-backend"));
+          registry.remove(MetricRegistry.name("websocket", name, "bytes-to-frontend"));
+        }
+      }
+    }
+  }
+}
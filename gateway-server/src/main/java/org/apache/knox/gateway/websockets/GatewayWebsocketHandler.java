@@ -18,16 +18,21 @@
 package org.apache.knox.gateway.websockets;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.impl.DefaultMetricsService;
 import org.apache.knox.gateway.services.registry.ServiceDefEntry;
 import org.apache.knox.gateway.services.registry.ServiceDefinitionRegistry;
 import org.apache.knox.gateway.services.registry.ServiceRegistry;
 import org.apache.knox.gateway.services.security.KeystoreService;
 import org.apache.knox.gateway.services.security.KeystoreServiceException;
+import org.apache.knox.gateway.services.topology.TopologyService;
+import org.apache.knox.gateway.topology.TopologyEvent;
 import org.apache.knox.gateway.webshell.WebshellWebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
 import org.eclipse.jetty.websocket.server.WebSocketHandler;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
@@ -40,9 +45,12 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.KeyStore;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -72,14 +80,29 @@ public class GatewayWebsocketHandler extends WebSocketHandler
           "^(" + SECURE_WEBSOCKET_PROTOCOL_STRING+"|"+WEBSOCKET_PROTOCOL_STRING + ")[^/]+/[^/]+/webshell$";
 
   private static final int POOL_SIZE = 10;
+  private static final int POOL_QUEUE_SIZE = 1024;
   private final AtomicInteger concurrentWebshells;
 
   /**
-   * Manage the threads that are spawned
+   * Manage the threads that are spawned, shared by all the connections
    * @since 0.13
    */
   private final ExecutorService pool;
 
+  /**
+   * Runs the blocking reads from the webshell processes, one thread per
+   * session, apart from the bounded pool of the proxied connections
+   */
+  private final ExecutorService webshellPool;
+
+  /**
+   * Clients of the backend connections, by topology and service
+   */
+  private final ConcurrentMap<String, BackendWebSocketClient> backendClients = new ConcurrentHashMap<>();
+
+  /* Policy of the frontend connections, shared with the backend clients */
+  private WebSocketPolicy policy;
+
   final GatewayConfig config;
   final GatewayServices services;
 
@@ -89,8 +112,18 @@ public class GatewayWebsocketHandler extends WebSocketHandler
     super();
     this.config = config;
     this.services = services;
-    pool = Executors.newFixedThreadPool(POOL_SIZE);
+    pool = new WebSocketExecutor(
+        config.getWebsocketPoolSize() > 0 ? config.getWebsocketPoolSize() : POOL_SIZE,
+        config.getWebsocketPoolQueueSize() > 0 ? config.getWebsocketPoolQueueSize() : POOL_QUEUE_SIZE,
+        config.isMetricsEnabled() ? DefaultMetricsService.getMetricRegistry() : null);
+    webshellPool = Executors.newCachedThreadPool(
+        new BasicThreadFactory.Builder().namingPattern("WebshellExecutor-%d").daemon(true).build());
     this.concurrentWebshells = new AtomicInteger(0);
+
+    final TopologyService topologyService = services == null ? null : services.getService(ServiceType.TOPOLOGY_SERVICE);
+    if (topologyService != null) {
+      topologyService.addTopologyChangeListener(this::retireBackendClients);
+    }
   }
 
   @Override
@@ -113,6 +146,18 @@ public class GatewayWebsocketHandler extends WebSocketHandler
         .setAsyncWriteTimeout(config.getWebsocketAsyncWriteTimeout());
     factory.getPolicy().setIdleTimeout(config.getWebsocketIdleTimeout());
 
+    policy = factory.getPolicy();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+    for (final BackendWebSocketClient client : backendClients.values()) {
+      client.stop();
+    }
+    backendClients.clear();
+    pool.shutdown();
+    webshellPool.shutdown();
   }
 
   private Boolean isWebshellRequest(URI requestURI){
@@ -126,7 +171,7 @@ public class GatewayWebsocketHandler extends WebSocketHandler
         }
         JWTValidator jwtValidator = JWTValidatorFactory.create(req, services, config);
         if (jwtValidator.validate()) {
-          return new WebshellWebSocketAdapter(pool, config, jwtValidator, concurrentWebshells);
+          return new WebshellWebSocketAdapter(webshellPool, config, jwtValidator, concurrentWebshells);
         }
         throw new RuntimeException("No valid token found for Web Shell connection");
       }
@@ -150,14 +195,74 @@ public class GatewayWebsocketHandler extends WebSocketHandler
 
       // Upgrade happens here
       final ClientEndpointConfig clientConfig = getClientEndpointConfig(req);
-      clientConfig.getUserProperties().put("org.apache.knox.gateway.websockets.truststore", getTruststore());
-      return new ProxyWebSocketAdapter(URI.create(backendURL), pool, clientConfig, config);
+      final String clientName = getBackendClientName(requestURI);
+      return new ProxyWebSocketAdapter(URI.create(backendURL), pool, clientConfig, config,
+          () -> acquireBackendClient(clientName));
     } catch (final Exception e) {
       LOG.failedCreatingWebSocket(e);
       throw new RuntimeException(e);
     }
   }
 
+  /*
+   * Name of the client shared by the connections to the backend of the
+   * topology service.
+   */
+  private String getBackendClientName(final URI requestURI) {
+    final String path = requestURI.getRawPath();
+    final ServiceDefinitionRegistry serviceDefinitionService = services
+        .getService(ServiceType.SERVICE_DEFINITION_REGISTRY);
+    final ServiceDefEntry entry = serviceDefinitionService
+        .getMatchingService(path.split(REGEX_SPLIT_CONTEXT)[1]);
+    return path.split("/")[2] + "/" + entry.getName();
+  }
+
+  /**
+   * Acquires the client shared by the connections to the backend of the
+   * topology service, starting it on the first connection.
+   */
+  private BackendWebSocketClient acquireBackendClient(final String name) {
+    while (true) {
+      final BackendWebSocketClient client = backendClients.computeIfAbsent(name, key -> {
+        try {
+          return new BackendWebSocketClient(key, policy == null ? WebSocketPolicy.newClientPolicy() : policy,
+              getTruststore(), config.getWebsocketClientMaxThreads(),
+              config.isMetricsEnabled() ? DefaultMetricsService.getMetricRegistry() : null);
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      if (client.acquire()) {
+        return client;
+      }
+      // Retired by a redeployment since it was looked up
+      backendClients.remove(name, client);
+    }
+  }
+
+  /*
+   * Redeployed topologies get new clients, for the truststore or backends
+   * may have changed. The replaced clients stop once their connections are
+   * closed, the clients of undeployed topologies stop right away.
+   */
+  private void retireBackendClients(final List<TopologyEvent> events) {
+    for (final TopologyEvent event : events) {
+      final String prefix = event.getTopology().getName() + "/";
+      final Iterator<BackendWebSocketClient> clients = backendClients.values().iterator();
+      while (clients.hasNext()) {
+        final BackendWebSocketClient client = clients.next();
+        if (client.getName().startsWith(prefix)) {
+          clients.remove();
+          if (event.getType() == TopologyEvent.Type.DELETED) {
+            client.stop();
+          } else {
+            client.retire();
+          }
+        }
+      }
+    }
+  }
+
   private KeyStore getTruststore() throws KeystoreServiceException {
     final KeystoreService ks = this.services
         .getService(ServiceType.KEYSTORE_SERVICE);
@@ -25,7 +25,8 @@ import javax.websocket.PongMessage;
 
 /**
  * A Websocket client with callback which is not annotation based.
- * This handler accepts String and binary messages.
+ * This handler accepts String and binary messages, and passes their
+ * fragments as they arrive to a {@link PartialMessageEventCallback}.
  * @since 0.14.0
  */
 public class ProxyInboundClient extends Endpoint {
@@ -56,6 +57,31 @@ public class ProxyInboundClient extends Endpoint {
     this.session = backendSession;
     this.config = config;
 
+    if (callback instanceof PartialMessageEventCallback) {
+      addPartialMessageHandlers((PartialMessageEventCallback) callback);
+    } else {
+      addWholeMessageHandlers();
+    }
+
+    /* Add message handler for Pong Control Message */
+    session.addMessageHandler(new MessageHandler.Whole<PongMessage>() {
+
+      /**
+       * Called when a ping message has been received.
+       *
+       * @param message the message data.
+       */
+      @Override
+      public void onMessage(final PongMessage pongMessage) {
+        callback.onMessagePong(pongMessage, session);
+      }
+
+    });
+
+    callback.onConnectionOpen(backendSession);
+  }
+
+  private void addWholeMessageHandlers() {
     /* Add message handler for binary data */
     session.addMessageHandler(new MessageHandler.Whole<byte[]>() {
 
@@ -85,23 +111,40 @@ public class ProxyInboundClient extends Endpoint {
       }
 
     });
+  }
 
-    /* Add message handler for Pong Control Message */
-    session.addMessageHandler(new MessageHandler.Whole<PongMessage>() {
+  private void addPartialMessageHandlers(final PartialMessageEventCallback partialCallback) {
+    /* Add message handler for binary fragments */
+    session.addMessageHandler(new MessageHandler.Partial<byte[]>() {
 
       /**
-       * Called when a ping message has been received.
+       * Called when a fragment of the message has been received.
        *
-       * @param message the message data.
+       * @param fragment the fragment data.
+       * @param last whether this is the last fragment.
        */
       @Override
-      public void onMessage(final PongMessage pongMessage) {
-        callback.onMessagePong(pongMessage, session);
+      public void onMessage(final byte[] fragment, final boolean last) {
+        partialCallback.onMessageBinary(fragment, last, session);
       }
 
     });
 
-    callback.onConnectionOpen(backendSession);
+    /* Add message handler for text fragments */
+    session.addMessageHandler(new MessageHandler.Partial<String>() {
+
+      /**
+       * Called when a fragment of the message has been received.
+       *
+       * @param fragment the fragment data.
+       * @param last whether this is the last fragment.
+       */
+      @Override
+      public void onMessage(final String fragment, final boolean last) {
+        partialCallback.onMessageText(fragment, last, session);
+      }
+
+    });
   }
 
   @Override
@@ -19,30 +19,39 @@ package org.apache.knox.gateway.websockets;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import javax.websocket.ClientEndpointConfig;
 import javax.websocket.CloseReason;
-import javax.websocket.ContainerProvider;
 import javax.websocket.DeploymentException;
-import javax.websocket.WebSocketContainer;
+import javax.websocket.SendResult;
 
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.eclipse.jetty.io.RuntimeIOException;
-import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.websocket.api.BatchMode;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import java.security.KeyStore;
 /**
  * Handles outbound/inbound Websocket connections and sessions.
+ * <p>
+ * Text and binary messages are relayed with asynchronous sends. The bytes
+ * relayed to each side and not yet written are bounded: past the limit,
+ * reading from the other side is suspended until half of them are written.
+ * Fragmented backend messages are relayed fragment by fragment.
  *
  * @since 0.10
  */
@@ -58,15 +67,40 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
   /* Session between the backend (outbound) and Knox */
   private javax.websocket.Session backendSession;
 
-  private WebSocketContainer container;
+  /* Client of the backend connections, shared unless owned by this adapter */
+  private BackendWebSocketClient backendClient;
+
+  private final Supplier<BackendWebSocketClient> sharedBackendClient;
+
+  private final boolean ownsBackendClient;
+
+  private final AtomicBoolean backendReleased = new AtomicBoolean();
 
   protected ExecutorService pool;
 
-  /* Message buffer for holding data frames temporarily in memory till connection is setup.
-   Keeping the max size of the buffer as 100 messages for now. */
-  private List<String> messageBuffer = new ArrayList<>();
+  /* Runs the tasks of this connection one at a time on the pool */
+  private final Executor serialExecutor;
+
+  /* Frames received from the backend before the frontend connection is set up.
+   The number of frames is bounded by the max wait buffer count, their bytes
+   count against the window to the frontend. */
+  private final Queue<Frame> frameBuffer = new ArrayDeque<>();
   private Lock remoteLock = new ReentrantLock();
 
+  /* Bytes relayed to the frontend, reading from the backend is suspended when full */
+  private final SendWindow frontendWindow;
+
+  /* Bytes relayed to the backend, reading from the frontend is suspended when full */
+  private final SendWindow backendWindow;
+
+  /* Whether the backend is sending a fragmented message, only used by the backend reader */
+  private boolean backendFragmented;
+
+  private final LongAdder messagesToBackend = new LongAdder();
+  private final LongAdder bytesToBackend = new LongAdder();
+  private final LongAdder messagesToFrontend = new LongAdder();
+  private final LongAdder bytesToFrontend = new LongAdder();
+
   protected final GatewayConfig config;
 
   /**
@@ -81,11 +115,28 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
   public ProxyWebSocketAdapter(final URI backend, final ExecutorService pool, final ClientEndpointConfig clientConfig,
                                GatewayConfig config) {
+    this(backend, pool, clientConfig, config, null);
+  }
+
+  /**
+   * @param sharedBackendClient acquires the client shared by the connections
+   *                            to the backend when the frontend connects, if
+   *                            null the adapter creates its own client for the
+   *                            connection
+   */
+  public ProxyWebSocketAdapter(final URI backend, final ExecutorService pool, final ClientEndpointConfig clientConfig,
+                               GatewayConfig config, final Supplier<BackendWebSocketClient> sharedBackendClient) {
     super();
     this.backend = backend;
     this.pool = pool;
+    this.serialExecutor = new SerialExecutor(pool);
     this.clientConfig = clientConfig;
     this.config = config;
+    this.sharedBackendClient = sharedBackendClient;
+    this.ownsBackendClient = sharedBackendClient == null;
+    final long maxPendingBytes = config.getWebsocketMaxPendingBytes();
+    this.frontendWindow = new SendWindow(maxPendingBytes);
+    this.backendWindow = new SendWindow(maxPendingBytes);
   }
 
   @Override
@@ -94,28 +145,7 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
      * Let's connect to the backend, this is where the Backend-to-frontend
      * plumbing takes place
      */
-    container = ContainerProvider.getWebSocketContainer();
-    container.setDefaultMaxTextMessageBufferSize(frontEndSession.getPolicy().getMaxTextMessageBufferSize());
-    container.setDefaultMaxBinaryMessageBufferSize(frontEndSession.getPolicy().getMaxBinaryMessageBufferSize());
-    container.setAsyncSendTimeout(frontEndSession.getPolicy().getAsyncWriteTimeout());
-    container.setDefaultMaxSessionIdleTimeout(frontEndSession.getPolicy().getIdleTimeout());
-
-    KeyStore ks = null;
-    if(clientConfig != null) {
-      ks = (KeyStore) clientConfig.getUserProperties().get("org.apache.knox.gateway.websockets.truststore");
-    }
-
-    /*
-       Currently javax.websocket API has no provisions to configure SSL
-       https://github.com/eclipse-ee4j/websocket-api/issues/210
-       Until that gets fixed we'll have to resort to this.
-    */
-    if(container instanceof org.eclipse.jetty.websocket.jsr356.ClientContainer &&
-        ((org.eclipse.jetty.websocket.jsr356.ClientContainer)container).getClient() != null &&
-        ((org.eclipse.jetty.websocket.jsr356.ClientContainer)container).getClient().getSslContextFactory() != null ) {
-      ((org.eclipse.jetty.websocket.jsr356.ClientContainer)container).getClient().getHttpClient().getSslContextFactory().setTrustStore(ks);
-      LOG.logMessage("Truststore for websocket setup");
-    }
+    backendClient = ownsBackendClient ? createBackendClient(frontEndSession) : sharedBackendClient.get();
 
     final ProxyInboundClient backendSocket = new ProxyInboundClient(getMessageCallback());
 
@@ -123,7 +153,7 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
     /* Attempt Connect */
     try {
-      backendSession = container.connectToServer(backendSocket, clientConfig, backend);
+      backendSession = backendClient.connect(backendSocket, clientConfig, backend);
 
       LOG.onConnectionOpen(backend.toString());
 
@@ -141,8 +171,8 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
     final RemoteEndpoint remote = frontEndSession.getRemote();
     try {
-      if (!messageBuffer.isEmpty()) {
-        flushBufferedMessages(remote);
+      if (!frameBuffer.isEmpty()) {
+        flushBufferedFrames(remote);
 
         if (remote.getBatchMode() == BatchMode.ON) {
           remote.flush();
@@ -160,14 +190,34 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
     }
   }
 
+  private BackendWebSocketClient createBackendClient(final Session frontEndSession) {
+    KeyStore ks = null;
+    if(clientConfig != null) {
+      ks = (KeyStore) clientConfig.getUserProperties().get("org.apache.knox.gateway.websockets.truststore");
+    }
+
+    try {
+      return new BackendWebSocketClient(backend.getAuthority(), frontEndSession.getPolicy(), ks,
+          config.getWebsocketClientMaxThreads(), null);
+    } catch (Exception e) {
+      LOG.connectionFailed(e);
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public void onWebSocketBinary(final byte[] payload, final int offset, final int length) {
     if (isNotConnected()) {
       return;
     }
 
-    throw new UnsupportedOperationException(
-        "Websocket support for binary messages is not supported at this time.");
+    LOG.debugLog("[From Frontend --->] binary message of " + length + " bytes");
+
+    /* Proxy message to backend */
+    countToBackend(length);
+    backendWindow.acquire(length, getSession());
+    backendSession.getAsyncRemote().sendBinary(ByteBuffer.wrap(payload, offset, length),
+        result -> onSentToBackend(result, length));
   }
 
   @Override
@@ -178,12 +228,23 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
     LOG.logMessage("[From Frontend --->]" + message);
 
-    /* Proxy message to backend */
-    try {
-      backendSession.getBasicRemote().sendText(message);
+    /* Proxy message to backend, text is accounted for by its length */
+    final int size = message.length();
+    countToBackend(size);
+    backendWindow.acquire(size, getSession());
+    backendSession.getAsyncRemote().sendText(message, result -> onSentToBackend(result, size));
+  }
 
-    } catch (IOException e) {
-      LOG.connectionFailed(e);
+  private void countToBackend(final int size) {
+    messagesToBackend.increment();
+    bytesToBackend.add(size);
+    backendClient.markBytesToBackend(size);
+  }
+
+  private void onSentToBackend(final SendResult result, final int size) {
+    backendWindow.release(size);
+    if (!result.isOK()) {
+      LOG.onError(String.valueOf(result.getException()));
     }
   }
 
@@ -192,6 +253,8 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
     super.onWebSocketClose(statusCode, reason);
     cleanup();
     LOG.onConnectionClose(backend.toString());
+    LOG.onConnectionStatistics(backend.toString(), messagesToBackend.sum(), bytesToBackend.sum(),
+        messagesToFrontend.sum(), bytesToFrontend.sum());
   }
 
   @Override
@@ -220,7 +283,7 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
   }
 
   private MessageEventCallback getMessageCallback() {
-    return new MessageEventCallback() {
+    return new PartialMessageEventCallback() {
 
       @Override
       public void doCallback(String message) {
@@ -249,44 +312,20 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
       @Override
       public void onMessageText(String message, Object session) {
-        LOG.logMessage("[From Backend <---]" + message);
-        remoteLock.lock();
-        final RemoteEndpoint remote = getRemote();
-        try {
-          if (remote == null) {
-            LOG.debugLog("Remote endpoint is null");
-            if (messageBuffer.size() >= config.getWebsocketMaxWaitBufferCount()) {
-              throw new RuntimeIOException("Remote is null and message buffer is full. Cannot buffer anymore ");
-            }
-            LOG.debugLog("Buffering message: " + message);
-            messageBuffer.add(message);
-            return;
-          }
-
-          /* Proxy message to frontend */
-          flushBufferedMessages(remote);
+        onMessageText(message, true, session);
+      }
 
-          LOG.debugLog("Sending current message [From Backend <---]: " + message);
-          remote.sendString(message);
-          if (remote.getBatchMode() == BatchMode.ON) {
-            remote.flush();
-          }
-        } catch (IOException e) {
-          LOG.connectionFailed(e);
-          throw new RuntimeIOException(e);
-        }
-        finally
-        {
-          remoteLock.unlock();
-        }
+      @Override
+      public void onMessageText(String fragment, boolean last, Object session) {
+        LOG.logMessage("[From Backend <---]" + fragment);
+        relayToFrontend(new Frame(fragment, null, isFragment(last), last), session);
       }
 
       @Override
-      public void onMessageBinary(byte[] message, boolean last,
+      public void onMessageBinary(byte[] fragment, boolean last,
           Object session) {
-        throw new UnsupportedOperationException(
-            "Websocket support for binary messages is not supported at this time.");
-
+        LOG.debugLog("[From Backend <---] binary fragment of " + fragment.length + " bytes");
+        relayToFrontend(new Frame(null, ByteBuffer.wrap(fragment), isFragment(last), last), session);
       }
 
       @Override
@@ -301,7 +340,7 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
           }
 
           /* Proxy Ping message to frontend */
-          flushBufferedMessages(remote);
+          flushBufferedFrames(remote);
 
           LOG.logMessage("Sending current PING [From Backend <---]: ");
           remote.sendPing(message.getApplicationData());
@@ -322,10 +361,103 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
   }
 
+  /*
+   * Whether the frame is part of a fragmented message, rather than a whole
+   * message. Should be called by the backend reader.
+   */
+  private boolean isFragment(final boolean last) {
+    final boolean fragment = backendFragmented || !last;
+    backendFragmented = !last;
+    return fragment;
+  }
+
+  /*
+   * Relays a frame received from the backend, buffering it if the frontend
+   * connection is not set up yet.
+   */
+  private void relayToFrontend(final Frame frame, final Object session) {
+    /* Reading from the backend is suspended if the frontend falls behind */
+    frontendWindow.acquire(frame.size, session instanceof Session ? (Session) session : null);
+    remoteLock.lock();
+    final RemoteEndpoint remote = getRemote();
+    try {
+      if (remote == null) {
+        LOG.debugLog("Remote endpoint is null");
+        if (frameBuffer.size() >= config.getWebsocketMaxWaitBufferCount()) {
+          frontendWindow.release(frame.size);
+          throw new RuntimeIOException("Remote is null and message buffer is full. Cannot buffer anymore ");
+        }
+        LOG.debugLog("Buffering message: " + frame);
+        frameBuffer.add(frame);
+        return;
+      }
+
+      /* Proxy message to frontend */
+      flushBufferedFrames(remote);
+
+      LOG.debugLog("Sending current message [From Backend <---]: " + frame);
+      sendToFrontend(remote, frame);
+      if (remote.getBatchMode() == BatchMode.ON) {
+        remote.flush();
+      }
+    } catch (IOException e) {
+      LOG.connectionFailed(e);
+      throw new RuntimeIOException(e);
+    }
+    finally
+    {
+      remoteLock.unlock();
+    }
+  }
+
+  /*
+   * Sends a frame whose bytes are counted in the frontend window. Should be
+   * called with remoteLock held.
+   */
+  private void sendToFrontend(final RemoteEndpoint remote, final Frame frame) throws IOException {
+    if (frame.last) {
+      messagesToFrontend.increment();
+    }
+    bytesToFrontend.add(frame.size);
+    backendClient.markBytesToFrontend(frame.size);
+
+    if (frame.fragment) {
+      /* There is no asynchronous send of fragments */
+      try {
+        if (frame.text != null) {
+          remote.sendPartialString(frame.text, frame.last);
+        } else {
+          remote.sendPartialBytes(frame.binary, frame.last);
+        }
+      } finally {
+        frontendWindow.release(frame.size);
+      }
+      return;
+    }
+
+    final WriteCallback callback = new WriteCallback() {
+      @Override
+      public void writeFailed(final Throwable x) {
+        frontendWindow.release(frame.size);
+        LOG.onError(x.toString());
+      }
+
+      @Override
+      public void writeSuccess() {
+        frontendWindow.release(frame.size);
+      }
+    };
+    if (frame.text != null) {
+      remote.sendString(frame.text, callback);
+    } else {
+      remote.sendBytes(frame.binary, callback);
+    }
+  }
+
   @SuppressWarnings("PMD.DoNotUseThreads")
   private void cleanup() {
     /* do the cleaning business in separate thread so we don't block */
-    pool.execute(new Runnable() {
+    serialExecutor.execute(new Runnable() {
       @Override
       public void run() {
         closeQuietly();
@@ -335,18 +467,18 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
   private void closeQuietly() {
     try {
-      if(backendSession != null && !backendSession.isOpen()) {
+      if(backendSession != null && backendSession.isOpen()) {
         backendSession.close();
       }
     } catch (IOException e) {
       LOG.connectionFailed(e);
     }
 
-    if (container instanceof LifeCycle) {
-      try {
-        ((LifeCycle) container).stop();
-      } catch (Exception e) {
-        LOG.connectionFailed(e);
+    if (backendClient != null && backendReleased.compareAndSet(false, true)) {
+      if (ownsBackendClient) {
+        backendClient.stop();
+      } else {
+        backendClient.release(backendSession);
       }
     }
 
@@ -356,14 +488,38 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
   }
 
   /*
-   * Function to flush buffered messages. Should be called with remoteLock held
+   * Function to flush buffered frames. Should be called with remoteLock held
    */
-  private void flushBufferedMessages(final RemoteEndpoint remote) throws IOException {
+  private void flushBufferedFrames(final RemoteEndpoint remote) throws IOException {
     LOG.debugLog("Flushing old buffered messages");
-    for(String obj:messageBuffer) {
-      LOG.debugLog("Sending old buffered message [From Backend <---]: " + obj);
-      remote.sendString(obj);
+    Frame frame;
+    while ((frame = frameBuffer.poll()) != null) {
+      LOG.debugLog("Sending old buffered message [From Backend <---]: " + frame);
+      sendToFrontend(remote, frame);
+    }
+  }
+
+  /*
+   * A message, or a fragment of a message, received from the backend
+   */
+  private static final class Frame {
+    private final String text;
+    private final ByteBuffer binary;
+    private final boolean fragment;
+    private final boolean last;
+    private final int size;
+
+    Frame(final String text, final ByteBuffer binary, final boolean fragment, final boolean last) {
+      this.text = text;
+      this.binary = binary;
+      this.fragment = fragment;
+      this.last = last;
+      this.size = text != null ? text.length() : binary.remaining();
+    }
+
+    @Override
+    public String toString() {
+      return text != null ? text : "binary " + (fragment ? "fragment" : "message") + " of " + size + " bytes";
     }
-    messageBuffer.clear();
   }
 }
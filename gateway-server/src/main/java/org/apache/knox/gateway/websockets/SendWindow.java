@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.SuspendToken;
+
+/**
+ * Bytes relayed to one side of a websocket connection and not yet written.
+ * <p>
+ * Reading from the session on the other side is suspended while they exceed
+ * the limit, and resumed once half of them have been written.
+ */
+class SendWindow {
+  private final long limit;
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicReference<SuspendToken> suspended = new AtomicReference<>();
+
+  /**
+   * @param limit max pending bytes, no limit if not positive
+   */
+  SendWindow(final long limit) {
+    this.limit = limit > 0 ? limit : Long.MAX_VALUE;
+  }
+
+  /**
+   * Counts bytes about to be sent. Must be called by the thread reading from
+   * the source session.
+   *
+   * @param bytes number of bytes
+   * @param source session the bytes were read from, reading from it is
+   *               suspended if the window is full, may be null
+   */
+  void acquire(final long bytes, final Session source) {
+    if (pending.addAndGet(bytes) > limit && source != null && suspended.get() == null) {
+      suspended.set(source.suspend());
+      /* The pending bytes may have been written meanwhile */
+      if (pending.get() <= limit / 2) {
+        resume();
+      }
+    }
+  }
+
+  /**
+   * Counts bytes written or dropped.
+   *
+   * @param bytes number of bytes
+   */
+  void release(final long bytes) {
+    if (pending.addAndGet(-bytes) <= limit / 2) {
+      resume();
+    }
+  }
+
+  long getPending() {
+    return pending.get();
+  }
+
+  boolean isSuspended() {
+    return suspended.get() != null;
+  }
+
+  private void resume() {
+    final SuspendToken token = suspended.getAndSet(null);
+    if (token != null) {
+      token.resume();
+    }
+  }
+}
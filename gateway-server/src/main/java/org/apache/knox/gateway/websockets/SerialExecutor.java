@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+/**
+ * Runs the tasks of a websocket connection on a shared executor, one at a
+ * time and in submission order. A connection thus never occupies more than
+ * one thread of the shared executor, and its cleanups do not race.
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+class SerialExecutor implements Executor {
+  private static final WebsocketLogMessages LOG = MessagesFactory.get(WebsocketLogMessages.class);
+
+  private final Executor executor;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  SerialExecutor(final Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void execute(final Runnable task) {
+    tasks.add(task);
+    schedule();
+  }
+
+  private void schedule() {
+    if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+      executor.execute(this::runNext);
+    }
+  }
+
+  /*
+   * Runs a single task, so that the connections sharing the executor take turns
+   */
+  private void runNext() {
+    try {
+      final Runnable task = tasks.poll();
+      if (task != null) {
+        task.run();
+      }
+    } catch (RuntimeException e) {
+      LOG.onError(e.toString());
+    } finally {
+      scheduled.set(false);
+      schedule();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+/**
+ * Executor of the websocket handler, with a fixed number of named threads
+ * and a bounded queue.
+ * <p>
+ * When the queue is full, tasks run on the submitting thread. An overloaded
+ * gateway then slows down instead of dropping connection cleanups. Every
+ * such task is counted and logged. The time tasks wait in the queue and
+ * their run time are measured.
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+public class WebSocketExecutor extends ThreadPoolExecutor {
+  private static final WebsocketLogMessages LOG = MessagesFactory.get(WebsocketLogMessages.class);
+
+  private final MetricRegistry metricRegistry;
+  private final Timer waitTimer = new Timer();
+  private final Timer runTimer = new Timer();
+  private final Meter overload = new Meter();
+  private final Map<String, Metric> metrics = new HashMap<>();
+
+  /**
+   * @param poolSize number of threads
+   * @param queueSize max number of waiting tasks
+   * @param metricRegistry registry of the executor metrics, null if the
+   *                       metrics are disabled
+   */
+  public WebSocketExecutor(final int poolSize, final int queueSize, final MetricRegistry metricRegistry) {
+    super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueSize),
+        new BasicThreadFactory.Builder().namingPattern("WebSocketExecutor-%d").daemon(true).build());
+    setRejectedExecutionHandler(new RunOnSubmitter());
+    this.metricRegistry = metricRegistry;
+    if (metricRegistry != null) {
+      metrics.put(name("queue-depth"), (Gauge<Integer>) () -> getQueue().size());
+      metrics.put(name("active-threads"), (Gauge<Integer>) this::getActiveCount);
+      metrics.put(name("wait"), waitTimer);
+      metrics.put(name("run"), runTimer);
+      metrics.put(name("overload"), overload);
+      registerMetrics();
+    }
+  }
+
+  /*
+   * The metrics of an executor replaced by a new handler, on redeployment or
+   * in tests, are replaced by the metrics of the new executor.
+   */
+  private void registerMetrics() {
+    synchronized (metricRegistry) {
+      for (Map.Entry<String, Metric> metric : metrics.entrySet()) {
+        metricRegistry.remove(metric.getKey());
+        metricRegistry.register(metric.getKey(), metric.getValue());
+      }
+    }
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    super.execute(new TimedTask(command));
+  }
+
+  @Override
+  protected void terminated() {
+    super.terminated();
+    if (metricRegistry != null) {
+      /* Leaves the metrics of the executor that replaced this one */
+      synchronized (metricRegistry) {
+        metricRegistry.removeMatching((name, metric) -> metrics.get(name) == metric);
+      }
+    }
+  }
+
+  public Timer getWaitTimer() {
+    return waitTimer;
+  }
+
+  public Timer getRunTimer() {
+    return runTimer;
+  }
+
+  public Meter getOverload() {
+    return overload;
+  }
+
+  private static String name(final String metric) {
+    return MetricRegistry.name("websocket", "executor", metric);
+  }
+
+  private final class TimedTask implements Runnable {
+    private final Runnable task;
+    private final long submitted = System.nanoTime();
+
+    TimedTask(final Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      final long started = System.nanoTime();
+      waitTimer.update(started - submitted, TimeUnit.NANOSECONDS);
+      try {
+        task.run();
+      } finally {
+        runTimer.update(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
+  private final class RunOnSubmitter implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(final Runnable task, final ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        LOG.websocketExecutorShutdown();
+        return;
+      }
+      overload.mark();
+      LOG.websocketExecutorOverloaded(executor.getQueue().size());
+      task.run();
+    }
+  }
+}
@@ -56,8 +56,34 @@ public interface WebsocketLogMessages {
       text = "Websocket connection to backend server {0} closed")
   void onConnectionClose(String backend);
 
+  @Message(level = MessageLevel.DEBUG,
+      text = "Websocket connection to backend server {0} relayed {1} messages ({2} bytes) to the backend and {3} messages ({4} bytes) to the frontend")
+  void onConnectionStatistics(String backend, long messagesToBackend, long bytesToBackend,
+      long messagesToFrontend, long bytesToFrontend);
+
   @Message(level = MessageLevel.DEBUG,
       text = "{0}")
   void debugLog(String message);
 
+  @Message(level = MessageLevel.WARN,
+      text = "Websocket executor is overloaded with {0} waiting tasks, running the task on the calling thread")
+  void websocketExecutorOverloaded(int waitingTasks);
+
+  @Message(level = MessageLevel.DEBUG,
+      text = "Websocket executor is shut down, dropping the task")
+  void websocketExecutorShutdown();
+
+  @Message(level = MessageLevel.INFO,
+      text = "Started websocket client for backend {0}")
+  void startedBackendClient(String name);
+
+  @Message(level = MessageLevel.INFO,
+      text = "Stopped websocket client for backend {0}")
+  void stoppedBackendClient(String name);
+
+  @Message(level = MessageLevel.ERROR,
+      text = "Failed to stop websocket client for backend {0}: {1}")
+  void failedToStopBackendClient(String name,
+      @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
 }
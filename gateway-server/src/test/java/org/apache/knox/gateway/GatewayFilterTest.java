@@ -23,6 +23,8 @@ import org.apache.knox.gateway.audit.api.CorrelationService;
 import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
+import org.apache.knox.gateway.services.metrics.RequestMetrics;
+import org.apache.knox.gateway.services.metrics.RequestPhase;
 import org.apache.knox.gateway.topology.Topology;
 import org.apache.knox.test.category.FastTests;
 import org.apache.knox.test.category.UnitTests;
@@ -41,6 +43,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.knox.gateway.filter.CorrelationHandler.REQUEST_ID_HEADER_NAME;
 import static org.hamcrest.CoreMatchers.is;
@@ -48,6 +51,8 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
 
 @Category( { UnitTests.class, FastTests.class } )
 public class GatewayFilterTest {
@@ -291,4 +296,84 @@ public class GatewayFilterTest {
     assertThat(filter.url, is("http://host:8443/gateway/sandbox/test-role/test-path/test-resource"));
 
   }
+
+  /**
+   * Filter of a provider phase, sleeping before and after the rest of the chain.
+   * The dispatch also records the time it spends streaming the response.
+   */
+  public static class TestPhaseFilter extends AbstractGatewayFilter {
+    private final long sleepMillis;
+    private final long streamingMillis;
+
+    TestPhaseFilter( long sleepMillis, long streamingMillis ) {
+      this.sleepMillis = sleepMillis;
+      this.streamingMillis = streamingMillis;
+    }
+
+    @Override
+    protected void doFilter( HttpServletRequest request, HttpServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      sleep( sleepMillis );
+      chain.doFilter( request, response );
+      if( streamingMillis > 0 ) {
+        final long started = System.nanoTime();
+        sleep( streamingMillis );
+        RequestMetrics.get( request ).record( RequestPhase.RESPONSE_STREAMING, System.nanoTime() - started );
+      } else {
+        sleep( sleepMillis );
+      }
+    }
+
+    private static void sleep( long millis ) throws ServletException {
+      try {
+        Thread.sleep( millis );
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new ServletException( e );
+      }
+    }
+  }
+
+  @Test
+  public void testFilterPhasesExcludeTheRestOfTheChain() throws Exception {
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    RequestMetrics requestMetrics = new RequestMetrics();
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( request.getPathInfo() ).andReturn( "test-path/test-resource" ).anyTimes();
+    EasyMock.expect( request.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.expect( request.getAttribute( RequestMetrics.REQUEST_METRICS_ATTRIBUTE ) ).andReturn( requestMetrics ).anyTimes();
+    EasyMock.expect( context.getAttribute(
+        GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    EasyMock.replay( request );
+    EasyMock.replay( context );
+    EasyMock.replay( gatewayConfig );
+
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( response );
+
+    GatewayFilter gateway = new GatewayFilter();
+    // 2 x 50ms in the authentication filter, around the rest of the chain
+    gateway.addFilter( "test-path/**", "authentication", new TestPhaseFilter( 50, 0 ), null, "test-role", "authentication" );
+    // not a timed phase
+    gateway.addFilter( "test-path/**", "other", new TestPhaseFilter( 50, 0 ), null, "test-role", "other" );
+    // 100ms waiting for the backend, then 100ms streaming the response
+    gateway.addFilter( "test-path/**", "dispatch", new TestPhaseFilter( 100, 100 ), null, "test-role", "dispatch" );
+    gateway.init( config );
+    gateway.doFilter( request, response );
+    gateway.destroy();
+
+    final long millis = TimeUnit.MILLISECONDS.toNanos( 1 );
+    assertThat( requestMetrics.getNanos( RequestPhase.AUTHENTICATION ), greaterThanOrEqualTo( 100 * millis ) );
+    assertThat( requestMetrics.getNanos( RequestPhase.AUTHENTICATION ), lessThan( 200 * millis ) );
+    assertThat( requestMetrics.getNanos( RequestPhase.BACKEND_WAIT ), greaterThanOrEqualTo( 100 * millis ) );
+    assertThat( requestMetrics.getNanos( RequestPhase.BACKEND_WAIT ), lessThan( 200 * millis ) );
+    assertThat( requestMetrics.getNanos( RequestPhase.RESPONSE_STREAMING ), greaterThanOrEqualTo( 100 * millis ) );
+    assertThat( requestMetrics.getNanos( RequestPhase.IDENTITY_ASSERTION ), is( 0L ) );
+    assertThat( requestMetrics.getRecordedNanos(), is( requestMetrics.getNanos( RequestPhase.AUTHENTICATION )
+        + requestMetrics.getNanos( RequestPhase.BACKEND_WAIT ) + requestMetrics.getNanos( RequestPhase.RESPONSE_STREAMING ) ) );
+  }
 }
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.knox.gateway.deploy.DeploymentException;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopologyContextActivatorTest {
+
+  private Server server;
+  private ContextHandlerCollection contexts;
+  private Map<String, ContextHandler> deployed;
+  private TopologyContextActivator<ContextHandler> activator;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new Server();
+    contexts = new ContextHandlerCollection();
+    server.setHandler(contexts);
+    deployed = new HashMap<>();
+    activator = new TopologyContextActivator<>(contexts, deployed);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void testContextsAreAddedBeforeServerStart() throws Exception {
+    final ContextHandler oldContext = new ContextHandler("/gateway/sandbox");
+    assertTrue(activator.activate(Collections.singletonList(oldContext), context -> fail("Not started yet")).isEmpty());
+    final ContextHandler newContext = new ContextHandler("/gateway/sandbox");
+    assertTrue(activator.activate(Collections.singletonList(newContext), context -> fail("Not started yet")).isEmpty());
+
+    assertEquals(Collections.singletonList(newContext), Arrays.asList(contexts.getHandlers()));
+    assertSame(newContext, deployed.get("/gateway/sandbox"));
+    server.start();
+    assertTrue(newContext.isRunning());
+    assertFalse(oldContext.isRunning());
+  }
+
+  @Test
+  public void testRedeployedContextReplacesRunningContext() throws Exception {
+    final ContextHandler oldContext = new ContextHandler("/gateway/sandbox");
+    activator.activate(Collections.singletonList(oldContext), context -> { });
+    server.start();
+    assertTrue(oldContext.isRunning());
+
+    final AtomicInteger warmedUp = new AtomicInteger();
+    final ContextHandler newContext = new ContextHandler("/gateway/sandbox");
+    final ContextHandler addedContext = new ContextHandler("/gateway/sandbox/app");
+    final List<ContextHandler> replaced = activator.activate(Arrays.asList(newContext, addedContext), context -> {
+      assertTrue(context.isRunning());
+      warmedUp.incrementAndGet();
+    });
+
+    assertEquals(Collections.singletonList(oldContext), replaced);
+    assertEquals(2, warmedUp.get());
+    assertEquals(Arrays.asList(newContext, addedContext), Arrays.asList(contexts.getHandlers()));
+    assertSame(newContext, deployed.get("/gateway/sandbox"));
+    assertSame(addedContext, deployed.get("/gateway/sandbox/app"));
+    assertTrue(newContext.isRunning());
+    assertTrue(addedContext.isRunning());
+    // the replaced context is left running for its in-flight requests to drain
+    assertTrue(oldContext.isRunning());
+    assertFalse(contexts.isManaged(oldContext));
+  }
+
+  @Test
+  public void testFailedRedeployKeepsRunningContexts() throws Exception {
+    final ContextHandler oldContext = new ContextHandler("/gateway/sandbox");
+    final ContextHandler oldAppContext = new ContextHandler("/gateway/sandbox/app");
+    activator.activate(Arrays.asList(oldContext, oldAppContext), context -> { });
+    server.start();
+
+    final ContextHandler newContext = new ContextHandler("/gateway/sandbox");
+    final ContextHandler failingContext = new ContextHandler("/gateway/sandbox/app") {
+      @Override
+      protected void doStart() throws Exception {
+        throw new IllegalStateException("Failed to initialize the gateway filter");
+      }
+    };
+    try {
+      activator.activate(Arrays.asList(newContext, failingContext), context -> { });
+      fail("The activation should have failed");
+    } catch (IllegalStateException e) {
+      assertEquals("Failed to initialize the gateway filter", e.getMessage());
+    }
+
+    assertEquals(Arrays.asList(oldContext, oldAppContext), Arrays.asList(contexts.getHandlers()));
+    assertSame(oldContext, deployed.get("/gateway/sandbox"));
+    assertSame(oldAppContext, deployed.get("/gateway/sandbox/app"));
+    assertTrue(oldContext.isRunning());
+    assertTrue(oldAppContext.isRunning());
+    assertFalse(newContext.isRunning());
+  }
+
+  @Test
+  public void testUnavailableContextFailsActivation() throws Exception {
+    final ContextHandler oldContext = new ContextHandler("/gateway/sandbox");
+    activator.activate(Collections.singletonList(oldContext), context -> { });
+    server.start();
+
+    final ContextHandler unavailableContext = new ContextHandler("/gateway/sandbox") {
+      @Override
+      public boolean isAvailable() {
+        return false;
+      }
+    };
+    try {
+      activator.activate(Collections.singletonList(unavailableContext), context -> fail("Unavailable contexts are not warmed up"));
+      fail("The activation should have failed");
+    } catch (DeploymentException e) {
+      assertEquals("Context /gateway/sandbox is not available after start.", e.getMessage());
+    }
+    assertSame(oldContext, deployed.get("/gateway/sandbox"));
+    assertTrue(oldContext.isRunning());
+    assertFalse(unavailableContext.isRunning());
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.instr;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.GatewayFilter;
+import org.apache.knox.gateway.audit.api.AuditServiceFactory;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.filter.AbstractGatewayFilter;
+import org.apache.knox.gateway.services.metrics.RequestMetrics;
+import org.apache.knox.gateway.services.metrics.RequestPhase;
+import org.apache.knox.gateway.services.metrics.SummingTimer;
+import org.apache.knox.gateway.topology.Topology;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class InstrumentedGatewayFilterTest {
+  private static final String PREFIX = "topology.sandbox.service.WEBHDFS.";
+
+  private MetricRegistry metricRegistry;
+  private InstrumentedGatewayFilter filter;
+
+  @Before
+  public void setUp() throws Exception {
+    AuditServiceFactory.getAuditService().createContext();
+    metricRegistry = new MetricRegistry();
+    filter = new InstrumentedGatewayFilter(new GatewayFilter(), metricRegistry);
+    filter.addFilter("webhdfs/**", "identity-assertion", new TestFilter(), null, "WEBHDFS", "identity-assertion");
+    filter.addFilter("other/**", "dispatch", new TestFilter(), null, null, "dispatch");
+    FilterConfig filterConfig = EasyMock.createNiceMock(FilterConfig.class);
+    EasyMock.replay(filterConfig);
+    filter.init(filterConfig);
+  }
+
+  @After
+  public void tearDown() {
+    filter.destroy();
+    AuditServiceFactory.getAuditService().detachContext();
+  }
+
+  @Test
+  public void testServiceMetrics() throws Exception {
+    filter.doFilter(request("webhdfs/v1"), response(HttpServletResponse.SC_OK));
+    filter.doFilter(request("webhdfs/v1"), response(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+    try {
+      filter.doFilter(request("webhdfs/fail"), response(HttpServletResponse.SC_OK));
+      Assert.fail("The filter should have failed");
+    } catch (IOException e) {
+      Assert.assertEquals("Backend unreachable", e.getMessage());
+    }
+
+    final Timer requests = metricRegistry.getTimers().get(PREFIX + "requests");
+    Assert.assertTrue(requests instanceof SummingTimer);
+    Assert.assertEquals(3, requests.getCount());
+    Assert.assertEquals(2, metricRegistry.getMeters().get(PREFIX + "errors").getCount());
+
+    final SummingTimer identityAssertion = (SummingTimer) metricRegistry.getTimers().get(PREFIX + "identity-assertion");
+    Assert.assertEquals(3, identityAssertion.getCount());
+    Assert.assertTrue(identityAssertion.getSumNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+    Assert.assertTrue(identityAssertion.getSumNanos() <= ((SummingTimer) requests).getSumNanos());
+    Assert.assertEquals(0, metricRegistry.getTimers().get(PREFIX + RequestPhase.AUTHENTICATION.getMetricName()).getCount());
+  }
+
+  @Test
+  public void testRequestsWithoutServiceAreNotRecorded() throws Exception {
+    filter.doFilter(request("other/path"), response(HttpServletResponse.SC_OK));
+    filter.doFilter(request("unknown/path"), response(HttpServletResponse.SC_OK));
+    Assert.assertTrue(metricRegistry.getTimers().keySet().stream().noneMatch(name -> name.startsWith("topology.")));
+    Assert.assertTrue(metricRegistry.getMeters().isEmpty());
+  }
+
+  /**
+   * Takes 10ms, and fails for the "fail" paths.
+   */
+  public static class TestFilter extends AbstractGatewayFilter {
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+      Assert.assertNotNull(RequestMetrics.get(request));
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ServletException(e);
+      }
+      if (request.getPathInfo().endsWith("fail")) {
+        throw new IOException("Backend unreachable");
+      }
+    }
+  }
+
+  private static HttpServletRequest request(String path) {
+    Topology topology = new Topology();
+    topology.setName("sandbox");
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+    EasyMock.expect(context.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    EasyMock.expect(context.getAttribute("org.apache.knox.gateway.topology")).andReturn(topology).anyTimes();
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getPathInfo()).andReturn(path).anyTimes();
+    EasyMock.expect(request.getMethod()).andReturn("GET").anyTimes();
+    EasyMock.expect(request.getServletContext()).andReturn(context).anyTimes();
+    EasyMock.replay(gatewayConfig, context, request);
+    return new AttributesRequest(request);
+  }
+
+  private static HttpServletResponse response(int status) {
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.expect(response.getStatus()).andReturn(status).anyTimes();
+    EasyMock.replay(response);
+    return response;
+  }
+
+  private static class AttributesRequest extends HttpServletRequestWrapper {
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    AttributesRequest(HttpServletRequest request) {
+      super(request);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+      return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+      attributes.put(name, value);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.cert.Certificate;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -46,6 +47,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.easymock.EasyMock.anyObject;
@@ -165,7 +168,7 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
 
     Map<String, Long> tokenExpirations = getTokenExpirationsField(tss, 2);
     Map<String, Long> maxTokenLifetimes = getMaxTokenLifetimesField(tss, 2);
-    Map<String, Map<String, TokenMetadata>> metadata = getMetadataMapField(tss, 2);
+    Map<String, TokenMetadata> metadata = getMetadataMapField(tss, 2);
     Map<String, Long> tokenIssueTimes = getTokenIssueTimesField(tss, 2);
 
     final long evictionInterval = TimeUnit.SECONDS.toMillis(3);
@@ -843,7 +846,8 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
   }
 
   private static Map<String, Long> getTokenExpirationsField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Long>) getField(tss, level, "tokenExpirations");
+    return getTokenStateView(tss, level, state -> state.hasExpiration() ? state.getExpiration() : null,
+        DefaultTokenStateService.TokenRecord::withExpiration);
   }
 
   private static Object getField(TokenStateService tss, int level, String fieldName) throws Exception {
@@ -865,15 +869,48 @@ public class AliasBasedTokenStateServiceTest extends DefaultTokenStateServiceTes
   }
 
   private static Map<String, Long> getMaxTokenLifetimesField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Long>) getField(tss, level, "maxTokenLifetimes");
+    return getTokenStateView(tss, level, state -> state.hasMaxLifetime() ? state.getMaxLifetime() : null,
+        DefaultTokenStateService.TokenRecord::withMaxLifetime);
   }
 
   private static Map<String, Long> getTokenIssueTimesField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Long>) getField(tss, level, "tokenIssueTimes");
+    return getTokenStateView(tss, level, state -> state.hasIssueTime() ? state.getIssueTime() : null,
+        DefaultTokenStateService.TokenRecord::withIssueTime);
   }
 
-  private static Map<String, Map<String, TokenMetadata>> getMetadataMapField(TokenStateService tss, int level) throws Exception {
-    return (Map<String, Map<String, TokenMetadata>>) getField(tss, level, "metadataMap");
+  private static Map<String, TokenMetadata> getMetadataMapField(TokenStateService tss, int level) throws Exception {
+    return getTokenStateView(tss, level, DefaultTokenStateService.TokenRecord::getMetadata,
+        DefaultTokenStateService.TokenRecord::withMetadata);
+  }
+
+  /*
+   * A live view of one attribute of the token state kept by DefaultTokenStateService; entry values can be set
+   */
+  static <V> Map<String, V> getTokenStateView(TokenStateService tss, int level,
+                                             Function<DefaultTokenStateService.TokenRecord, V> attribute,
+                                             BiFunction<DefaultTokenStateService.TokenRecord, V, DefaultTokenStateService.TokenRecord> update)
+      throws Exception {
+    final Map<String, DefaultTokenStateService.TokenRecord> tokens =
+        (Map<String, DefaultTokenStateService.TokenRecord>) getField(tss, level, "tokens");
+    return new AbstractMap<String, V>() {
+      @Override
+      public Set<Map.Entry<String, V>> entrySet() {
+        final Set<Map.Entry<String, V>> entries = new HashSet<>();
+        tokens.forEach((tokenId, state) -> {
+          final V value = attribute.apply(state);
+          if (value != null) {
+            entries.add(new AbstractMap.SimpleEntry<String, V>(tokenId, value) {
+              @Override
+              public V setValue(V newValue) {
+                tokens.computeIfPresent(tokenId, (id, current) -> update.apply(current, newValue));
+                return super.setValue(newValue);
+              }
+            });
+          }
+        });
+        return entries;
+      }
+    };
   }
 
   private static Set<AliasBasedTokenStateService.TokenState> getUnpersistedStateField(TokenStateService tss) throws Exception {
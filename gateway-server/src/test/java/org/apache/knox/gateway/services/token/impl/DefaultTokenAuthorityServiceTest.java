@@ -19,6 +19,8 @@ package org.apache.knox.gateway.services.token.impl;
 
 import java.io.File;
 import java.security.Principal;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,6 +43,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Some unit tests for the DefaultTokenAuthorityService.
@@ -346,6 +349,71 @@ public class DefaultTokenAuthorityServiceTest {
     assertTrue(ta.verifyToken(token, customPublicKey));
   }
 
+  @Test
+  public void testTokenCreationCustomECSigningKey() throws Exception {
+    /* see keystores/readme.txt for how testECSigningKeyName.jks was generated */
+    String customSigningKeyName = "testECSigningKeyName";
+    String customSigningKeyAlias = "testECSigningKeyAlias";
+    String customSigningKeyPassphrase = "testSigningKeyPassphrase";
+
+    final String userName = "john.doe@example.com";
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    String basedir = System.getProperty("basedir");
+    if (basedir == null) {
+      basedir = new File(".").getCanonicalPath();
+    }
+
+    EasyMock.expect(config.getGatewaySecurityDir()).andReturn(basedir + "/target/test-classes").anyTimes();
+    EasyMock.expect(config.getGatewayKeystoreDir()).andReturn(basedir + "/target/test-classes/keystores").anyTimes();
+    EasyMock.expect(config.getSigningKeystoreName()).andReturn("server-keystore.jks").anyTimes();
+    EasyMock.expect(config.getSigningKeystorePath()).andReturn(basedir + "/target/test-classes/keystores/server-keystore.jks").anyTimes();
+    EasyMock.expect(config.getSigningKeystorePasswordAlias()).andReturn(GatewayConfig.DEFAULT_SIGNING_KEYSTORE_PASSWORD_ALIAS).anyTimes();
+    EasyMock.expect(config.getSigningKeyPassphraseAlias()).andReturn(GatewayConfig.DEFAULT_SIGNING_KEY_PASSPHRASE_ALIAS).anyTimes();
+    EasyMock.expect(config.getSigningKeystoreType()).andReturn("jks").anyTimes();
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+    EasyMock.expect(config.getCredentialStoreType()).andReturn(GatewayConfig.DEFAULT_CREDENTIAL_STORE_TYPE).anyTimes();
+    EasyMock.expect(config.getCredentialStoreAlgorithm()).andReturn(GatewayConfig.DEFAULT_CREDENTIAL_STORE_ALG).anyTimes();
+
+    MasterService ms = EasyMock.createNiceMock(MasterService.class);
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getSigningKeyPassphrase()).andReturn("horton".toCharArray()).anyTimes();
+
+    EasyMock.replay(config, ms, as);
+
+    DefaultKeystoreService ks = new DefaultKeystoreService();
+    ks.setMasterService(ms);
+    ks.init(config, new HashMap<>());
+
+    DefaultTokenAuthorityService ta = new DefaultTokenAuthorityService();
+    ta.setAliasService(as);
+    ta.setKeystoreService(ks);
+    ta.init(config, new HashMap<>());
+    ta.start();
+
+    final JWTokenAttributes jwtAttributes = new JWTokenAttributesBuilder().setUserName(userName).setAudiences(Collections.emptyList()).setAlgorithm("ES256").setExpires(-1)
+        .setSigningKeystoreName(customSigningKeyName).setSigningKeystoreAlias(customSigningKeyAlias).setSigningKeystorePassphrase(customSigningKeyPassphrase.toCharArray()).build();
+    JWT token = ta.issueToken(jwtAttributes);
+    assertEquals("ES256", token.getSignatureAlgorithm().getName());
+    assertEquals("john.doe@example.com", token.getSubject());
+
+    PublicKey customPublicKey = ks.getSigningKeystore(customSigningKeyName).getCertificate(customSigningKeyAlias).getPublicKey();
+    assertTrue(customPublicKey instanceof ECPublicKey);
+    assertFalse(ta.verifyToken(token));
+    assertTrue(ta.verifyToken(token, customPublicKey));
+
+    /* the algorithm has to match the key */
+    final JWTokenAttributes rsaAttributes = new JWTokenAttributesBuilder().setUserName(userName).setAudiences(Collections.emptyList()).setAlgorithm("RS256").setExpires(-1)
+        .setSigningKeystoreName(customSigningKeyName).setSigningKeystoreAlias(customSigningKeyAlias).setSigningKeystorePassphrase(customSigningKeyPassphrase.toCharArray()).build();
+    try {
+      ta.issueToken(rsaAttributes);
+      fail("An RS256 token cannot be signed with an EC key");
+    } catch (TokenServiceException e) {
+      assertTrue(e.getMessage().contains("RS256"));
+    }
+  }
+
   @Test
   public void testServiceStart() throws Exception {
     /*
@@ -367,6 +435,8 @@ public class DefaultTokenAuthorityServiceTest {
     EasyMock.expect(config.getSigningKeystoreType()).andReturn("jks").atLeastOnce();
     EasyMock.expect(config.getSigningKeystorePasswordAlias()).andReturn(GatewayConfig.DEFAULT_SIGNING_KEYSTORE_PASSWORD_ALIAS).anyTimes();
     EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+    EasyMock.expect(config.getSigningKeyVerificationAliases()).andReturn(Collections.emptyList()).anyTimes();
+    EasyMock.expect(config.getSigningKeystoreReloadInterval()).andReturn(0L).anyTimes();
     EasyMock.expect(config.getKeystoreCacheEntryTimeToLiveInMinutes()).andReturn(0L).anyTimes();
     EasyMock.expect(config.getKeystoreCacheSizeLimit()).andReturn(0L).anyTimes();
     EasyMock.expect(config.getCredentialStoreType()).andReturn(GatewayConfig.DEFAULT_CREDENTIAL_STORE_TYPE).anyTimes();
@@ -30,15 +30,26 @@ import java.nio.file.Path;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.interfaces.RSAPrivateKey;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.services.ServiceLifecycleException;
 import org.apache.knox.gateway.services.security.token.JWTokenAttributesBuilder;
+import org.apache.knox.gateway.services.security.token.KnoxToken;
+import org.apache.knox.gateway.services.security.token.TokenBatchResult;
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
+import org.apache.knox.gateway.services.security.token.TokenPage;
+import org.apache.knox.gateway.services.security.token.TokenQuery;
+import org.apache.knox.gateway.services.security.token.TokenQueryBuilder;
 import org.apache.knox.gateway.services.security.token.TokenStateService;
 import org.apache.knox.gateway.services.security.token.TokenUtils;
 import org.apache.knox.gateway.services.security.token.UnknownTokenException;
@@ -162,6 +173,62 @@ public class DefaultTokenStateServiceTest {
     tss.isExpired(token);
   }
 
+  @Test
+  public void testRevocationListener() throws Exception {
+    final JWTToken token = createMockToken(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60));
+    final TokenStateService tss = createTokenStateService();
+    final List<String> revokedTokenIds = new ArrayList<>();
+    tss.addTokenRevocationListener(revokedTokenIds::add);
+
+    addToken(tss, token, System.currentTimeMillis());
+    tss.revokeToken(token);
+    assertEquals(Collections.singletonList(TokenUtils.getTokenId(token)), revokedTokenIds);
+
+    // Unknown tokens cannot be revoked, so there is nothing to notify
+    assertThrows(UnknownTokenException.class, () -> tss.revokeToken(token));
+    assertEquals(1, revokedTokenIds.size());
+  }
+
+  @Test
+  public void testBatchOperations() throws Exception {
+    final TokenStateService tss = createTokenStateService();
+    final List<String> revokedTokenIds = new ArrayList<>();
+    tss.addTokenRevocationListener(revokedTokenIds::add);
+    final long issueTime = System.currentTimeMillis();
+    final List<String> tokenIds = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final String tokenId = UUID.randomUUID().toString();
+      addToken(tss, tokenId, issueTime, issueTime + TimeUnit.SECONDS.toMillis(60), TimeUnit.DAYS.toMillis(7));
+      tss.addMetadata(tokenId, new TokenMetadata("alice"));
+      tokenIds.add(tokenId);
+    }
+    final String unknownTokenId = UUID.randomUUID().toString();
+    final List<String> requestedTokenIds = new ArrayList<>(tokenIds);
+    requestedTokenIds.add(unknownTokenId);
+
+    assertEquals(tokenIds, new ArrayList<>(tss.getTokensById(requestedTokenIds).keySet()));
+
+    final TokenBatchResult<Long> renewed = tss.renewTokens(requestedTokenIds, TimeUnit.HOURS.toMillis(1));
+    assertEquals(tokenIds, new ArrayList<>(renewed.getSucceeded().keySet()));
+    for (String tokenId : tokenIds) {
+      assertEquals(renewed.getSucceeded().get(tokenId).longValue(), tss.getTokenExpiration(tokenId));
+    }
+    assertTrue(renewed.getFailed().get(unknownTokenId) instanceof UnknownTokenException);
+
+    final Map<String, TokenMetadata> disabled = new LinkedHashMap<>();
+    tokenIds.forEach(tokenId -> disabled.put(tokenId, new TokenMetadata("alice", null, false)));
+    assertEquals(tokenIds, new ArrayList<>(tss.addMetadata(disabled).getSucceeded().keySet()));
+    for (String tokenId : tokenIds) {
+      assertFalse(tss.getTokenMetadata(tokenId).isEnabled());
+    }
+
+    final TokenBatchResult<Void> revoked = tss.revokeTokens(requestedTokenIds);
+    assertEquals(tokenIds, new ArrayList<>(revoked.getSucceeded().keySet()));
+    assertEquals(Collections.singleton(unknownTokenId), revoked.getFailed().keySet());
+    assertEquals(tokenIds, revokedTokenIds);
+    assertTrue(tss.getTokensById(tokenIds).isEmpty());
+  }
+
   @Test
   public void testRenewal() throws Exception {
     final JWTToken token = createMockToken(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(60));
@@ -310,6 +377,113 @@ public class DefaultTokenStateServiceTest {
     assertEquals(tss.getTokenMetadata(tokenId).getPasscode(), passcode);
   }
 
+  @Test
+  public void testGetTokensByUser() throws Exception {
+    final DefaultTokenStateService tss = new DefaultTokenStateService();
+    tss.init(createMockGatewayConfig(false), Collections.emptyMap());
+    final long issueTime = System.currentTimeMillis();
+    final long expiration = issueTime + TimeUnit.MINUTES.toMillis(5);
+    tss.addToken("token1", issueTime, expiration);
+    tss.addToken("token2", issueTime + 1, expiration);
+    tss.addToken("token3", issueTime + 2, expiration);
+    tss.addMetadata("token1", new TokenMetadata("alice"));
+    tss.addMetadata("token2", new TokenMetadata("alice"));
+    final TokenMetadata impersonated = new TokenMetadata("bob");
+    impersonated.setCreatedBy("alice");
+    tss.addMetadata("token3", impersonated);
+
+    assertEquals(2, tss.getTokens("alice").size());
+    assertEquals(1, tss.getTokens("bob").size());
+    assertEquals(1, tss.getDoAsTokens("alice").size());
+    assertTrue(tss.getDoAsTokens("bob").isEmpty());
+    assertEquals(3, tss.getAllTokens().size());
+
+    // Replacing the metadata moves the token to its new user
+    tss.addMetadata("token2", new TokenMetadata("bob"));
+    assertEquals(1, tss.getTokens("alice").size());
+    assertEquals(2, tss.getTokens("bob").size());
+
+    tss.revokeToken("token3");
+    assertEquals(1, tss.getTokens("bob").size());
+    assertTrue(tss.getDoAsTokens("alice").isEmpty());
+  }
+
+  @Test
+  public void testListTokens() throws Exception {
+    final DefaultTokenStateService tss = new DefaultTokenStateService();
+    tss.init(createMockGatewayConfig(false), Collections.emptyMap());
+    final long issueTime = System.currentTimeMillis();
+    for (int i = 0; i < 5; i++) {
+      tss.addToken("token" + i, issueTime + i, issueTime + TimeUnit.MINUTES.toMillis(5));
+      tss.addMetadata("token" + i, new TokenMetadata(i < 4 ? "alice" : "bob", null, i != 2));
+    }
+
+    TokenPage page = tss.listTokens(new TokenQueryBuilder().setUserName("alice").setPageSize(2).build());
+    assertEquals(Arrays.asList("token0", "token1"), page.getTokens().stream().map(KnoxToken::getTokenId).collect(Collectors.toList()));
+    page = tss.listTokens(new TokenQueryBuilder().setUserName("alice").setPageSize(2).setPageToken(page.getNextPageToken()).build());
+    assertEquals(Arrays.asList("token2", "token3"), page.getTokens().stream().map(KnoxToken::getTokenId).collect(Collectors.toList()));
+    assertNull(page.getNextPageToken());
+
+    page = tss.listTokens(new TokenQueryBuilder().setEnabled(true).setDescending(true).build());
+    assertEquals(Arrays.asList("token4", "token3", "token1", "token0"), page.getTokens().stream().map(KnoxToken::getTokenId).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testListTokensInIndexOrder() throws Exception {
+    final DefaultTokenStateService tss = new DefaultTokenStateService();
+    tss.init(createMockGatewayConfig(false), Collections.emptyMap());
+    final long issueTime = System.currentTimeMillis();
+    // token0 never expires, the others expire in the reverse order of their issue times
+    for (int i = 0; i < 5; i++) {
+      tss.addToken("token" + i, issueTime + i, i == 0 ? -1L : issueTime + TimeUnit.MINUTES.toMillis(10 - i));
+      tss.addMetadata("token" + i, new TokenMetadata("alice", null, i != 2));
+    }
+
+    assertEquals(Arrays.asList("token0", "token1", "token2", "token3", "token4"), listAll(tss, new TokenQueryBuilder()));
+    assertEquals(Arrays.asList("token0", "token4", "token3", "token2", "token1"),
+        listAll(tss, new TokenQueryBuilder().setSortField(TokenQuery.SortField.EXPIRATION)));
+    assertEquals(Arrays.asList("token1", "token3", "token4", "token0"),
+        listAll(tss, new TokenQueryBuilder().setSortField(TokenQuery.SortField.EXPIRATION).setDescending(true).setEnabled(true)));
+
+    // a renewal moves the token in the expiration order
+    tss.updateExpiration("token4", issueTime + TimeUnit.MINUTES.toMillis(20));
+    assertEquals(Arrays.asList("token0", "token3", "token2", "token1", "token4"),
+        listAll(tss, new TokenQueryBuilder().setSortField(TokenQuery.SortField.EXPIRATION)));
+  }
+
+  /*
+   * Lists the tokens of a query two at a time
+   */
+  private static List<String> listAll(TokenStateService tss, TokenQueryBuilder queryBuilder) {
+    final List<String> tokenIds = new ArrayList<>();
+    String pageToken = null;
+    do {
+      final TokenPage page = tss.listTokens(queryBuilder.setPageSize(2).setPageToken(pageToken).build());
+      assertTrue(page.getTokens().size() <= 2);
+      page.getTokens().forEach(token -> tokenIds.add(token.getTokenId()));
+      pageToken = page.getNextPageToken();
+    } while (pageToken != null);
+    return tokenIds;
+  }
+
+  @Test
+  public void testExpiredTokensForEviction() throws Exception {
+    final DefaultTokenStateService tss = new DefaultTokenStateService();
+    tss.init(createMockGatewayConfig(false), Collections.emptyMap());
+    final long now = System.currentTimeMillis();
+    tss.addToken("expired", now, now - TimeUnit.MINUTES.toMillis(1));
+    tss.addToken("renewed", now, now - TimeUnit.MINUTES.toMillis(1));
+    tss.addToken("valid", now, now + TimeUnit.MINUTES.toMillis(5));
+    tss.addToken("neverExpires", now, -1L);
+
+    tss.updateExpiration("renewed", now + TimeUnit.MINUTES.toMillis(5));
+    assertEquals(Collections.singleton("expired"), tss.getExpiredTokens());
+
+    tss.evictExpiredTokens();
+    assertEquals(3, tss.getTokenIds().size());
+    assertTrue(tss.getExpiredTokens().isEmpty());
+  }
+
   protected static JWTToken createMockToken(final long expiration) {
     return createMockToken("abcD1234eFGHIJKLmnoPQRSTUVwXYz", expiration);
   }
@@ -21,6 +21,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.knox.gateway.util.JDBCUtils.HSQL;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
@@ -31,7 +33,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -44,7 +48,11 @@ import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.token.KnoxToken;
+import org.apache.knox.gateway.services.security.token.TokenBatchResult;
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
+import org.apache.knox.gateway.services.security.token.TokenPage;
+import org.apache.knox.gateway.services.security.token.TokenQuery;
+import org.apache.knox.gateway.services.security.token.TokenQueryBuilder;
 import org.apache.knox.gateway.services.security.token.UnknownTokenException;
 import org.apache.knox.gateway.services.security.token.impl.TokenMAC;
 import org.apache.knox.gateway.util.JDBCUtils;
@@ -189,6 +197,90 @@ public class JDBCTokenStateServiceTest {
     }
   }
 
+  @Test
+  public void testListTokens() throws Exception {
+    truncateDatabase();
+    for (int i = 1; i <= 5; i++) {
+      saveToken(i < 5 ? "user1" : "user2", "token" + i, i, 10 - i, "comment" + i);
+    }
+    final TokenMetadata disabled = new TokenMetadata("user1", "comment3", false);
+    jdbcTokenStateService.addMetadata("token3", disabled);
+
+    TokenPage page = jdbcTokenStateService.listTokens(new TokenQueryBuilder().setUserName("user1").setPageSize(3).build());
+    assertEquals(3, page.getTokens().size());
+    assertToken(page.getTokens().get(0), "token1", 9, "comment1", 1);
+    assertToken(page.getTokens().get(2), "token3", 7, "comment3", 3);
+    page = jdbcTokenStateService.listTokens(new TokenQueryBuilder().setUserName("user1").setPageSize(3).setPageToken(page.getNextPageToken()).build());
+    assertEquals(1, page.getTokens().size());
+    assertToken(page.getTokens().get(0), "token4", 6, "comment4", 4);
+    assertNull(page.getNextPageToken());
+
+    // sorted by expiration, the enabled tokens expiring before 8
+    page = jdbcTokenStateService.listTokens(new TokenQueryBuilder().setEnabled(true).setExpiresBefore(8L)
+        .setSortField(TokenQuery.SortField.EXPIRATION).build());
+    assertEquals(2, page.getTokens().size());
+    assertToken(page.getTokens().get(0), "token5", 5, "comment5", 5);
+    assertToken(page.getTokens().get(1), "token4", 6, "comment4", 4);
+  }
+
+  @Test
+  public void testListTokensInLargePages() throws Exception {
+    truncateDatabase();
+    final int tokenCount = 1201;
+    for (int i = 0; i < tokenCount; i++) {
+      saveToken("user1", String.format(Locale.ROOT, "token%04d", i), i, i + 60000L, "comment" + i);
+    }
+
+    // the metadata of the page is fetched in several statements
+    final TokenPage page = jdbcTokenStateService.listTokens(new TokenQueryBuilder().setUserName("user1").setPageSize(1200).build());
+    assertEquals(1200, page.getTokens().size());
+    assertToken(page.getTokens().get(0), "token0000", 60000L, "comment0", 0);
+    assertToken(page.getTokens().get(1199), "token1199", 61199L, "comment1199", 1199);
+    assertNotNull(page.getNextPageToken());
+  }
+
+  @Test
+  public void testBatchOperations() throws Exception {
+    truncateDatabase();
+    final long issueTime = System.currentTimeMillis();
+    saveToken("user1", "token1", issueTime, issueTime + 60000L, "comment1");
+    saveToken("user1", "token2", issueTime, issueTime + 60000L, "comment2");
+    // a token which cannot be renewed anymore
+    jdbcTokenStateService.addToken("token3", issueTime, issueTime + 60000L, 1000L);
+    jdbcTokenStateService.addMetadata("token3", new TokenMetadata("user1"));
+    final List<String> tokenIds = Arrays.asList("token1", "token2", "token3", "unknownToken");
+
+    final Map<String, KnoxToken> tokens = jdbcTokenStateService.getTokensById(tokenIds);
+    assertEquals(3, tokens.size());
+    assertToken(tokens.get("token2"), "token2", issueTime + 60000L, "comment2", issueTime);
+
+    final TokenBatchResult<Long> renewed = jdbcTokenStateService.renewTokens(tokenIds, 3600000L);
+    assertEquals(2, renewed.getSucceeded().size());
+    assertEquals(renewed.getSucceeded().get("token1").longValue(), getLongTokenAttributeFromDatabase("token1", TokenStateDatabase.GET_TOKEN_EXPIRATION_SQL));
+    assertEquals(renewed.getSucceeded().get("token2").longValue(), getLongTokenAttributeFromDatabase("token2", TokenStateDatabase.GET_TOKEN_EXPIRATION_SQL));
+    assertTrue(renewed.getFailed().get("token3") instanceof IllegalArgumentException);
+    assertTrue(renewed.getFailed().get("unknownToken") instanceof UnknownTokenException);
+
+    // updates the saved metadata of token1, and adds a comment to token3
+    final Map<String, TokenMetadata> disabled = new LinkedHashMap<>();
+    disabled.put("token1", new TokenMetadata("user1", "comment1", false));
+    disabled.put("token3", new TokenMetadata("user1", "comment3", false));
+    disabled.put("unknownToken", new TokenMetadata("user1", null, false));
+    final TokenBatchResult<Void> updated = jdbcTokenStateService.addMetadata(disabled);
+    assertEquals(2, updated.getSucceeded().size());
+    assertTrue(updated.getFailed().get("unknownToken") instanceof UnknownTokenException);
+    assertFalse(jdbcTokenStateService.getTokenMetadata("token1").isEnabled());
+    assertFalse(jdbcTokenStateService.getTokenMetadata("token3").isEnabled());
+    assertEquals("comment3", jdbcTokenStateService.getTokenMetadata("token3").getComment());
+    assertTrue(jdbcTokenStateService.getTokenMetadata("token2").isEnabled());
+
+    final TokenBatchResult<Void> revoked = jdbcTokenStateService.revokeTokens(tokenIds);
+    assertEquals(3, revoked.getSucceeded().size());
+    assertTrue(revoked.getFailed().get("unknownToken") instanceof UnknownTokenException);
+    assertTrue(jdbcTokenStateService.getTokensById(tokenIds).isEmpty());
+    assertEquals(0, getLongTokenAttributeFromDatabase("token1", "SELECT COUNT(*) FROM " + TokenStateDatabase.TOKEN_METADATA_TABLE_NAME + " WHERE token_id = ?"));
+  }
+
   private void saveToken(String user, String tokenId, long issueTime, long expiration, String comment) {
     jdbcTokenStateService.addToken(tokenId, issueTime, expiration);
     jdbcTokenStateService.addMetadata(tokenId, new TokenMetadata(user, comment));
@@ -213,9 +305,9 @@ public class JDBCTokenStateServiceTest {
 
     // set token expiration to 3 in-memory
     // we still expect 2 because in-memory lookup should be skipped while fetching token expiration
-    final Map<String, Long> tokenExpirations = new ConcurrentHashMap<>();
-    tokenExpirations.put(tokenId, 3L);
-    FieldUtils.writeField(jdbcTokenStateService, "tokenExpirations", tokenExpirations, true);
+    final Map<String, DefaultTokenStateService.TokenRecord> tokens = new ConcurrentHashMap<>();
+    tokens.put(tokenId, DefaultTokenStateService.TokenRecord.EMPTY.withExpiration(3L));
+    FieldUtils.writeField(jdbcTokenStateService, "tokens", tokens, true);
 
     assertEquals(2, jdbcTokenStateService.getTokenExpiration(tokenId));
     assertEquals(2, getLongTokenAttributeFromDatabase(tokenId, TokenStateDatabase.GET_TOKEN_EXPIRATION_SQL));
@@ -249,9 +341,9 @@ public class JDBCTokenStateServiceTest {
 
     // set token metadata back to original in the in-memory cache with disabled=false
     // we still expect an enabled token because in-memory lookup should be skipped while fetching token metadata
-    final Map<String, TokenMetadata> metadataMap = new ConcurrentHashMap<>();
-    metadataMap.put(tokenId, tokenMetadata);
-    FieldUtils.writeField(jdbcTokenStateService, "metadataMap", metadataMap, true);
+    final Map<String, DefaultTokenStateService.TokenRecord> tokens = new ConcurrentHashMap<>();
+    tokens.put(tokenId, DefaultTokenStateService.TokenRecord.EMPTY.withMetadata(tokenMetadata));
+    FieldUtils.writeField(jdbcTokenStateService, "tokens", tokens, true);
 
     assertTrue(jdbcTokenStateService.getTokenMetadata(tokenId).isEnabled());
     assertEquals("true", getStringTokenAttributeFromDatabase(tokenId, getSelectMetadataSql(TokenMetadata.ENABLED)));
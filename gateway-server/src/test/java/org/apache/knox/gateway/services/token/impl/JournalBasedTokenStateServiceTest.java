@@ -318,14 +318,14 @@ public class JournalBasedTokenStateServiceTest extends DefaultTokenStateServiceT
     }
 
     private static Map<String, Long> getTokenExpirationsField(TokenStateService tss) throws Exception {
-        Field tokenExpirationsField = tss.getClass().getSuperclass().getSuperclass().getDeclaredField("tokenExpirations");
-        tokenExpirationsField.setAccessible(true);
-        return (Map<String, Long>) tokenExpirationsField.get(tss);
+        return AliasBasedTokenStateServiceTest.getTokenStateView(tss, 2,
+            state -> state.hasExpiration() ? state.getExpiration() : null,
+            DefaultTokenStateService.TokenRecord::withExpiration);
     }
 
     private static Map<String, Long> getMaxTokenLifetimesField(TokenStateService tss) throws Exception {
-        Field maxTokenLifetimesField = tss.getClass().getSuperclass().getSuperclass().getDeclaredField("maxTokenLifetimes");
-        maxTokenLifetimesField.setAccessible(true);
-        return (Map<String, Long>) maxTokenLifetimesField.get(tss);
+        return AliasBasedTokenStateServiceTest.getTokenStateView(tss, 2,
+            state -> state.hasMaxLifetime() ? state.getMaxLifetime() : null,
+            DefaultTokenStateService.TokenRecord::withMaxLifetime);
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.token.impl;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.Collections;
+
+import com.nimbusds.jose.JWSSigner;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.services.security.KeystoreService;
+import org.apache.knox.gateway.services.security.KeystoreServiceException;
+import org.apache.knox.gateway.services.security.token.JWTokenAttributesBuilder;
+import org.apache.knox.gateway.services.security.token.TokenUtils;
+import org.apache.knox.gateway.services.security.token.impl.JWTToken;
+import org.easymock.EasyMock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SigningKeyRegistryTest {
+  private static final char[] PASSWORD = "horton".toCharArray();
+  private static final String SIGNING_KEY_ALIAS = "server";
+  private static final String PREVIOUS_KEY_ALIAS = "previous";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSignersAndVerifiersAreReused() throws Exception {
+    final Path keystorePath = folder.newFile("signing.jks").toPath();
+    writeKeystore(keystorePath, rsaKey(), null);
+    final SigningKeyRegistry registry = newRegistry(keystorePath, 0L);
+    registry.load();
+
+    final JWSSigner signer = registry.getSigner();
+    assertSame(signer, registry.getSigner());
+    assertSame(registry.getVerifier((String) null), registry.getVerifier(registry.getSigningKeyId()));
+
+    final JWTToken token = newToken("RS256", registry.getSigningKeyId());
+    token.sign(signer);
+    assertTrue(token.verify(registry.getVerifier(token.getKeyId())));
+  }
+
+  @Test
+  public void testKeyRotation() throws Exception {
+    final Path keystorePath = folder.newFile("signing.jks").toPath();
+    final KeyStore.PrivateKeyEntry rsaKey = rsaKey();
+    writeKeystore(keystorePath, rsaKey, null);
+    final SigningKeyRegistry registry = newRegistry(keystorePath, 1L);
+    registry.load();
+
+    final String previousKid = registry.getSigningKeyId();
+    final JWTToken token = newToken("RS256", previousKid);
+    token.sign(registry.getSigner());
+
+    /* a new signing key, the previous one is kept for verification */
+    final KeyStore.PrivateKeyEntry ecKey = ecKey();
+    writeKeystore(keystorePath, ecKey, rsaKey);
+    Files.setLastModifiedTime(keystorePath, FileTime.fromMillis(System.currentTimeMillis() + 10000L));
+    Thread.sleep(10L);
+
+    final String kid = registry.getSigningKeyId();
+    assertEquals(TokenUtils.getThumbprint(ecKey.getCertificate().getPublicKey(), "SHA-256"), kid);
+    assertNotEquals(previousKid, kid);
+    assertTrue(token.verify(registry.getVerifier(token.getKeyId())));
+    assertFalse(token.verify(registry.getVerifier((String) null)));
+
+    final JWTToken ecToken = newToken("ES256", kid);
+    ecToken.sign(registry.getSigner());
+    assertTrue(ecToken.verify(registry.getVerifier(ecToken.getKeyId())));
+  }
+
+  @Test
+  public void testFailedReloadKeepsTheCurrentKeys() throws Exception {
+    final Path keystorePath = folder.newFile("signing.jks").toPath();
+    writeKeystore(keystorePath, rsaKey(), null);
+    final SigningKeyRegistry registry = newRegistry(keystorePath, 1L);
+    registry.load();
+    final String kid = registry.getSigningKeyId();
+
+    Files.write(keystorePath, new byte[] { 1, 2, 3 });
+    Files.setLastModifiedTime(keystorePath, FileTime.fromMillis(System.currentTimeMillis() + 10000L));
+    Thread.sleep(10L);
+
+    assertEquals(kid, registry.getSigningKeyId());
+  }
+
+  private static SigningKeyRegistry newRegistry(Path keystorePath, long reloadInterval) throws Exception {
+    final GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getSigningKeystorePath()).andReturn(keystorePath.toString()).anyTimes();
+    EasyMock.expect(config.getSigningKeyVerificationAliases()).andReturn(Collections.singletonList(PREVIOUS_KEY_ALIAS)).anyTimes();
+    EasyMock.expect(config.getSigningKeystoreReloadInterval()).andReturn(reloadInterval).anyTimes();
+
+    final KeystoreService keystoreService = EasyMock.createNiceMock(KeystoreService.class);
+    EasyMock.expect(keystoreService.getSigningKeystore()).andAnswer(() -> readKeystore(keystorePath)).anyTimes();
+
+    EasyMock.replay(config, keystoreService);
+    return new SigningKeyRegistry(keystoreService, config, SIGNING_KEY_ALIAS, PASSWORD);
+  }
+
+  private static JWTToken newToken(String algorithm, String kid) {
+    return new JWTToken(new JWTokenAttributesBuilder().setUserName("john.doe@example.com").setAlgorithm(algorithm)
+        .setAudiences(Collections.emptyList()).setKid(kid).setExpires(-1).build());
+  }
+
+  private static KeyStore.PrivateKeyEntry rsaKey() throws Exception {
+    return loadKey("server-keystore.jks", "server", PASSWORD);
+  }
+
+  private static KeyStore.PrivateKeyEntry ecKey() throws Exception {
+    return loadKey("testECSigningKeyName.jks", "testECSigningKeyAlias", "testSigningKeyPassphrase".toCharArray());
+  }
+
+  private static KeyStore.PrivateKeyEntry loadKey(String keystoreName, String alias, char[] password) throws Exception {
+    String basedir = System.getProperty("basedir");
+    if (basedir == null) {
+      basedir = new File(".").getCanonicalPath();
+    }
+    final KeyStore keystore = KeyStore.getInstance("JKS");
+    try (InputStream in = Files.newInputStream(Paths.get(basedir, "target", "test-classes", "keystores", keystoreName))) {
+      keystore.load(in, password);
+    }
+    return (KeyStore.PrivateKeyEntry) keystore.getEntry(alias, new KeyStore.PasswordProtection(password));
+  }
+
+  private static void writeKeystore(Path path, KeyStore.PrivateKeyEntry signingKey, KeyStore.PrivateKeyEntry previousKey) throws Exception {
+    final KeyStore keystore = KeyStore.getInstance("JKS");
+    keystore.load(null, PASSWORD);
+    keystore.setKeyEntry(SIGNING_KEY_ALIAS, signingKey.getPrivateKey(), PASSWORD, new Certificate[] { signingKey.getCertificate() });
+    if (previousKey != null) {
+      keystore.setCertificateEntry(PREVIOUS_KEY_ALIAS, previousKey.getCertificate());
+    }
+    try (OutputStream out = Files.newOutputStream(path)) {
+      keystore.store(out, PASSWORD);
+    }
+  }
+
+  private static KeyStore readKeystore(Path path) throws KeystoreServiceException {
+    try (InputStream in = Files.newInputStream(path)) {
+      final KeyStore keystore = KeyStore.getInstance("JKS");
+      keystore.load(in, PASSWORD);
+      return keystore;
+    } catch (Exception e) {
+      throw new KeystoreServiceException(e);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.topology.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DirectoryWatchMonitorTest {
+
+  @Rule
+  public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  @Test
+  public void testCreatedFileIsReportedWithoutWaitingForThePollingInterval() throws Exception {
+    final File directory = tempDir.newFolder("descriptors");
+    final RecordingListener listener = new RecordingListener(1);
+    final DirectoryWatchMonitor monitor = createMonitor(directory, listener);
+
+    monitor.start();
+    try {
+      FileUtils.writeStringToFile(new File(directory, "sandbox.json"), "{}", StandardCharsets.UTF_8);
+      assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+      assertEquals("sandbox.json", listener.created.get(0).getName());
+    } finally {
+      monitor.stop();
+    }
+  }
+
+  @Test
+  public void testMissingDirectoryFallsBackToPolling() throws Exception {
+    final File directory = new File(tempDir.getRoot(), "shared-providers");
+    final RecordingListener listener = new RecordingListener(1);
+    final DirectoryWatchMonitor monitor = createMonitor(directory, listener);
+
+    monitor.start();
+    try {
+      assertTrue(directory.mkdirs());
+      FileUtils.writeStringToFile(new File(directory, "providers.json"), "{}", StandardCharsets.UTF_8);
+      assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+      assertEquals("providers.json", listener.created.get(0).getName());
+    } finally {
+      monitor.stop();
+    }
+  }
+
+  @Test
+  public void testFailingListenerDoesNotStopTheMonitoring() throws Exception {
+    final File directory = tempDir.newFolder("topologies");
+    final RecordingListener listener = new RecordingListener(1) {
+      private final AtomicBoolean failed = new AtomicBoolean();
+
+      @Override
+      public void onFileCreate(File file) {
+        if (failed.compareAndSet(false, true)) {
+          throw new IllegalStateException("Failed to parse " + file);
+        }
+        super.onFileCreate(file);
+      }
+    };
+    final DirectoryWatchMonitor monitor = createMonitor(directory, listener);
+
+    monitor.start();
+    try {
+      FileUtils.writeStringToFile(new File(directory, "broken.xml"), "<topology>", StandardCharsets.UTF_8);
+      Thread.sleep(500L);
+      FileUtils.writeStringToFile(new File(directory, "sandbox.xml"), "<topology/>", StandardCharsets.UTF_8);
+      assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+    } finally {
+      monitor.stop();
+    }
+  }
+
+  private DirectoryWatchMonitor createMonitor(File directory, RecordingListener listener) {
+    final DirectoryWatchMonitor monitor = new DirectoryWatchMonitor(100L, 50L);
+    final FileAlterationObserver observer = new FileAlterationObserver(directory);
+    observer.addListener(listener);
+    monitor.addObserver(observer);
+    return monitor;
+  }
+
+  private static class RecordingListener extends FileAlterationListenerAdaptor {
+    private final List<File> created = new CopyOnWriteArrayList<>();
+    private final CountDownLatch latch;
+
+    RecordingListener(int expected) {
+      this.latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onFileCreate(File file) {
+      created.add(file);
+      latch.countDown();
+    }
+  }
+}
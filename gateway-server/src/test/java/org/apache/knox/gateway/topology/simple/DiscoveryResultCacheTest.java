@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.topology.simple;
+
+import org.apache.knox.gateway.topology.discovery.ServiceDiscovery;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DiscoveryResultCacheTest {
+
+  private static final String TYPE = "ClouderaManager";
+  private static final String ADDRESS = "http://cm:7180";
+  private static final String CLUSTER = "Cluster 1";
+  private static final String USER = "admin";
+
+  private final DiscoveryResultCache cache = DiscoveryResultCache.getInstance();
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  @Test
+  public void testResultIsSharedForTheSameCluster() {
+    final ServiceDiscovery.Cluster cluster = EasyMock.createNiceMock(ServiceDiscovery.Cluster.class);
+    cache.put(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet(), cluster, 60000L);
+
+    assertSame(cluster, cache.get(TYPE, ADDRESS, CLUSTER, USER, Arrays.asList("HIVE", "WEBHDFS")));
+    assertNull(cache.get(TYPE, ADDRESS, "Cluster 2", USER, Collections.emptySet()));
+    assertNull(cache.get(TYPE, ADDRESS, CLUSTER, "other", Collections.emptySet()));
+    assertNull(cache.get("Ambari", ADDRESS, CLUSTER, USER, Collections.emptySet()));
+  }
+
+  @Test
+  public void testResultOfFilteredDiscoveryOnlyCoversItsServices() {
+    final ServiceDiscovery.Cluster cluster = EasyMock.createNiceMock(ServiceDiscovery.Cluster.class);
+    cache.put(TYPE, ADDRESS, CLUSTER, USER, Arrays.asList("HIVE", "WEBHDFS"), cluster, 60000L);
+
+    assertSame(cluster, cache.get(TYPE, ADDRESS, CLUSTER, USER, Collections.singleton("HIVE")));
+    assertNull(cache.get(TYPE, ADDRESS, CLUSTER, USER, Arrays.asList("HIVE", "IMPALA")));
+    assertNull(cache.get(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet()));
+  }
+
+  @Test
+  public void testExpiredAndInvalidatedResultsAreDiscarded() throws Exception {
+    final ServiceDiscovery.Cluster cluster = EasyMock.createNiceMock(ServiceDiscovery.Cluster.class);
+    cache.put(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet(), cluster, 1L);
+    Thread.sleep(5L);
+    assertNull(cache.get(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet()));
+
+    cache.put(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet(), cluster, 60000L);
+    SimpleDescriptorHandler.invalidateDiscoveryResults(ADDRESS, CLUSTER);
+    assertNull(cache.get(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet()));
+  }
+
+  @Test
+  public void testResultsAreNotCachedWhenDisabled() {
+    final ServiceDiscovery.Cluster cluster = EasyMock.createNiceMock(ServiceDiscovery.Cluster.class);
+    cache.put(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet(), cluster, 0L);
+    assertNull(cache.get(TYPE, ADDRESS, CLUSTER, USER, Collections.emptySet()));
+  }
+}
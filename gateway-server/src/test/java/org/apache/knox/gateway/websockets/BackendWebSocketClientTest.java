@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Test {@link BackendWebSocketClient} class.
+ */
+public class BackendWebSocketClientTest {
+  private static Server server;
+  private static URI serverUri;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    server = new Server();
+    ServerConnector connector = new ServerConnector(server);
+    server.addConnector(connector);
+
+    ContextHandler context = new ContextHandler();
+    context.setContextPath("/");
+    context.setHandler(new WebsocketEchoHandler());
+    server.setHandler(context);
+
+    server.start();
+
+    String host = connector.getHost();
+    if (host == null) {
+      host = "localhost";
+    }
+    serverUri = new URI(String.format(Locale.ROOT, "ws://%s:%d/", host, connector.getLocalPort()));
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void testSessionsShareTheClient() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    final BackendWebSocketClient client = new BackendWebSocketClient("sandbox/WEBSOCKET",
+        WebSocketPolicy.newClientPolicy(), null, 4, metricRegistry);
+
+    Assert.assertTrue(client.acquire());
+    final Session first = client.connect(new NoopEndpoint(), ClientEndpointConfig.Builder.create().build(), serverUri);
+    Assert.assertTrue(client.acquire());
+    final Session second = client.connect(new NoopEndpoint(), ClientEndpointConfig.Builder.create().build(), serverUri);
+    Assert.assertEquals(2, client.getOpenSessions());
+    Assert.assertEquals(2, client.getConnectTimer().getCount());
+    Assert.assertEquals(2, metricRegistry.getGauges().get("websocket.sandbox/WEBSOCKET.open-sessions").getValue());
+
+    /* A retired client keeps serving its open sessions */
+    client.retire();
+    Assert.assertFalse(client.acquire());
+    first.close();
+    client.release(first);
+    Assert.assertFalse(client.isStopped());
+    Assert.assertTrue(second.isOpen());
+
+    second.close();
+    client.release(second);
+    Assert.assertTrue(client.isStopped());
+    Assert.assertTrue(metricRegistry.getMetrics().isEmpty());
+  }
+
+  @Test
+  public void testRetiredClientWithoutSessionsStops() throws Exception {
+    final BackendWebSocketClient client = new BackendWebSocketClient("sandbox/WEBSOCKET",
+        WebSocketPolicy.newClientPolicy(), null, 4, null);
+    client.retire();
+    Assert.assertTrue(client.isStopped());
+  }
+
+  @Test
+  public void testRetiredClientStopsOnceReleased() throws Exception {
+    final BackendWebSocketClient client = new BackendWebSocketClient("sandbox/WEBSOCKET",
+        WebSocketPolicy.newClientPolicy(), null, 4, null);
+    /* Acquired by a connection that has not connected yet */
+    Assert.assertTrue(client.acquire());
+    client.retire();
+    Assert.assertFalse(client.isStopped());
+
+    final Session session = client.connect(new NoopEndpoint(), ClientEndpointConfig.Builder.create().build(), serverUri);
+    session.close();
+    client.release(session);
+    Assert.assertTrue(client.isStopped());
+  }
+
+  @Test
+  public void testGenerationsShareTheMetrics() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    final BackendWebSocketClient replaced = new BackendWebSocketClient("sandbox/WEBSOCKET",
+        WebSocketPolicy.newClientPolicy(), null, 4, metricRegistry);
+    Assert.assertTrue(replaced.acquire());
+    final Session session = replaced.connect(new NoopEndpoint(), ClientEndpointConfig.Builder.create().build(), serverUri);
+    replaced.retire();
+
+    /* The topology is redeployed while the replaced client drains its sessions */
+    final BackendWebSocketClient client = new BackendWebSocketClient("sandbox/WEBSOCKET",
+        WebSocketPolicy.newClientPolicy(), null, 4, metricRegistry);
+    Assert.assertSame(replaced.getConnectTimer(), client.getConnectTimer());
+    Assert.assertEquals(1, metricRegistry.getGauges().get("websocket.sandbox/WEBSOCKET.open-sessions").getValue());
+
+    session.close();
+    replaced.release(session);
+    Assert.assertTrue(replaced.isStopped());
+    Assert.assertEquals(4, metricRegistry.getMetrics().size());
+    Assert.assertEquals(0, metricRegistry.getGauges().get("websocket.sandbox/WEBSOCKET.open-sessions").getValue());
+
+    client.stop();
+    Assert.assertTrue(metricRegistry.getMetrics().isEmpty());
+  }
+
+  private static class NoopEndpoint extends Endpoint {
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+    }
+  }
+}
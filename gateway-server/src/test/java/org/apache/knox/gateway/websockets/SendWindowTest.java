@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import org.easymock.EasyMock;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.SuspendToken;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SendWindowTest {
+
+  @Test
+  public void testReadingIsSuspendedWhileTheWindowIsFull() {
+    final SuspendToken token = EasyMock.createMock(SuspendToken.class);
+    token.resume();
+    EasyMock.expectLastCall().once();
+    final Session source = EasyMock.createMock(Session.class);
+    EasyMock.expect(source.suspend()).andReturn(token).once();
+    EasyMock.replay(token, source);
+
+    final SendWindow window = new SendWindow(100);
+    window.acquire(60, source);
+    Assert.assertFalse(window.isSuspended());
+    window.acquire(60, source);
+    Assert.assertTrue(window.isSuspended());
+
+    /* Resumed once half of the limit is pending */
+    window.release(60);
+    Assert.assertTrue(window.isSuspended());
+    window.release(20);
+    Assert.assertFalse(window.isSuspended());
+    Assert.assertEquals(40, window.getPending());
+
+    EasyMock.verify(token, source);
+  }
+
+  @Test
+  public void testNoLimit() {
+    final Session source = EasyMock.createMock(Session.class);
+    EasyMock.replay(source);
+
+    final SendWindow window = new SendWindow(0);
+    window.acquire(Integer.MAX_VALUE, source);
+    window.acquire(Integer.MAX_VALUE, source);
+    Assert.assertFalse(window.isSuspended());
+
+    EasyMock.verify(source);
+  }
+}
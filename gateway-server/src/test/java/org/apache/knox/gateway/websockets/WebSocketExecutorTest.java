@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WebSocketExecutorTest {
+
+  @Test
+  @SuppressWarnings("PMD.DoNotUseThreads")
+  public void testOverloadRunsOnSubmittingThread() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    final WebSocketExecutor executor = new WebSocketExecutor(1, 1, metricRegistry);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      executor.execute(() -> {
+        blocked.countDown();
+        await(release);
+      });
+      blocked.await();
+      executor.execute(() -> { });
+      Assert.assertEquals(1, metricRegistry.getGauges().get("websocket.executor.queue-depth").getValue());
+
+      final List<Thread> runners = new ArrayList<>();
+      executor.execute(() -> runners.add(Thread.currentThread()));
+      Assert.assertEquals(Collections.singletonList(Thread.currentThread()), runners);
+      Assert.assertEquals(1, executor.getOverload().getCount());
+    } finally {
+      release.countDown();
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    Assert.assertEquals(3, executor.getRunTimer().getCount());
+    Assert.assertEquals(3, executor.getWaitTimer().getCount());
+    Assert.assertTrue(metricRegistry.getMetrics().isEmpty());
+  }
+
+  @Test
+  public void testReplacedExecutorLeavesTheMetricsOfItsReplacement() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    final WebSocketExecutor replaced = new WebSocketExecutor(1, 1, metricRegistry);
+    final WebSocketExecutor executor = new WebSocketExecutor(1, 1, metricRegistry);
+    try {
+      replaced.shutdown();
+      Assert.assertTrue(replaced.awaitTermination(10, TimeUnit.SECONDS));
+      Assert.assertSame(executor.getRunTimer(), metricRegistry.getTimers().get("websocket.executor.run"));
+      Assert.assertEquals(5, metricRegistry.getMetrics().size());
+    } finally {
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    Assert.assertTrue(metricRegistry.getMetrics().isEmpty());
+  }
+
+  @Test
+  public void testSerialExecutorRunsTasksInOrder() throws Exception {
+    final WebSocketExecutor executor = new WebSocketExecutor(4, 1024, null);
+    final SerialExecutor serialExecutor = new SerialExecutor(executor);
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicBoolean overlapped = new AtomicBoolean();
+    final CountDownLatch done = new CountDownLatch(100);
+    try {
+      for (int i = 0; i < 100; i++) {
+        final int task = i;
+        serialExecutor.execute(() -> {
+          if (running.incrementAndGet() != 1) {
+            overlapped.set(true);
+          }
+          order.add(task);
+          running.decrementAndGet();
+          done.countDown();
+        });
+      }
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertFalse(overlapped.get());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(Integer.valueOf(i), order.get(i));
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -64,6 +64,11 @@ public class WebsocketClient {
     this.messageQueue.offer(message);
   }
 
+  @OnMessage
+  public void onMessage(ByteBuffer message) {
+    this.messageQueue.offer(StandardCharsets.UTF_8.decode(message).toString());
+  }
+
   @OnMessage
   public void onMessage(PongMessage message) {
     ByteBuffer byteMessage = message.getApplicationData();
@@ -22,6 +22,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import javax.websocket.ContainerProvider;
 import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
@@ -100,6 +102,23 @@ public class WebsocketEchoTest extends WebsocketEchoTestBase {
     assertThat(client.messageQueue.get(0), is("Echo"));
   }
 
+  /*
+   * Test binary websocket proxying through gateway.
+   */
+  @Test
+  public void testGatewayBinaryEcho() throws Exception {
+    WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+
+    WebsocketClient client = new WebsocketClient();
+    Session session = container.connectToServer(client,
+        new URI(serverUri.toString() + "gateway/websocket/ws"));
+
+    session.getBasicRemote().sendBinary(ByteBuffer.wrap("Echo".getBytes(StandardCharsets.UTF_8)));
+    client.messageQueue.awaitMessages(1, 1000, TimeUnit.MILLISECONDS);
+
+    assertThat(client.messageQueue.get(0), is("Echo"));
+  }
+
   /*
    * Test websocket rewrite rules proxying through gateway.
    */
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.service.health;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.services.metrics.SummingTimer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a registry in the Prometheus text exposition format.
+ * Counters and meters are exposed as counters, histograms and timers as
+ * summaries, timers in seconds. Gauges with a non numeric value are skipped.
+ * <p>
+ * The sum of a summary is only exposed for a {@link SummingTimer}, as the
+ * other histograms and timers only keep a decaying sample, from which an
+ * estimated sum could go down between two scrapes. A metric whose sanitized
+ * name is already taken by another one gets a suffix derived from its own
+ * name, e.g. {@code _5d41402a}; it is skipped if that is taken as well.
+ */
+class PrometheusWriter {
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final String PREFIX = "knox_";
+  private static final double[] QUANTILES = { 0.5, 0.75, 0.9, 0.95, 0.99, 0.999 };
+  private static final String[] SUMMARY_SUFFIXES = { "_sum", "_count" };
+  private static final String[] ESTIMATED_SUMMARY_SUFFIXES = { "_count" };
+  private static final double SECONDS_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+  private final Writer writer;
+  private final Set<String> names = new HashSet<>();
+
+  PrometheusWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  void write(MetricRegistry registry) throws IOException {
+    for (Map.Entry<String, Gauge> gauge : registry.getGauges().entrySet()) {
+      writeGauge(gauge.getKey(), gauge.getValue().getValue());
+    }
+    for (Map.Entry<String, Counter> counter : registry.getCounters().entrySet()) {
+      writeCounter(uniqueName(counter.getKey(), ""), counter.getValue().getCount());
+    }
+    for (Map.Entry<String, Meter> meter : registry.getMeters().entrySet()) {
+      writeCounter(uniqueName(meter.getKey(), "_total"), meter.getValue().getCount());
+    }
+    for (Map.Entry<String, Histogram> histogram : registry.getHistograms().entrySet()) {
+      writeSummary(uniqueName(histogram.getKey(), "", ESTIMATED_SUMMARY_SUFFIXES), histogram.getValue().getSnapshot(),
+          histogram.getValue().getCount(), null, 1.0);
+    }
+    for (Map.Entry<String, Timer> timer : registry.getTimers().entrySet()) {
+      if (timer.getValue() instanceof SummingTimer) {
+        final SummingTimer summingTimer = (SummingTimer) timer.getValue();
+        writeSummary(uniqueName(timer.getKey(), "_seconds", SUMMARY_SUFFIXES), summingTimer.getSnapshot(),
+            summingTimer.getCount(), (double) summingTimer.getSumNanos(), SECONDS_PER_NANO);
+      } else {
+        writeSummary(uniqueName(timer.getKey(), "_seconds", ESTIMATED_SUMMARY_SUFFIXES), timer.getValue().getSnapshot(),
+            timer.getValue().getCount(), null, SECONDS_PER_NANO);
+      }
+    }
+    writer.flush();
+  }
+
+  /*
+   * Takes the name of a metric family and of its samples. When one of them is already taken, e.g. "knox_a_b"
+   * for both "a.b" and "a-b", the metric gets a suffix derived from its original name, so that it keeps the
+   * same name whichever metrics were registered before it. Returns null if that name is taken too.
+   */
+  private String uniqueName(String metricName, String unit, String... sampleSuffixes) {
+    final String name = name(metricName);
+    String unique = name + unit;
+    if (isTaken(unique, sampleSuffixes)) {
+      unique = name + String.format(Locale.ROOT, "_%08x", metricName.hashCode()) + unit;
+      if (isTaken(unique, sampleSuffixes)) {
+        return null;
+      }
+    }
+    names.add(unique);
+    for (String suffix : sampleSuffixes) {
+      names.add(unique + suffix);
+    }
+    return unique;
+  }
+
+  private boolean isTaken(String name, String... sampleSuffixes) {
+    if (names.contains(name)) {
+      return true;
+    }
+    for (String suffix : sampleSuffixes) {
+      if (names.contains(name + suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void writeGauge(String metricName, Object value) throws IOException {
+    final double number;
+    if (value instanceof Number) {
+      number = ((Number) value).doubleValue();
+    } else if (value instanceof Boolean) {
+      number = ((Boolean) value) ? 1 : 0;
+    } else {
+      return;
+    }
+    final String name = uniqueName(metricName, "");
+    if (name == null) {
+      return;
+    }
+    writeType(name, "gauge");
+    writeSample(name, "", number);
+  }
+
+  private void writeCounter(String name, long count) throws IOException {
+    if (name == null) {
+      return;
+    }
+    writeType(name, "counter");
+    writeSample(name, "", count);
+  }
+
+  private void writeSummary(String name, Snapshot snapshot, long count, Double sum, double factor) throws IOException {
+    if (name == null) {
+      return;
+    }
+    writeType(name, "summary");
+    for (double quantile : QUANTILES) {
+      writeSample(name, "{quantile=\"" + quantile + "\"}", snapshot.getValue(quantile) * factor);
+    }
+    if (sum != null) {
+      writeSample(name + "_sum", "", sum * factor);
+    }
+    writeSample(name + "_count", "", count);
+  }
+
+  private void writeType(String name, String type) throws IOException {
+    writer.write("# TYPE " + name + ' ' + type + '\n');
+  }
+
+  private void writeSample(String name, String labels, double value) throws IOException {
+    writer.write(name + labels + ' ' + format(value) + '\n');
+  }
+
+  private static String format(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    }
+    if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  /*
+   * Metric names may only contain [a-zA-Z0-9_:], e.g. "topology.sandbox.service.WEBHDFS.requests"
+   * becomes "knox_topology_sandbox_service_WEBHDFS_requests".
+   */
+  static String name(String metricName) {
+    final StringBuilder name = new StringBuilder(PREFIX.length() + metricName.length()).append(PREFIX);
+    for (int i = 0; i < metricName.length(); i++) {
+      final char c = metricName.charAt(i);
+      name.append((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ':' ? c : '_');
+    }
+    return name.toString();
+  }
+}
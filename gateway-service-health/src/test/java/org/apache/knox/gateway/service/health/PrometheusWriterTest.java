@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.service.health;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.services.metrics.SummingTimer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrometheusWriterTest {
+  @Test
+  public void testName() {
+    assertEquals("knox_topology_sandbox_service_WEBHDFS_backend_wait",
+        PrometheusWriter.name("topology.sandbox.service.WEBHDFS.backend-wait"));
+  }
+
+  @Test
+  public void testWrite() throws IOException {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("connections").inc(3);
+    registry.meter("topology.sandbox.service.WEBHDFS.errors").mark(2);
+    registry.register("heap.used", (Gauge<Long>) () -> 1024L);
+    registry.register("name", (Gauge<String>) () -> "not a number");
+    registry.timer("topology.sandbox.service.WEBHDFS.requests").update(2, TimeUnit.SECONDS);
+
+    StringWriter writer = new StringWriter();
+    new PrometheusWriter(writer).write(registry);
+    String output = writer.toString();
+
+    assertTrue(output.contains("# TYPE knox_connections counter\nknox_connections 3\n"));
+    assertTrue(output.contains("knox_topology_sandbox_service_WEBHDFS_errors_total 2\n"));
+    assertTrue(output.contains("# TYPE knox_heap_used gauge\nknox_heap_used 1024\n"));
+    assertFalse(output.contains("knox_name"));
+    assertTrue(output.contains("# TYPE knox_topology_sandbox_service_WEBHDFS_requests_seconds summary\n"));
+    assertTrue(output.contains("knox_topology_sandbox_service_WEBHDFS_requests_seconds{quantile=\"0.99\"} 2\n"));
+    // The sum of a timer that only keeps a sample is not exposed
+    assertFalse(output.contains("knox_topology_sandbox_service_WEBHDFS_requests_seconds_sum"));
+    assertTrue(output.contains("knox_topology_sandbox_service_WEBHDFS_requests_seconds_count 1\n"));
+  }
+
+  @Test
+  public void testSummingTimerSum() throws IOException {
+    MetricRegistry registry = new MetricRegistry();
+    Timer timer = registry.timer("requests", SummingTimer::new);
+    timer.update(1, TimeUnit.SECONDS);
+    timer.update(500, TimeUnit.MILLISECONDS);
+
+    StringWriter writer = new StringWriter();
+    new PrometheusWriter(writer).write(registry);
+
+    assertTrue(writer.toString().contains("knox_requests_seconds_sum 1.5\n"));
+    assertTrue(writer.toString().contains("knox_requests_seconds_count 2\n"));
+  }
+
+  @Test
+  public void testCollidingNames() throws IOException {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("gateway.requests").inc(1);
+    registry.counter("gateway-requests").inc(2);
+    registry.counter("gateway.requests.count").inc(3);
+    registry.histogram("gateway_requests");
+
+    StringWriter writer = new StringWriter();
+    new PrometheusWriter(writer).write(registry);
+    String output = writer.toString();
+
+    assertTrue(output.contains("# TYPE knox_gateway_requests counter\nknox_gateway_requests 2\n"));
+    assertTrue(output.contains("# TYPE knox_gateway_requests_41d1d82e counter\nknox_gateway_requests_41d1d82e 1\n"));
+    assertTrue(output.contains("# TYPE knox_gateway_requests_count counter\nknox_gateway_requests_count 3\n"));
+    assertTrue(output.contains("# TYPE knox_gateway_requests_a2eb175f summary\n"));
+    assertTrue(output.contains("knox_gateway_requests_a2eb175f_count 0\n"));
+  }
+
+  @Test
+  public void testCollidingNamesDoNotDependOnTheOtherMetrics() throws IOException {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("gateway.requests").inc(1);
+    registry.counter("gateway-requests").inc(2);
+    registry.counter("gateway requests").inc(3);
+
+    StringWriter writer = new StringWriter();
+    new PrometheusWriter(writer).write(registry);
+    String output = writer.toString();
+
+    // Whichever metric took the name first, a colliding metric gets the suffix of its own name
+    assertTrue(output.contains("knox_gateway_requests 3\n"));
+    assertTrue(output.contains("knox_gateway_requests_ad8d692d 2\n"));
+    assertTrue(output.contains("knox_gateway_requests_41d1d82e 1\n"));
+  }
+}
@@ -18,10 +18,8 @@
 package org.apache.knox.gateway.service.knoxtoken;
 
 import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.KeyUse;
-import com.nimbusds.jose.jwk.RSAKey;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
@@ -43,8 +41,10 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.PublicKey;
 import java.security.cert.Certificate;
-import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
@@ -82,20 +82,22 @@ public class JWKSResource {
   private Response getJwks(final String keystore) {
     JWKSet jwks;
     try {
-      final RSAPublicKey rsa = getPublicKey(keystore);
+      final PublicKey publicKey = getPublicKey(keystore);
       /* no public cert found, return empty set */
-      if(rsa == null) {
+      if(publicKey == null) {
         return Response.ok()
             .entity(new JWKSet().toJSONObject().toString()).build();
       }
 
-      final String kid = TokenUtils.getThumbprint(rsa, "SHA-256");
-      final RSAKey.Builder builder = new RSAKey.Builder(rsa)
-          .keyUse(KeyUse.SIGNATURE)
-          .algorithm(new JWSAlgorithm(this.signatureAlgorithm))
-          .keyID(kid);
-
-      jwks = new JWKSet(builder.build());
+      /* RSA, EC or Ed25519 (OKP) key */
+      final String kid = TokenUtils.getThumbprint(publicKey, "SHA-256");
+      final List<JWK> keys = new ArrayList<>();
+      keys.add(TokenUtils.toJWK(publicKey, this.signatureAlgorithm, kid));
+      /* keys tokens may still be signed with during a key rotation */
+      for (PublicKey verificationKey : getVerificationPublicKeys(keystore)) {
+        keys.add(TokenUtils.toJWK(verificationKey, null, TokenUtils.getThumbprint(verificationKey, "SHA-256")));
+      }
+      jwks = new JWKSet(keys);
 
     } catch (KeyStoreException | JOSEException e) {
       return Response.status(500)
@@ -109,10 +111,26 @@ public class JWKSResource {
             .entity(jwks.toString()).type(MediaType.APPLICATION_JSON_TYPE).build();
   }
 
-  protected RSAPublicKey getPublicKey(final String keystore) throws KeystoreServiceException, KeyStoreException {
+  protected PublicKey getPublicKey(final String keystore) throws KeystoreServiceException, KeyStoreException {
     final KeyStore ks = keystoreService.getSigningKeystore(keystore);
     final Certificate cert = ks.getCertificate(getSigningKeyAlias());
-    return (cert != null) ? (RSAPublicKey) cert.getPublicKey() : null;
+    return (cert != null) ? cert.getPublicKey() : null;
+  }
+
+  protected List<PublicKey> getVerificationPublicKeys(final String keystore) throws KeystoreServiceException, KeyStoreException {
+    final GatewayConfig config = (GatewayConfig) context.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
+    final List<String> aliases = config.getSigningKeyVerificationAliases();
+    final List<PublicKey> publicKeys = new ArrayList<>();
+    if (keystore == null && aliases != null) {
+      final KeyStore ks = keystoreService.getSigningKeystore(keystore);
+      for (String alias : aliases) {
+        final Certificate cert = ks.getCertificate(alias);
+        if (cert != null) {
+          publicKeys.add(cert.getPublicKey());
+        }
+      }
+    }
+    return publicKeys;
   }
 
   private String getSigningKeyAlias() {
@@ -33,6 +33,7 @@ import java.util.Enumeration;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -40,6 +41,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -55,6 +57,7 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
@@ -82,9 +85,14 @@ import org.apache.knox.gateway.services.security.token.JWTokenAttributesBuilder;
 import org.apache.knox.gateway.services.security.token.JWTokenAuthority;
 import org.apache.knox.gateway.services.security.token.KnoxToken;
 import org.apache.knox.gateway.services.security.token.PersistentTokenStateService;
+import org.apache.knox.gateway.services.security.token.TokenBatchResult;
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
+import org.apache.knox.gateway.services.security.token.TokenPage;
+import org.apache.knox.gateway.services.security.token.TokenQuery;
+import org.apache.knox.gateway.services.security.token.TokenQueryBuilder;
 import org.apache.knox.gateway.services.security.token.TokenServiceException;
 import org.apache.knox.gateway.services.security.token.TokenStateService;
+import org.apache.knox.gateway.services.security.token.TokenStateServiceException;
 import org.apache.knox.gateway.services.security.token.TokenUtils;
 import org.apache.knox.gateway.services.security.token.UnknownTokenException;
 import org.apache.knox.gateway.services.security.token.impl.JWT;
@@ -141,6 +149,16 @@ public class TokenResource {
   private static final String LIFESPAN_INPUT_ENABLED_TEXT = "lifespanInputEnabled";
   static final String KNOX_TOKEN_USER_LIMIT_EXCEEDED_ACTION = TOKEN_PARAM_PREFIX + "user.limit.exceeded.action";
   private static final String METADATA_QUERY_PARAM_PREFIX = "md_";
+  private static final String TOKEN_LIST_MAX_PAGE_SIZE_PARAM = TOKEN_PARAM_PREFIX + "list.max.page.size";
+  private static final int TOKEN_LIST_MAX_PAGE_SIZE_DEFAULT = 500;
+  static final String QUERY_PARAMETER_PAGE_SIZE = "pageSize";
+  static final String QUERY_PARAMETER_PAGE_TOKEN = "pageToken";
+  static final String QUERY_PARAMETER_SORT_BY = "sortBy";
+  static final String QUERY_PARAMETER_SORT_ORDER = "sortOrder";
+  static final String QUERY_PARAMETER_ENABLED = "enabled";
+  static final String QUERY_PARAMETER_EXPIRES_AFTER = "expiresAfter";
+  static final String QUERY_PARAMETER_EXPIRES_BEFORE = "expiresBefore";
+  static final String NEXT_PAGE_TOKEN = "nextPageToken";
   private static final long TOKEN_TTL_DEFAULT = 30000L;
   static final String TOKEN_API_PATH = "knoxtoken/api/v1";
   static final String RESOURCE_PATH = TOKEN_API_PATH + "/token";
@@ -148,6 +166,7 @@ public class TokenResource {
   protected static final String GET_TSS_STATUS_PATH = "/getTssStatus";
   protected static final String RENEW_PATH = "/renew";
   protected static final String REVOKE_PATH = "/revoke";
+  protected static final String BATCH_RENEW_PATH = "/renewTokens";
   protected static final String BATCH_REVOKE_PATH = "/revokeTokens";
   protected static final String ENABLE_PATH = "/enable";
   protected static final String BATCH_ENABLE_PATH = "/enableTokens";
@@ -181,6 +200,7 @@ public class TokenResource {
   private Optional<Long> maxTokenLifetime = Optional.empty();
 
   private int tokenLimitPerUser;
+  private int tokenListMaxPageSize = TOKEN_LIST_MAX_PAGE_SIZE_DEFAULT;
   private boolean includeGroupsInTokenAllowed;
   private String tokenIssuer;
 
@@ -374,6 +394,19 @@ public class TokenResource {
     } else {
       tokenStateServiceStatusMap.put(TSS_STATUS_IS_MANAGEMENT_ENABLED, "false");
     }
+    final String tokenListMaxPageSizeValue = context.getInitParameter(TOKEN_LIST_MAX_PAGE_SIZE_PARAM);
+    if (tokenListMaxPageSizeValue != null) {
+      try {
+        tokenListMaxPageSize = Integer.parseInt(tokenListMaxPageSizeValue.trim());
+      } catch (NumberFormatException e) {
+        tokenListMaxPageSize = 0;
+      }
+      if (tokenListMaxPageSize <= 0) {
+        log.invalidTokenListMaxPageSize(tokenListMaxPageSizeValue, TOKEN_LIST_MAX_PAGE_SIZE_DEFAULT);
+        tokenListMaxPageSize = TOKEN_LIST_MAX_PAGE_SIZE_DEFAULT;
+      }
+    }
+
     final String lifespanInputEnabledValue = context.getInitParameter(LIFESPAN_INPUT_ENABLED_PARAM);
     final Boolean lifespanInputEnabled = lifespanInputEnabledValue == null ? Boolean.TRUE : Boolean.parseBoolean(lifespanInputEnabledValue);
     tokenStateServiceStatusMap.put(LIFESPAN_INPUT_ENABLED_TEXT, lifespanInputEnabled.toString());
@@ -470,6 +503,20 @@ public class TokenResource {
       final String createdBy = uriInfo.getQueryParameters().getFirst("createdBy");
       final String userNameOrCreatedBy = uriInfo.getQueryParameters().getFirst("userNameOrCreatedBy");
       final boolean allTokens = Boolean.parseBoolean(uriInfo.getQueryParameters().getFirst("allTokens"));
+      if (isPagedListing(uriInfo.getQueryParameters())) {
+        final TokenQueryBuilder queryBuilder = new TokenQueryBuilder();
+        if (!allTokens) {
+          if (userNameOrCreatedBy != null) {
+            queryBuilder.setUserNameOrCreatedBy(userNameOrCreatedBy);
+          } else if (createdBy != null) {
+            queryBuilder.setCreatedBy(createdBy);
+          } else {
+            queryBuilder.setUserName(userName);
+          }
+        }
+        metadataMap.forEach(queryBuilder::addMetadata);
+        return listTokens(queryBuilder, uriInfo.getQueryParameters());
+      }
       final Collection<KnoxToken> userTokens;
       if (allTokens) {
         userTokens = tokenStateService.getAllTokens();
@@ -503,6 +550,54 @@ public class TokenResource {
     }
   }
 
+  /*
+   * Token listings are paged as soon as any paging parameter is set; otherwise all the tokens are returned at once
+   */
+  private static boolean isPagedListing(MultivaluedMap<String, String> queryParameters) {
+    return queryParameters.containsKey(QUERY_PARAMETER_PAGE_SIZE) || queryParameters.containsKey(QUERY_PARAMETER_PAGE_TOKEN);
+  }
+
+  private Response listTokens(TokenQueryBuilder queryBuilder, MultivaluedMap<String, String> queryParameters) {
+    final TokenPage page;
+    try {
+      final String pageSize = queryParameters.getFirst(QUERY_PARAMETER_PAGE_SIZE);
+      queryBuilder.setPageSize(Math.min(StringUtils.isBlank(pageSize) ? TokenQueryBuilder.DEFAULT_PAGE_SIZE : Integer.parseInt(pageSize), tokenListMaxPageSize))
+          .setPageToken(queryParameters.getFirst(QUERY_PARAMETER_PAGE_TOKEN))
+          .setSortField(getSortField(queryParameters.getFirst(QUERY_PARAMETER_SORT_BY)))
+          .setDescending("desc".equalsIgnoreCase(queryParameters.getFirst(QUERY_PARAMETER_SORT_ORDER)))
+          .setExpiresAfter(getLongParameter(queryParameters, QUERY_PARAMETER_EXPIRES_AFTER))
+          .setExpiresBefore(getLongParameter(queryParameters, QUERY_PARAMETER_EXPIRES_BEFORE));
+      final String enabled = queryParameters.getFirst(QUERY_PARAMETER_ENABLED);
+      if (StringUtils.isNotBlank(enabled)) {
+        queryBuilder.setEnabled(Boolean.parseBoolean(enabled));
+      }
+      page = tokenStateService.listTokens(queryBuilder.build());
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(JsonUtils.renderAsJsonString(Collections.singletonMap("error", e.getMessage()))).build();
+    }
+    final Map<String, Object> result = new LinkedHashMap<>();
+    result.put("tokens", page.getTokens());
+    if (page.getNextPageToken() != null) {
+      result.put(NEXT_PAGE_TOKEN, page.getNextPageToken());
+    }
+    return Response.status(Response.Status.OK).entity(JsonUtils.renderAsJsonString(result)).build();
+  }
+
+  private static TokenQuery.SortField getSortField(String sortBy) {
+    if (StringUtils.isBlank(sortBy) || "issueTime".equals(sortBy)) {
+      return TokenQuery.SortField.ISSUE_TIME;
+    }
+    if ("expiration".equals(sortBy)) {
+      return TokenQuery.SortField.EXPIRATION;
+    }
+    throw new IllegalArgumentException("Invalid sort field: " + sortBy);
+  }
+
+  private static Long getLongParameter(MultivaluedMap<String, String> queryParameters, String name) {
+    final String value = queryParameters.getFirst(name);
+    return StringUtils.isBlank(value) ? null : Long.valueOf(value);
+  }
+
   @GET
   @Path(GET_TSS_STATUS_PATH)
   @Produces({APPLICATION_JSON})
@@ -586,20 +681,138 @@ public class TokenResource {
     return resp;
   }
 
+  @PUT
+  @Path(BATCH_RENEW_PATH)
+  @Consumes({APPLICATION_JSON})
+  @Produces({APPLICATION_JSON})
+  @SuppressWarnings("unchecked")
+  public Response renewTokens(String tokens) {
+    final List<String> requestedTokens = GSON.fromJson(tokens, List.class);
+    final BatchResponse response = new BatchResponse("renewed",
+        (token, error) -> log.badRenewalRequest(getTopologyName(), Tokens.getTokenDisplayText(token), error));
+
+    if (tokenStateService == null) {
+      // If the token state service is disabled, then return the expiration from the specified tokens
+      for (String token : requestedTokens) {
+        try {
+          final JWTToken jwt = new JWTToken(token);
+          final String tokenId = TokenUtils.getTokenId(jwt);
+          log.renewalDisabled(getTopologyName(), Tokens.getTokenDisplayText(token), Tokens.getTokenIDDisplayText(tokenId));
+          response.succeeded(tokenId, "expires", jwt.getExpires());
+        } catch (ParseException e) {
+          log.invalidToken(getTopologyName(), Tokens.getTokenDisplayText(token), e);
+          response.failed(token, Response.Status.BAD_REQUEST, safeGetMessage(e), ErrorCode.INVALID_TOKEN);
+        }
+      }
+      return response.build();
+    }
+
+    final String renewer = SubjectUtils.getCurrentEffectivePrincipalName();
+    if (!allowedRenewers.contains(renewer)) {
+      requestedTokens.forEach(token -> response.failed(token, Response.Status.FORBIDDEN,
+          "Caller (" + renewer + ") not authorized to renew tokens.", ErrorCode.UNAUTHORIZED));
+      return response.build();
+    }
+
+    final Map<String, String> tokenIds = getTokenIds(requestedTokens, false, response);
+    final Map<String, KnoxToken> knownTokens = getKnownTokens(tokenIds.keySet(), response);
+    if (knownTokens == null) {
+      return response.build();
+    }
+    final List<String> renewableTokenIds = new ArrayList<>();
+    final long now = System.currentTimeMillis();
+    for (String tokenId : tokenIds.keySet()) {
+      final KnoxToken knoxToken = knownTokens.get(tokenId);
+      if (knoxToken == null) {
+        response.failed(tokenId, Response.Status.BAD_REQUEST, new UnknownTokenException(tokenId).getMessage(), ErrorCode.UNKNOWN_TOKEN);
+      } else if (knoxToken.getExpirationLong() <= now) {
+        response.failed(tokenId, Response.Status.BAD_REQUEST, "Expired tokens must not be renewed.", ErrorCode.TOKEN_EXPIRED);
+      } else {
+        renewableTokenIds.add(tokenId);
+      }
+    }
+
+    final TokenBatchResult<Long> renewed =
+        tokenStateService.renewTokens(renewableTokenIds, renewInterval.orElse(tokenStateService.getDefaultRenewInterval()));
+    renewed.getSucceeded().forEach((tokenId, expiration) -> {
+      log.renewedToken(getTopologyName(), Tokens.getTokenDisplayText(tokenIds.get(tokenId)), Tokens.getTokenIDDisplayText(tokenId), renewer);
+      response.succeeded(tokenId, "expires", String.valueOf(expiration));
+    });
+    response.failed(renewed);
+    return response.build();
+  }
+
   @DELETE
   @Path(BATCH_REVOKE_PATH)
   @Produces({APPLICATION_JSON})
-  public Response revokeTokens(String tokenIds) {
-    final List<String> ids = GSON.fromJson(tokenIds, List.class);
-    Response response = null;
-    Response error = null;
-    for (String tokenId : ids) {
-      response = revoke(tokenId);
-      if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-        error = response;
+  @SuppressWarnings("unchecked")
+  public Response revokeTokens(String tokens) {
+    final List<String> requestedTokens = GSON.fromJson(tokens, List.class);
+    final BatchResponse response = new BatchResponse("revoked",
+        (token, error) -> log.badRevocationRequest(getTopologyName(), Tokens.getTokenDisplayText(token), error));
+
+    if (tokenStateService == null) {
+      requestedTokens.forEach(token -> response.failed(token, Response.Status.BAD_REQUEST,
+          "Token revocation support is not configured", ErrorCode.CONFIGURATION_ERROR));
+      return response.build();
+    }
+
+    final String revoker = SubjectUtils.getCurrentEffectivePrincipalName();
+    final Map<String, String> tokenIds = getTokenIds(requestedTokens, true, response);
+    final Map<String, KnoxToken> knownTokens = getKnownTokens(tokenIds.keySet(), response);
+    if (knownTokens == null) {
+      return response.build();
+    }
+    final List<String> revocableTokenIds = new ArrayList<>();
+    for (String tokenId : tokenIds.keySet()) {
+      final KnoxToken knoxToken = knownTokens.get(tokenId);
+      if (knoxToken == null) {
+        response.failed(tokenId, Response.Status.BAD_REQUEST, new UnknownTokenException(tokenId).getMessage(), ErrorCode.UNKNOWN_TOKEN);
+      } else if (knoxToken.getMetadata().isKnoxSsoCookie()) {
+        response.failed(tokenId, Response.Status.FORBIDDEN,
+            "SSO cookie (" + Tokens.getTokenIDDisplayText(tokenId) + ") cannot not be revoked.", ErrorCode.UNAUTHORIZED);
+      } else if (triesToRevokeOwnToken(knoxToken.getMetadata(), revoker) || allowedRenewers.contains(revoker)) {
+        revocableTokenIds.add(tokenId);
+      } else {
+        response.failed(tokenId, Response.Status.FORBIDDEN, "Caller (" + revoker + ") not authorized to revoke tokens.", ErrorCode.UNAUTHORIZED);
       }
     }
-    return error == null ? response : error;
+
+    final TokenBatchResult<Void> revoked = tokenStateService.revokeTokens(revocableTokenIds);
+    revoked.getSucceeded().keySet().forEach(tokenId -> {
+      log.revokedToken(getTopologyName(), Tokens.getTokenDisplayText(tokenIds.get(tokenId)), Tokens.getTokenIDDisplayText(tokenId), revoker);
+      response.succeeded(tokenId, null, null);
+    });
+    response.failed(revoked);
+    return response.build();
+  }
+
+  /*
+   * The known tokens among the requested ones; null if the token state service failed to fetch them, all of them then failed
+   */
+  private Map<String, KnoxToken> getKnownTokens(Collection<String> tokenIds, BatchResponse response) {
+    try {
+      return tokenStateService.getTokensById(tokenIds);
+    } catch (TokenStateServiceException e) {
+      tokenIds.forEach(tokenId -> response.failed(tokenId, Response.Status.INTERNAL_SERVER_ERROR, safeGetMessage(e), ErrorCode.INTERNAL_ERROR));
+      return null;
+    }
+  }
+
+  /*
+   * Maps the identifier of each requested token to the token as it was requested: either the token ID, if allowed, or the entire JWT
+   */
+  private Map<String, String> getTokenIds(List<String> tokens, boolean tokenIdsAllowed, BatchResponse response) {
+    final Map<String, String> tokenIds = new LinkedHashMap<>();
+    for (String token : tokens) {
+      try {
+        tokenIds.put(tokenIdsAllowed ? getTokenId(token) : TokenUtils.getTokenId(new JWTToken(token)), token);
+      } catch (ParseException e) {
+        log.invalidToken(getTopologyName(), Tokens.getTokenDisplayText(token), e);
+        response.failed(token, Response.Status.BAD_REQUEST, safeGetMessage(e), ErrorCode.INVALID_TOKEN);
+      }
+    }
+    return tokenIds;
   }
 
   /**
@@ -670,7 +883,10 @@ public class TokenResource {
   }
 
   private boolean triesToRevokeOwnToken(String tokenId, String revoker) throws UnknownTokenException {
-    final TokenMetadata metadata = tokenStateService.getTokenMetadata(tokenId);
+    return triesToRevokeOwnToken(tokenStateService.getTokenMetadata(tokenId), revoker);
+  }
+
+  private static boolean triesToRevokeOwnToken(TokenMetadata metadata, String revoker) {
     final String tokenUserName = metadata == null ? "" : metadata.getUserName();
     final String tokenCreatedBy = metadata == null ? "" : metadata.getCreatedBy();
     return StringUtils.isNotBlank(revoker) && (revoker.equals(tokenUserName) || revoker.equals(tokenCreatedBy));
@@ -696,7 +912,7 @@ public class TokenResource {
   @Path(ENABLE_PATH)
   @Produces({APPLICATION_JSON})
   public Response enable(String tokenId) {
-    return setTokenEnabledFlag(tokenId, true, false);
+    return setTokenEnabledFlag(tokenId, true);
   }
 
   @PUT
@@ -711,7 +927,7 @@ public class TokenResource {
   @Path(DISABLE_PATH)
   @Produces({APPLICATION_JSON})
   public Response disable(String tokenId) {
-    return setTokenEnabledFlag(tokenId, false, false);
+    return setTokenEnabledFlag(tokenId, false);
   }
 
   @PUT
@@ -722,21 +938,49 @@ public class TokenResource {
     return setTokenEnabledFlags(tokenIds, false);
   }
 
+  /*
+   * Unlike single token requests, batch requests do not reject the tokens already having the requested flag
+   */
   @SuppressWarnings("unchecked")
-  private Response setTokenEnabledFlags(String tokenIds, boolean enabled) {
-    final List<String> ids = GSON.fromJson(tokenIds, List.class);
-    Response response = null;
-    Response error = null;
-    for (String tokenId : ids) {
-      response = setTokenEnabledFlag(tokenId, enabled, true);
-      if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-        error = response;
+  private Response setTokenEnabledFlags(String tokenIds, boolean enable) {
+    final List<String> requestedTokenIds = GSON.fromJson(tokenIds, List.class);
+    final BatchResponse response = new BatchResponse("setEnabledFlag",
+        (tokenId, error) -> log.badSetEnabledFlagRequest(getTopologyName(), Tokens.getTokenIDDisplayText(tokenId), error));
+
+    if (tokenStateService == null) {
+      requestedTokenIds.forEach(tokenId -> response.failed(tokenId, Response.Status.BAD_REQUEST,
+          "Unable to " + (enable ? "enable" : "disable") + " tokens because token management is not configured", ErrorCode.CONFIGURATION_ERROR));
+      return response.build();
+    }
+
+    final Map<String, KnoxToken> knownTokens = getKnownTokens(requestedTokenIds, response);
+    if (knownTokens == null) {
+      return response.build();
+    }
+    final Map<String, TokenMetadata> updatedMetadata = new LinkedHashMap<>();
+    for (String tokenId : requestedTokenIds) {
+      final KnoxToken knoxToken = knownTokens.get(tokenId);
+      if (knoxToken == null) {
+        response.failed(tokenId, Response.Status.BAD_REQUEST, new UnknownTokenException(tokenId).getMessage(), ErrorCode.UNKNOWN_TOKEN);
+      } else if (enable && knoxToken.getMetadata().isKnoxSsoCookie() && !knoxToken.getMetadata().isEnabled()) {
+        response.failed(tokenId, Response.Status.BAD_REQUEST, "Disabled KnoxSSO Cookies cannot not be enabled", ErrorCode.DISABLED_KNOXSSO_COOKIE);
+      } else {
+        final TokenMetadata tokenMetadata = new TokenMetadata(knoxToken.getMetadata().getMetadataMap());
+        tokenMetadata.setEnabled(enable);
+        updatedMetadata.put(tokenId, tokenMetadata);
       }
     }
-    return error == null ? response : error;
+
+    final TokenBatchResult<Void> updated = tokenStateService.addMetadata(updatedMetadata);
+    updated.getSucceeded().keySet().forEach(tokenId -> {
+      log.setEnabledFlag(getTopologyName(), enable, Tokens.getTokenIDDisplayText(tokenId));
+      response.succeeded(tokenId, "isEnabled", String.valueOf(enable));
+    });
+    response.failed(updated);
+    return response.build();
   }
 
-  private Response setTokenEnabledFlag(String tokenId, boolean enable, boolean batch) {
+  private Response setTokenEnabledFlag(String tokenId, boolean enable) {
     String error = "";
     ErrorCode errorCode = ErrorCode.UNKNOWN;
     if (tokenStateService == null) {
@@ -745,10 +989,10 @@ public class TokenResource {
     } else {
       try {
         final TokenMetadata tokenMetadata = tokenStateService.getTokenMetadata(tokenId);
-        if (!batch && enable && tokenMetadata.isEnabled()) {
+        if (enable && tokenMetadata.isEnabled()) {
           error = "Token is already enabled";
           errorCode = ErrorCode.ALREADY_ENABLED;
-        } else if (!batch && !enable && !tokenMetadata.isEnabled()) {
+        } else if (!enable && !tokenMetadata.isEnabled()) {
           error = "Token is already disabled";
           errorCode = ErrorCode.ALREADY_DISABLED;
         } else if (enable && tokenMetadata.isKnoxSsoCookie() && !tokenMetadata.isEnabled()) {
@@ -1139,8 +1383,66 @@ public class TokenResource {
    * @param t A Throwable
    * @return The result of t.getMessage(), or &quot;null&quot; if that result is null.
    */
-  private String safeGetMessage(Throwable t) {
+  private static String safeGetMessage(Throwable t) {
     String message = t.getMessage();
     return message != null ? message : "null";
   }
+
+  /*
+   * The response of a batch request: the result of each token, as in the response of the single token requests,
+   * with the status of the first failure, if any, unless a later one is a server error
+   */
+  private static final class BatchResponse {
+    private final String outcome;
+    private final BiConsumer<String, String> failureLogger;
+    private final Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+    private Response.Status status = Response.Status.OK;
+
+    BatchResponse(String outcome, BiConsumer<String, String> failureLogger) {
+      this.outcome = outcome;
+      this.failureLogger = failureLogger;
+    }
+
+    void succeeded(String tokenId, String name, String value) {
+      final Map<String, Object> result = new LinkedHashMap<>();
+      result.put(outcome, "true");
+      if (name != null) {
+        result.put(name, value);
+      }
+      results.put(tokenId, result);
+    }
+
+    void failed(String token, Response.Status errorStatus, String error, ErrorCode errorCode) {
+      failureLogger.accept(token, error);
+      final Map<String, Object> result = new LinkedHashMap<>();
+      result.put(outcome, "false");
+      result.put("error", error);
+      result.put("code", errorCode.toInt());
+      results.put(token, result);
+      if (status == Response.Status.OK || isServerError(errorStatus) && !isServerError(status)) {
+        status = errorStatus;
+      }
+    }
+
+    void failed(TokenBatchResult<?> batchResult) {
+      batchResult.getFailed().forEach((tokenId, e) -> {
+        if (e instanceof UnknownTokenException) {
+          failed(tokenId, Response.Status.BAD_REQUEST, safeGetMessage(e), ErrorCode.UNKNOWN_TOKEN);
+        } else {
+          failed(tokenId, Response.Status.INTERNAL_SERVER_ERROR, safeGetMessage(e), ErrorCode.INTERNAL_ERROR);
+        }
+      });
+    }
+
+    private static boolean isServerError(Response.Status status) {
+      return status.getStatusCode() >= Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+    }
+
+    Response build() {
+      final Map<String, Object> entity = new LinkedHashMap<>();
+      entity.put(outcome, String.valueOf(status == Response.Status.OK));
+      entity.put("results", results);
+      return Response.status(status).entity(JsonUtils.renderAsJsonString(entity)).build();
+    }
+  }
 }
@@ -88,6 +88,15 @@ public class TokenResourceV2 extends TokenResource {
     return super.revokeTokens(tokenIds);
   }
 
+  @Override
+  @PUT
+  @Path(BATCH_RENEW_PATH)
+  @Consumes({ APPLICATION_JSON })
+  @Produces({ APPLICATION_JSON })
+  public Response renewTokens(String tokens) {
+    return super.renewTokens(tokens);
+  }
+
   @Override
   @PUT
   @Path(ENABLE_PATH)
@@ -87,6 +87,9 @@ public interface TokenServiceMessages {
   @Message( level = MessageLevel.WARN, text = "Invalid duration used for JWT token lifespan ({0}) using the configured TTL for KnoxToken service")
   void invalidLifetimeValue(String lifetimeStr);
 
+  @Message( level = MessageLevel.WARN, text = "The maximum page size of the token listings is invalid: {0} - using the default: {1}")
+  void invalidTokenListMaxPageSize(String value, int defaultValue);
+
   @Message( level = MessageLevel.ERROR, text = "Unable to get token for user {0}: token limit exceeded")
   void tokenLimitExceeded(String userName);
 
@@ -57,6 +57,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -98,6 +99,7 @@ import org.apache.knox.gateway.services.security.token.PersistentTokenStateServi
 import org.apache.knox.gateway.services.security.token.TokenMetadata;
 import org.apache.knox.gateway.services.security.token.TokenServiceException;
 import org.apache.knox.gateway.services.security.token.TokenStateService;
+import org.apache.knox.gateway.services.security.token.TokenStateServiceException;
 import org.apache.knox.gateway.services.security.token.TokenUtils;
 import org.apache.knox.gateway.services.security.token.UnknownTokenException;
 import org.apache.knox.gateway.services.security.token.impl.JWT;
@@ -1074,6 +1076,169 @@ public class TokenServiceResourceTest {
     assertTrue(response.getEntity().toString().contains("Unable to get token - token limit exceeded."));
   }
 
+  @Test
+  public void testPagedUserTokens() throws Exception {
+    configureCommonExpectations(new HashMap<>(), Boolean.TRUE);
+    final TokenResource tr = new TokenResource();
+    tr.request = request;
+    tr.context = context;
+    tr.init();
+    final int numberOfTokens = 5;
+    for (int i = 0; i < numberOfTokens; i++) {
+      tr.doGet();
+    }
+
+    final Set<String> listedTokenIds = new HashSet<>();
+    String pageToken = null;
+    int pages = 0;
+    do {
+      final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+      queryParameters.putSingle("userName", USER_NAME);
+      queryParameters.putSingle(TokenResource.QUERY_PARAMETER_PAGE_SIZE, "2");
+      if (pageToken != null) {
+        queryParameters.putSingle(TokenResource.QUERY_PARAMETER_PAGE_TOKEN, pageToken);
+      }
+      final Response response = getUserTokensResponse(tr, queryParameters);
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      final Map<String, Object> page = (Map<String, Object>) JsonUtils.getObjectFromJsonString(response.getEntity().toString());
+      final Collection<Map<String, Object>> tokens = (Collection<Map<String, Object>>) page.get("tokens");
+      assertTrue(tokens.size() <= 2);
+      tokens.forEach(token -> listedTokenIds.add((String) token.get("tokenId")));
+      pageToken = (String) page.get(TokenResource.NEXT_PAGE_TOKEN);
+      pages++;
+    } while (pageToken != null);
+    assertEquals(3, pages);
+    assertEquals(numberOfTokens, listedTokenIds.size());
+
+    final MultivaluedMap<String, String> invalidPageSize = new MultivaluedHashMap<>();
+    invalidPageSize.putSingle(TokenResource.QUERY_PARAMETER_PAGE_SIZE, "none");
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), getUserTokensResponse(tr, invalidPageSize).getStatus());
+  }
+
+  @Test
+  public void testNonPositiveMaxPageSizeFallsBackToTheDefault() throws Exception {
+    final Map<String, String> contextExpectations = new HashMap<>();
+    contextExpectations.put("knox.token.list.max.page.size", "0");
+    configureCommonExpectations(contextExpectations, Boolean.TRUE);
+    final TokenResource tr = new TokenResource();
+    tr.request = request;
+    tr.context = context;
+    tr.init();
+    for (int i = 0; i < 3; i++) {
+      tr.doGet();
+    }
+
+    final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    queryParameters.putSingle("userName", USER_NAME);
+    queryParameters.putSingle(TokenResource.QUERY_PARAMETER_PAGE_SIZE, "2");
+    final Response response = getUserTokensResponse(tr, queryParameters);
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    final Map<String, Object> page = (Map<String, Object>) JsonUtils.getObjectFromJsonString(response.getEntity().toString());
+    assertEquals(2, ((Collection<?>) page.get("tokens")).size());
+    assertNotNull(page.get(TokenResource.NEXT_PAGE_TOKEN));
+  }
+
+  @Test
+  public void testBatchTokenOperations() throws Exception {
+    final Map<String, String> contextExpectations = new HashMap<>();
+    contextExpectations.put("knox.token.renewer.whitelist", USER_NAME);
+    configureCommonExpectations(contextExpectations, Boolean.TRUE);
+    final TokenResource tr = new TokenResource();
+    tr.request = request;
+    tr.context = context;
+    tr.init();
+    final String token1 = acquireToken(tr).getEntity().toString();
+    final String token2 = acquireToken(tr).getEntity().toString();
+    final String tokenId1 = getTagValue(token1, "token_id");
+    final String tokenId2 = getTagValue(token2, "token_id");
+    final String unknownTokenId = UUID.randomUUID().toString();
+    final String tokenIds = "[\"" + tokenId1 + "\", \"" + tokenId2 + "\", \"" + unknownTokenId + "\"]";
+    final Subject caller = createTestSubject(USER_NAME);
+
+    Response response = Subject.doAs(caller, (PrivilegedAction<Response>) () -> tr.disableTokens(tokenIds));
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    Map<String, Map<String, Object>> results = getBatchResults(response, "setEnabledFlag");
+    assertEquals("false", results.get(tokenId1).get("isEnabled"));
+    assertEquals("false", results.get(tokenId2).get("isEnabled"));
+    assertEquals(TokenResource.ErrorCode.UNKNOWN_TOKEN.toInt(), results.get(unknownTokenId).get("code"));
+    assertFalse(tss.getTokenMetadata(tokenId1).isEnabled());
+    assertFalse(tss.getTokenMetadata(tokenId2).isEnabled());
+    // the other metadata of the tokens is kept
+    assertEquals(USER_NAME, tss.getTokenMetadata(tokenId1).getUserName());
+
+    response = Subject.doAs(caller, (PrivilegedAction<Response>) () -> tr.enableTokens("[\"" + tokenId1 + "\", \"" + tokenId2 + "\"]"));
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    assertTrue(tss.getTokenMetadata(tokenId1).isEnabled());
+    assertTrue(tss.getTokenMetadata(tokenId2).isEnabled());
+
+    // renewals require the entire JWT, the token ID is not enough
+    final String renewedTokens = "[\"" + getTagValue(token1, "access_token") + "\", \"" + getTagValue(token2, "access_token") + "\", \"" + unknownTokenId + "\"]";
+    response = Subject.doAs(caller, (PrivilegedAction<Response>) () -> tr.renewTokens(renewedTokens));
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    results = getBatchResults(response, "renewed");
+    assertEquals("true", results.get(tokenId1).get("renewed"));
+    assertNotNull(results.get(tokenId1).get("expires"));
+    assertEquals("true", results.get(tokenId2).get("renewed"));
+    assertEquals(TokenResource.ErrorCode.INVALID_TOKEN.toInt(), results.get(unknownTokenId).get("code"));
+
+    response = Subject.doAs(createTestSubject("bob"), (PrivilegedAction<Response>) () -> tr.revokeTokens(tokenIds));
+    assertEquals(Response.Status.FORBIDDEN.getStatusCode(), response.getStatus());
+    results = getBatchResults(response, "revoked");
+    assertEquals(TokenResource.ErrorCode.UNAUTHORIZED.toInt(), results.get(tokenId1).get("code"));
+    assertTrue(tss.issueTimes.containsKey(tokenId1));
+
+    response = Subject.doAs(caller, (PrivilegedAction<Response>) () -> tr.revokeTokens(tokenIds));
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    results = getBatchResults(response, "revoked");
+    assertEquals("true", results.get(tokenId1).get("revoked"));
+    assertEquals("true", results.get(tokenId2).get("revoked"));
+    assertEquals("false", results.get(unknownTokenId).get("revoked"));
+    assertFalse(tss.issueTimes.containsKey(tokenId1));
+    assertFalse(tss.issueTimes.containsKey(tokenId2));
+  }
+
+  @Test
+  public void testBatchTokenOperationsWhenTokensCannotBeFetched() throws Exception {
+    final Map<String, String> contextExpectations = new HashMap<>();
+    contextExpectations.put("knox.token.renewer.whitelist", USER_NAME);
+    configureCommonExpectations(contextExpectations, Boolean.TRUE);
+    final TokenResource tr = new TokenResource();
+    tr.request = request;
+    tr.context = context;
+    tr.init();
+    final String token = acquireToken(tr).getEntity().toString();
+    final String tokenId = getTagValue(token, "token_id");
+    final String tokenIds = "[\"" + tokenId + "\"]";
+    final Subject caller = createTestSubject(USER_NAME);
+    tss.unavailable = true;
+
+    // the token is not reported as unknown, and the server error takes precedence over the invalid token
+    final String renewedTokens = "[\"invalid\", \"" + getTagValue(token, "access_token") + "\"]";
+    Response response = Subject.doAs(caller, (PrivilegedAction<Response>) () -> tr.renewTokens(renewedTokens));
+    assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+    Map<String, Map<String, Object>> results = getBatchResults(response, "renewed");
+    assertEquals(TokenResource.ErrorCode.INVALID_TOKEN.toInt(), results.get("invalid").get("code"));
+    assertEquals(TokenResource.ErrorCode.INTERNAL_ERROR.toInt(), results.get(tokenId).get("code"));
+
+    response = Subject.doAs(caller, (PrivilegedAction<Response>) () -> tr.revokeTokens(tokenIds));
+    assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+    results = getBatchResults(response, "revoked");
+    assertEquals(TokenResource.ErrorCode.INTERNAL_ERROR.toInt(), results.get(tokenId).get("code"));
+    assertTrue(tss.issueTimes.containsKey(tokenId));
+
+    response = Subject.doAs(caller, (PrivilegedAction<Response>) () -> tr.disableTokens(tokenIds));
+    assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+    results = getBatchResults(response, "setEnabledFlag");
+    assertEquals(TokenResource.ErrorCode.INTERNAL_ERROR.toInt(), results.get(tokenId).get("code"));
+    assertTrue(tss.getTokenMetadata(tokenId).isEnabled());
+  }
+
+  private static Map<String, Map<String, Object>> getBatchResults(Response response, String outcome) throws IOException {
+    final Map<String, Object> json = parseJSONResponse(response.getEntity().toString());
+    assertEquals(String.valueOf(response.getStatus() == Response.Status.OK.getStatusCode()), json.get(outcome));
+    return (Map<String, Map<String, Object>>) json.get("results");
+  }
+
   private Response getUserTokensResponse(TokenResource tokenResource) {
     return getUserTokensResponse(tokenResource, false);
   }
@@ -1081,6 +1246,10 @@ public class TokenServiceResourceTest {
   private Response getUserTokensResponse(TokenResource tokenResource, boolean createdBy) {
     final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
     queryParameters.put(createdBy ? "createdBy" : "userName", Arrays.asList(USER_NAME));
+    return getUserTokensResponse(tokenResource, queryParameters);
+  }
+
+  private Response getUserTokensResponse(TokenResource tokenResource, MultivaluedMap<String, String> queryParameters) {
     final UriInfo uriInfo = EasyMock.createNiceMock(UriInfo.class);
     EasyMock.expect(uriInfo.getQueryParameters()).andReturn(queryParameters).anyTimes();
     EasyMock.replay(uriInfo);
@@ -1690,6 +1859,7 @@ public class TokenServiceResourceTest {
     private Map<String, Long> issueTimes = new HashMap<>();
     private Map<String, Long> maxLifetimes = new HashMap<>();
     private final Map<String, TokenMetadata> tokenMetadata = new ConcurrentHashMap<>();
+    private boolean unavailable;
 
     long getIssueTime(final String token) {
       return issueTimes.get(token);
@@ -1701,7 +1871,10 @@ public class TokenServiceResourceTest {
 
     @Override
     public long getTokenIssueTime(String tokenId) throws UnknownTokenException {
-      return issueTimes.getOrDefault(tokenId, 0L);
+      if (!issueTimes.containsKey(tokenId)) {
+        throw new UnknownTokenException(tokenId);
+      }
+      return issueTimes.get(tokenId);
     }
 
     @Override
@@ -1719,6 +1892,14 @@ public class TokenServiceResourceTest {
       return 500;
     }
 
+    @Override
+    public Map<String, KnoxToken> getTokensById(Collection<String> tokenIds) {
+      if (unavailable) {
+        throw new TokenStateServiceException("The tokens cannot be fetched");
+      }
+      return TokenStateService.super.getTokensById(tokenIds);
+    }
+
     @Override
     public void addToken(String tokenId, long issueTime, long expiration) {
       addToken(tokenId, issueTime, expiration, getDefaultMaxLifetimeDuration());
@@ -1785,7 +1966,7 @@ public class TokenServiceResourceTest {
 
     @Override
     public long getTokenExpiration(String tokenId, boolean validate) throws UnknownTokenException {
-      return 0;
+      return getTokenExpiration(tokenId);
     }
 
     @Override
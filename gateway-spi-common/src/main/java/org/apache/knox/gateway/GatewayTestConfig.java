@@ -50,6 +50,10 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
   public static final int DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT = 60000;
   public static final int DEFAULT_WEBSOCKET_IDLE_TIMEOUT = 300000;
   public static final int DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT = 100;
+  public static final int DEFAULT_WEBSOCKET_CLIENT_MAX_THREADS = 32;
+  public static final long DEFAULT_WEBSOCKET_MAX_PENDING_BYTES = 1024L * 1024L;
+  public static final int DEFAULT_WEBSOCKET_POOL_SIZE = 10;
+  public static final int DEFAULT_WEBSOCKET_POOL_QUEUE_SIZE = 1024;
   private static final boolean DEFAULT_WEBSHELL_FEATURE_ENABLED = false ;
   private static final boolean DEFAULT_WEBSHELL_AUDIT_LOGGING_ENABLED = false;
   public static final int DEFAULT_WEBSHELL_MAX_CONCURRENT_SESSIONS = 3;
@@ -620,6 +624,41 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT;
   }
 
+  @Override
+  public int getWebsocketClientMaxThreads() {
+    return DEFAULT_WEBSOCKET_CLIENT_MAX_THREADS;
+  }
+
+  @Override
+  public long getWebsocketMaxPendingBytes() {
+    return DEFAULT_WEBSOCKET_MAX_PENDING_BYTES;
+  }
+
+  @Override
+  public int getWebsocketPoolSize() {
+    return DEFAULT_WEBSOCKET_POOL_SIZE;
+  }
+
+  @Override
+  public int getWebsocketPoolQueueSize() {
+    return DEFAULT_WEBSOCKET_POOL_QUEUE_SIZE;
+  }
+
+  @Override
+  public String getStructuredAuditFile() {
+    return null;
+  }
+
+  @Override
+  public boolean isStructuredAuditAggregated() {
+    return false;
+  }
+
+  @Override
+  public int getStructuredAuditQueueSize() {
+    return 8192;
+  }
+
   @Override
   public boolean isMetricsEnabled() {
     return false;
@@ -882,6 +921,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return Collections.emptySet();
   }
 
+  @Override
+  public int getClouderaManagerServiceDiscoveryMaxConcurrentRequests() {
+    return DEFAULT_CM_SERVICE_DISCOVERY_MAX_CONCURRENT_REQUESTS;
+  }
+
   @Override
   public boolean isServerManagedTokenStateEnabled() {
     return false;
@@ -1092,6 +1136,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return -1;
   }
 
+  @Override
+  public long getServiceDiscoveryResultCacheTTL() {
+    return 0;
+  }
+
   @Override
   public boolean skipTokenMigration() {
     return true;
@@ -1132,5 +1181,28 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return TimeUnit.HOURS.toMillis(2);
   }
 
+  @Override
+  public long getTopologyRedeployDrainTimeout() {
+    return TimeUnit.SECONDS.toMillis(30);
+  }
+
+  @Override
+  public boolean isTopologyMonitorWatchServiceEnabled() {
+    return true;
+  }
+
+  @Override
+  public long getTopologyMonitorDebounceInterval() {
+    return 100L;
+  }
 
+  @Override
+  public List<String> getSigningKeyVerificationAliases() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public long getSigningKeystoreReloadInterval() {
+    return TimeUnit.MINUTES.toMillis(1);
+  }
 }
@@ -18,6 +18,7 @@
 package org.apache.knox.gateway;
 
 import org.apache.knox.gateway.i18n.resources.Resource;
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
 import org.apache.knox.gateway.i18n.resources.Resources;
 
 @Resources
@@ -27,9 +28,9 @@ public interface SpiGatewayResources {
   String dispatchConnectionError();
 
   @Resource( text="Request method: {0}" )
-  String requestMethod( String method );
+  ResourceMessage requestMethod( String method );
 
   @Resource( text="Response status: {0}" )
-  String responseStatus( int status );
+  ResourceMessage responseStatus( int status );
 
 }
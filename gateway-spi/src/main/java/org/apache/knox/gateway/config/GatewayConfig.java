@@ -113,6 +113,8 @@ public interface GatewayConfig {
 
   int DEFAULT_CM_SERVICE_DISCOVERY_MAX_RETRY_ATTEMPTS = 3;
 
+  int DEFAULT_CM_SERVICE_DISCOVERY_MAX_CONCURRENT_REQUESTS = 4;
+
   String DEFAULT_API_SERVICES_VIEW_VERSION = "v1";
 
   String DEPLOYMENT_PATH_ALIAS = ".path.alias.";
@@ -456,6 +458,54 @@ public interface GatewayConfig {
    */
   int getWebsocketMaxWaitBufferCount();
 
+  /**
+   * Max number of threads of the client shared by the websocket connections to the backends of a
+   * topology service.
+   * @return max thread count
+   */
+  int getWebsocketClientMaxThreads();
+
+  /**
+   * Max number of bytes relayed to one side of a websocket connection and not yet
+   * written, before reading from the other side is suspended.
+   * @return max pending bytes
+   */
+  long getWebsocketMaxPendingBytes();
+
+  /**
+   * Number of threads of the executor running the websocket connection
+   * cleanups and Web Shell sessions.
+   * @return thread count
+   */
+  int getWebsocketPoolSize();
+
+  /**
+   * Max number of tasks waiting for a thread of the websocket executor,
+   * further tasks run on the submitting thread.
+   * @return queue size
+   */
+  int getWebsocketPoolQueueSize();
+
+  /**
+   * File the audit events are appended to as JSON lines records, instead of
+   * being logged through log4j.
+   * @return the path of the file, or null to log the audit events through log4j
+   */
+  String getStructuredAuditFile();
+
+  /**
+   * @return true if the audit events of the same request are written as a
+   * single structured audit record
+   */
+  boolean isStructuredAuditAggregated();
+
+  /**
+   * Max number of structured audit records waiting to be written; when the
+   * queue is full, the threads recording audit events wait.
+   * @return queue size
+   */
+  int getStructuredAuditQueueSize();
+
   boolean isMetricsEnabled();
 
   boolean isJmxMetricsReportingEnabled();
@@ -762,6 +812,12 @@ public interface GatewayConfig {
    */
   Collection<String> getClouderaManagerServiceDiscoveryExcludedRoleTypes();
 
+  /**
+   * @return the maximum number of concurrent requests CM service discovery sends to a single
+   *         Cloudera Manager endpoint; values lower than 2 disable parallel discovery
+   */
+  int getClouderaManagerServiceDiscoveryMaxConcurrentRequests();
+
   /**
    * @return true, if state for tokens issued by the Knox Token service should be managed by Knox.
    */
@@ -916,6 +972,12 @@ public interface GatewayConfig {
 
   long getServiceDiscoveryWriteTimeoutMillis();
 
+  /**
+   * @return the time, in seconds, a service discovery result is reused for generating topologies from descriptors
+   *         referencing the same cluster; a non-positive value disables the reuse of discovery results
+   */
+  long getServiceDiscoveryResultCacheTTL();
+
   /**
    * @return <code>true</code> if token migration must be skipped when a
    *         JDBC-based TSS starts; <code>false</code> otherwise
@@ -961,4 +1023,40 @@ public interface GatewayConfig {
    * @return jwks outage cache TTL
    */
   long getJwksOutageCacheTTL();
+
+  /**
+   * The maximum time, in milliseconds, an outgoing topology context is allowed to
+   * finish in-flight requests after it has been replaced by a redeployed one.
+   * @return topology drain timeout
+   */
+  long getTopologyRedeployDrainTimeout();
+
+  /**
+   * @return <code>true</code> if the topology, descriptor and shared provider configuration
+   *         directories should be monitored using native file system change notifications;
+   *         <code>false</code> if they should be polled
+   */
+  boolean isTopologyMonitorWatchServiceEnabled();
+
+  /**
+   * @return the time, in milliseconds, file system change notifications are coalesced
+   *         before the affected directories are checked for changes
+   */
+  long getTopologyMonitorDebounceInterval();
+
+  /**
+   * Returns the aliases of keys of the signing keystore, other than the signing key, that tokens
+   * may still be signed with, e.g. the previous signing key during a key rotation. These keys are
+   * only used for verification, selected by the kid of the token.
+   *
+   * @return a list of aliases; empty if none are configured
+   */
+  List<String> getSigningKeyVerificationAliases();
+
+  /**
+   * @return the time, in milliseconds, between checks of the signing keystores for changes;
+   *         changed keystores are reloaded without restarting the gateway. Zero or less
+   *         disables the checks.
+   */
+  long getSigningKeystoreReloadInterval();
 }
@@ -45,6 +45,8 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.config.Optional;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
+import org.apache.knox.gateway.services.metrics.RequestMetrics;
+import org.apache.knox.gateway.services.metrics.RequestPhase;
 import org.apache.knox.gateway.util.MimeTypes;
 
 import javax.servlet.http.HttpServletRequest;
@@ -203,11 +205,16 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
       //        outboundResponse.setContentLength( (int)contentLength );
       //      }
       //]
+      final RequestMetrics requestMetrics = RequestMetrics.get( inboundRequest );
+      final long started = System.nanoTime();
       InputStream stream = entity.getContent();
       try {
         writeResponse( inboundRequest, outboundResponse, stream );
       } finally {
         closeInboundResponse( inboundResponse, stream );
+        if( requestMetrics != null ) {
+          requestMetrics.record( RequestPhase.RESPONSE_STREAMING, System.nanoTime() - started );
+        }
       }
     }
   }
@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.services.metrics;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.knox.gateway.services.Service;
 
 public interface MetricsService extends Service {
@@ -25,4 +26,12 @@ public interface MetricsService extends Service {
 
   <T> T getInstrumented(Class<T> clazz);
 
+  /**
+   * @return the registry the providers and services add their own metrics to,
+   * null if the metrics are disabled
+   */
+  default MetricRegistry getRegistry() {
+    return null;
+  }
+
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * Time spent by a single request in each {@link RequestPhase}. It is
+ * attached to the request when the metrics are enabled, and is only used by
+ * the thread processing the request.
+ */
+public class RequestMetrics {
+  public static final String REQUEST_METRICS_ATTRIBUTE = RequestMetrics.class.getName();
+
+  private final long[] phaseNanos = new long[RequestPhase.values().length];
+  private long recordedNanos;
+
+  /**
+   * @param request the request
+   * @return the metrics of the request, null if the metrics are disabled
+   */
+  public static RequestMetrics get(ServletRequest request) {
+    final Object metrics = request == null ? null : request.getAttribute(REQUEST_METRICS_ATTRIBUTE);
+    return metrics instanceof RequestMetrics ? (RequestMetrics) metrics : null;
+  }
+
+  public void record(RequestPhase phase, long nanos) {
+    if (nanos > 0) {
+      phaseNanos[phase.ordinal()] += nanos;
+      recordedNanos += nanos;
+    }
+  }
+
+  /**
+   * @param phase the phase
+   * @return the time spent in the phase, 0 if the request did not go through it
+   */
+  public long getNanos(RequestPhase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  /**
+   * @return the time recorded in all phases so far, used to exclude the time
+   * of nested phases from an enclosing one
+   */
+  public long getRecordedNanos() {
+    return recordedNanos;
+  }
+}
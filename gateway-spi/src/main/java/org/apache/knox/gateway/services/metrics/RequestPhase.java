@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics;
+
+import java.util.Locale;
+
+/**
+ * Phases of the processing of a request by a topology service.
+ */
+public enum RequestPhase {
+  AUTHENTICATION,
+  IDENTITY_ASSERTION,
+  AUTHORIZATION,
+  REWRITE,
+  BACKEND_WAIT,
+  RESPONSE_STREAMING;
+
+  private final String metricName = name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+  public String getMetricName() {
+    return metricName;
+  }
+
+  /**
+   * @param filterRole role of a provider filter, e.g. "identity-assertion"
+   * @return the phase the filter's own processing time is recorded as, null
+   * if the filter is not timed
+   */
+  public static RequestPhase forFilterRole(String filterRole) {
+    if (filterRole == null) {
+      return null;
+    }
+    switch (filterRole) {
+      case "authentication":
+      case "federation":
+        return AUTHENTICATION;
+      case "identity-assertion":
+        return IDENTITY_ASSERTION;
+      case "authorization":
+        return AUTHORIZATION;
+      case "rewrite":
+        return REWRITE;
+      case "dispatch":
+        return BACKEND_WAIT;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics;
+
+import com.codahale.metrics.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timer that also keeps the total duration of the events, which the
+ * metrics-core timers only estimate from their sample, so that it can be
+ * exposed as the sum of a Prometheus summary.
+ */
+public class SummingTimer extends Timer {
+  private final LongAdder sumNanos = new LongAdder();
+
+  @Override
+  public void update(long duration, TimeUnit unit) {
+    if (duration >= 0) {
+      sumNanos.add(unit.toNanos(duration));
+    }
+    super.update(duration, unit);
+  }
+
+  @Override
+  public void update(Duration duration) {
+    update(duration.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /* The event methods of Timer skip update(long, TimeUnit), so they are timed by a context */
+
+  @Override
+  public <T> T time(Callable<T> event) throws Exception {
+    try (Context context = time()) {
+      return event.call();
+    }
+  }
+
+  @Override
+  public <T> T timeSupplier(Supplier<T> event) {
+    try (Context context = time()) {
+      return event.get();
+    }
+  }
+
+  @SuppressWarnings("PMD.DoNotUseThreads")
+  @Override
+  public void time(Runnable event) {
+    try (Context context = time()) {
+      event.run();
+    }
+  }
+
+  /**
+   * @return the total duration of the events, in nanoseconds
+   */
+  public long getSumNanos() {
+    return sumNanos.sum();
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.knox.gateway.services.security.token;
 
 import java.net.URI;
+import java.security.PublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.util.Set;
 
@@ -33,6 +34,17 @@ public interface JWTokenAuthority {
 
   boolean verifyToken(JWT token, RSAPublicKey publicKey) throws TokenServiceException;
 
+  /**
+   * Verifies the token with an RSA, EC or EdDSA public key; authorities only
+   * supporting RSA keys reject the other ones.
+   */
+  default boolean verifyToken(JWT token, PublicKey publicKey) throws TokenServiceException {
+    if (publicKey == null || publicKey instanceof RSAPublicKey) {
+      return verifyToken(token, (RSAPublicKey) publicKey);
+    }
+    throw new TokenServiceException("Unsupported verification key type: " + publicKey.getAlgorithm());
+  }
+
   boolean verifyToken(JWT token, String jwksurl, String algorithm, Set<JOSEObjectType> allowedJwsTypes) throws TokenServiceException;
 
   boolean verifyToken(JWT token, Set<URI> jwksurls, String algorithm, Set<JOSEObjectType> allowedJwsTypes) throws TokenServiceException;
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.security.token;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome, for each token, of an operation on several tokens: the value the operation resulted in for the
+ * tokens it succeeded for (e.g. their renewed expiration), and the error of the tokens it failed for.
+ *
+ * @param <T> The type of the value the operation results in.
+ */
+public class TokenBatchResult<T> {
+
+  private final Map<String, T> succeeded = new LinkedHashMap<>();
+  private final Map<String, Exception> failed = new LinkedHashMap<>();
+
+  public void succeeded(String tokenId, T value) {
+    failed.remove(tokenId);
+    succeeded.put(tokenId, value);
+  }
+
+  public void failed(String tokenId, Exception error) {
+    succeeded.remove(tokenId);
+    failed.put(tokenId, error);
+  }
+
+  public boolean isDone(String tokenId) {
+    return succeeded.containsKey(tokenId) || failed.containsKey(tokenId);
+  }
+
+  /**
+   * @return the value the operation resulted in, for each token it succeeded for
+   */
+  public Map<String, T> getSucceeded() {
+    return Collections.unmodifiableMap(succeeded);
+  }
+
+  /**
+   * @return the error of each token the operation failed for
+   */
+  public Map<String, Exception> getFailed() {
+    return Collections.unmodifiableMap(failed);
+  }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.security.token;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of tokens listed by a {@link TokenStateService}.
+ */
+public class TokenPage {
+  private final List<KnoxToken> tokens;
+  private final String nextPageToken;
+
+  public TokenPage(List<KnoxToken> tokens, String nextPageToken) {
+    this.tokens = Collections.unmodifiableList(tokens);
+    this.nextPageToken = nextPageToken;
+  }
+
+  public List<KnoxToken> getTokens() {
+    return tokens;
+  }
+
+  /**
+   * @return the token of the next page, to be set on the query for that page, or null if this is the last page
+   */
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.security.token;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The criteria, order and position of a page of tokens listed by a {@link TokenStateService}.
+ * <p>
+ * Pages are positioned with a cursor rather than an offset: the page token returned with a page
+ * identifies the last token of that page, and the next page starts right after it in the sort order.
+ * Tokens are ordered by the sort field, then by token identifier, so the order is total.
+ *
+ * @see TokenQueryBuilder
+ */
+public class TokenQuery {
+  public enum SortField {
+    ISSUE_TIME, EXPIRATION
+  }
+
+  private static final char PAGE_TOKEN_SEPARATOR = ':';
+
+  private final String userName;
+  private final String createdBy;
+  private final String userNameOrCreatedBy;
+  private final Long expiresAfter;
+  private final Long expiresBefore;
+  private final Boolean enabled;
+  private final Map<String, List<String>> metadata;
+  private final SortField sortField;
+  private final boolean descending;
+  private final int pageSize;
+  private final Long cursorSortValue;
+  private final String cursorTokenId;
+
+  TokenQuery(String userName, String createdBy, String userNameOrCreatedBy, Long expiresAfter, Long expiresBefore, Boolean enabled,
+      Map<String, List<String>> metadata, SortField sortField, boolean descending, int pageSize, Long cursorSortValue, String cursorTokenId) {
+    this.userName = userName;
+    this.createdBy = createdBy;
+    this.userNameOrCreatedBy = userNameOrCreatedBy;
+    this.expiresAfter = expiresAfter;
+    this.expiresBefore = expiresBefore;
+    this.enabled = enabled;
+    this.metadata = Collections.unmodifiableMap(new LinkedHashMap<>(metadata));
+    this.sortField = sortField;
+    this.descending = descending;
+    this.pageSize = pageSize;
+    this.cursorSortValue = cursorSortValue;
+    this.cursorTokenId = cursorTokenId;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public String getCreatedBy() {
+    return createdBy;
+  }
+
+  public String getUserNameOrCreatedBy() {
+    return userNameOrCreatedBy;
+  }
+
+  /**
+   * @return the time (in milliseconds) at or after which the listed tokens expire, or null; tokens which never expire match
+   */
+  public Long getExpiresAfter() {
+    return expiresAfter;
+  }
+
+  /**
+   * @return the time (in milliseconds) before which the listed tokens expire, or null; tokens which never expire do not match
+   */
+  public Long getExpiresBefore() {
+    return expiresBefore;
+  }
+
+  public Boolean getEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the metadata the listed tokens have at least one of, by name; a '*' value matches any value of that metadata
+   */
+  public Map<String, List<String>> getMetadata() {
+    return metadata;
+  }
+
+  public SortField getSortField() {
+    return sortField;
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * @return the sort value of the last token of the previous page, or null for the first page
+   */
+  public Long getCursorSortValue() {
+    return cursorSortValue;
+  }
+
+  /**
+   * @return the identifier of the last token of the previous page, or null for the first page
+   */
+  public String getCursorTokenId() {
+    return cursorTokenId;
+  }
+
+  /**
+   * @param expiration The token expiration time.
+   * @param tokenMetadata The token metadata.
+   * @return true, if a token with the given expiration and metadata matches the criteria of this query; Otherwise, false.
+   */
+  public boolean matches(long expiration, TokenMetadata tokenMetadata) {
+    if (expiresAfter != null && expiration >= 0 && expiration < expiresAfter) {
+      return false;
+    }
+    if (expiresBefore != null && (expiration < 0 || expiration >= expiresBefore)) {
+      return false;
+    }
+    if (tokenMetadata == null) {
+      return userName == null && createdBy == null && userNameOrCreatedBy == null && enabled == null && metadata.isEmpty();
+    }
+    if (userName != null && !userName.equals(tokenMetadata.getUserName())) {
+      return false;
+    }
+    if (createdBy != null && !createdBy.equals(tokenMetadata.getCreatedBy())) {
+      return false;
+    }
+    if (userNameOrCreatedBy != null && !userNameOrCreatedBy.equals(tokenMetadata.getUserName())
+        && !userNameOrCreatedBy.equals(tokenMetadata.getCreatedBy())) {
+      return false;
+    }
+    if (enabled != null && enabled != tokenMetadata.isEnabled()) {
+      return false;
+    }
+    return metadata.isEmpty() || metadata.entrySet().stream().anyMatch(entry -> {
+      final String value = tokenMetadata.getMetadata(entry.getKey());
+      return value != null && (entry.getValue().contains("*") || entry.getValue().contains(value));
+    });
+  }
+
+  public boolean matches(KnoxToken token) {
+    return matches(token.getExpirationLong(), token.getMetadata());
+  }
+
+  public long getSortValue(KnoxToken token) {
+    return sortField == SortField.EXPIRATION ? token.getExpirationLong() : token.getIssueTimeLong();
+  }
+
+  /**
+   * @return true, if the given token comes after the cursor of this query; Otherwise, false.
+   */
+  public boolean isAfterCursor(long sortValue, String tokenId) {
+    if (cursorSortValue == null) {
+      return true;
+    }
+    int result = Long.compare(sortValue, cursorSortValue);
+    if (result == 0) {
+      result = tokenId.compareTo(cursorTokenId);
+    }
+    return descending ? result < 0 : result > 0;
+  }
+
+  /**
+   * @return the order of the tokens listed by this query
+   */
+  public Comparator<KnoxToken> getComparator() {
+    final Comparator<KnoxToken> comparator = Comparator.comparingLong(this::getSortValue).thenComparing(KnoxToken::getTokenId);
+    return descending ? comparator.reversed() : comparator;
+  }
+
+  /**
+   * Select the page of this query among the given tokens, which can be in any order. Only the tokens of the
+   * page are kept while selecting, so the cost of a page does not depend on the number of pages.
+   *
+   * @param tokens The candidate tokens.
+   * @return the page of the tokens which match this query
+   */
+  public TokenPage select(Collection<KnoxToken> tokens) {
+    final Comparator<KnoxToken> comparator = getComparator();
+    // the heap keeps the first (pageSize + 1) tokens, with the last one of them at its head
+    final PriorityQueue<KnoxToken> selected = new PriorityQueue<>(comparator.reversed());
+    for (final KnoxToken token : tokens) {
+      if (matches(token) && isAfterCursor(getSortValue(token), token.getTokenId())) {
+        selected.add(token);
+        if (selected.size() > pageSize + 1) {
+          selected.poll();
+        }
+      }
+    }
+    final List<KnoxToken> ordered = new ArrayList<>(selected);
+    ordered.sort(comparator);
+    return toPage(ordered);
+  }
+
+  /**
+   * @param orderedTokens Up to (pageSize + 1) tokens matching this query, in its order.
+   * @return the page made of the first pageSize tokens, with a page token if there are more
+   */
+  public TokenPage toPage(List<KnoxToken> orderedTokens) {
+    if (orderedTokens.size() <= pageSize) {
+      return new TokenPage(orderedTokens, null);
+    }
+    final List<KnoxToken> pageTokens = new ArrayList<>(orderedTokens.subList(0, pageSize));
+    final KnoxToken last = pageTokens.get(pageSize - 1);
+    return new TokenPage(pageTokens, encodePageToken(getSortValue(last), last.getTokenId()));
+  }
+
+  static String encodePageToken(long sortValue, String tokenId) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString((Long.toString(sortValue) + PAGE_TOKEN_SEPARATOR + tokenId).getBytes(UTF_8));
+  }
+
+  static String[] decodePageToken(String pageToken) {
+    final String decoded;
+    try {
+      decoded = new String(Base64.getUrlDecoder().decode(pageToken), UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid page token", e);
+    }
+    final int separator = decoded.indexOf(PAGE_TOKEN_SEPARATOR);
+    if (separator <= 0 || separator == decoded.length() - 1) {
+      throw new IllegalArgumentException("Invalid page token");
+    }
+    return new String[] { decoded.substring(0, separator), decoded.substring(separator + 1) };
+  }
+}
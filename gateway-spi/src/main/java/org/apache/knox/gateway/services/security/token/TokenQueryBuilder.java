@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.security.token;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TokenQueryBuilder {
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  private String userName;
+  private String createdBy;
+  private String userNameOrCreatedBy;
+  private Long expiresAfter;
+  private Long expiresBefore;
+  private Boolean enabled;
+  private final Map<String, List<String>> metadata = new LinkedHashMap<>();
+  private TokenQuery.SortField sortField = TokenQuery.SortField.ISSUE_TIME;
+  private boolean descending;
+  private int pageSize = DEFAULT_PAGE_SIZE;
+  private String pageToken;
+
+  public TokenQueryBuilder setUserName(String userName) {
+    this.userName = userName;
+    return this;
+  }
+
+  public TokenQueryBuilder setCreatedBy(String createdBy) {
+    this.createdBy = createdBy;
+    return this;
+  }
+
+  public TokenQueryBuilder setUserNameOrCreatedBy(String userNameOrCreatedBy) {
+    this.userNameOrCreatedBy = userNameOrCreatedBy;
+    return this;
+  }
+
+  public TokenQueryBuilder setExpiresAfter(Long expiresAfter) {
+    this.expiresAfter = expiresAfter;
+    return this;
+  }
+
+  public TokenQueryBuilder setExpiresBefore(Long expiresBefore) {
+    this.expiresBefore = expiresBefore;
+    return this;
+  }
+
+  public TokenQueryBuilder setEnabled(Boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public TokenQueryBuilder addMetadata(String name, List<String> values) {
+    this.metadata.computeIfAbsent(name, key -> new ArrayList<>()).addAll(values);
+    return this;
+  }
+
+  public TokenQueryBuilder setSortField(TokenQuery.SortField sortField) {
+    this.sortField = sortField;
+    return this;
+  }
+
+  public TokenQueryBuilder setDescending(boolean descending) {
+    this.descending = descending;
+    return this;
+  }
+
+  public TokenQueryBuilder setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  public TokenQueryBuilder setPageToken(String pageToken) {
+    this.pageToken = pageToken;
+    return this;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the page size is not positive or the page token is invalid
+   */
+  public TokenQuery build() {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Invalid page size: " + pageSize);
+    }
+    Long cursorSortValue = null;
+    String cursorTokenId = null;
+    if (pageToken != null && !pageToken.isEmpty()) {
+      final String[] cursor = TokenQuery.decodePageToken(pageToken);
+      try {
+        cursorSortValue = Long.parseLong(cursor[0]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid page token", e);
+      }
+      cursorTokenId = cursor[1];
+    }
+    return new TokenQuery(userName, createdBy, userNameOrCreatedBy, expiresAfter, expiresBefore, enabled, metadata, sortField, descending,
+        pageSize, cursorSortValue, cursorTokenId);
+  }
+}
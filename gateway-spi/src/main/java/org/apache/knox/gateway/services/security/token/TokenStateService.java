@@ -17,6 +17,8 @@
 package org.apache.knox.gateway.services.security.token;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.knox.gateway.services.Service;
 import org.apache.knox.gateway.services.security.token.impl.JWT;
@@ -102,6 +104,15 @@ public interface TokenStateService extends Service {
    */
   void revokeToken(String tokenId) throws UnknownTokenException;
 
+  /**
+   * Register a listener to be notified of the tokens revoked through this service.
+   * Implementations which do not support revocation notifications ignore the listener.
+   *
+   * @param listener The listener.
+   */
+  default void addTokenRevocationListener(TokenRevocationListener listener) {
+  }
+
   /**
    * Extend the lifetime of the specified token by the default amount of time.
    *
@@ -217,4 +228,111 @@ public interface TokenStateService extends Service {
    */
   Collection<KnoxToken> getDoAsTokens(String createdBy);
 
+  /**
+   * List a page of the existing tokens. Implementations should apply the criteria and the paging of the query
+   * in their backend; this default implementation selects the page from the tokens of the users in the query,
+   * or from all the tokens if there is no user in the query.
+   *
+   * @param query The criteria, order and position of the page.
+   * @return the page of the tokens matching the query
+   */
+  default TokenPage listTokens(TokenQuery query) {
+    final Collection<KnoxToken> candidates;
+    if (query.getUserName() != null) {
+      candidates = getTokens(query.getUserName());
+    } else if (query.getCreatedBy() != null) {
+      candidates = getDoAsTokens(query.getCreatedBy());
+    } else if (query.getUserNameOrCreatedBy() != null) {
+      final Map<String, KnoxToken> tokens = new LinkedHashMap<>();
+      getTokens(query.getUserNameOrCreatedBy()).forEach(token -> tokens.put(token.getTokenId(), token));
+      getDoAsTokens(query.getUserNameOrCreatedBy()).forEach(token -> tokens.put(token.getTokenId(), token));
+      candidates = tokens.values();
+    } else {
+      candidates = getAllTokens();
+    }
+    return query.select(candidates);
+  }
+
+  /**
+   * Get the state of the specified tokens. Implementations should load the tokens with as few interactions with
+   * their backend as possible; this default implementation loads them one by one, without their maximum lifetime.
+   *
+   * @param tokenIds The unique identifiers of the tokens.
+   * @return the known tokens, by their identifier; the unknown tokens are left out
+   * @throws TokenStateServiceException if the tokens could not be fetched, so that they are not reported as unknown
+   */
+  default Map<String, KnoxToken> getTokensById(Collection<String> tokenIds) {
+    final Map<String, KnoxToken> tokens = new LinkedHashMap<>();
+    for (String tokenId : tokenIds) {
+      try {
+        final TokenMetadata metadata = getTokenMetadata(tokenId);
+        tokens.put(tokenId, new KnoxToken(tokenId, getTokenIssueTime(tokenId), getTokenExpiration(tokenId, false), 0L,
+            metadata == null ? new TokenMetadata() : metadata));
+      } catch (UnknownTokenException e) {
+        // unknown tokens are left out
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Disable any subsequent use of the specified tokens. Implementations should revoke the tokens with as few
+   * interactions with their backend as possible; this default implementation revokes them one by one.
+   *
+   * @param tokenIds The unique identifiers of the tokens.
+   * @return the outcome of the revocation of each token
+   */
+  default TokenBatchResult<Void> revokeTokens(Collection<String> tokenIds) {
+    final TokenBatchResult<Void> result = new TokenBatchResult<>();
+    for (String tokenId : tokenIds) {
+      try {
+        revokeToken(tokenId);
+        result.succeeded(tokenId, null);
+      } catch (UnknownTokenException | RuntimeException e) {
+        result.failed(tokenId, e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Extend the lifetime of the specified tokens by the specified amount of time. Implementations should renew the
+   * tokens with as few interactions with their backend as possible; this default implementation renews them one by one.
+   *
+   * @param tokenIds The unique identifiers of the tokens.
+   * @param renewInterval The amount of time that should be added to the lifetime of the tokens.
+   * @return the updated expiration time of each renewed token, and the error of the others
+   */
+  default TokenBatchResult<Long> renewTokens(Collection<String> tokenIds, long renewInterval) {
+    final TokenBatchResult<Long> result = new TokenBatchResult<>();
+    for (String tokenId : tokenIds) {
+      try {
+        result.succeeded(tokenId, renewToken(tokenId, renewInterval));
+      } catch (UnknownTokenException | RuntimeException e) {
+        result.failed(tokenId, e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds metadata to the specified tokens. Implementations should save the metadata with as few interactions with
+   * their backend as possible; this default implementation saves it token by token.
+   *
+   * @param metadata The metadata to be added, by token identifier.
+   * @return the outcome of the update of each token
+   */
+  default TokenBatchResult<Void> addMetadata(Map<String, TokenMetadata> metadata) {
+    final TokenBatchResult<Void> result = new TokenBatchResult<>();
+    metadata.forEach((tokenId, tokenMetadata) -> {
+      try {
+        addMetadata(tokenId, tokenMetadata);
+        result.succeeded(tokenId, null);
+      } catch (RuntimeException e) {
+        result.failed(tokenId, e);
+      }
+    });
+    return result;
+  }
+
 }
@@ -17,7 +17,14 @@
 package org.apache.knox.gateway.services.security.token;
 
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.ThumbprintUtils;
 import com.nimbusds.jose.util.Base64URL;
 import org.apache.commons.lang3.StringUtils;
@@ -29,7 +36,11 @@ import org.apache.knox.gateway.services.security.token.impl.JWTToken;
 
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
+import java.security.Key;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 
 public class TokenUtils {
@@ -38,6 +49,12 @@ public class TokenUtils {
   private static final String DEFAULT_RSA_SIG_ALG = "RS256";
   private static final String DEFAULT_HMAC_SIG_ALG = "HS256";
 
+  /* DER prefix of the X.509 encoding of an Ed25519 public key, followed by the 32 bytes of the key */
+  private static final byte[] ED25519_X509_PREFIX = {
+      0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00
+  };
+  private static final int ED25519_KEY_LENGTH = 32;
+
   /**
    * Extract the unique Knox token identifier from the specified JWT's claim set.
    *
@@ -106,6 +123,80 @@ public class TokenUtils {
     return ThumbprintUtils.compute(hashAlgorithm, params).toString();
   }
 
+  /**
+   * Utility method to calculate the thumbprint of an RSA, EC or Ed25519 public key
+   * @param publicKey
+   * @param hashAlgorithm
+   * @return
+   * @throws JOSEException if the key type is not supported
+   */
+  public static String getThumbprint(final PublicKey publicKey, final String hashAlgorithm)
+      throws JOSEException {
+    if (publicKey instanceof RSAPublicKey) {
+      return getThumbprint((RSAPublicKey) publicKey, hashAlgorithm);
+    }
+    return toJWK(publicKey, null, null).computeThumbprint(hashAlgorithm).toString();
+  }
+
+  /**
+   * Builds the JWK of a public signing key
+   * @param publicKey RSA, EC or Ed25519 public key
+   * @param algorithm signature algorithm the key is used with, or null
+   * @param kid key ID, or null
+   * @return the JWK
+   * @throws JOSEException if the key type is not supported
+   */
+  public static JWK toJWK(final PublicKey publicKey, final String algorithm, final String kid) throws JOSEException {
+    final JWSAlgorithm jwsAlgorithm = algorithm == null ? null : new JWSAlgorithm(algorithm);
+    if (publicKey instanceof RSAPublicKey) {
+      return new RSAKey.Builder((RSAPublicKey) publicKey).keyUse(KeyUse.SIGNATURE).algorithm(jwsAlgorithm).keyID(kid).build();
+    }
+    if (publicKey instanceof ECPublicKey) {
+      final ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+      final Curve curve = Curve.forECParameterSpec(ecPublicKey.getParams());
+      if (curve == null) {
+        throw new JOSEException("Unsupported elliptic curve of the signing key");
+      }
+      return new ECKey.Builder(curve, ecPublicKey).keyUse(KeyUse.SIGNATURE).algorithm(jwsAlgorithm).keyID(kid).build();
+    }
+    if (isEdDSAKey(publicKey)) {
+      return new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(getEd25519PublicKeyBytes(publicKey)))
+          .keyUse(KeyUse.SIGNATURE).algorithm(jwsAlgorithm).keyID(kid).build();
+    }
+    throw new JOSEException("Unsupported signing key type: " + (publicKey == null ? null : publicKey.getAlgorithm()));
+  }
+
+  /**
+   * @return true if the key is an EdDSA (Ed25519) key; such keys are only
+   *         available with Java 15 or later
+   */
+  public static boolean isEdDSAKey(final Key key) {
+    return key != null && ("Ed25519".equals(key.getAlgorithm()) || "EdDSA".equals(key.getAlgorithm()));
+  }
+
+  /**
+   * @return the 32 bytes of an Ed25519 public key, as used in JWKs
+   * @throws JOSEException if the key is not an Ed25519 key
+   */
+  public static byte[] getEd25519PublicKeyBytes(final PublicKey publicKey) throws JOSEException {
+    final byte[] encoded = publicKey.getEncoded();
+    if (encoded == null || encoded.length != ED25519_X509_PREFIX.length + ED25519_KEY_LENGTH
+        || !Arrays.equals(ED25519_X509_PREFIX, Arrays.copyOf(encoded, ED25519_X509_PREFIX.length))) {
+      throw new JOSEException("Not an Ed25519 public key");
+    }
+    return Arrays.copyOfRange(encoded, ED25519_X509_PREFIX.length, encoded.length);
+  }
+
+  /**
+   * @return the X.509 encoding of an Ed25519 public key, from which the JCA
+   *         builds the key
+   */
+  public static byte[] getEd25519X509Encoding(final byte[] publicKeyBytes) {
+    final byte[] encoded = Arrays.copyOf(ED25519_X509_PREFIX, ED25519_X509_PREFIX.length + publicKeyBytes.length);
+    System.arraycopy(publicKeyBytes, 0, encoded, ED25519_X509_PREFIX.length, publicKeyBytes.length);
+    return encoded;
+  }
+
   /**
    * @return true, if the HMAC secret is configured via the alias service for the gateway AND signing keystore name is not set ; false
    *         otherwise
@@ -63,6 +63,11 @@ public interface JWT {
 
   JWSAlgorithm getSignatureAlgorithm();
 
+  /**
+   * @return the ID of the key the token is signed with (the kid header), or null
+   */
+  String getKeyId();
+
   JOSEObjectType getType();
 
   void sign(JWSSigner signer);
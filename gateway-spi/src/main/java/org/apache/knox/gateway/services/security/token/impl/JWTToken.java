@@ -116,6 +116,11 @@ public class JWTToken implements JWT {
     return jwt.getHeader().getAlgorithm();
   }
 
+  @Override
+  public String getKeyId() {
+    return jwt.getHeader().getKeyID();
+  }
+
   @Override
   public JOSEObjectType getType() {
     return jwt.getHeader().getType();
@@ -19,13 +19,18 @@ package org.apache.knox.gateway.util;
 
 import java.security.Principal;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
@@ -33,6 +38,8 @@ import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -48,10 +55,30 @@ public class AuthFilterUtils {
   public static final String REAL_USER_NAME_ATTRIBUTE = "real.user.name";
   public static final String DO_GLOBAL_LOGOUT_ATTRIBUTE = "do.global.logout";
 
+  static final long IMPERSONATION_DECISION_CACHE_TTL_SECONDS = 60L;
+  static final long IMPERSONATION_DECISION_CACHE_MAX_SIZE = 10000L;
+
   private static final GatewaySpiMessages LOG = MessagesFactory.get(GatewaySpiMessages.class);
-  private static final Map<String, Map<String, ImpersonationProvider>> TOPOLOGY_IMPERSONATION_PROVIDERS = new ConcurrentHashMap<>();
+
+  /*
+   * Impersonation providers by topology and role. The maps are never modified once published:
+   * writers, serialized by refreshSuperUserGroupsLock, replace them with updated copies so that
+   * the lookups of every doAs request need no locking.
+   */
+  private static final AtomicReference<Map<String, Map<String, ImpersonationProvider>>> TOPOLOGY_IMPERSONATION_PROVIDERS =
+      new AtomicReference<>(Collections.emptyMap());
   private static final Lock refreshSuperUserGroupsLock = new ReentrantLock();
 
+  /*
+   * Recent impersonation decisions: empty if the request was allowed, the reason of the denial otherwise.
+   * The decisions of a topology / role are discarded whenever its proxyuser configuration changes; as they
+   * are also keyed by provider, a decision made concurrently with a refresh is never reused afterwards.
+   */
+  private static final Cache<ImpersonationRequest, Optional<String>> IMPERSONATION_DECISIONS = Caffeine.newBuilder()
+      .expireAfterWrite(IMPERSONATION_DECISION_CACHE_TTL_SECONDS, TimeUnit.SECONDS)
+      .maximumSize(IMPERSONATION_DECISION_CACHE_MAX_SIZE)
+      .build();
+
   /**
    * A helper method that checks whether request contains
    * unauthenticated path
@@ -126,13 +153,21 @@ public class AuthFilterUtils {
       impersonationProvider.setConf(conf);
       impersonationProvider.init(PROXYUSER_PREFIX);
       LOG.createImpersonationProvider(topologyName, role, PROXYUSER_PREFIX, conf.getPropsWithPrefix(PROXYUSER_PREFIX + ".").toString());
-      TOPOLOGY_IMPERSONATION_PROVIDERS.putIfAbsent(topologyName, new ConcurrentHashMap<String, ImpersonationProvider>());
-      TOPOLOGY_IMPERSONATION_PROVIDERS.get(topologyName).put(role, impersonationProvider);
+      final Map<String, Map<String, ImpersonationProvider>> providers = new HashMap<>(TOPOLOGY_IMPERSONATION_PROVIDERS.get());
+      final Map<String, ImpersonationProvider> roleProviders = new HashMap<>(providers.getOrDefault(topologyName, Collections.emptyMap()));
+      roleProviders.put(role, impersonationProvider);
+      providers.put(topologyName, Collections.unmodifiableMap(roleProviders));
+      TOPOLOGY_IMPERSONATION_PROVIDERS.set(Collections.unmodifiableMap(providers));
+      invalidateImpersonationDecisions(topologyName, role);
     } finally {
       refreshSuperUserGroupsLock.unlock();
     }
   }
 
+  private static void invalidateImpersonationDecisions(String topologyName, String role) {
+    IMPERSONATION_DECISIONS.asMap().keySet().removeIf(request -> request.isFor(topologyName, role));
+  }
+
   public static HttpServletRequest getProxyRequest(HttpServletRequest request, String doAsUser, String topologyName, String role) throws AuthorizationException {
     return getProxyRequest(request, request.getUserPrincipal().getName(), doAsUser, topologyName, role);
   }
@@ -140,7 +175,7 @@ public class AuthFilterUtils {
   public static HttpServletRequest getProxyRequest(HttpServletRequest request, String remoteUser, String doAsUser, String topologyName, String role) throws AuthorizationException {
     final UserGroupInformation remoteRequestUgi = getRemoteRequestUgi(remoteUser, doAsUser);
     if (remoteRequestUgi != null) {
-      authorizeImpersonationRequest(request, remoteRequestUgi, topologyName, role);
+      authorizeImpersonationRequest(request, remoteUser, doAsUser, topologyName, role, () -> remoteRequestUgi);
 
       return new HttpServletRequestWrapper(request) {
         @Override
@@ -168,37 +203,42 @@ public class AuthFilterUtils {
   }
 
   public static void authorizeImpersonationRequest(HttpServletRequest request, String remoteUser, String doAsUser, String topologyName, String role) throws AuthorizationException {
-    final UserGroupInformation remoteRequestUgi = getRemoteRequestUgi(remoteUser, doAsUser);
-    if (remoteRequestUgi != null) {
-      authorizeImpersonationRequest(request, remoteRequestUgi, topologyName, role);
+    if (remoteUser != null) {
+      authorizeImpersonationRequest(request, remoteUser, doAsUser, topologyName, role, () -> getRemoteRequestUgi(remoteUser, doAsUser));
     }
   }
 
-  private static void authorizeImpersonationRequest(HttpServletRequest request, UserGroupInformation remoteRequestUgi, String topologyName, String role)
-      throws AuthorizationException {
+  /*
+   * The UGI of the request is only created if no recent decision is cached for it
+   */
+  private static void authorizeImpersonationRequest(HttpServletRequest request, String remoteUser, String doAsUser, String topologyName, String role,
+      Supplier<UserGroupInformation> remoteRequestUgi) throws AuthorizationException {
 
     final ImpersonationProvider impersonationProvider = getImpersonationProvider(topologyName, role);
 
     if (impersonationProvider != null) {
-      try {
-        impersonationProvider.authorize(remoteRequestUgi, request.getRemoteAddr());
-      } catch (org.apache.hadoop.security.authorize.AuthorizationException e) {
-        throw new AuthorizationException(e);
+      final String remoteAddress = request.getRemoteAddr();
+      final ImpersonationRequest impersonationRequest = new ImpersonationRequest(remoteUser, doAsUser, remoteAddress, topologyName, role, impersonationProvider);
+      final Optional<String> denial = IMPERSONATION_DECISIONS.get(impersonationRequest, key -> authorize(impersonationProvider, remoteRequestUgi.get(), remoteAddress));
+      if (denial.isPresent()) {
+        throw new AuthorizationException(new org.apache.hadoop.security.authorize.AuthorizationException(denial.get()));
       }
     } else {
       throw new AuthorizationException("ImpersonationProvider for " + topologyName + " / " + role + " not found!");
     }
   }
 
-  private static ImpersonationProvider getImpersonationProvider(String topologyName, String role) {
-    refreshSuperUserGroupsLock.lock();
-    final ImpersonationProvider impersonationProvider;
+  private static Optional<String> authorize(ImpersonationProvider impersonationProvider, UserGroupInformation remoteRequestUgi, String remoteAddress) {
     try {
-      impersonationProvider = (TOPOLOGY_IMPERSONATION_PROVIDERS.getOrDefault(topologyName, Collections.emptyMap())).get(role);
-    } finally {
-      refreshSuperUserGroupsLock.unlock();
+      impersonationProvider.authorize(remoteRequestUgi, remoteAddress);
+      return Optional.empty();
+    } catch (org.apache.hadoop.security.authorize.AuthorizationException e) {
+      return Optional.of(String.valueOf(e.getMessage()));
     }
-    return impersonationProvider;
+  }
+
+  private static ImpersonationProvider getImpersonationProvider(String topologyName, String role) {
+    return TOPOLOGY_IMPERSONATION_PROVIDERS.get().getOrDefault(topologyName, Collections.emptyMap()).get(role);
   }
 
   private static UserGroupInformation getRemoteRequestUgi(String remoteUser, String doAsUser) {
@@ -217,7 +257,12 @@ public class AuthFilterUtils {
     if (hasProxyConfig(topologyName, role)) {
       refreshSuperUserGroupsLock.lock();
       try {
-        TOPOLOGY_IMPERSONATION_PROVIDERS.get(topologyName).remove(role);
+        final Map<String, Map<String, ImpersonationProvider>> providers = new HashMap<>(TOPOLOGY_IMPERSONATION_PROVIDERS.get());
+        final Map<String, ImpersonationProvider> roleProviders = new HashMap<>(providers.getOrDefault(topologyName, Collections.emptyMap()));
+        roleProviders.remove(role);
+        providers.put(topologyName, Collections.unmodifiableMap(roleProviders));
+        TOPOLOGY_IMPERSONATION_PROVIDERS.set(Collections.unmodifiableMap(providers));
+        invalidateImpersonationDecisions(topologyName, role);
       } finally {
         refreshSuperUserGroupsLock.unlock();
       }
@@ -250,4 +295,47 @@ public class AuthFilterUtils {
     return request.getAttribute(DO_GLOBAL_LOGOUT_ATTRIBUTE) == null ? false : Boolean.parseBoolean((String) request.getAttribute(DO_GLOBAL_LOGOUT_ATTRIBUTE));
   }
 
+  private static final class ImpersonationRequest {
+    private final String realUser;
+    private final String doAsUser;
+    private final String remoteAddress;
+    private final String topologyName;
+    private final String role;
+    private final ImpersonationProvider impersonationProvider;
+
+    ImpersonationRequest(String realUser, String doAsUser, String remoteAddress, String topologyName, String role,
+        ImpersonationProvider impersonationProvider) {
+      this.realUser = realUser;
+      this.doAsUser = doAsUser;
+      this.remoteAddress = remoteAddress;
+      this.topologyName = topologyName;
+      this.role = role;
+      this.impersonationProvider = impersonationProvider;
+    }
+
+    boolean isFor(String topologyName, String role) {
+      return Objects.equals(this.topologyName, topologyName) && Objects.equals(this.role, role);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final ImpersonationRequest that = (ImpersonationRequest) o;
+      return Objects.equals(realUser, that.realUser)
+          && Objects.equals(doAsUser, that.doAsUser)
+          && Objects.equals(remoteAddress, that.remoteAddress)
+          && isFor(that.topologyName, that.role)
+          && impersonationProvider == that.impersonationProvider;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(realUser, doAsUser, remoteAddress, topologyName, role, System.identityHashCode(impersonationProvider));
+    }
+  }
 }
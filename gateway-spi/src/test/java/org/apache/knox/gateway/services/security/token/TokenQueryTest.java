@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.services.security.token;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class TokenQueryTest {
+
+  @Test
+  public void testPagesCoverAllMatchingTokens() {
+    final List<KnoxToken> tokens = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      // two tokens per issue time, so that the token identifier breaks the ties
+      tokens.add(token("token" + i, i / 2, 100L + i, "alice", i % 3 != 0));
+    }
+    Collections.shuffle(tokens);
+
+    final List<String> listed = new ArrayList<>();
+    String pageToken = null;
+    int pages = 0;
+    do {
+      final TokenPage page = new TokenQueryBuilder().setPageSize(3).setPageToken(pageToken).build().select(tokens);
+      page.getTokens().forEach(token -> listed.add(token.getTokenId()));
+      pageToken = page.getNextPageToken();
+      pages++;
+    } while (pageToken != null);
+
+    assertEquals(4, pages);
+    assertEquals(Arrays.asList("token0", "token1", "token2", "token3", "token4", "token5", "token6", "token7", "token8", "token9"), listed);
+  }
+
+  @Test
+  public void testFiltersAndDescendingOrder() {
+    final List<KnoxToken> tokens = Arrays.asList(
+        token("token1", 1L, 100L, "alice", true),
+        token("token2", 2L, 300L, "alice", false),
+        token("token3", 3L, -1L, "alice", true),
+        token("token4", 4L, 200L, "bob", true));
+
+    TokenPage page = new TokenQueryBuilder().setUserName("alice").setEnabled(true).setSortField(TokenQuery.SortField.EXPIRATION)
+        .setDescending(true).build().select(tokens);
+    assertEquals(Arrays.asList("token1", "token3"), tokenIds(page));
+    assertNull(page.getNextPageToken());
+
+    // tokens which never expire expire after any time, and before none
+    page = new TokenQueryBuilder().setExpiresAfter(150L).build().select(tokens);
+    assertEquals(Arrays.asList("token2", "token3", "token4"), tokenIds(page));
+    page = new TokenQueryBuilder().setExpiresBefore(250L).build().select(tokens);
+    assertEquals(Arrays.asList("token1", "token4"), tokenIds(page));
+
+    page = new TokenQueryBuilder().addMetadata("tag", Collections.singletonList("*")).build().select(tokens);
+    assertEquals(Collections.singletonList("token4"), tokenIds(page));
+    page = new TokenQueryBuilder().addMetadata("tag", Collections.singletonList("other")).build().select(tokens);
+    assertTrue(page.getTokens().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPageToken() {
+    new TokenQueryBuilder().setPageToken("not a page token").build();
+  }
+
+  @Test
+  public void testCursor() {
+    final TokenQuery query = new TokenQueryBuilder().setPageToken(TokenQuery.encodePageToken(5L, "token5")).build();
+    assertEquals(Long.valueOf(5L), query.getCursorSortValue());
+    assertEquals("token5", query.getCursorTokenId());
+    assertTrue(query.isAfterCursor(5L, "token6"));
+    assertTrue(query.isAfterCursor(6L, "token0"));
+    assertFalse(query.isAfterCursor(5L, "token5"));
+    assertFalse(query.isAfterCursor(4L, "token9"));
+  }
+
+  private static KnoxToken token(String tokenId, long issueTime, long expiration, String userName, boolean enabled) {
+    final TokenMetadata metadata = new TokenMetadata(userName, null, enabled);
+    if ("bob".equals(userName)) {
+      metadata.add("tag", "value");
+    }
+    return new KnoxToken(tokenId, issueTime, expiration, 0L, metadata);
+  }
+
+  private static List<String> tokenIds(TokenPage page) {
+    return page.getTokens().stream().map(KnoxToken::getTokenId).collect(Collectors.toList());
+  }
+}
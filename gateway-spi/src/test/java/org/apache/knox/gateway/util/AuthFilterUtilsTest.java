@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.util;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuthFilterUtilsTest {
+  private static final String TOPOLOGY = "sandbox";
+  private static final String ROLE = "WEBHDFS";
+
+  @After
+  public void tearDown() {
+    AuthFilterUtils.removeProxyUserConfig(TOPOLOGY, ROLE);
+  }
+
+  @Test
+  public void testImpersonationIsAuthorized() throws Exception {
+    refresh("*");
+    AuthFilterUtils.authorizeImpersonationRequest(request(), "admin", "guest", TOPOLOGY, ROLE);
+    assertFalse(isAuthorized("tom", "guest"));
+  }
+
+  @Test
+  public void testCachedDecisionsAreDiscardedOnRefresh() throws Exception {
+    refresh("*");
+    assertTrue(isAuthorized("admin", "guest"));
+    assertTrue(isAuthorized("admin", "guest"));
+
+    refresh("10.0.0.1");
+    assertFalse(isAuthorized("admin", "guest"));
+
+    refresh("*");
+    assertTrue(isAuthorized("admin", "guest"));
+  }
+
+  @Test
+  public void testCachedDecisionsAreDiscardedOnRemoval() throws Exception {
+    refresh("*");
+    assertTrue(isAuthorized("admin", "guest"));
+    assertTrue(AuthFilterUtils.hasProxyConfig(TOPOLOGY, ROLE));
+
+    AuthFilterUtils.removeProxyUserConfig(TOPOLOGY, ROLE);
+    assertFalse(AuthFilterUtils.hasProxyConfig(TOPOLOGY, ROLE));
+    assertFalse(isAuthorized("admin", "guest"));
+  }
+
+  private static boolean isAuthorized(String realUser, String doAsUser) {
+    try {
+      AuthFilterUtils.authorizeImpersonationRequest(request(), realUser, doAsUser, TOPOLOGY, ROLE);
+      return true;
+    } catch (AuthorizationException e) {
+      return false;
+    }
+  }
+
+  private static void refresh(String hosts) {
+    final Map<String, String> params = new HashMap<>();
+    params.put(AuthFilterUtils.PROXYUSER_PREFIX + ".admin.users", "*");
+    params.put(AuthFilterUtils.PROXYUSER_PREFIX + ".admin.hosts", hosts);
+    final FilterConfig filterConfig = EasyMock.createNiceMock(FilterConfig.class);
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      EasyMock.expect(filterConfig.getInitParameter(param.getKey())).andReturn(param.getValue()).anyTimes();
+    }
+    EasyMock.replay(filterConfig);
+    AuthFilterUtils.refreshSuperUserGroupsConfiguration(filterConfig, new ArrayList<>(params.keySet()), TOPOLOGY, ROLE);
+  }
+
+  private static HttpServletRequest request() {
+    final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getRemoteAddr()).andReturn("10.0.0.2").anyTimes();
+    EasyMock.replay(request);
+    return request;
+  }
+}
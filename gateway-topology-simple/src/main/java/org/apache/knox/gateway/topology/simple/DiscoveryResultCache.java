@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.topology.simple;
+
+import org.apache.knox.gateway.topology.discovery.ServiceDiscovery;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches service discovery results, so that the descriptors referencing the same cluster through
+ * the same discovery endpoint and user can be (re)generated with a single discovery.
+ * <p>
+ * Entries expire after the configured TTL and are invalidated when a configuration change is
+ * reported for their cluster.
+ */
+class DiscoveryResultCache {
+
+  private static final DiscoveryResultCache INSTANCE = new DiscoveryResultCache();
+
+  private final Map<CacheKey, CacheEntry> entries = new ConcurrentHashMap<>();
+
+  static DiscoveryResultCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the cached cluster, if it has not expired and it covers the requested services; otherwise <code>null</code>
+   */
+  ServiceDiscovery.Cluster get(String type, String address, String cluster, String user, Collection<String> includedServices) {
+    final CacheKey key = new CacheKey(type, address, cluster, user);
+    final CacheEntry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.isExpired()) {
+      entries.remove(key, entry);
+      return null;
+    }
+    return entry.covers(includedServices) ? entry.cluster : null;
+  }
+
+  void put(String type, String address, String cluster, String user, Collection<String> includedServices,
+           ServiceDiscovery.Cluster discovered, long ttlMillis) {
+    if (ttlMillis > 0 && discovered != null) {
+      entries.put(new CacheKey(type, address, cluster, user),
+                  new CacheEntry(discovered, includedServices, System.currentTimeMillis() + ttlMillis));
+    }
+  }
+
+  /**
+   * Removes the results of every discovery type and user for the specified cluster.
+   */
+  void invalidate(String address, String cluster) {
+    entries.keySet().removeIf(key -> Objects.equals(key.address, address) && Objects.equals(key.cluster, cluster));
+  }
+
+  void clear() {
+    entries.clear();
+  }
+
+  private static final class CacheKey {
+    private final String type;
+    private final String address;
+    private final String cluster;
+    private final String user;
+
+    CacheKey(String type, String address, String cluster, String user) {
+      this.type = type;
+      this.address = address;
+      this.cluster = cluster;
+      this.user = user;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final CacheKey other = (CacheKey) o;
+      return Objects.equals(type, other.type) && Objects.equals(address, other.address)
+          && Objects.equals(cluster, other.cluster) && Objects.equals(user, other.user);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, address, cluster, user);
+    }
+  }
+
+  private static final class CacheEntry {
+    private final ServiceDiscovery.Cluster cluster;
+    // An empty set means that all the services of the cluster have been discovered
+    private final Set<String> includedServices;
+    private final long expiresAt;
+
+    CacheEntry(ServiceDiscovery.Cluster cluster, Collection<String> includedServices, long expiresAt) {
+      this.cluster = cluster;
+      this.includedServices = includedServices == null ? Collections.emptySet() : new HashSet<>(includedServices);
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+    }
+
+    boolean covers(Collection<String> requestedServices) {
+      if (includedServices.isEmpty()) {
+        return true;
+      }
+      return requestedServices != null && !requestedServices.isEmpty() && includedServices.containsAll(requestedServices);
+    }
+  }
+}
@@ -53,6 +53,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -254,7 +255,31 @@ public class SimpleDescriptorHandler {
         }
 
         final Collection<String> includedServices = desc.getServices().stream().map(service -> service.getName()).collect(Collectors.toSet());
-        return sd.discover(config, sdc, desc.getCluster(), includedServices);
+
+        // Descriptors referencing the same cluster share the result of a single discovery
+        final DiscoveryResultCache cache = DiscoveryResultCache.getInstance();
+        ServiceDiscovery.Cluster cluster =
+            cache.get(discoveryType, sdc.getAddress(), sdc.getCluster(), sdc.getUser(), includedServices);
+        if (cluster != null) {
+            log.usingCachedDiscoveryResult(desc.getName(), sdc.getCluster(), sdc.getAddress());
+            return cluster;
+        }
+
+        cluster = sd.discover(config, sdc, desc.getCluster(), includedServices);
+        cache.put(discoveryType, sdc.getAddress(), sdc.getCluster(), sdc.getUser(), includedServices, cluster,
+                  TimeUnit.SECONDS.toMillis(config.getServiceDiscoveryResultCacheTTL()));
+        return cluster;
+    }
+
+    /**
+     * Discard the cached discovery results for the specified cluster, so that the next descriptor referencing it
+     * triggers a new discovery.
+     *
+     * @param discoveryAddress The discovery address of the cluster
+     * @param clusterName      The name of the cluster
+     */
+    public static void invalidateDiscoveryResults(String discoveryAddress, String clusterName) {
+        DiscoveryResultCache.getInstance().invalidate(discoveryAddress, clusterName);
     }
 
 
@@ -84,4 +84,7 @@ public interface SimpleDescriptorMessages {
 
     @Message(level = MessageLevel.WARN, text = "Skipping read only descriptor: {0}.")
     void skipReadOnlyDescriptor(String name);
+
+    @Message(level = MessageLevel.DEBUG, text = "Using the cached discovery result of cluster {1} at {2} for descriptor {0}")
+    void usingCachedDiscoveryResult(String descriptorName, String cluster, String address);
 }
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A structured audit record: the correlation and audit context of a request, and the audit
+ * events recorded for it. A record holds a single event, unless events are aggregated per request.
+ */
+public final class AuditRecord {
+
+  private final String auditorName;
+  private final String serviceName;
+  private final String componentName;
+  private final String rootRequestId;
+  private final String parentRequestId;
+  private final String requestId;
+  private final List<Event> events = new ArrayList<>( 4 );
+  private String username;
+  private String proxyUsername;
+  private String systemUsername;
+  private String targetServiceName;
+  private String remoteIp;
+  private String remoteHostname;
+
+  public AuditRecord( String auditorName, String serviceName, String componentName, CorrelationContext correlationContext ) {
+    this.auditorName = auditorName;
+    this.serviceName = serviceName;
+    this.componentName = componentName;
+    this.rootRequestId = correlationContext == null ? null : correlationContext.getRootRequestId();
+    this.parentRequestId = correlationContext == null ? null : correlationContext.getParentRequestId();
+    this.requestId = correlationContext == null ? null : correlationContext.getRequestId();
+  }
+
+  /**
+   * Copies the values of the audit context, keeping the values already known when the context
+   * does not define them (e.g. the user is only known once the request has been authenticated).
+   *
+   * @param context The audit context to copy.  May be null.
+   */
+  public void update( AuditContext context ) {
+    if ( context != null ) {
+      username = context.getUsername() == null ? username : context.getUsername();
+      proxyUsername = context.getProxyUsername() == null ? proxyUsername : context.getProxyUsername();
+      systemUsername = context.getSystemUsername() == null ? systemUsername : context.getSystemUsername();
+      targetServiceName = context.getTargetServiceName() == null ? targetServiceName : context.getTargetServiceName();
+      remoteIp = context.getRemoteIp() == null ? remoteIp : context.getRemoteIp();
+      remoteHostname = context.getRemoteHostname() == null ? remoteHostname : context.getRemoteHostname();
+    }
+  }
+
+  /**
+   * @param message The message of the event.  Its string representation is only computed when the record is encoded.  May be null.
+   */
+  public void addEvent( long timestamp, String action, String resourceName, String resourceType, String outcome, Object message ) {
+    events.add( new Event( timestamp, action, resourceName, resourceType, outcome, message ) );
+  }
+
+  public String getAuditorName() {
+    return auditorName;
+  }
+
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  public String getComponentName() {
+    return componentName;
+  }
+
+  public String getRootRequestId() {
+    return rootRequestId;
+  }
+
+  public String getParentRequestId() {
+    return parentRequestId;
+  }
+
+  public String getRequestId() {
+    return requestId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getProxyUsername() {
+    return proxyUsername;
+  }
+
+  public String getSystemUsername() {
+    return systemUsername;
+  }
+
+  public String getTargetServiceName() {
+    return targetServiceName;
+  }
+
+  public String getRemoteIp() {
+    return remoteIp;
+  }
+
+  public String getRemoteHostname() {
+    return remoteHostname;
+  }
+
+  public List<Event> getEvents() {
+    return Collections.unmodifiableList( events );
+  }
+
+  /**
+   * A single audit event of the record.
+   */
+  public static final class Event {
+    private final long timestamp;
+    private final String action;
+    private final String resourceName;
+    private final String resourceType;
+    private final String outcome;
+    private final Object message;
+
+    Event( long timestamp, String action, String resourceName, String resourceType, String outcome, Object message ) {
+      this.timestamp = timestamp;
+      this.action = action;
+      this.resourceName = resourceName;
+      this.resourceType = resourceType;
+      this.outcome = outcome;
+      this.message = message;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public String getAction() {
+      return action;
+    }
+
+    public String getResourceName() {
+      return resourceName;
+    }
+
+    public String getResourceType() {
+      return resourceType;
+    }
+
+    public String getOutcome() {
+      return outcome;
+    }
+
+    /**
+     * @return The message of the event, rendered.  May be null.
+     */
+    public String getMessage() {
+      return message == null ? null : message.toString();
+    }
+  }
+
+}
@@ -76,4 +76,13 @@ public interface AuditService {
    */
   <T> T execute( AuditContext context, Callable<T> callable ) throws Exception;
 
+  /**
+   * Signals that the request with the provided ID is complete, whichever thread it completed on.
+   * Services that hold back what they record for a request write it out at this point.
+   *
+   * @param requestId The ID of the request's correlation context.
+   */
+  default void completeRequest( String requestId ) {
+  }
+
 }
\ No newline at end of file
@@ -17,11 +17,22 @@
  */
 package org.apache.knox.gateway.audit.api;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
 import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditService;
+import org.apache.knox.gateway.audit.structured.AsyncAuditSink;
+import org.apache.knox.gateway.audit.structured.JsonLinesAuditRecordEncoder;
+import org.apache.knox.gateway.audit.structured.StructuredAuditService;
+import org.apache.knox.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
 public abstract class AuditServiceFactory {
   // The global audit service instance.
-  private static final AuditService auditService = new Log4jAuditService();
+  private static final DelegatingAuditService auditService = new DelegatingAuditService( new Log4jAuditService() );
 
   // To prevent instantiation.
   private AuditServiceFactory() {
@@ -34,4 +45,30 @@ public abstract class AuditServiceFactory {
   public static AuditService getAuditService() {
     return auditService;
   }
+
+  /**
+   * Records structured audit records in a JSON lines file instead of log4j events, for the auditors
+   * already handed out as well.  Falls back to log4j events if the file can't be opened.
+   *
+   * @param file The file the records are appended to.
+   * @param aggregate Whether the events of the same request are written as a single record.
+   * @param queueSize The number of records that can wait to be written.
+   */
+  @SuppressWarnings("PMD.DoNotUseThreads") // the shutdown hook writes the pending records
+  public static synchronized void enableStructuredAudit( String file, boolean aggregate, int queueSize ) {
+    if ( auditService.getDelegate() instanceof StructuredAuditService ) {
+      return;
+    }
+    try {
+      final AuditSink sink = new AsyncAuditSink(
+          new BufferedOutputStream( Files.newOutputStream( Paths.get( file ), StandardOpenOption.CREATE, StandardOpenOption.APPEND ), 64 * 1024 ),
+          new JsonLinesAuditRecordEncoder(),
+          queueSize );
+      final StructuredAuditService service = new StructuredAuditService( sink, aggregate );
+      Runtime.getRuntime().addShutdownHook( new Thread( service::stop, "AuditWriterShutdown" ) );
+      auditService.setDelegate( service );
+    } catch ( IOException e ) {
+      MessagesFactory.get( GatewayUtilCommonMessages.class ).failedToOpenStructuredAuditFile( file, e );
+    }
+  }
 }
@@ -17,6 +17,8 @@
  */
 package org.apache.knox.gateway.audit.api;
 
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
+
 /**
  * Used to record audit events.
  */
@@ -47,6 +49,20 @@ public interface Auditor {
    */
   void audit( String action, String resourceName, String resourceType, String outcome, String message );
 
+  /**
+   * Records a single audit event using context information associated with the current thread.
+   * The message is only rendered if the event is actually recorded.
+   *
+   * @param action The action being recorded for this audit event.  May not be null.
+   * @param resourceName The resource identifier to record for this audit event.  May not be null.
+   * @param resourceType The resource type to record for this audit event.  May not be null.
+   * @param outcome The outcome to record for this audit event.  Typically the result of a authorization check.  May not be null.
+   * @param message An arbitrary message to record with the audit event.  May be null.
+   */
+  default void audit( String action, String resourceName, String resourceType, String outcome, ResourceMessage message ) {
+    audit( action, resourceName, resourceType, outcome, message == null ? null : message.toString() );
+  }
+
   /**
    * Records a single audit event using context information associated with the current thread.
    *
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.api;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
+
+/**
+ * The audit service handed out by {@link AuditServiceFactory}.  Classes get their auditors when
+ * they are loaded, before the gateway configuration is read, so the service and its auditors
+ * delegate to the implementation selected by the configuration once it is known.
+ */
+class DelegatingAuditService implements AuditService {
+  private final AtomicReference<AuditService> delegate;
+  private final Map<String, Auditor> auditors = new ConcurrentHashMap<>();
+
+  DelegatingAuditService( AuditService delegate ) {
+    this.delegate = new AtomicReference<>( delegate );
+  }
+
+  /**
+   * @return the service that was replaced
+   */
+  AuditService setDelegate( AuditService service ) {
+    return delegate.getAndSet( service );
+  }
+
+  AuditService getDelegate() {
+    return delegate.get();
+  }
+
+  @Override
+  public AuditContext createContext() {
+    return delegate.get().createContext();
+  }
+
+  @Override
+  public AuditContext getContext() {
+    return delegate.get().getContext();
+  }
+
+  @Override
+  public void attachContext( AuditContext context ) {
+    delegate.get().attachContext( context );
+  }
+
+  @Override
+  public AuditContext detachContext() {
+    return delegate.get().detachContext();
+  }
+
+  @Override
+  public <T> T execute( AuditContext context, Callable<T> callable ) throws Exception {
+    return delegate.get().execute( context, callable );
+  }
+
+  @Override
+  public void completeRequest( String requestId ) {
+    delegate.get().completeRequest( requestId );
+  }
+
+  @Override
+  public Auditor getAuditor( String auditorName, String componentName, String serviceName ) {
+    return auditors.computeIfAbsent( auditorName + componentName + serviceName,
+        key -> new DelegatingAuditor( auditorName, componentName, serviceName ) );
+  }
+
+  private static class Resolved {
+    private final AuditService service;
+    private final Auditor auditor;
+
+    Resolved( AuditService service, Auditor auditor ) {
+      this.service = service;
+      this.auditor = auditor;
+    }
+  }
+
+  private class DelegatingAuditor implements Auditor {
+    private final String auditorName;
+    private final String componentName;
+    private final String serviceName;
+    private final AtomicReference<Resolved> resolved = new AtomicReference<>();
+
+    DelegatingAuditor( String auditorName, String componentName, String serviceName ) {
+      this.auditorName = auditorName;
+      this.componentName = componentName;
+      this.serviceName = serviceName;
+    }
+
+    private Auditor auditor() {
+      final AuditService service = delegate.get();
+      Resolved current = resolved.get();
+      if ( current == null || current.service != service ) {
+        current = new Resolved( service, service.getAuditor( auditorName, componentName, serviceName ) );
+        resolved.set( current );
+      }
+      return current.auditor;
+    }
+
+    @Override
+    public void audit( CorrelationContext correlationContext, AuditContext auditContext, String action,
+                       String resourceName, String resourceType, String outcome, String message ) {
+      auditor().audit( correlationContext, auditContext, action, resourceName, resourceType, outcome, message );
+    }
+
+    @Override
+    public void audit( String action, String resourceName, String resourceType, String outcome, String message ) {
+      auditor().audit( action, resourceName, resourceType, outcome, message );
+    }
+
+    @Override
+    public void audit( String action, String resourceName, String resourceType, String outcome, ResourceMessage message ) {
+      auditor().audit( action, resourceName, resourceType, outcome, message );
+    }
+
+    @Override
+    public void audit( String action, String resourceName, String resourceType, String outcome ) {
+      auditor().audit( action, resourceName, resourceType, outcome );
+    }
+
+    @Override
+    public String getServiceName() {
+      return serviceName;
+    }
+
+    @Override
+    public String getComponentName() {
+      return componentName;
+    }
+
+    @Override
+    public String getAuditorName() {
+      return auditorName;
+    }
+  }
+}
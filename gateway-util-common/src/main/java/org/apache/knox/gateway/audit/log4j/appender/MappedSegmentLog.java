@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.log4j.appender;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of records, stored in memory mapped segment files.
+ * <p>
+ * Each record is written as its length, its CRC32 and its bytes. {@link #append(List)} writes a
+ * whole batch of records before flushing the segment to disk once, and {@link #acknowledge()}
+ * records, in a checkpoint file, that everything appended so far has been consumed, so that
+ * {@link #readUnacknowledged()} returns the records that still have to be consumed after a restart.
+ * Segments whose records have all been acknowledged are deleted.
+ * <p>
+ * This class is not thread safe: it is meant to be used by a single writer thread.
+ */
+public class MappedSegmentLog implements Closeable {
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final int HEADER_SIZE = Integer.BYTES * 2;
+  private static final int CHECKPOINT_SIZE = Long.BYTES + Integer.BYTES;
+
+  private final File directory;
+  private final int segmentSize;
+  private final MappedByteBuffer checkpoint;
+  private long ackSegment;
+  private int ackOffset;
+  private long segment;
+  private MappedByteBuffer buffer;
+
+  public MappedSegmentLog( File directory, int segmentSize ) throws IOException {
+    if ( !directory.isDirectory() && !directory.mkdirs() ) {
+      throw new IOException( "Failed to create directory " + directory.getAbsolutePath() );
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    checkpoint = map( new File( directory, CHECKPOINT_FILE ), CHECKPOINT_SIZE );
+    ackSegment = checkpoint.getLong( 0 );
+    ackOffset = checkpoint.getInt( Long.BYTES );
+
+    final NavigableMap<Long, File> segments = listSegments();
+    if ( segments.isEmpty() ) {
+      segment = ackSegment;
+      ackOffset = 0;
+      buffer = map( getSegmentFile( segment ), segmentSize );
+    } else {
+      segment = segments.lastKey();
+      buffer = map( segments.lastEntry().getValue(), segmentSize );
+      buffer.position( scan( buffer, 0, null ) );
+    }
+  }
+
+  /**
+   * Appends the records and flushes them to disk.
+   */
+  public void append( List<byte[]> records ) throws IOException {
+    final CRC32 crc = new CRC32();
+    for ( byte[] record : records ) {
+      if ( buffer.remaining() < HEADER_SIZE + record.length ) {
+        roll( HEADER_SIZE + record.length );
+      }
+      crc.reset();
+      crc.update( record, 0, record.length );
+      buffer.putInt( record.length );
+      buffer.putInt( (int) crc.getValue() );
+      buffer.put( record );
+    }
+    // Stale records left behind by an interrupted batch must not be mistaken for the next ones
+    if ( buffer.remaining() >= Integer.BYTES ) {
+      buffer.putInt( buffer.position(), 0 );
+    }
+    buffer.force();
+  }
+
+  /**
+   * Records that all the records appended so far have been consumed.
+   */
+  public void acknowledge() {
+    if ( ackSegment == segment && ackOffset == buffer.position() ) {
+      return;
+    }
+    final long previous = ackSegment;
+    ackSegment = segment;
+    ackOffset = buffer.position();
+    checkpoint.putLong( 0, ackSegment );
+    checkpoint.putInt( Long.BYTES, ackOffset );
+    checkpoint.force();
+    for ( long i = previous; i < ackSegment; i++ ) {
+      final File file = getSegmentFile( i );
+      if ( file.exists() && !file.delete() ) {
+        file.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * @return the records appended but not acknowledged yet, in the order they were appended
+   */
+  public List<byte[]> readUnacknowledged() throws IOException {
+    final List<byte[]> records = new ArrayList<>();
+    for ( File file : listSegments().tailMap( ackSegment ).values() ) {
+      final long id = parseSegmentId( file );
+      if ( id == segment ) {
+        scan( buffer, id == ackSegment ? ackOffset : 0, records );
+      } else {
+        final MappedByteBuffer segmentBuffer = map( file, segmentSize );
+        try {
+          scan( segmentBuffer, id == ackSegment ? ackOffset : 0, records );
+        } finally {
+          unmap( segmentBuffer );
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Flushes and releases the mapped segments. The log must not be used once closed.
+   */
+  @Override
+  public void close() {
+    if ( buffer == null ) {
+      return;
+    }
+    buffer.force();
+    checkpoint.force();
+    unmap( buffer );
+    unmap( checkpoint );
+    buffer = null;
+  }
+
+  private void roll( int required ) throws IOException {
+    buffer.force();
+    final MappedByteBuffer next = map( getSegmentFile( segment + 1 ), Math.max( segmentSize, required ) );
+    unmap( buffer );
+    buffer = next;
+    segment++;
+  }
+
+  /*
+   * Reads the valid records from the offset and returns the offset following the last one.
+   */
+  private static int scan( MappedByteBuffer segmentBuffer, int offset, List<byte[]> records ) {
+    final CRC32 crc = new CRC32();
+    int position = offset;
+    while ( position + HEADER_SIZE <= segmentBuffer.limit() ) {
+      final int length = segmentBuffer.getInt( position );
+      if ( length <= 0 || length > segmentBuffer.limit() - position - HEADER_SIZE ) {
+        break;
+      }
+      final byte[] record = new byte[ length ];
+      final ByteBuffer source = segmentBuffer.duplicate();
+      source.position( position + HEADER_SIZE );
+      source.get( record );
+      crc.reset();
+      crc.update( record, 0, length );
+      if ( (int) crc.getValue() != segmentBuffer.getInt( position + Integer.BYTES ) ) {
+        break;
+      }
+      if ( records != null ) {
+        records.add( record );
+      }
+      position += HEADER_SIZE + length;
+    }
+    return position;
+  }
+
+  private NavigableMap<Long, File> listSegments() {
+    final NavigableMap<Long, File> segments = new TreeMap<>();
+    final File[] files = directory.listFiles( ( dir, name ) -> name.endsWith( SEGMENT_SUFFIX ) );
+    if ( files != null ) {
+      for ( File file : files ) {
+        segments.put( parseSegmentId( file ), file );
+      }
+    }
+    return segments;
+  }
+
+  private File getSegmentFile( long id ) {
+    return new File( directory, String.format( Locale.ROOT, "%020d%s", id, SEGMENT_SUFFIX ) );
+  }
+
+  private static long parseSegmentId( File file ) {
+    final String name = file.getName();
+    return Long.parseLong( name.substring( 0, name.length() - SEGMENT_SUFFIX.length() ) );
+  }
+
+  /*
+   * Mappings are otherwise only released when the buffers are garbage collected, which keeps the
+   * deleted segments on disk and open, so the cleaner of the buffer is invoked through reflection.
+   */
+  private static void unmap( MappedByteBuffer mapped ) {
+    try {
+      final Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+      final Method invokeCleaner = unsafeClass.getMethod( "invokeCleaner", ByteBuffer.class );
+      final Field theUnsafe = unsafeClass.getDeclaredField( "theUnsafe" );
+      theUnsafe.setAccessible( true );
+      invokeCleaner.invoke( theUnsafe.get( null ), mapped );
+    } catch ( NoSuchMethodException e ) {
+      // Java 8
+      try {
+        final Method cleanerMethod = mapped.getClass().getMethod( "cleaner" );
+        cleanerMethod.setAccessible( true );
+        final Object cleaner = cleanerMethod.invoke( mapped );
+        if ( cleaner != null ) {
+          cleaner.getClass().getMethod( "clean" ).invoke( cleaner );
+        }
+      } catch ( ReflectiveOperationException | RuntimeException ignored ) {
+        // Left to the garbage collector
+      }
+    } catch ( ReflectiveOperationException | RuntimeException ignored ) {
+      // Left to the garbage collector
+    }
+  }
+
+  private static MappedByteBuffer map( File file, int minSize ) throws IOException {
+    try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+          FileChannel channel = raf.getChannel() ) {
+      return channel.map( FileChannel.MapMode.READ_WRITE, 0, Math.max( minSize, channel.size() ) );
+    }
+  }
+
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.log4j.appender;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.appender.AppenderLoggingException;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+
+/**
+ * Stores the events in a {@link MappedSegmentLog} before forwarding them to the appenders of the
+ * <code>audit.forward</code> logger, like {@link JdbmStoreAndForwardAppender}, but with group commit.
+ * <p>
+ * Logging threads add the events to a lock-free queue and park until they have been stored, so that
+ * an event is never lost once it has been appended; as each of them waits for its own event, the
+ * queue holds at most one event per logging thread. A single forwarder thread takes the events in
+ * batches of up to <code>batchSize</code> events, waiting at most <code>batchDelay</code> milliseconds
+ * for a batch to fill up, stores and flushes the whole batch at once, unparks the logging threads of
+ * the batch, forwards the batch and then acknowledges it. If a batch can't be stored, it is neither
+ * forwarded nor acknowledged and its logging threads get an {@link AppenderLoggingException}.
+ * <p>
+ * The log is only acknowledged once every appender took every event. The events an appender failed
+ * to take are retried at most once a second, in order, and that appender gets the following events
+ * only after them; the log is not acknowledged while any of them is left. The events stored but not acknowledged when the gateway stopped are forwarded again when
+ * the appender starts, so an appender may get an event more than once.
+ */
+@Plugin(
+    name = "SegmentedStoreAndForwardAppender",
+    category = Core.CATEGORY_NAME,
+    elementType = Appender.ELEMENT_TYPE)
+public class SegmentedStoreAndForwardAppender extends AbstractAppender {
+  static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+  static final int DEFAULT_BATCH_SIZE = 512;
+  // The logging threads wait for their events to be stored, so the events that arrive while a batch
+  // is flushed already make up the next batch without waiting any longer
+  static final long DEFAULT_BATCH_DELAY = 0L;
+  // Beyond this many failed deliveries, the stored events are only forwarded again on restart
+  static final int MAX_FAILED_DELIVERIES = 65536;
+  private static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+  private static final long RETRY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+  private final Queue<PendingEvent> queue = new ConcurrentLinkedQueue<>();
+  private final MappedSegmentLog log;
+  private final int batchSize;
+  private final long batchDelayNanos;
+  private final Logger forward;
+  private final Thread forwarder; //NOPMD - Expected use of threading
+  private final AtomicBoolean running = new AtomicBoolean(true);
+
+  SegmentedStoreAndForwardAppender(String name, Filter filter, MappedSegmentLog log, int batchSize, long batchDelay) {
+    super(name, filter, null);
+    this.log = log;
+    this.batchSize = batchSize;
+    this.batchDelayNanos = TimeUnit.MILLISECONDS.toNanos(batchDelay);
+    forward = (Logger) LogManager.getLogger("audit.forward");
+    forward.setAdditive(false);
+    forwarder = new BasicThreadFactory.Builder()
+        .namingPattern("AuditForwarder-" + name)
+        .daemon(true)
+        .build()
+        .newThread(new Forwarder());
+    forwarder.start();
+  }
+
+  @PluginFactory
+  public static SegmentedStoreAndForwardAppender createAppender(
+      @PluginAttribute("name") String name,
+      @PluginElement("Filter") Filter filter,
+      @PluginAttribute("directory") String directory,
+      @PluginAttribute(value = "segmentSize", defaultInt = DEFAULT_SEGMENT_SIZE) int segmentSize,
+      @PluginAttribute(value = "batchSize", defaultInt = DEFAULT_BATCH_SIZE) int batchSize,
+      @PluginAttribute(value = "batchDelay", defaultLong = DEFAULT_BATCH_DELAY) long batchDelay) {
+    final MappedSegmentLog log;
+    try {
+      log = new MappedSegmentLog(new File(directory), segmentSize);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return new SegmentedStoreAndForwardAppender(name, filter, log, Math.max(1, batchSize), batchDelay);
+  }
+
+  @Override
+  public void append(LogEvent event) {
+    // Mutable events are reused by the logging thread once this method returns
+    final PendingEvent pending = new PendingEvent(event.toImmutable(), Thread.currentThread());
+    queue.offer(pending);
+    LockSupport.unpark(forwarder);
+    while (!pending.done.get()) {
+      if (!forwarder.isAlive()) {
+        throw new AppenderLoggingException("Audit appender " + getName() + " is stopped");
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        throw new AppenderLoggingException("Interrupted while storing audit event");
+      }
+      LockSupport.parkNanos(this, POLL_INTERVAL_NANOS);
+    }
+    if (pending.failure != null) {
+      throw new AppenderLoggingException("Failed to store audit event", pending.failure);
+    }
+  }
+
+  @Override
+  public void stop() {
+    running.set(false);
+    LockSupport.unpark(forwarder);
+    try {
+      forwarder.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      log.close();
+    }
+    super.stop();
+  }
+
+  static byte[] serialize(LogEvent event) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(Log4jLogEvent.serialize(event, false));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static LogEvent deserialize(byte[] record) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record))) {
+      // The serialized proxy resolves to the event itself
+      return (LogEvent) in.readObject();
+    }
+  }
+
+  @SuppressWarnings("PMD.DoNotUseThreads")
+  private static class PendingEvent {
+    private final LogEvent event;
+    private final Thread waiter;
+    // Written by the forwarder before it sets done
+    private IOException failure;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    PendingEvent(LogEvent event, Thread waiter) {
+      this.event = event;
+      this.waiter = waiter;
+    }
+  }
+
+  @SuppressWarnings("PMD.DoNotUseThreads")
+  private class Forwarder implements Runnable {
+    // The events each appender failed to take, in order; an appender only gets new events once it took these
+    private final Map<Appender, Deque<LogEvent>> failedDeliveries = new LinkedHashMap<>();
+    private int failedDeliveryCount;
+    private long lastRetry;
+    // Set once there were too many failed deliveries to keep: the stored events are forwarded again on restart
+    private boolean overflowed;
+
+    @Override
+    public void run() {
+      recover();
+      final List<PendingEvent> batch = new ArrayList<>(batchSize);
+      final List<LogEvent> events = new ArrayList<>(batchSize);
+      while (running.get() || !queue.isEmpty()) {
+        if (!fill(batch)) {
+          retryFailedDeliveries();
+          continue;
+        }
+        final IOException failure = store(batch);
+        commit(batch, failure);
+        if (failure == null) {
+          for (PendingEvent pending : batch) {
+            events.add(pending.event);
+          }
+          retryFailedDeliveries();
+          forward(events);
+          events.clear();
+        } else {
+          LOGGER.error("Failed to store audit events", failure);
+        }
+        batch.clear();
+      }
+    }
+
+    private IOException store(List<PendingEvent> batch) {
+      final List<byte[]> records = new ArrayList<>(batch.size());
+      try {
+        for (PendingEvent pending : batch) {
+          records.add(serialize(pending.event));
+        }
+        log.append(records);
+        return null;
+      } catch (IOException e) {
+        return e;
+      }
+    }
+
+    private void commit(List<PendingEvent> batch, IOException failure) {
+      for (PendingEvent pending : batch) {
+        pending.failure = failure;
+        pending.done.set(true);
+        LockSupport.unpark(pending.waiter);
+      }
+    }
+
+    /*
+     * Waits for the first event, then for the batch to fill up or the batch delay to elapse.
+     */
+    private boolean fill(List<PendingEvent> batch) {
+      drain(batch);
+      if (batch.isEmpty()) {
+        LockSupport.parkNanos(this, POLL_INTERVAL_NANOS);
+        return false;
+      }
+      final long deadline = System.nanoTime() + batchDelayNanos;
+      long remaining = batchDelayNanos;
+      while (batch.size() < batchSize && remaining > 0) {
+        LockSupport.parkNanos(this, remaining);
+        drain(batch);
+        remaining = deadline - System.nanoTime();
+      }
+      return true;
+    }
+
+    private void drain(List<PendingEvent> batch) {
+      PendingEvent next;
+      while (batch.size() < batchSize && (next = queue.poll()) != null) {
+        batch.add(next);
+      }
+    }
+
+    private void recover() {
+      try {
+        final List<byte[]> records = log.readUnacknowledged();
+        final List<LogEvent> events = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+          events.add(deserialize(record));
+        }
+        forward(events);
+      } catch (IOException | ClassNotFoundException | RuntimeException e) {
+        LOGGER.error("Failed to forward the stored audit events", e);
+      }
+    }
+
+    /*
+     * Acknowledges the stored events once every appender took all of them.
+     */
+    private void forward(List<LogEvent> events) {
+      for (LogEvent event : events) {
+        for (Appender appender : forward.getAppenders().values()) {
+          final Deque<LogEvent> failed = failedDeliveries.get(appender);
+          if (failed != null) {
+            addFailedDelivery(failed, event);
+          } else if (!deliver(event, appender)) {
+            if (failedDeliveries.isEmpty()) {
+              lastRetry = System.nanoTime();
+            }
+            addFailedDelivery(failedDeliveries.computeIfAbsent(appender, a -> new ArrayDeque<>()), event);
+          }
+        }
+      }
+      if (failedDeliveries.isEmpty() && !overflowed) {
+        log.acknowledge();
+      }
+    }
+
+    private void retryFailedDeliveries() {
+      final long now = System.nanoTime();
+      if (failedDeliveries.isEmpty() || now - lastRetry < RETRY_INTERVAL_NANOS) {
+        return;
+      }
+      lastRetry = now;
+      final Iterator<Map.Entry<Appender, Deque<LogEvent>>> entries = failedDeliveries.entrySet().iterator();
+      while (entries.hasNext()) {
+        final Map.Entry<Appender, Deque<LogEvent>> entry = entries.next();
+        final Deque<LogEvent> failed = entry.getValue();
+        while (!failed.isEmpty() && deliver(failed.peekFirst(), entry.getKey())) {
+          failed.pollFirst();
+          failedDeliveryCount--;
+        }
+        if (failed.isEmpty()) {
+          entries.remove();
+        }
+      }
+      if (failedDeliveries.isEmpty() && !overflowed) {
+        log.acknowledge();
+      }
+    }
+
+    private boolean deliver(LogEvent event, Appender appender) {
+      try {
+        appender.append(event);
+        return true;
+      } catch (Exception e) {
+        LOGGER.error("Failed to forward audit event to " + appender.getName(), e);
+        return false;
+      }
+    }
+
+    private void addFailedDelivery(Deque<LogEvent> failed, LogEvent event) {
+      if (failedDeliveryCount < MAX_FAILED_DELIVERIES) {
+        failed.addLast(event);
+        failedDeliveryCount++;
+      } else if (!overflowed) {
+        overflowed = true;
+        LOGGER.error("Too many audit events could not be forwarded, the stored events are forwarded again on restart");
+      }
+    }
+  }
+}
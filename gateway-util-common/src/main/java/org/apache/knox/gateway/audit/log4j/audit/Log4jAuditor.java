@@ -23,9 +23,11 @@ import org.apache.knox.gateway.audit.api.Auditor;
 import org.apache.knox.gateway.audit.api.CorrelationContext;
 import org.apache.knox.gateway.audit.api.CorrelationService;
 import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.ThreadContext;
 import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.message.ObjectMessage;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -94,12 +96,17 @@ public class Log4jAuditor implements Auditor {
     auditLog( action, resourceName, resourceType, outcome, message );
   }
 
+  @Override
+  public void audit( String action, String resourceName, String resourceType, String outcome, ResourceMessage message ) {
+    auditLog( action, resourceName, resourceType, outcome, message );
+  }
+
   @Override
   public void audit( String action, String resourceName, String resourceType, String outcome ) {
     auditLog( action, resourceName, resourceType, outcome, null );
   }
 
-  private void auditLog( String action, String resourceName, String resourceType, String outcome, String message ) {
+  private void auditLog( String action, String resourceName, String resourceType, String outcome, Object message ) {
     if ( logger.isInfoEnabled() ) {
       ThreadContext.put( AuditConstants.MDC_ACTION_KEY, action );
       ThreadContext.put( AuditConstants.MDC_RESOURCE_NAME_KEY, maskTokenFromURL(resourceName) );
@@ -108,7 +115,12 @@ public class Log4jAuditor implements Auditor {
       ThreadContext.put( AuditConstants.MDC_SERVICE_KEY, serviceName );
       ThreadContext.put( AuditConstants.MDC_COMPONENT_KEY, componentName );
 
-      logger.info( message );
+      if ( message instanceof ResourceMessage ) {
+        // The resource is only rendered when a layout asks for the formatted message
+        logger.info( new ObjectMessage( message ) );
+      } else {
+        logger.info( (String) message );
+      }
 
       ThreadContext.remove( AuditConstants.MDC_ACTION_KEY );
       ThreadContext.remove( AuditConstants.MDC_RESOURCE_NAME_KEY );
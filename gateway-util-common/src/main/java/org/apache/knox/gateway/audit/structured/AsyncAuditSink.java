@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.structured;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.knox.gateway.audit.api.AuditRecord;
+import org.apache.knox.gateway.audit.api.AuditSink;
+import org.apache.knox.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+/**
+ * Encodes and writes the audit records on a dedicated thread.
+ * <p>
+ * The records are queued in a bounded queue; when it is full, the threads recording audit events
+ * wait, as audit records are never dropped.  The writer thread drains the queue in batches and
+ * flushes the stream once per batch.  Stopping the sink writes the records still queued.
+ */
+public class AsyncAuditSink implements AuditSink {
+  private static final GatewayUtilCommonMessages LOG = MessagesFactory.get( GatewayUtilCommonMessages.class );
+  private static final int MAX_BATCH_SIZE = 1024;
+  private static final long POLL_INTERVAL = 100L;
+
+  private final BlockingQueue<AuditRecord> queue;
+  private final OutputStream out;
+  private final AuditRecordEncoder encoder;
+  private final AtomicBoolean running = new AtomicBoolean( true );
+  private final Thread writer; //NOPMD - Expected use of threading
+
+  public AsyncAuditSink( OutputStream out, AuditRecordEncoder encoder, int capacity ) {
+    this.queue = new ArrayBlockingQueue<>( capacity );
+    this.out = out;
+    this.encoder = encoder;
+    this.writer = new BasicThreadFactory.Builder()
+        .namingPattern( "AuditWriter" )
+        .daemon( true )
+        .build()
+        .newThread( this::writeRecords );
+    writer.start();
+  }
+
+  @Override
+  public void write( AuditRecord record ) {
+    if ( !queue.offer( record ) ) {
+      try {
+        queue.put( record );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        LOG.interruptedWhileWritingAuditRecord();
+      }
+    }
+  }
+
+  /**
+   * Writes the queued records, closes the stream and waits for the writer thread to end.
+   */
+  @Override
+  public void stop() {
+    // The writer is not interrupted: an interrupt during a write would close the file channel
+    if ( running.compareAndSet( true, false ) ) {
+      try {
+        writer.join();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void writeRecords() {
+    final List<AuditRecord> batch = new ArrayList<>( MAX_BATCH_SIZE );
+    try {
+      while ( running.get() || !queue.isEmpty() ) {
+        final AuditRecord record = queue.poll( POLL_INTERVAL, TimeUnit.MILLISECONDS );
+        if ( record != null ) {
+          batch.add( record );
+          queue.drainTo( batch, MAX_BATCH_SIZE - 1 );
+          writeBatch( batch );
+        }
+      }
+    } catch ( InterruptedException e ) {
+      // Stopping
+    }
+    queue.drainTo( batch );
+    writeBatch( batch );
+    try {
+      out.close();
+    } catch ( IOException e ) {
+      LOG.failedToWriteAuditRecords( e );
+    }
+  }
+
+  private void writeBatch( List<AuditRecord> batch ) {
+    try {
+      encoder.encode( batch, out );
+      out.flush();
+    } catch ( IOException | RuntimeException e ) {
+      LOG.failedToWriteAuditRecords( e );
+    }
+    batch.clear();
+  }
+}
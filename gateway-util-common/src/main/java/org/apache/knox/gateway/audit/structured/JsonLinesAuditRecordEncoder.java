@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.structured;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.knox.gateway.audit.api.AuditRecord;
+import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditor;
+
+/**
+ * Encodes each audit record as a single line of JSON.  Fields without a value are omitted, e.g.
+ * <pre>
+ * {"requestId":"4c1b...","auditor":"audit","service":"knox","component":"knox","remoteIp":"10.0.0.1","targetService":"WEBHDFS","user":"guest","events":[{"timestamp":1700000000000,"action":"access","resourceType":"uri","resourceName":"/gateway/sandbox/webhdfs/v1/","outcome":"success","message":"Response status: 200"}]}
+ * </pre>
+ */
+public class JsonLinesAuditRecordEncoder implements AuditRecordEncoder {
+
+  private final JsonFactory factory = new JsonFactory()
+      .disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET )
+      .setRootValueSeparator( null );
+
+  @Override
+  public void encode( List<AuditRecord> records, OutputStream out ) throws IOException {
+    try ( JsonGenerator generator = factory.createGenerator( out, JsonEncoding.UTF8 ) ) {
+      for ( AuditRecord record : records ) {
+        generator.writeStartObject();
+        writeField( generator, "rootRequestId", record.getRootRequestId() );
+        writeField( generator, "parentRequestId", record.getParentRequestId() );
+        writeField( generator, "requestId", record.getRequestId() );
+        writeField( generator, "auditor", record.getAuditorName() );
+        writeField( generator, "service", record.getServiceName() );
+        writeField( generator, "component", record.getComponentName() );
+        writeField( generator, "remoteIp", record.getRemoteIp() );
+        writeField( generator, "remoteHostname", record.getRemoteHostname() );
+        writeField( generator, "targetService", record.getTargetServiceName() );
+        writeField( generator, "user", record.getUsername() );
+        writeField( generator, "proxyUser", record.getProxyUsername() );
+        writeField( generator, "systemUser", record.getSystemUsername() );
+        generator.writeArrayFieldStart( "events" );
+        for ( AuditRecord.Event event : record.getEvents() ) {
+          generator.writeStartObject();
+          generator.writeNumberField( "timestamp", event.getTimestamp() );
+          writeField( generator, "action", event.getAction() );
+          writeField( generator, "resourceType", event.getResourceType() );
+          writeField( generator, "resourceName",
+              event.getResourceName() == null ? null : Log4jAuditor.maskTokenFromURL( event.getResourceName() ) );
+          writeField( generator, "outcome", event.getOutcome() );
+          writeField( generator, "message", event.getMessage() );
+          generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw( '\n' );
+      }
+    }
+  }
+
+  private static void writeField( JsonGenerator generator, String name, String value ) throws IOException {
+    if ( value != null ) {
+      generator.writeStringField( name, value );
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.structured;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.knox.gateway.audit.api.AuditContext;
+import org.apache.knox.gateway.audit.api.AuditRecord;
+import org.apache.knox.gateway.audit.api.AuditService;
+import org.apache.knox.gateway.audit.api.AuditSink;
+import org.apache.knox.gateway.audit.api.Auditor;
+import org.apache.knox.gateway.audit.api.CorrelationContext;
+import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditContext;
+
+/**
+ * Records audit events as {@link AuditRecord}s written to an {@link AuditSink}, instead of log4j
+ * events carrying the audit details in the thread context (MDC).  The audit context is kept in a
+ * thread local as well.
+ * <p>
+ * When events are aggregated, the events recorded by an auditor for the same request are written as
+ * a single record, once the request completes, whichever threads recorded them.
+ */
+public class StructuredAuditService implements AuditService {
+
+  private final AuditSink sink;
+  private final boolean aggregate;
+  private final ThreadLocal<AuditContext> contexts = new ThreadLocal<>();
+  // The records of each request that is not complete yet, by auditor
+  private final Map<String, Map<StructuredAuditor, AuditRecord>> pending = new ConcurrentHashMap<>();
+  private final Map<String, Auditor> auditors = new ConcurrentHashMap<>();
+
+  public StructuredAuditService( AuditSink sink, boolean aggregate ) {
+    this.sink = sink;
+    this.aggregate = aggregate;
+  }
+
+  @Override
+  public AuditContext createContext() {
+    AuditContext context = new Log4jAuditContext();
+    attachContext( context );
+    return context;
+  }
+
+  @Override
+  public AuditContext getContext() {
+    return contexts.get();
+  }
+
+  @Override
+  public void attachContext( AuditContext context ) {
+    if ( context != null ) {
+      contexts.set( context );
+    }
+  }
+
+  @Override
+  public AuditContext detachContext() {
+    AuditContext context = contexts.get();
+    contexts.remove();
+    return context;
+  }
+
+  @Override
+  public <T> T execute( AuditContext context, Callable<T> callable ) throws Exception {
+    try {
+      attachContext( context );
+      return callable.call();
+    } finally {
+      detachContext();
+    }
+  }
+
+  @Override
+  public Auditor getAuditor( String auditorName, String componentName, String serviceName ) {
+    return auditors.computeIfAbsent( auditorName + componentName + serviceName,
+        key -> new StructuredAuditor( this, auditorName, componentName, serviceName ) );
+  }
+
+  @Override
+  public void completeRequest( String requestId ) {
+    if ( requestId != null ) {
+      write( pending.remove( requestId ) );
+    }
+  }
+
+  /**
+   * Writes the records of the requests that are not complete yet and stops the sink.
+   */
+  public void stop() {
+    for ( String requestId : pending.keySet() ) {
+      completeRequest( requestId );
+    }
+    sink.stop();
+  }
+
+  void record( StructuredAuditor auditor, CorrelationContext correlationContext, AuditContext auditContext,
+               String action, String resourceName, String resourceType, String outcome, Object message ) {
+    final String requestId = correlationContext == null ? null : correlationContext.getRequestId();
+    final long timestamp = System.currentTimeMillis();
+    if ( !aggregate || requestId == null ) {
+      final AuditRecord record = newRecord( auditor, correlationContext );
+      record.update( auditContext );
+      record.addEvent( timestamp, action, resourceName, resourceType, outcome, message );
+      sink.write( record );
+      return;
+    }
+    // The records of a request are only updated while its entry is locked, so that the threads
+    // the request moves between and its completion see them consistently
+    pending.compute( requestId, ( id, records ) -> {
+      final Map<StructuredAuditor, AuditRecord> updated = records == null ? new LinkedHashMap<>() : records;
+      final AuditRecord record = updated.computeIfAbsent( auditor, a -> newRecord( a, correlationContext ) );
+      record.update( auditContext );
+      record.addEvent( timestamp, action, resourceName, resourceType, outcome, message );
+      return updated;
+    } );
+  }
+
+  private void write( Map<StructuredAuditor, AuditRecord> records ) {
+    if ( records != null ) {
+      for ( AuditRecord record : records.values() ) {
+        sink.write( record );
+      }
+    }
+  }
+
+  private static AuditRecord newRecord( StructuredAuditor auditor, CorrelationContext correlationContext ) {
+    return new AuditRecord( auditor.getAuditorName(), auditor.getServiceName(), auditor.getComponentName(), correlationContext );
+  }
+
+}
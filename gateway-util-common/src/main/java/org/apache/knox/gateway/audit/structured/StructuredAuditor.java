@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.structured;
+
+import org.apache.knox.gateway.audit.api.AuditContext;
+import org.apache.knox.gateway.audit.api.Auditor;
+import org.apache.knox.gateway.audit.api.CorrelationContext;
+import org.apache.knox.gateway.audit.api.CorrelationService;
+import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
+
+/**
+ * Records the audit events through a {@link StructuredAuditService}.
+ */
+public class StructuredAuditor implements Auditor {
+
+  private final StructuredAuditService auditService;
+  private final CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+  private final String auditorName;
+  private final String componentName;
+  private final String serviceName;
+
+  StructuredAuditor( StructuredAuditService auditService, String auditorName, String componentName, String serviceName ) {
+    this.auditService = auditService;
+    this.auditorName = auditorName;
+    this.componentName = componentName;
+    this.serviceName = serviceName;
+  }
+
+  @Override
+  public void audit( CorrelationContext correlationContext, AuditContext auditContext, String action,
+                     String resourceName, String resourceType, String outcome, String message ) {
+    auditService.record( this, correlationContext, auditContext, action, resourceName, resourceType, outcome, message );
+  }
+
+  @Override
+  public void audit( String action, String resourceName, String resourceType, String outcome, String message ) {
+    record( action, resourceName, resourceType, outcome, message );
+  }
+
+  @Override
+  public void audit( String action, String resourceName, String resourceType, String outcome, ResourceMessage message ) {
+    // The message is rendered by the thread encoding the record
+    record( action, resourceName, resourceType, outcome, message );
+  }
+
+  @Override
+  public void audit( String action, String resourceName, String resourceType, String outcome ) {
+    record( action, resourceName, resourceType, outcome, null );
+  }
+
+  private void record( String action, String resourceName, String resourceType, String outcome, Object message ) {
+    auditService.record( this, correlationService.getContext(), auditService.getContext(),
+        action, resourceName, resourceType, outcome, message );
+  }
+
+  @Override
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  @Override
+  public String getComponentName() {
+    return componentName;
+  }
+
+  @Override
+  public String getAuditorName() {
+    return auditorName;
+  }
+
+}
@@ -44,4 +44,13 @@ public interface GatewayUtilCommonMessages {
 
   @Message( level = MessageLevel.DEBUG, text = "{0} Cookie has been found." )
   void cookieHasBeenFound(String cookieName);
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to write audit records: {0}" )
+  void failedToWriteAuditRecords( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Interrupted while waiting to write an audit record, the record has been dropped" )
+  void interruptedWhileWritingAuditRecord();
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to open the structured audit file {0}, keeping log4j audit: {1}" )
+  void failedToOpenStructuredAuditFile( String file, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
 }
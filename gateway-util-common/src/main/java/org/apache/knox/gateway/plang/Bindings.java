@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.plang;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Variables and functions of a single evaluation of an {@link Expression},
+ * such as the user name and the request headers. Only the values that differ
+ * between evaluations belong here, the built-in functions are resolved when
+ * the expression is compiled.
+ */
+public class Bindings {
+    private final Map<String, Object> constants = new HashMap<>();
+    private final Map<String, Interpreter.Func> functions = new HashMap<>();
+
+    public Bindings addConstant(String name, Object value) {
+        constants.put(name, value);
+        return this;
+    }
+
+    public Bindings addFunction(String name, Arity arity, Interpreter.Func func) {
+        functions.put(name, parameters -> {
+            arity.check(name, parameters);
+            return func.call(parameters);
+        });
+        return this;
+    }
+
+    Object constant(String name) {
+        Object value = constants.get(name);
+        if (value == null) {
+            throw new UndefinedSymbolException(name, "variable");
+        }
+        return value;
+    }
+
+    Interpreter.Func function(String name) {
+        Interpreter.Func func = functions.get(name);
+        if (func == null) {
+            throw new UndefinedSymbolException(name, "function");
+        }
+        return func;
+    }
+}
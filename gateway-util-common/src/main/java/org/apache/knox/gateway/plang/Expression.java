@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.plang;
+
+/**
+ * An expression compiled by the {@link ExpressionCompiler}. It is immutable and can be
+ * evaluated by several threads at once, each with its own {@link Bindings}.
+ */
+public class Expression {
+    interface Node {
+        Object eval(Bindings bindings);
+    }
+
+    private final AbstractSyntaxTree ast;
+    private final Node root;
+
+    Expression(AbstractSyntaxTree ast, Node root) {
+        this.ast = ast;
+        this.root = root;
+    }
+
+    public Object eval(Bindings bindings) {
+        try {
+            return root.eval(bindings);
+        } catch (ClassCastException e) {
+            throw new TypeException("Type error at: " + ast, e);
+        }
+    }
+
+    public AbstractSyntaxTree ast() {
+        return ast;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(ast);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.plang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.knox.gateway.identityasserter.regex.filter.RegexTemplate;
+
+/**
+ * Compiles an {@link AbstractSyntaxTree} to an {@link Expression} that can be
+ * evaluated many times without interpreting the tree again.
+ *
+ * The built-in functions of the {@link Interpreter} are resolved once, calls
+ * of side effect free functions with constant arguments are evaluated at
+ * compile time, and the regular expressions given as literals are compiled
+ * once. The symbols that are not built-in are looked up in the
+ * {@link Bindings} of each evaluation.
+ *
+ * Errors, such as a wrong number of arguments, are reported when the
+ * expression is evaluated, like the {@link Interpreter} does.
+ */
+public class ExpressionCompiler {
+    private static final Interpreter BUILT_INS = new Interpreter();
+    private static final Arity OR_AND = Arity.min(1);
+    private static final Arity IF = Arity.between(2, 3);
+
+    public Expression compile(AbstractSyntaxTree ast) {
+        return new Expression(ast, ast == null ? bindings -> null : compileNode(ast));
+    }
+
+    private Expression.Node compileNode(AbstractSyntaxTree ast) {
+        if (ast.isAtom()) {
+            return compileAtom(ast);
+        } else if (ast.isFunction()) {
+            return compileCall(ast.functionName(), ast.functionParameters());
+        } else {
+            return fail(new InterpreterException("Unknown token: " + ast.token()));
+        }
+    }
+
+    private Expression.Node compileAtom(AbstractSyntaxTree ast) {
+        if (ast.isStr()) {
+            return new Literal(ast.strValue());
+        } else if (ast.isNumber()) {
+            return new Literal(ast.numValue());
+        } else if ("true".equals(ast.token()) || "false".equals(ast.token())) {
+            return new Literal(Boolean.valueOf(ast.token()));
+        }
+        final String name = ast.token();
+        return bindings -> bindings.constant(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Expression.Node compileCall(String name, List<AbstractSyntaxTree> parameters) {
+        final List<Expression.Node> args = new ArrayList<>(parameters.size());
+        for (AbstractSyntaxTree each : parameters) {
+            args.add(compileNode(each));
+        }
+        switch (name) {
+            case "or":
+                return checkArity(OR_AND, name, args, bindings -> args.stream().anyMatch(each -> (boolean) each.eval(bindings)));
+            case "and":
+                return checkArity(OR_AND, name, args, bindings -> args.stream().allMatch(each -> (boolean) each.eval(bindings)));
+            case "if":
+                return checkArity(IF, name, args, bindings -> {
+                    if ((boolean) args.get(0).eval(bindings)) {
+                        return args.get(1).eval(bindings);
+                    }
+                    return args.size() == 3 ? args.get(2).eval(bindings) : null;
+                });
+            case "username":
+                return checkArity(Arity.UNARY, name, args, bindings ->
+                        bindings.constant("username").equals(args.get(0).eval(bindings)));
+            case "member":
+                return checkArity(Arity.UNARY, name, args, bindings ->
+                        ((Collection<String>) bindings.constant("groups")).contains((String) args.get(0).eval(bindings)));
+            case "match":
+                if (args.size() == 2 && args.get(1) instanceof Literal && ((Literal) args.get(1)).value instanceof String) {
+                    return compileMatch(args.get(0), Pattern.compile((String) ((Literal) args.get(1)).value));
+                }
+                break;
+            case "regex-template":
+                if (args.size() >= 3 && args.size() <= 5 && args.subList(1, args.size()).stream().allMatch(Literal.class::isInstance)) {
+                    return compileRegexTemplate(args);
+                }
+                break;
+            default:
+                break;
+        }
+        final Interpreter.Func builtIn = BUILT_INS.function(name);
+        if (builtIn == null) {
+            return bindings -> bindings.function(name).call(evalAll(args, bindings));
+        }
+        if (!"print".equals(name) && args.stream().allMatch(Literal.class::isInstance)) {
+            try {
+                return new Literal(builtIn.call(evalAll(args, null)));
+            } catch (RuntimeException e) {
+                // reported when evaluated
+            }
+        }
+        return bindings -> builtIn.call(evalAll(args, bindings));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression.Node compileMatch(Expression.Node input, Pattern pattern) {
+        return bindings -> {
+            Object value = input.eval(bindings);
+            return value instanceof String
+                    ? pattern.matcher((String) value).matches()
+                    : ((List<String>) value).stream().anyMatch(each -> pattern.matcher(each).matches());
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression.Node compileRegexTemplate(List<Expression.Node> args) {
+        final RegexTemplate template;
+        try {
+            String regex = (String) ((Literal) args.get(1)).value;
+            String output = (String) ((Literal) args.get(2)).value;
+            Map<String, String> lookup = args.size() >= 4 ? (Map<String, String>) ((Literal) args.get(3)).value : null;
+            boolean useOriginalOnLookupFailure = args.size() >= 5 && (boolean) ((Literal) args.get(4)).value;
+            template = new RegexTemplate(regex, output, lookup, useOriginalOnLookupFailure);
+        } catch (RuntimeException e) {
+            final Interpreter.Func builtIn = BUILT_INS.function("regex-template");
+            return bindings -> builtIn.call(evalAll(args, bindings));
+        }
+        final Expression.Node input = args.get(0);
+        return bindings -> template.apply((String) input.eval(bindings));
+    }
+
+    private static Expression.Node checkArity(Arity arity, String name, List<Expression.Node> args, Expression.Node node) {
+        try {
+            arity.check(name, args);
+            return node;
+        } catch (ArityException e) {
+            return fail(e);
+        }
+    }
+
+    private static Expression.Node fail(RuntimeException e) {
+        return bindings -> {
+            throw e;
+        };
+    }
+
+    private static List<Object> evalAll(List<Expression.Node> args, Bindings bindings) {
+        final List<Object> values = new ArrayList<>(args.size());
+        for (Expression.Node each : args) {
+            values.add(each.eval(bindings));
+        }
+        return values;
+    }
+
+    private static class Literal implements Expression.Node {
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object eval(Bindings bindings) {
+            return value;
+        }
+    }
+}
@@ -197,6 +197,10 @@ public class Interpreter {
         });
     }
 
+    Func function(String name) {
+        return functions.get(name);
+    }
+
     public Object eval(AbstractSyntaxTree ast) {
         try {
             if (ast == null) {
@@ -40,6 +40,18 @@ public class CertificateUtils {
    * @throws ServletException exception on PEM issue
    */
   public static RSAPublicKey parseRSAPublicKey(String pem) throws ServletException {
+    return (RSAPublicKey) parsePublicKey(pem);
+  }
+
+  /**
+   * Gets the RSA, EC or EdDSA public key of the certificate with the provided PEM encoding.
+   *
+   * @param pem
+   *          - the pem encoding from config without the header and footer
+   * @return PublicKey
+   * @throws ServletException exception on PEM issue
+   */
+  public static PublicKey parsePublicKey(String pem) throws ServletException {
     String fullPem = PEM_HEADER + pem + PEM_FOOTER;
     PublicKey key;
     try {
@@ -59,6 +71,6 @@ public class CertificateUtils {
       }
       throw new ServletException(message, ce);
     }
-    return (RSAPublicKey) key;
+    return key;
   }
 }
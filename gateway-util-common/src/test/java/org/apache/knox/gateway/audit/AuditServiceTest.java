@@ -22,7 +22,9 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsNull.nullValue;
 
 import java.io.File;
+import java.text.MessageFormat;
 import java.util.Iterator;
+import java.util.Locale;
 
 import org.apache.knox.gateway.audit.api.AuditContext;
 import org.apache.knox.gateway.audit.api.AuditService;
@@ -34,6 +36,7 @@ import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.knox.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditContext;
 import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationContext;
+import org.apache.knox.gateway.i18n.resources.ResourceMessage;
 import org.apache.knox.test.log.CollectAppender;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.util.ReadOnlyStringMap;
@@ -118,6 +121,15 @@ public class AuditServiceTest {
     assertThat( correlationService.getContext(), nullValue() );
   }
 
+  @Test
+  public void testResourceMessage() {
+    auditor.audit( "action", "resource", "resource type", "outcome",
+        new ResourceMessage( new MessageFormat( "Response status: {0}", Locale.ROOT ), 200 ) );
+
+    assertThat( CollectAppender.queue.size(), is( 1 ) );
+    assertThat( CollectAppender.queue.iterator().next().getMessage().getFormattedMessage(), is( "Response status: 200" ) );
+  }
+
   @Test
   public void testSequentialRequests() {
     AuditContext ac = auditService.createContext();
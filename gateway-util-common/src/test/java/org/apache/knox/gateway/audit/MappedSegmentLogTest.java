@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.knox.gateway.audit.log4j.appender.MappedSegmentLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+
+public class MappedSegmentLogTest {
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new File( "target/MappedSegmentLogTest" );
+    tearDown();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory( directory );
+  }
+
+  @Test
+  public void testUnacknowledgedRecordsSurviveReopening() throws IOException {
+    MappedSegmentLog log = new MappedSegmentLog( directory, 1024 );
+    log.append( records( "one", "two" ) );
+    log.acknowledge();
+    log.append( records( "three", "four" ) );
+    log.close();
+
+    log = new MappedSegmentLog( directory, 1024 );
+    assertThat( strings( log.readUnacknowledged() ), is( Arrays.asList( "three", "four" ) ) );
+    log.append( records( "five" ) );
+    assertThat( strings( log.readUnacknowledged() ), is( Arrays.asList( "three", "four", "five" ) ) );
+    log.acknowledge();
+    log.close();
+
+    log = new MappedSegmentLog( directory, 1024 );
+    assertThat( log.readUnacknowledged(), hasSize( 0 ) );
+    log.close();
+  }
+
+  @Test
+  public void testRecordsSpanSegments() throws IOException {
+    final List<String> expected = new ArrayList<>();
+    for( int i = 0; i < 100; i++ ) {
+      expected.add( "record-" + i );
+    }
+    MappedSegmentLog log = new MappedSegmentLog( directory, 64 );
+    log.append( records( expected.subList( 0, 50 ).toArray( new String[ 0 ] ) ) );
+    log.append( records( new String( new char[ 200 ] ).replace( '\0', 'x' ) ) );
+    log.acknowledge();
+    assertThat( segmentCount(), is( 1 ) );
+    log.append( records( expected.subList( 50, 100 ).toArray( new String[ 0 ] ) ) );
+    log.close();
+
+    log = new MappedSegmentLog( directory, 64 );
+    assertThat( strings( log.readUnacknowledged() ), is( expected.subList( 50, 100 ) ) );
+    log.close();
+  }
+
+  private int segmentCount() {
+    final File[] segments = directory.listFiles( ( dir, name ) -> name.endsWith( ".seg" ) );
+    return segments == null ? 0 : segments.length;
+  }
+
+  private static List<byte[]> records( String... values ) {
+    final List<byte[]> records = new ArrayList<>();
+    for( String value : values ) {
+      records.add( value.getBytes( StandardCharsets.UTF_8 ) );
+    }
+    return records;
+  }
+
+  private static List<String> strings( List<byte[]> records ) {
+    final List<String> values = new ArrayList<>();
+    for( byte[] record : records ) {
+      values.add( new String( record, StandardCharsets.UTF_8 ) );
+    }
+    return values;
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.knox.gateway.audit.api.Action;
+import org.apache.knox.gateway.audit.api.ActionOutcome;
+import org.apache.knox.gateway.audit.api.AuditContext;
+import org.apache.knox.gateway.audit.api.AuditRecord;
+import org.apache.knox.gateway.audit.api.AuditSink;
+import org.apache.knox.gateway.audit.api.Auditor;
+import org.apache.knox.gateway.audit.api.CorrelationContext;
+import org.apache.knox.gateway.audit.api.CorrelationService;
+import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.knox.gateway.audit.api.ResourceType;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationContext;
+import org.apache.knox.gateway.audit.structured.AsyncAuditSink;
+import org.apache.knox.gateway.audit.structured.JsonLinesAuditRecordEncoder;
+import org.apache.knox.gateway.audit.structured.StructuredAuditService;
+import org.junit.After;
+import org.junit.Test;
+
+public class StructuredAuditServiceTest {
+  private final CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+
+  @After
+  public void tearDown() {
+    correlationService.detachContext();
+  }
+
+  @Test
+  public void testEventsAreRecordedSeparately() {
+    final CollectingSink sink = new CollectingSink();
+    final StructuredAuditService auditService = new StructuredAuditService( sink, false );
+    audit( auditService, "request-1" );
+
+    assertThat( sink.records.size(), is( 3 ) );
+    assertThat( sink.records.get( 0 ).getEvents().size(), is( 1 ) );
+    assertThat( sink.records.get( 0 ).getUsername(), nullValue() );
+    assertThat( sink.records.get( 2 ).getUsername(), is( "guest" ) );
+    assertThat( sink.records.get( 2 ).getEvents().get( 0 ).getMessage(), is( "Response status: 200" ) );
+  }
+
+  @Test
+  public void testEventsAreAggregatedPerRequest() {
+    final CollectingSink sink = new CollectingSink();
+    final StructuredAuditService auditService = new StructuredAuditService( sink, true );
+    audit( auditService, "request-1" );
+    audit( auditService, "request-2" );
+
+    assertThat( sink.records.size(), is( 2 ) );
+    final AuditRecord record = sink.records.get( 0 );
+    assertThat( record.getRequestId(), is( "request-1" ) );
+    assertThat( record.getUsername(), is( "guest" ) );
+    assertThat( record.getRemoteIp(), is( "127.0.0.1" ) );
+    assertThat( record.getEvents().size(), is( 3 ) );
+    assertThat( record.getEvents().get( 1 ).getAction(), is( Action.DISPATCH ) );
+    assertThat( sink.records.get( 1 ).getRequestId(), is( "request-2" ) );
+  }
+
+  @Test
+  public void testEventsOfARequestAreAggregatedAcrossThreads() throws Exception {
+    final CollectingSink sink = new CollectingSink();
+    final StructuredAuditService auditService = new StructuredAuditService( sink, true );
+    final Auditor auditor = auditService.getAuditor( "audit", "knox", "knox" );
+    correlationService.attachContext( new Log4jCorrelationContext( "request-1", null, null ) );
+    auditService.createContext().setUsername( "guest" );
+    auditor.audit( Action.ACCESS, "/gateway/sandbox/webhdfs/v1/", ResourceType.URI, ActionOutcome.UNAVAILABLE );
+    final AuditContext auditContext = auditService.detachContext();
+    final CorrelationContext correlationContext = correlationService.getContext();
+    correlationService.detachContext();
+
+    // The request is resumed on another thread
+    final Thread thread = new Thread( () -> {
+      correlationService.attachContext( correlationContext );
+      auditService.attachContext( auditContext );
+      auditor.audit( Action.ACCESS, "/gateway/sandbox/webhdfs/v1/", ResourceType.URI, ActionOutcome.SUCCESS, "Response status: 200" );
+      auditService.detachContext();
+      correlationService.detachContext();
+    } );
+    thread.start();
+    thread.join();
+    assertThat( sink.records.size(), is( 0 ) );
+
+    auditService.completeRequest( "request-1" );
+    assertThat( sink.records.size(), is( 1 ) );
+    assertThat( sink.records.get( 0 ).getUsername(), is( "guest" ) );
+    assertThat( sink.records.get( 0 ).getEvents().size(), is( 2 ) );
+  }
+
+  @Test
+  public void testStopWritesTheRecordsOfIncompleteRequests() {
+    final CollectingSink sink = new CollectingSink();
+    final StructuredAuditService auditService = new StructuredAuditService( sink, true );
+    final Auditor auditor = auditService.getAuditor( "audit", "knox", "knox" );
+    for ( String requestId : new String[]{ "request-1", "request-2" } ) {
+      correlationService.attachContext( new Log4jCorrelationContext( requestId, null, null ) );
+      auditor.audit( Action.ACCESS, "/gateway/sandbox/webhdfs/v1/", ResourceType.URI, ActionOutcome.UNAVAILABLE );
+      correlationService.detachContext();
+    }
+    assertThat( sink.records.size(), is( 0 ) );
+
+    auditService.stop();
+    assertThat( sink.records.size(), is( 2 ) );
+  }
+
+  @Test
+  public void testRecordsAreEncodedAsJsonLines() throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final StructuredAuditService auditService =
+        new StructuredAuditService( new AsyncAuditSink( out, new JsonLinesAuditRecordEncoder(), 16 ), true );
+    audit( auditService, "request-1" );
+    audit( auditService, "request-2" );
+    auditService.stop();
+
+    final String[] lines = new String( out.toByteArray(), StandardCharsets.UTF_8 ).split( "\n" );
+    assertThat( lines.length, is( 2 ) );
+    final JsonNode record = new ObjectMapper().readTree( lines[ 0 ] );
+    assertThat( record.get( "requestId" ).asText(), is( "request-1" ) );
+    assertThat( record.get( "user" ).asText(), is( "guest" ) );
+    assertThat( record.has( "proxyUser" ), is( false ) );
+    assertThat( record.get( "events" ).size(), is( 3 ) );
+    assertThat( record.get( "events" ).get( 0 ).get( "resourceName" ).asText(), is( "/gateway/sandbox/webhdfs/v1/?knoxtoken=***************" ) );
+    assertThat( record.get( "events" ).get( 2 ).get( "message" ).asText(), is( "Response status: 200" ) );
+  }
+
+  @Test
+  public void testStopWritesTheQueuedRecordsToTheFile() throws Exception {
+    final File file = new File( "target/StructuredAuditServiceTest.json" );
+    Files.deleteIfExists( file.toPath() );
+    final StructuredAuditService auditService = new StructuredAuditService(
+        new AsyncAuditSink( Files.newOutputStream( file.toPath() ), new JsonLinesAuditRecordEncoder(), 16 ), false );
+    for ( int i = 0; i < 100; i++ ) {
+      audit( auditService, "request-" + i );
+    }
+    auditService.stop();
+
+    assertThat( Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ).size(), is( 300 ) );
+    Files.delete( file.toPath() );
+  }
+
+  private void audit( StructuredAuditService auditService, String requestId ) {
+    correlationService.attachContext( new Log4jCorrelationContext( requestId, null, null ) );
+    final Auditor auditor = auditService.getAuditor( "audit", "knox", "knox" );
+    final AuditContext context = auditService.createContext();
+    context.setRemoteIp( "127.0.0.1" );
+    auditor.audit( Action.ACCESS, "/gateway/sandbox/webhdfs/v1/?knoxtoken=secret", ResourceType.URI, ActionOutcome.UNAVAILABLE, "Request method: GET" );
+    context.setUsername( "guest" );
+    auditor.audit( Action.DISPATCH, "http://localhost:50070/webhdfs/v1/", ResourceType.URI, ActionOutcome.SUCCESS );
+    auditor.audit( Action.ACCESS, "/gateway/sandbox/webhdfs/v1/", ResourceType.URI, ActionOutcome.SUCCESS, "Response status: 200" );
+    auditService.detachContext();
+    correlationService.detachContext();
+    auditService.completeRequest( requestId );
+  }
+
+  private static class CollectingSink implements AuditSink {
+    private final List<AuditRecord> records = new ArrayList<>();
+
+    @Override
+    public void write( AuditRecord record ) {
+      records.add( record );
+    }
+
+    @Override
+    public void stop() {
+    }
+  }
+}
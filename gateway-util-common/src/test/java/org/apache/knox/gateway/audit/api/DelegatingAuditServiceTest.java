@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditService;
+import org.apache.knox.gateway.audit.structured.StructuredAuditService;
+import org.junit.Test;
+
+public class DelegatingAuditServiceTest {
+
+  @Test
+  public void testAuditorsFollowTheDelegate() {
+    final DelegatingAuditService auditService = new DelegatingAuditService( new Log4jAuditService() );
+    final Auditor auditor = auditService.getAuditor( "audit", "knox", "knox" );
+    assertThat( auditService.getAuditor( "audit", "knox", "knox" ), sameInstance( auditor ) );
+
+    final List<AuditRecord> records = new ArrayList<>();
+    auditService.setDelegate( new StructuredAuditService( new AuditSink() {
+      @Override
+      public void write( AuditRecord record ) {
+        records.add( record );
+      }
+
+      @Override
+      public void stop() {
+      }
+    }, false ) );
+    auditService.createContext().setUsername( "guest" );
+    auditor.audit( Action.ACCESS, "/gateway/sandbox/webhdfs/v1/", ResourceType.URI, ActionOutcome.SUCCESS );
+    auditService.detachContext();
+
+    assertThat( records.size(), is( 1 ) );
+    assertThat( records.get( 0 ).getUsername(), is( "guest" ) );
+    assertThat( records.get( 0 ).getAuditorName(), is( "audit" ) );
+  }
+}
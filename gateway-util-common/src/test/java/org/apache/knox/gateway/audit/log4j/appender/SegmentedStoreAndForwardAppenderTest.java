@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.knox.gateway.audit.log4j.appender;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.knox.test.log.CollectAppender;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.appender.AppenderLoggingException;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.Assert.fail;
+
+public class SegmentedStoreAndForwardAppenderTest {
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new File( "target/SegmentedStoreAndForwardAppenderTest" );
+    tearDown();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    CollectAppender.queue.clear();
+    FileUtils.deleteDirectory( directory );
+  }
+
+  @Test( timeout = 30000 )
+  public void testStoredEventsAreForwardedOnRestart() throws Exception {
+    // Events stored by an appender that stopped before forwarding them
+    MappedSegmentLog log = new MappedSegmentLog( directory, 1024 );
+    log.append( Arrays.asList( SegmentedStoreAndForwardAppender.serialize( event( "one" ) ),
+                               SegmentedStoreAndForwardAppender.serialize( event( "two" ) ) ) );
+    log.close();
+
+    SegmentedStoreAndForwardAppender appender = createAppender( new MappedSegmentLog( directory, 1024 ) );
+    appender.append( event( "three" ) );
+    assertThat( forwardedMessages( 3 ), is( Arrays.asList( "one", "two", "three" ) ) );
+    appender.stop();
+
+    log = new MappedSegmentLog( directory, 1024 );
+    assertThat( log.readUnacknowledged(), hasSize( 0 ) );
+    log.close();
+  }
+
+  @Test( timeout = 30000 )
+  public void testEventsThatFailedToBeStoredAreNotForwarded() throws Exception {
+    final AtomicBoolean failing = new AtomicBoolean( true );
+    final AtomicInteger acknowledgements = new AtomicInteger();
+    final MappedSegmentLog log = new MappedSegmentLog( directory, 1024 ) {
+      @Override
+      public void append( List<byte[]> records ) throws IOException {
+        if ( failing.get() ) {
+          throw new IOException( "No space left on device" );
+        }
+        super.append( records );
+      }
+
+      @Override
+      public void acknowledge() {
+        acknowledgements.incrementAndGet();
+        super.acknowledge();
+      }
+    };
+    final SegmentedStoreAndForwardAppender appender = createAppender( log );
+    try {
+      // The forwarder acknowledges the recovered events first
+      while ( acknowledgements.get() == 0 ) {
+        Thread.sleep( 10 );
+      }
+      try {
+        appender.append( event( "lost" ) );
+        fail( "Expected the event not to be stored" );
+      } catch ( AppenderLoggingException e ) {
+        assertThat( e.getCause().getMessage(), is( "No space left on device" ) );
+      }
+      assertThat( acknowledgements.get(), is( 1 ) );
+
+      failing.set( false );
+      appender.append( event( "stored" ) );
+      assertThat( forwardedMessages( 1 ), is( Arrays.asList( "stored" ) ) );
+      assertThat( CollectAppender.queue.poll( 200, TimeUnit.MILLISECONDS ), is( (LogEvent) null ) );
+    } finally {
+      appender.stop();
+    }
+  }
+
+  @Test( timeout = 30000 )
+  public void testEventsAreAcknowledgedOnceEveryAppenderTookThem() throws Exception {
+    final AtomicInteger acknowledgements = new AtomicInteger();
+    final MappedSegmentLog log = new MappedSegmentLog( directory, 1024 ) {
+      @Override
+      public void acknowledge() {
+        acknowledgements.incrementAndGet();
+        super.acknowledge();
+      }
+    };
+    final AtomicInteger failures = new AtomicInteger( 2 );
+    final List<String> delivered = new CopyOnWriteArrayList<>();
+    final Appender failing = new AbstractAppender( "failing", null, null, true, null ) {
+      @Override
+      public void append( LogEvent event ) {
+        if ( failures.getAndDecrement() > 0 ) {
+          throw new AppenderLoggingException( "Connection refused" );
+        }
+        delivered.add( event.getMessage().getFormattedMessage() );
+      }
+    };
+    final Logger forward = (Logger) LogManager.getLogger( "audit.forward" );
+    forward.addAppender( failing );
+    final SegmentedStoreAndForwardAppender appender = createAppender( log );
+    try {
+      while ( acknowledgements.get() == 0 ) {
+        Thread.sleep( 10 );
+      }
+      appender.append( event( "one" ) );
+      assertThat( forwardedMessages( 1 ), is( Arrays.asList( "one" ) ) );
+      assertThat( acknowledgements.get(), is( 1 ) );
+
+      // The event is retried until the failing appender takes it, then acknowledged
+      while ( acknowledgements.get() == 1 ) {
+        Thread.sleep( 10 );
+      }
+      assertThat( delivered, is( Arrays.asList( "one" ) ) );
+      assertThat( CollectAppender.queue.poll( 200, TimeUnit.MILLISECONDS ), is( (LogEvent) null ) );
+    } finally {
+      appender.stop();
+      forward.removeAppender( failing );
+    }
+  }
+
+  private static SegmentedStoreAndForwardAppender createAppender( MappedSegmentLog log ) {
+    return new SegmentedStoreAndForwardAppender( "test", null, log, 4, 0L );
+  }
+
+  private static LogEvent event( String message ) {
+    return Log4jLogEvent.newBuilder()
+        .setLoggerName( "audit" )
+        .setLevel( Level.INFO )
+        .setMessage( new SimpleMessage( message ) )
+        .build();
+  }
+
+  private static List<String> forwardedMessages( int count ) throws InterruptedException {
+    final List<String> messages = new ArrayList<>();
+    while ( messages.size() < count ) {
+      final LogEvent event = CollectAppender.queue.poll( 10, TimeUnit.SECONDS );
+      if ( event == null ) {
+        break;
+      }
+      messages.add( event.getMessage().getFormattedMessage() );
+    }
+    return messages;
+  }
+}
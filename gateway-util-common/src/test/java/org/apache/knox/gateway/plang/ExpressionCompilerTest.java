@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.plang;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ExpressionCompilerTest {
+    ExpressionCompiler compiler = new ExpressionCompiler();
+    Parser parser = new Parser();
+
+    @Test
+    public void testSameResultAsInterpreter() {
+        String[] scripts = {
+            "true",
+            "(or false (and true (not false)))",
+            "(if (< 1 2.5) 'yes' 'no')",
+            "(if false 'yes')",
+            "(= 0 0.0)",
+            "(!= 'apple' 'orange')",
+            "(+ 1 (* 2 3))",
+            "(- 1.5 (/ 4 2))",
+            "(concat (lowercase 'ORANGE') ' ' (uppercase 'apple'))",
+            "(substr '123456789' 2 5)",
+            "(strlen (uppercase 'apple'))",
+            "(index-of 'ppl' 'apple')",
+            "(match 'grp12' 'grp\\d+')",
+            "(regex-template 'prefix_user-1_suffix' 'prefix_(\\w+)\\-(\\d)_suffix' '{1}.{2}')",
+            "(regex-template 'nobody' '(.*)' '{[1]}' (hash 'nobody' 'guest') true)",
+            "(at 'a' (hash 1 2 'a' 'b'))"
+        };
+        Interpreter interpreter = new Interpreter();
+        for (String script : scripts) {
+            assertEquals(script, interpreter.eval(parser.parse(script)), eval(script, new Bindings()));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertNull(eval(null, new Bindings()));
+        assertNull(eval(" ", new Bindings()));
+    }
+
+    @Test
+    public void testBindings() {
+        Expression expression = compiler.compile(parser.parse(
+                "(and (username 'user1') (member 'grp1') (match groups 'grp\\d+') (= (request-header 'X-Dept') 'sales'))"));
+        Bindings matching = new Bindings()
+                .addConstant("username", "user1")
+                .addConstant("groups", asList("grp1", "grp2"))
+                .addFunction("request-header", Arity.UNARY, args -> "sales");
+        Bindings notMatching = new Bindings()
+                .addConstant("username", "user1")
+                .addConstant("groups", singletonList("grp1"))
+                .addFunction("request-header", Arity.UNARY, args -> "hr");
+        assertTrue((boolean) expression.eval(matching));
+        assertFalse((boolean) expression.eval(notMatching));
+        assertTrue((boolean) expression.eval(matching));
+    }
+
+    @Test
+    public void testBoundFunctionIsCalledOnEachEvaluation() {
+        AtomicInteger calls = new AtomicInteger();
+        Bindings bindings = new Bindings().addFunction("next", Arity.of(0), args -> calls.incrementAndGet());
+        Expression expression = compiler.compile(parser.parse("(+ (next) 1)"));
+        assertEquals(2L, expression.eval(bindings));
+        assertEquals(3L, expression.eval(bindings));
+    }
+
+    @Test
+    public void testShortCircuit() {
+        assertTrue((boolean) eval("(or true (invalid-expression 1 2 3))", new Bindings()));
+        assertEquals("apple", eval("(if false (invalid-expression) (lowercase 'APPLE'))", new Bindings()));
+    }
+
+    @Test(expected = ArityException.class)
+    public void testArityErrorWhenEvaluated() {
+        Expression expression = compiler.compile(parser.parse("(if true 1 2 3)"));
+        expression.eval(new Bindings());
+    }
+
+    @Test(expected = UndefinedSymbolException.class)
+    public void testUndefinedVariable() {
+        eval("(= username 'user1')", new Bindings());
+    }
+
+    @Test(expected = UndefinedSymbolException.class)
+    public void testUndefinedFunction() {
+        eval("(invalid-expression 1)", new Bindings());
+    }
+
+    @Test(expected = TypeException.class)
+    public void testTypeError() {
+        eval("(strlen groups)", new Bindings().addConstant("groups", singletonList("grp1")));
+    }
+
+    private Object eval(String script, Bindings bindings) {
+        return compiler.compile(parser.parse(script)).eval(bindings);
+    }
+}